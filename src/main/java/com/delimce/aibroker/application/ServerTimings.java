@@ -0,0 +1,172 @@
+package com.delimce.aibroker.application;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import jakarta.servlet.ServletRequest;
+
+/**
+ * Where the time of one timed request went, stage by stage, for the
+ * Server-Timing header of its response. A timed request carries its own
+ * instance as a request attribute; any other request gets {@link #DISABLED},
+ * whose record methods return at once and which allocates nothing. Stages are
+ * recorded by the thread that runs them and read once the response is ready,
+ * after all of them have run.
+ */
+public final class ServerTimings {
+
+    public static final String ATTRIBUTE = ServerTimings.class.getName();
+    public static final String HEADER = "Server-Timing";
+
+    public static final ServerTimings DISABLED = new ServerTimings(0, null, false);
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final long NOT_RECORDED = -1;
+
+    public enum Stage {
+        AUTH("auth", "Authentication"),
+        RESOLVE("resolve", "Model resolution"),
+        AUDIT("audit", "Quota check and audit"),
+        CONNECT("connect", "Wait for the provider call"),
+        TTFT("ttft", "Provider time to first token"),
+        SERIALIZE("ser", "Response serialization");
+
+        private final String metric;
+        private final String description;
+
+        Stage(String metric, String description) {
+            this.metric = metric;
+            this.description = description;
+        }
+
+        public String metric() {
+            return metric;
+        }
+    }
+
+    private final long start;
+    private final long[] durations;
+    private final boolean inBody;
+
+    private ServerTimings(long start, long[] durations, boolean inBody) {
+        this.start = start;
+        this.durations = durations;
+        this.inBody = inBody;
+    }
+
+    /**
+     * Starts timing a request.
+     *
+     * @param inBody whether the timings are also sent in the response body
+     */
+    public static ServerTimings start(boolean inBody) {
+        long[] durations = new long[STAGES.length];
+        Arrays.fill(durations, NOT_RECORDED);
+        return new ServerTimings(System.nanoTime(), durations, inBody);
+    }
+
+    /**
+     * @return the timings of the request bound to the calling thread,
+     *         {@link #DISABLED} when it is not timed or there is none
+     */
+    public static ServerTimings current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return DISABLED;
+        }
+        return of(attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+    }
+
+    /**
+     * @return the timings of the request, {@link #DISABLED} when it is not
+     *         timed
+     */
+    public static ServerTimings of(ServletRequest request) {
+        return of(request.getAttribute(ATTRIBUTE));
+    }
+
+    private static ServerTimings of(Object attribute) {
+        return attribute instanceof ServerTimings timings ? timings : DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return durations != null;
+    }
+
+    public boolean isInBody() {
+        return inBody;
+    }
+
+    /**
+     * Records a stage that started at the given {@link System#nanoTime()} and
+     * ends now.
+     */
+    public void record(Stage stage, long startNanos) {
+        if (durations != null) {
+            durations[stage.ordinal()] = System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Records a stage that took the given nanoseconds.
+     */
+    public void recordNanos(Stage stage, long nanos) {
+        if (durations != null) {
+            durations[stage.ordinal()] = nanos;
+        }
+    }
+
+    /**
+     * @return the recorded stages and the total time so far, in milliseconds,
+     *         in the order they run; empty when not timed
+     */
+    public Map<String, Double> millis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        if (durations == null) {
+            return millis;
+        }
+        for (Stage stage : STAGES) {
+            if (durations[stage.ordinal()] != NOT_RECORDED) {
+                millis.put(stage.metric, toMillis(durations[stage.ordinal()]));
+            }
+        }
+        millis.put("total", toMillis(System.nanoTime() - start));
+        return millis;
+    }
+
+    /**
+     * @return the value of the Server-Timing header: the recorded stages and
+     *         the total time so far, null when not timed
+     */
+    public String header() {
+        if (durations == null) {
+            return null;
+        }
+        StringBuilder header = new StringBuilder(256);
+        for (Stage stage : STAGES) {
+            if (durations[stage.ordinal()] != NOT_RECORDED) {
+                append(header, stage.metric, stage.description, durations[stage.ordinal()]);
+            }
+        }
+        append(header, "total", "Time on the broker", System.nanoTime() - start);
+        return header.toString();
+    }
+
+    private static void append(StringBuilder header, String metric, String description, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(metric)
+                .append(";dur=").append(String.format(Locale.ROOT, "%.3f", toMillis(nanos)))
+                .append(";desc=\"").append(description).append('"');
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -5,33 +5,38 @@ import com.delimce.aibroker.domain.dto.responses.users.UserLoggedResponse;
 import com.delimce.aibroker.domain.dto.values.UserToken;
 import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.exceptions.account.UserIsNotActiveException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PasswordInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AccountLoginService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordInterface passwordInterface;
     private final JwtTokenInterface jwtTokenAdapter;
+    private final PrincipalCacheInterface principalCache;
 
     public AccountLoginService(
             UserRepository userRepository,
-            PasswordEncoder passwordEncoder,
-            JwtTokenInterface jwtTokenAdapter) {
+            PasswordInterface passwordInterface,
+            JwtTokenInterface jwtTokenAdapter,
+            PrincipalCacheInterface principalCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordInterface = passwordInterface;
         this.jwtTokenAdapter = jwtTokenAdapter;
+        this.principalCache = principalCache;
     }
 
     public UserLoggedResponse execute(UserLoginRequest request)
-            throws UserIsNotActiveException, SecurityValidationException {
+            throws UserIsNotActiveException, SecurityValidationException, TooManyRequestsException {
         var user = userRepository.findByEmail(request.getEmail());
         if (user == null ||
-                !passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+                !passwordInterface.matches(request.getPassword(), user.getPassword())) {
             throw new IllegalArgumentException("Invalid email or password");
         }
 
@@ -44,6 +49,8 @@ public class AccountLoginService {
         // refresh user token issuedAt
         user.setTokenTs(token.issuedAt());
         userRepository.save(user);
+        // tokens issued before this login stop working right away
+        principalCache.invalidate(user.getEmail());
 
         return new UserLoggedResponse(
                 token.token(),
@@ -5,33 +5,35 @@ import com.delimce.aibroker.domain.dto.responses.users.UserCreatedResponse;
 import com.delimce.aibroker.domain.dto.values.UserToken;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.exceptions.account.UserAlreadyExistsException;
 import com.delimce.aibroker.domain.mappers.users.UserMapper;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PasswordInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AccountRegisterService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordInterface passwordInterface;
     private final UserMapper userMapper;
     private final JwtTokenInterface jwtTokenInterface;
 
     public AccountRegisterService(UserRepository userRepository,
-            PasswordEncoder passwordEncoder,
+            PasswordInterface passwordInterface,
             UserMapper userMapper,
             JwtTokenInterface jwtTokenInterface) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordInterface = passwordInterface;
         this.userMapper = userMapper;
         this.jwtTokenInterface = jwtTokenInterface;
     }
 
     public UserCreatedResponse execute(UserRegistrationRequest request)
-            throws UserAlreadyExistsException, IllegalArgumentException, SecurityValidationException {
+            throws UserAlreadyExistsException, IllegalArgumentException, SecurityValidationException,
+            TooManyRequestsException {
         if (!request.getPassword().equals(request.getPasswordConfirmation())) {
             throw new IllegalArgumentException(
                     "Password and password confirmation do not match");
@@ -45,7 +47,7 @@ public class AccountRegisterService {
                 .name(request.getFirstName())
                 .lastName(request.getLastName())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordInterface.encode(request.getPassword()))
                 .build();
 
         UserToken token = jwtTokenInterface.generateUserToken(user);
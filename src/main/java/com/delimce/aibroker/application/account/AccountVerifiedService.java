@@ -8,6 +8,7 @@ import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.mappers.users.UserMapper;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
 
 @Service
@@ -16,13 +17,16 @@ public class AccountVerifiedService {
     private final UserRepository userRepository;
     private final JwtTokenInterface jwtTokenInterface;
     private final UserMapper userMapper;
+    private final PrincipalCacheInterface principalCache;
 
     public AccountVerifiedService(UserRepository userRepository,
             JwtTokenInterface jwtTokenInterface,
-            UserMapper userMapper) {
+            UserMapper userMapper,
+            PrincipalCacheInterface principalCache) {
         this.userRepository = userRepository;
         this.jwtTokenInterface = jwtTokenInterface;
         this.userMapper = userMapper;
+        this.principalCache = principalCache;
     }
 
     public UserMinDetail execute(String token) throws JwtTokenException {
@@ -43,6 +47,7 @@ public class AccountVerifiedService {
             user.setStatus(UserStatus.ACTIVE);
             user.setTempToken(null);
             user = userRepository.save(user);
+            principalCache.invalidate(email);
         }
 
         return userMapper.userToUserMinDetail(user);
@@ -0,0 +1,218 @@
+package com.delimce.aibroker.application.llm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Timers of the stages of a chat request and of each upstream call, tagged
+ * by model, provider and outcome, plus the tokens they moved. A stage is
+ * timed from the caller's point of view: the upstream stage of a request
+ * includes coalescing, hedging, throttling and the circuit breaker, while
+ * each call it makes to a provider is timed on its own, along with its time
+ * to first token, inter-token latency and output tokens per second.
+ * Percentile histograms are switched on in configuration, per meter name.
+ */
+@Service
+public class ChatMetrics {
+
+    static final String STAGE_TIMER = "aibroker.chat.stage";
+    static final String CALL_TIMER = "aibroker.upstream.call";
+    static final String TOKEN_COUNTER = "aibroker.chat.tokens";
+    static final String TTFT_TIMER = "aibroker.upstream.ttft";
+    static final String INTER_TOKEN_TIMER = "aibroker.upstream.inter.token";
+    static final String OUTPUT_RATE_SUMMARY = "aibroker.upstream.output.rate";
+
+    static final String RESOLVE = "resolve";
+    static final String REGISTER = "register";
+    static final String CACHE = "cache";
+    static final String SEMANTIC = "semantic";
+    static final String UPSTREAM = "upstream";
+    static final String STATS = "stats";
+
+    static final String SUCCESS = "success";
+    static final String ERROR = "error";
+    static final String CANCELLED = "cancelled";
+    static final String HIT = "hit";
+    static final String MISS = "miss";
+
+    private static final String UNKNOWN = "unknown";
+    private static final String STAGE_DESCRIPTION = "Time spent in each stage of a chat request";
+    private static final String CALL_DESCRIPTION = "Time spent in each call to a provider";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<List<String>, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<List<String>, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records a stage that ran on the calling thread.
+     *
+     * @param stage      the stage
+     * @param model      the model of the request, null when not resolved
+     * @param outcome    how the stage ended
+     * @param startNanos {@link System#nanoTime()} when the stage started
+     */
+    public void stage(String stage, Model model, String outcome, long startNanos) {
+        record(STAGE_TIMER, STAGE_DESCRIPTION, stage, model, outcome, startNanos);
+    }
+
+    /**
+     * Times a stage from subscription until the Mono completes, fails or is
+     * cancelled.
+     */
+    public <T> Mono<T> stage(String stage, Model model, Mono<T> mono) {
+        return timed(STAGE_TIMER, STAGE_DESCRIPTION, stage, model, mono);
+    }
+
+    /**
+     * Times a stage from subscription until the Flux completes, fails or is
+     * cancelled.
+     */
+    public <T> Flux<T> stage(String stage, Model model, Flux<T> flux) {
+        return timed(STAGE_TIMER, STAGE_DESCRIPTION, stage, model, flux);
+    }
+
+    /**
+     * Times one call to a provider.
+     */
+    public <T> Mono<T> call(Model model, Mono<T> call) {
+        return timed(CALL_TIMER, CALL_DESCRIPTION, null, model, call);
+    }
+
+    /**
+     * Times one streamed call to a provider, until its last chunk.
+     */
+    public <T> Flux<T> call(Model model, Flux<T> call) {
+        return timed(CALL_TIMER, CALL_DESCRIPTION, null, model, call);
+    }
+
+    /**
+     * Counts the tokens of a response, as spent upstream or as served
+     * without a call of its own.
+     */
+    public void tokens(Model model, Usage usage, boolean responseCacheHit) {
+        String source = responseCacheHit ? "cache" : "upstream";
+        count(model, "prompt", source, usage.getPrompt_tokens());
+        count(model, "completion", source, usage.getCompletion_tokens());
+        count(model, "prompt_cache_hit", source, usage.getPrompt_cache_hit_tokens());
+    }
+
+    /**
+     * Records the latencies of the provider call that answered a request.
+     *
+     * @param model                  the model called
+     * @param timeToFirstTokenNanos  nanoseconds to the first chunk
+     * @param interTokenLatencyNanos mean nanoseconds between tokens, null when
+     *                               not streamed
+     * @param outputTokensPerSecond  completion tokens per second, null when
+     *                               there were none
+     */
+    public void latency(Model model, long timeToFirstTokenNanos, Double interTokenLatencyNanos,
+            Double outputTokensPerSecond) {
+        timer(TTFT_TIMER, "Time from the start of a call to a provider to its first chunk", null, model,
+                SUCCESS).record(timeToFirstTokenNanos, TimeUnit.NANOSECONDS);
+        if (interTokenLatencyNanos != null) {
+            timer(INTER_TOKEN_TIMER, "Mean time between the tokens of a streamed call, after the first", null,
+                    model, SUCCESS).record(Math.round(interTokenLatencyNanos), TimeUnit.NANOSECONDS);
+        }
+        if (outputTokensPerSecond != null) {
+            String modelName = modelName(model);
+            String provider = providerName(model);
+            summaries.computeIfAbsent(List.of(modelName, provider), k -> DistributionSummary
+                    .builder(OUTPUT_RATE_SUMMARY)
+                    .description("Completion tokens per second of a call to a provider")
+                    .baseUnit("tokens_per_second")
+                    .tag("model", modelName)
+                    .tag("provider", provider)
+                    .register(meterRegistry))
+                    .record(outputTokensPerSecond);
+        }
+    }
+
+    private <T> Mono<T> timed(String name, String description, String stage, Model model, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono
+                    .doOnSuccess(value -> record(name, description, stage, model, SUCCESS, start))
+                    .doOnError(e -> record(name, description, stage, model, ERROR, start))
+                    .doOnCancel(() -> record(name, description, stage, model, CANCELLED, start));
+        });
+    }
+
+    private <T> Flux<T> timed(String name, String description, String stage, Model model, Flux<T> flux) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return flux
+                    .doOnComplete(() -> record(name, description, stage, model, SUCCESS, start))
+                    .doOnError(e -> record(name, description, stage, model, ERROR, start))
+                    .doOnCancel(() -> record(name, description, stage, model, CANCELLED, start));
+        });
+    }
+
+    private void record(String name, String description, String stage, Model model, String outcome,
+            long start) {
+        timer(name, description, stage, model, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String description, String stage, Model model, String outcome) {
+        String modelName = modelName(model);
+        String provider = providerName(model);
+        List<String> key = List.of(name, stage != null ? stage : "", modelName, provider, outcome);
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(name)
+                    .description(description)
+                    .tag("model", modelName)
+                    .tag("provider", provider)
+                    .tag("outcome", outcome);
+            if (stage != null) {
+                builder.tag("stage", stage);
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private void count(Model model, String type, String source, int tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        String modelName = modelName(model);
+        String provider = providerName(model);
+        counters.computeIfAbsent(List.of(modelName, provider, type, source), k -> Counter.builder(TOKEN_COUNTER)
+                .description("Tokens of chat responses, by type and by whether they were spent upstream")
+                .baseUnit("tokens")
+                .tag("model", modelName)
+                .tag("provider", provider)
+                .tag("type", type)
+                .tag("source", source)
+                .register(meterRegistry))
+                .increment(tokens);
+    }
+
+    private static String modelName(Model model) {
+        return model != null && model.getName() != null ? model.getName() : UNKNOWN;
+    }
+
+    private static String providerName(Model model) {
+        return model != null && model.getProvider() != null && model.getProvider().getName() != null
+                ? model.getProvider().getName()
+                : UNKNOWN;
+    }
+}
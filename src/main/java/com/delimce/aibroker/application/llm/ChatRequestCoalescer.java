@@ -0,0 +1,119 @@
+package com.delimce.aibroker.application.llm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.ChatFingerprint;
+import com.delimce.aibroker.domain.entities.Model;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Single-flight for identical deterministic chat requests. The first caller
+ * for a fingerprint starts the upstream call; callers arriving while it is
+ * in flight subscribe to the same call instead of starting their own. A
+ * call leaves the table as soon as it terminates, so later requests go
+ * upstream again (or to the response cache).
+ */
+@Service
+public class ChatRequestCoalescer {
+
+    private final boolean enabled;
+    private final Map<String, Mono<ModelChatResponse>> calls = new ConcurrentHashMap<>();
+    private final Map<String, Flux<ModelChatResponse>> streams = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public ChatRequestCoalescer(MeterRegistry meterRegistry,
+            @Value("${aibroker.coalescing.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.coalescedCounter = Counter.builder("aibroker.chat.coalesced")
+                .description("Chat requests served by an identical request already in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param model   the resolved model
+     * @param request the chat request
+     * @return the key identical requests share, or null when the request must
+     *         not be coalesced
+     */
+    public String keyFor(Model model, ModelRequest request) {
+        if (!enabled || !ChatFingerprint.isDeterministic(request)) {
+            return null;
+        }
+        return ChatFingerprint.of(model, request);
+    }
+
+    /**
+     * Joins the call in flight for the key, or starts one with the supplier.
+     * The supplier is invoked at most once per shared call, and only for the
+     * caller that starts it.
+     *
+     * @param key  a key from {@link #keyFor(Model, ModelRequest)}, or null
+     * @param call starts the upstream call
+     * @return the shared response
+     */
+    public Mono<ModelChatResponse> coalesce(String key, Supplier<Mono<ModelChatResponse>> call) {
+        if (key == null) {
+            return call.get();
+        }
+        return Mono.defer(() -> join(calls, key, () -> {
+            AtomicReference<Mono<ModelChatResponse>> shared = new AtomicReference<>();
+            // cache(): callers that join late get the result the first one got
+            shared.set(Mono.defer(call)
+                    .doFinally(signal -> calls.remove(key, shared.get()))
+                    .cache());
+            return shared.get();
+        }));
+    }
+
+    /**
+     * Streaming variant of {@link #coalesce(String, Supplier)}. Every caller
+     * receives all chunks from the first one, including those emitted before
+     * it joined. The provider stream is cancelled once every caller has gone.
+     *
+     * @param key  a key from {@link #keyFor(Model, ModelRequest)}, or null
+     * @param call starts the upstream stream
+     * @return the shared chunks
+     */
+    public Flux<ModelChatResponse> coalesceStream(String key, Supplier<Flux<ModelChatResponse>> call) {
+        if (key == null) {
+            return call.get();
+        }
+        return Flux.defer(() -> join(streams, key, () -> {
+            AtomicReference<Flux<ModelChatResponse>> shared = new AtomicReference<>();
+            shared.set(Flux.defer(call)
+                    .doFinally(signal -> streams.remove(key, shared.get()))
+                    .replay()
+                    .refCount());
+            return shared.get();
+        }));
+    }
+
+    private <T> T join(Map<String, T> inFlight, String key, Supplier<T> start) {
+        T current = inFlight.get(key);
+        if (current != null) {
+            coalescedCounter.increment();
+            return current;
+        }
+        boolean[] started = new boolean[1];
+        T shared = inFlight.computeIfAbsent(key, k -> {
+            started[0] = true;
+            return start.get();
+        });
+        if (!started[0]) {
+            coalescedCounter.increment();
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,259 @@
+package com.delimce.aibroker.application.llm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Opt-in hedging of upstream chat calls. When the primary call has not
+ * answered within a percentile of the model's recent latencies, a second
+ * call goes to another enabled model of the same alias, or to the same model
+ * when it has none. The first response wins and the other call is cancelled.
+ * A primary call that fails before the hedge is due fails the request as
+ * before. Hedges are paid from a budget that every request tops up by a
+ * fraction of a hedge, so they never add more than that fraction of extra
+ * upstream load.
+ */
+@Service
+@Log4j2
+public class ChatRequestHedger {
+
+    static final String NOT_HEDGED = "not_hedged";
+    static final String BUDGET_EXHAUSTED = "budget_exhausted";
+    static final String PRIMARY_WON = "primary_won";
+    static final String HEDGE_WON = "hedge_won";
+    static final String FAILED = "failed";
+
+    private final ModelRegistry modelRegistry;
+    private final ModelRouter router;
+    private final boolean enabled;
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayNanos;
+    private final int window;
+    private final HedgeBudget budget;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public ChatRequestHedger(ModelRegistry modelRegistry, ModelRouter router, MeterRegistry meterRegistry,
+            @Value("${aibroker.hedging.enabled:false}") boolean enabled,
+            @Value("${aibroker.hedging.percentile:0.95}") double percentile,
+            @Value("${aibroker.hedging.min-samples:20}") int minSamples,
+            @Value("${aibroker.hedging.min-delay:100ms}") Duration minDelay,
+            @Value("${aibroker.hedging.window:256}") int window,
+            @Value("${aibroker.hedging.budget-ratio:0.05}") double budgetRatio,
+            @Value("${aibroker.hedging.budget-burst:10}") int budgetBurst) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("hedging percentile must be in (0, 1]");
+        }
+        if (window < 1 || minSamples > window) {
+            throw new IllegalArgumentException("hedging window must be positive and hold min-samples");
+        }
+        this.modelRegistry = modelRegistry;
+        this.router = router;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, minSamples);
+        this.minDelayNanos = minDelay.toNanos();
+        this.window = window;
+        this.budget = new HedgeBudget(budgetRatio, budgetBurst);
+        for (String outcome : List.of(NOT_HEDGED, BUDGET_EXHAUSTED, PRIMARY_WON, HEDGE_WON, FAILED)) {
+            outcome(outcome);
+        }
+    }
+
+    /**
+     * Calls the primary model, hedging the call when it is slow.
+     *
+     * @param primary the model the request was resolved to
+     * @param call    starts the upstream call to a model
+     * @return the first response of the primary or the hedge
+     */
+    public Mono<ModelChatResponse> call(Model primary, Function<Model, Mono<ModelChatResponse>> call) {
+        if (!enabled) {
+            return call.apply(primary);
+        }
+        return Mono.defer(() -> {
+            budget.deposit();
+            LatencyWindow primaryLatencies = latencies(primary);
+            Long delay = primaryLatencies.percentile(percentile, minSamples);
+            if (delay == null) {
+                outcome(NOT_HEDGED).increment();
+                return timed(primaryLatencies, call.apply(primary));
+            }
+            return hedged(primary, call, Math.max(delay, minDelayNanos));
+        });
+    }
+
+    private Mono<ModelChatResponse> hedged(Model primary, Function<Model, Mono<ModelChatResponse>> call,
+            long delayNanos) {
+        Sinks.Empty<Void> primaryDone = Sinks.empty();
+        AtomicReference<Signal<ModelChatResponse>> primaryOutcome = new AtomicReference<>();
+        AtomicBoolean hedged = new AtomicBoolean();
+        AtomicBoolean budgetExhausted = new AtomicBoolean();
+
+        // both calls run off the caller thread, so a blocking client cannot serialize them
+        Mono<Attempt> primaryCall = timed(latencies(primary), call.apply(primary))
+                .subscribeOn(Schedulers.boundedElastic())
+                .materialize()
+                .doOnNext(primaryOutcome::set)
+                .map(signal -> new Attempt(false, signal))
+                .doFinally(signal -> primaryDone.tryEmitEmpty());
+
+        Mono<Attempt> hedgeCall = Mono.delay(Duration.ofNanos(delayNanos))
+                .takeUntilOther(primaryDone.asMono())
+                .flatMap(tick -> {
+                    if (!budget.withdraw()) {
+                        budgetExhausted.set(true);
+                        return Mono.empty();
+                    }
+                    hedged.set(true);
+                    Model alternate = alternate(primary);
+                    log.debug("Hedging call to model {} with model {} after {} ms", primary.getName(),
+                            alternate.getName(), delayNanos / 1_000_000);
+                    return timed(latencies(alternate), call.apply(alternate))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .materialize()
+                            .map(signal -> new Attempt(true, signal));
+                });
+
+        return Flux.merge(primaryCall, hedgeCall)
+                .filter(attempt -> attempt.signal().isOnNext())
+                .next()
+                .map(winner -> {
+                    outcome(hedged.get() ? (winner.hedge() ? HEDGE_WON : PRIMARY_WON)
+                            : budgetExhausted.get() ? BUDGET_EXHAUSTED : NOT_HEDGED).increment();
+                    return winner.signal().get();
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    outcome(hedged.get() ? FAILED : budgetExhausted.get() ? BUDGET_EXHAUSTED : NOT_HEDGED)
+                            .increment();
+                    Signal<ModelChatResponse> failure = primaryOutcome.get();
+                    return failure != null && failure.isOnError() ? Mono.error(failure.getThrowable())
+                            : Mono.empty();
+                }));
+    }
+
+    private Model alternate(Model primary) {
+        String alias = primary.getAlias();
+        if (alias == null) {
+            return primary;
+        }
+        List<Model> others = new ArrayList<>();
+        for (Model candidate : modelRegistry.findAlias(alias)) {
+            if (!candidate.getName().equals(primary.getName())) {
+                others.add(candidate);
+            }
+        }
+        Model alternate = router.route(alias, others);
+        return alternate != null ? alternate : primary;
+    }
+
+    // a cancelled call still yields a lower bound of the latency
+    private static Mono<ModelChatResponse> timed(LatencyWindow latencies, Mono<ModelChatResponse> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnNext(response -> latencies.record(System.nanoTime() - start))
+                    .doOnCancel(() -> latencies.record(System.nanoTime() - start));
+        });
+    }
+
+    private LatencyWindow latencies(Model model) {
+        return latencies.computeIfAbsent(model.getName(), name -> new LatencyWindow(window));
+    }
+
+    private Counter outcome(String outcome) {
+        return outcomes.computeIfAbsent(outcome, o -> Counter.builder("aibroker.chat.hedge")
+                .description("Chat requests by hedging outcome")
+                .tag("outcome", o)
+                .register(meterRegistry));
+    }
+
+    private record Attempt(boolean hedge, Signal<ModelChatResponse> signal) {
+    }
+
+    /** The latest upstream latencies of a model, in a fixed ring. */
+    private static final class LatencyWindow {
+
+        private final AtomicLongArray samples;
+        private final AtomicLong recorded = new AtomicLong();
+
+        LatencyWindow(int size) {
+            this.samples = new AtomicLongArray(size);
+        }
+
+        void record(long nanos) {
+            samples.set((int) (recorded.getAndIncrement() % samples.length()), nanos);
+        }
+
+        Long percentile(double percentile, int minSamples) {
+            int count = (int) Math.min(recorded.get(), samples.length());
+            if (count < minSamples) {
+                return null;
+            }
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(percentile * count) - 1];
+        }
+    }
+
+    /** Token bucket of hedges, in thousandths of a hedge. */
+    private static final class HedgeBudget {
+
+        private static final long HEDGE = 1000;
+
+        private final long deposit;
+        private final long capacity;
+        private final AtomicLong balance;
+
+        HedgeBudget(double ratio, int burst) {
+            this.deposit = Math.round(ratio * HEDGE);
+            this.capacity = burst * HEDGE;
+            this.balance = new AtomicLong(capacity);
+        }
+
+        void deposit() {
+            balance.getAndUpdate(current -> Math.min(capacity, current + deposit));
+        }
+
+        boolean withdraw() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < HEDGE) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - HEDGE));
+            return true;
+        }
+    }
+}
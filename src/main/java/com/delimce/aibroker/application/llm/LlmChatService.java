@@ -1,45 +1,243 @@
 package com.delimce.aibroker.application.llm;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.delimce.aibroker.domain.entities.Model;
 import com.delimce.aibroker.domain.entities.RequestMetric;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+import com.delimce.aibroker.domain.jfr.ChatRequestEvent;
 import com.delimce.aibroker.domain.ports.AiApiClientInterface;
-import com.delimce.aibroker.domain.repositories.ModelRepository;
-import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
-import com.delimce.aibroker.domain.repositories.UserRequestRepository;
+import com.delimce.aibroker.domain.ports.AuditLogInterface;
+import com.delimce.aibroker.domain.ports.ResponseCacheInterface;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
 import com.delimce.aibroker.domain.dto.responses.llm.Usage;
 import com.delimce.aibroker.application.BaseService;
+import com.delimce.aibroker.application.ServerTimings;
+import com.delimce.aibroker.application.users.UserQuotaService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Service
 public class LlmChatService extends BaseService {
 
-    private final ModelRepository modelRepository;
-    private final UserRequestRepository userRequestRepository;
-    private final RequestMetricRepository requestMetricRepository;
+    private final ModelRegistry modelRegistry;
+    private final AuditLogInterface auditLog;
     private final AiApiClientInterface client;
+    private final ResponseCacheInterface responseCache;
+    private final ChatRequestCoalescer coalescer;
+    private final SemanticResponseCache semanticCache;
+    private final ModelRouter router;
+    private final ChatRequestHedger hedger;
+    private final ProviderGuard guard;
+    private final UpstreamRateLimiter rateLimiter;
+    private final UserQuotaService quota;
+    private final UsageRollupInterface usageRollup;
+    private final ChatMetrics metrics;
 
     private final static int MAX_CONTENT_PREVIEW_LENGTH = 100;
 
-    public LlmChatService(ModelRepository modelRepository, UserRequestRepository userRequestRepository,
-            RequestMetricRepository requestMetricRepository, AiApiClientInterface client) {
-        this.modelRepository = modelRepository;
-        this.userRequestRepository = userRequestRepository;
-        this.requestMetricRepository = requestMetricRepository;
+    public LlmChatService(ModelRegistry modelRegistry, AuditLogInterface auditLog,
+            AiApiClientInterface client, ResponseCacheInterface responseCache,
+            ChatRequestCoalescer coalescer, SemanticResponseCache semanticCache, ModelRouter router,
+            ChatRequestHedger hedger, ProviderGuard guard, UpstreamRateLimiter rateLimiter,
+            UserQuotaService quota, UsageRollupInterface usageRollup, ChatMetrics metrics) {
+        this.modelRegistry = modelRegistry;
+        this.auditLog = auditLog;
         this.client = client;
+        this.responseCache = responseCache;
+        this.coalescer = coalescer;
+        this.semanticCache = semanticCache;
+        this.router = router;
+        this.hedger = hedger;
+        this.guard = guard;
+        this.rateLimiter = rateLimiter;
+        this.quota = quota;
+        this.usageRollup = usageRollup;
+        this.metrics = metrics;
     }
 
-    @SuppressWarnings("null")
-    @Transactional(rollbackFor = Exception.class)
-    public ModelChatResponse execute(ModelRequest request) {
+    /**
+     * Chat completion. The model is resolved and the request admitted by
+     * {@link UserQuotaService} and audited on the calling thread, which owns
+     * the security context; nothing after that blocks it. The response may
+     * come from a cache or from a call shared by {@link ChatRequestCoalescer};
+     * an upstream call may be hedged by {@link ChatRequestHedger}.
+     *
+     * @param request The chat request
+     * @return A Mono emitting the model response once its usage is queued. It
+     *         fails with a TooManyRequestsException (quota of the user, or of
+     *         the {@link UpstreamRateLimiter} past its wait), a
+     *         ProviderUnavailableException ({@link ProviderGuard}) or a
+     *         ProviderFailureException (the provider failed the call).
+     * @throws IllegalArgumentException when the model is unknown or not enabled
+     */
+    public Mono<ModelChatResponse> executeAsync(ModelRequest request) {
+
+        ServerTimings serverTimings = ServerTimings.current();
+        ChatRequestEvent event = ChatRequestEvent.start(false);
+        Model model = resolveModel(request.getModel());
+        event.resolved(model);
+
+        UserRequest userRequest;
+        try {
+            userRequest = registerRequest(model, request);
+        } catch (TooManyRequestsException e) {
+            return Mono.error(e);
+        }
+        event.audited();
+
+        String cacheKey = responseCache.fingerprint(model, request);
+        ModelChatResponse cached = findCached(cacheKey, model);
+        if (cached != null) {
+            processStats(cached, userRequest, true, null);
+            answered(event, cached, true, null);
+            return Mono.just(cached);
+        }
+
+        return metrics.stage(ChatMetrics.SEMANTIC, model, semanticCache.lookup(model, request)).flatMap(similar -> {
+            if (similar.isHit()) {
+                processStats(similar.response(), userRequest, true, null);
+                answered(event, similar.response(), true, null);
+                return Mono.just(similar.response());
+            }
+
+            AtomicBoolean calledUpstream = new AtomicBoolean();
+            UpstreamTimings timings = new UpstreamTimings();
+            long upstreamStart = System.nanoTime();
+            return metrics.stage(ChatMetrics.UPSTREAM, model,
+                    coalescer.coalesce(coalescer.keyFor(model, request), () -> {
+                        calledUpstream.set(true);
+                        return hedger.call(model, target -> callUpstream(target, request, timings));
+                    }))
+                    .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Chat response is null")))
+                    .doOnNext(chatResponse -> {
+                        if (calledUpstream.get()) {
+                            storeCached(cacheKey, similar, chatResponse);
+                        }
+                        processStats(chatResponse, userRequest, !calledUpstream.get(), timings);
+                        recordUpstream(serverTimings, upstreamStart, timings);
+                        answered(event, chatResponse, !calledUpstream.get(), timings);
+                    });
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #executeAsync(ModelRequest)}. Chunks are
+     * relayed as the provider emits them; the usage metrics are queued from the
+     * last chunk reporting usage once the stream completes. Identical
+     * deterministic streams in flight share one provider stream. The upstream
+     * call is added to the {@link ServerTimings} of the request with the
+     * first chunk, before it is relayed.
+     *
+     * @param request The chat request
+     * @return A Flux emitting the completion chunks
+     */
+    public Flux<ModelChatResponse> executeStream(ModelRequest request) {
+
+        ServerTimings serverTimings = ServerTimings.current();
+        ChatRequestEvent event = ChatRequestEvent.start(true);
+        Model model = resolveModel(request.getModel());
+        event.resolved(model);
+
+        UserRequest userRequest;
+        try {
+            userRequest = registerRequest(model, request);
+        } catch (TooManyRequestsException e) {
+            return Flux.error(e);
+        }
+        event.audited();
+
+        AtomicReference<ModelChatResponse> usageChunk = new AtomicReference<>();
+        AtomicBoolean calledUpstream = new AtomicBoolean();
+        AtomicBoolean firstChunk = new AtomicBoolean(true);
+        UpstreamTimings timings = new UpstreamTimings();
+        long upstreamStart = System.nanoTime();
+
+        return metrics.stage(ChatMetrics.UPSTREAM, model,
+                coalescer.coalesceStream(coalescer.keyFor(model, request),
+                        () -> {
+                            calledUpstream.set(true);
+                            return streamUpstream(model, request, timings);
+                        }))
+                .switchIfEmpty(Flux.error(() -> new IllegalArgumentException("Chat response is null")))
+                .doOnNext(chunk -> {
+                    if (firstChunk.compareAndSet(true, false)) {
+                        recordUpstream(serverTimings, upstreamStart, timings);
+                    }
+                    if (chunk.getUsage() != null) {
+                        usageChunk.set(chunk);
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (usageChunk.get() != null) {
+                        processStats(usageChunk.get(), userRequest, !calledUpstream.get(), timings);
+                    }
+                    answered(event, usageChunk.get(), !calledUpstream.get(), timings);
+                });
+    }
+
+    /**
+     * One call to a model, possibly the hedge of another: timed, tracked by
+     * the {@link ModelRouter}, refused fast by the {@link ProviderGuard} and
+     * held to the quotas of the {@link UpstreamRateLimiter}.
+     */
+    private Mono<ModelChatResponse> callUpstream(Model target, ModelRequest request, UpstreamTimings timings) {
+        Mono<ModelChatResponse> call = metrics.call(target, timings.time(target,
+                Mono.defer(() -> client.requestToModelAsync(target, forModel(target, request)))));
+        return rateLimiter.throttle(target, request, guard.guard(target, router.track(target, call)));
+    }
+
+    /**
+     * Streaming variant of {@link #callUpstream(Model, ModelRequest, UpstreamTimings)}.
+     */
+    private Flux<ModelChatResponse> streamUpstream(Model model, ModelRequest request, UpstreamTimings timings) {
+        Flux<ModelChatResponse> call = metrics.call(model, timings.time(model,
+                Flux.defer(() -> client.streamToModel(model, forModel(model, request)))));
+        return rateLimiter.throttleStream(model, request, guard.guardStream(model, router.trackStream(model, call)));
+    }
+
+    /**
+     * Resolves the requested name to the model to call. An alias is routed
+     * to one of the enabled models sharing it.
+     *
+     * @param modelName the model name or alias of the request
+     * @return the enabled model
+     */
+    protected Model resolveModel(String modelName) {
+        long start = System.nanoTime();
+        Model model = null;
+        try {
+            model = findModel(modelName);
+            return model;
+        } finally {
+            metrics.stage(ChatMetrics.RESOLVE, model, model != null ? ChatMetrics.SUCCESS : ChatMetrics.ERROR, start);
+            ServerTimings.current().record(ServerTimings.Stage.RESOLVE, start);
+        }
+    }
+
+    private Model findModel(String modelName) {
+        List<Model> aliased = modelRegistry.findAlias(modelName);
+        if (!aliased.isEmpty()) {
+            Model routed = router.route(modelName, aliased);
+            if (routed == null) {
+                throw new IllegalArgumentException("Model is not enabled");
+            }
+            return routed;
+        }
 
-        Model model = modelRepository.findByName(request.getModel());
+        Model model = modelRegistry.find(modelName);
 
         if (model == null) {
             throw new IllegalArgumentException("Model not found");
@@ -49,40 +247,103 @@ public class LlmChatService extends BaseService {
             throw new IllegalArgumentException("Model is not enabled");
         }
 
-        User user = fetchAuthenticatedUser();
-
-        var messages = transformMessages(request.getMessages());
+        return model;
+    }
 
-        UserRequest userRequest = UserRequest.builder()
-                .model(model)
-                .user(user)
-                .prompt(messages)
+    /**
+     * The request as the provider must see it: a request to an alias names
+     * the model it was routed to.
+     */
+    protected ModelRequest forModel(Model model, ModelRequest request) {
+        if (model.getName().equals(request.getModel())) {
+            return request;
+        }
+        return ModelRequest.builder()
+                .model(model.getName())
+                .stream(request.isStream())
+                .messages(request.getMessages())
+                .temperature(request.getTemperature())
+                .maxTokens(request.getMaxTokens())
                 .build();
+    }
 
-        userRequestRepository.save(userRequest);
+    /**
+     * Counts the request against the quotas of the user and audits it.
+     *
+     * @throws TooManyRequestsException when a quota of the user is exhausted
+     */
+    @SuppressWarnings("null")
+    protected UserRequest registerRequest(Model model, ModelRequest request) throws TooManyRequestsException {
+        long start = System.nanoTime();
+        String outcome = ChatMetrics.ERROR;
+        try {
+            User user = fetchAuthenticatedUser();
 
-        ModelChatResponse chatResponse = client.requestToModel(model, request);
+            quota.admit(user);
 
-        if (chatResponse == null) {
-            throw new IllegalArgumentException("Chat response is null");
-        }
+            var messages = transformMessages(request.getMessages());
 
-        processStats(chatResponse, userRequest);
+            UserRequest userRequest = UserRequest.builder()
+                    .model(model)
+                    .user(user)
+                    .prompt(messages)
+                    .build();
 
-        return chatResponse;
+            auditLog.recordRequest(userRequest);
+            outcome = ChatMetrics.SUCCESS;
 
+            return userRequest;
+        } finally {
+            metrics.stage(ChatMetrics.REGISTER, model, outcome, start);
+            ServerTimings.current().record(ServerTimings.Stage.AUDIT, start);
+        }
+    }
+
+    private ModelChatResponse findCached(String cacheKey, Model model) {
+        if (cacheKey == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        ModelChatResponse cached = responseCache.find(cacheKey);
+        metrics.stage(ChatMetrics.CACHE, model, cached != null ? ChatMetrics.HIT : ChatMetrics.MISS, start);
+        return cached;
+    }
+
+    private void storeCached(String cacheKey, SemanticResponseCache.Lookup similar,
+            ModelChatResponse chatResponse) {
+        if (cacheKey != null) {
+            responseCache.store(cacheKey, chatResponse);
+        }
+        semanticCache.store(similar, chatResponse);
     }
 
     /**
-     * Process and save token usage metrics from the model response
+     * Process and save token usage metrics from the model response, priced
+     * with the costs of the model and added to the hourly and daily usage
+     * rollups. For a response served from the cache, or by another caller's
+     * upstream call, the tokens are the ones the call would have cost,
+     * recorded as saved rather than spent, at no cost. The latencies of the
+     * upstream call, when the request made one, are saved with them. A
+     * request answered by a hedge on another model is booked to that model,
+     * priced with its costs.
      * 
-     * @param chatResponse The model chat response
-     * @param userRequest  The user request
+     * @param chatResponse     The model chat response
+     * @param userRequest      The user request
+     * @param responseCacheHit Whether the response was served without an
+     *                         upstream call of its own
+     * @param timings          The timings of the upstream call, null when
+     *                         there was none
      */
     @SuppressWarnings("null")
-    protected void processStats(ModelChatResponse chatResponse, UserRequest userRequest) {
+    protected void processStats(ModelChatResponse chatResponse, UserRequest userRequest, boolean responseCacheHit,
+            UpstreamTimings timings) {
+
+        if (!responseCacheHit && timings != null) {
+            attribute(userRequest, timings.model());
+        }
 
         if (chatResponse.getUsage() != null) {
+            long start = System.nanoTime();
             Usage usage = chatResponse.getUsage();
 
             RequestMetric metric = RequestMetric.builder()
@@ -92,10 +353,69 @@ public class LlmChatService extends BaseService {
                     .totalTokens(usage.getTotal_tokens())
                     .promptCacheHitTokens(usage.getPrompt_cache_hit_tokens())
                     .promptCacheMissTokens(usage.getPrompt_cache_miss_tokens())
+                    .cost(responseCacheHit ? BigDecimal.ZERO
+                            : userRequest.getModel().costOf(usage.getPrompt_tokens(), usage.getCompletion_tokens()))
+                    .responseCacheHit(responseCacheHit)
                     .build();
+            if (!responseCacheHit && timings != null && timings.model() != null) {
+                recordLatency(metric, timings, usage.getCompletion_tokens());
+            }
+
+            auditLog.recordMetric(metric);
+            usageRollup.record(userRequest, metric);
+            if (!responseCacheHit) {
+                quota.record(userRequest.getUser(), usage.getTotal_tokens());
+            }
+            metrics.tokens(userRequest.getModel(), usage, responseCacheHit);
+            metrics.stage(ChatMetrics.STATS, userRequest.getModel(), ChatMetrics.SUCCESS, start);
+        }
+    }
+
+    /**
+     * Moves the request to the model that answered it, when that is not the
+     * one it was audited with.
+     */
+    private void attribute(UserRequest userRequest, Model answered) {
+        if (answered == null || answered.getName().equals(userRequest.getModel().getName())) {
+            return;
+        }
+        userRequest.setModel(answered);
+        auditLog.recordModel(userRequest);
+    }
 
-            requestMetricRepository.save(metric);
+    private void recordLatency(RequestMetric metric, UpstreamTimings timings, int completionTokens) {
+        long timeToFirstToken = timings.timeToFirstTokenNanos();
+        Double interTokenLatency = timings.interTokenLatencyNanos(completionTokens);
+        Double outputTokensPerSecond = timings.outputTokensPerSecond(completionTokens);
+        metric.setTimeToFirstTokenMs((int) TimeUnit.NANOSECONDS.toMillis(timeToFirstToken));
+        metric.setInterTokenLatencyMs(interTokenLatency != null ? interTokenLatency / 1_000_000 : null);
+        metric.setOutputTokensPerSecond(outputTokensPerSecond);
+        metrics.latency(timings.model(), timeToFirstToken, interTokenLatency, outputTokensPerSecond);
+    }
+
+    /**
+     * Adds the upstream call that answered the request to its server timings:
+     * how long it waited to start, behind coalescing, hedging, throttling and
+     * the provider guard, and its time to first token.
+     */
+    private static void recordUpstream(ServerTimings serverTimings, long upstreamStart, UpstreamTimings timings) {
+        if (!serverTimings.isEnabled() || timings.startNanos() == null) {
+            return;
+        }
+        serverTimings.recordNanos(ServerTimings.Stage.CONNECT, timings.startNanos() - upstreamStart);
+        serverTimings.recordNanos(ServerTimings.Stage.TTFT, timings.timeToFirstTokenNanos());
+    }
+
+    /**
+     * Ends the flight recorder event of an answered request.
+     */
+    private static void answered(ChatRequestEvent event, ModelChatResponse chatResponse, boolean responseCacheHit,
+            UpstreamTimings timings) {
+        if (!event.isRecording()) {
+            return;
         }
+        event.answered(chatResponse != null ? chatResponse.getUsage() : null, responseCacheHit,
+                timings != null ? timings.timeToFirstTokenNanos() : null);
     }
 
     protected String transformMessages(ModelMessageRequest[] messages) {
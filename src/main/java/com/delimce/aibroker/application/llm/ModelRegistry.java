@@ -0,0 +1,157 @@
+package com.delimce.aibroker.application.llm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.repositories.ModelRepository;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Immutable snapshot of the configured models, keyed by name, so resolving
+ * the model of a chat request is a map lookup with no database I/O. The
+ * snapshot is rebuilt and swapped in whole at startup, on a schedule and
+ * after a model or provider is changed. Names that are not in the snapshot
+ * are looked up once and then remembered as unknown for a while. Models
+ * sharing an alias are grouped in the same snapshot, so resolving an alias
+ * never touches the database.
+ */
+@Service
+@Log4j2
+public class ModelRegistry {
+
+    static final int MAX_UNKNOWN_NAMES = 10_000;
+
+    private final ModelRepository modelRepository;
+    private final long unknownNameTtlNanos;
+    private final Map<String, Long> unknownNames = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Map<String, Model> byName, Map<String, List<Model>> byAlias) {
+    }
+
+    public ModelRegistry(ModelRepository modelRepository,
+            @Value("${aibroker.models.unknown-name-ttl:30s}") Duration unknownNameTtl) {
+        this.modelRepository = modelRepository;
+        this.unknownNameTtlNanos = unknownNameTtl.toNanos();
+    }
+
+    /**
+     * Finds a model by name, enabled or not
+     * @param name the model name
+     * @return the model with its provider, or null when there is none
+     */
+    public Model find(String name) {
+        if (name == null) {
+            return null;
+        }
+        Model model = snapshot().byName().get(name);
+        if (model != null) {
+            return model;
+        }
+
+        Long unknownUntil = unknownNames.get(name);
+        if (unknownUntil != null && unknownUntil - System.nanoTime() > 0) {
+            return null;
+        }
+
+        // created since the last refresh, possibly by another instance
+        if (modelRepository.findByName(name) != null) {
+            return reload().byName().get(name);
+        }
+
+        if (unknownNames.size() >= MAX_UNKNOWN_NAMES) {
+            unknownNames.clear();
+        }
+        unknownNames.put(name, System.nanoTime() + unknownNameTtlNanos);
+        return null;
+    }
+
+    /**
+     * Finds the models sharing an alias, enabled or not
+     * @param alias the logical model name
+     * @return the models with their providers, empty when the alias is unknown
+     */
+    public List<Model> findAlias(String alias) {
+        if (alias == null) {
+            return List.of();
+        }
+        return snapshot().byAlias().getOrDefault(alias, List.of());
+    }
+
+    /**
+     * Reloads all models and swaps the snapshot in
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${aibroker.models.refresh-interval:60s}",
+            initialDelayString = "${aibroker.models.refresh-interval:60s}")
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Drops the snapshot once the current transaction completes, or right
+     * away when there is none; the next lookup reloads it.
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate();
+            }
+        });
+    }
+
+    // waits for a reload in flight so it cannot put back a stale snapshot
+    private synchronized void invalidate() {
+        snapshot = null;
+        unknownNames.clear();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot != null ? snapshot : reload();
+            }
+        }
+        return current;
+    }
+
+    private synchronized Snapshot reload() {
+        List<Model> models = modelRepository.findAll();
+        Map<String, Model> byName = new HashMap<>(models.size());
+        Map<String, List<Model>> byAlias = new HashMap<>();
+        for (Model model : models) {
+            byName.put(model.getName(), model);
+            if (model.getAlias() != null && !model.getAlias().isBlank()) {
+                byAlias.computeIfAbsent(model.getAlias(), alias -> new ArrayList<>()).add(model);
+            }
+        }
+        Map<String, List<Model>> aliases = new HashMap<>(byAlias.size());
+        byAlias.forEach((alias, members) -> aliases.put(alias, List.copyOf(members)));
+        Snapshot loaded = new Snapshot(Map.copyOf(byName), Map.copyOf(aliases));
+        snapshot = loaded;
+        unknownNames.clear();
+        log.debug("Model registry refreshed with {} models and {} aliases", byName.size(), aliases.size());
+        return loaded;
+    }
+}
@@ -0,0 +1,243 @@
+package com.delimce.aibroker.application.llm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.entities.Model;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Picks the upstream model for a request to an alias. Every model call is
+ * tracked for its latency, whether it produced a response and how many calls
+ * are in flight; latency and error rate are exponentially weighted moving
+ * averages. Only the calls that {@link ProviderGuard} would count against the
+ * provider are errors, so a client whose requests are refused does not push
+ * traffic away from a healthy model. Routing samples two enabled models at random and takes the
+ * cheaper one (power of two choices), which spreads load almost as well as
+ * always taking the cheapest without every request piling onto the same
+ * model. Models whose provider guard would refuse the call are skipped while
+ * another model of the alias is available. All bookkeeping is atomic
+ * counters, so routing never blocks.
+ */
+@Service
+public class ModelRouter {
+
+    private final MeterRegistry meterRegistry;
+    private final ProviderGuard guard;
+    private final double alpha;
+    private final double errorPenalty;
+    private final Map<String, UpstreamStats> stats = new ConcurrentHashMap<>();
+
+    public ModelRouter(MeterRegistry meterRegistry, ProviderGuard guard,
+            @Value("${aibroker.routing.ewma-alpha:0.2}") double alpha,
+            @Value("${aibroker.routing.error-penalty:10}") double errorPenalty) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("ewma-alpha must be in (0, 1]");
+        }
+        this.meterRegistry = meterRegistry;
+        this.guard = guard;
+        this.alpha = alpha;
+        this.errorPenalty = errorPenalty;
+    }
+
+    /**
+     * @param alias      the logical model name requested
+     * @param candidates the models sharing the alias
+     * @return the enabled model to call, or null when none is enabled
+     */
+    public Model route(String alias, List<Model> candidates) {
+        Model chosen = pick(candidates, true);
+        if (chosen == null) {
+            // every provider refuses for now: let the guard fail the call fast
+            chosen = pick(candidates, false);
+        }
+        if (chosen != null) {
+            stats(chosen).decisions(alias).increment();
+        }
+        return chosen;
+    }
+
+    /**
+     * Tracks a call to a model for routing. A call that fails the way
+     * {@link ProviderGuard} counts against the provider counts as an error; a
+     * call refused for the request itself, which fails otherwise or completes
+     * without a response, is not counted, nor is a cancelled call.
+     *
+     * @param model the model called
+     * @param call  the upstream call
+     * @return the call, tracked once subscribed
+     */
+    public <T> Mono<T> track(Model model, Mono<T> call) {
+        UpstreamStats upstream = stats(model);
+        return Mono.defer(() -> {
+            long start = upstream.start();
+            AtomicBoolean responded = new AtomicBoolean();
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                    .doOnNext(response -> responded.set(true))
+                    .doOnError(e -> failed.set(ProviderGuard.isProviderFailure(e)))
+                    .doFinally(signal -> upstream.finish(start, responded.get(), failed.get(), signal, alpha));
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #track(Model, Mono)}. The latency is the
+     * time to the first chunk; a stream that fails before its first chunk,
+     * the way {@link ProviderGuard} counts against the provider, counts as an
+     * error.
+     *
+     * @param model the model called
+     * @param call  the upstream stream
+     * @return the stream, tracked once subscribed
+     */
+    public <T> Flux<T> trackStream(Model model, Flux<T> call) {
+        UpstreamStats upstream = stats(model);
+        return Flux.defer(() -> {
+            long start = upstream.start();
+            AtomicBoolean firstChunk = new AtomicBoolean(true);
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                    .doOnNext(chunk -> {
+                        if (firstChunk.compareAndSet(true, false)) {
+                            upstream.record(start, true, alpha);
+                        }
+                    })
+                    .doOnError(e -> failed.set(ProviderGuard.isProviderFailure(e)))
+                    .doFinally(signal -> {
+                        upstream.inFlight.decrementAndGet();
+                        if (firstChunk.get() && failed.get()) {
+                            upstream.record(start, false, alpha);
+                        }
+                    });
+        });
+    }
+
+    double cost(Model model) {
+        UpstreamStats upstream = stats(model);
+        // +1 ms so models without samples yet still rank by load
+        return (upstream.latencyMillis() + 1)
+                * (upstream.inFlight.get() + 1)
+                * (1 + errorPenalty * upstream.errorRate());
+    }
+
+    private Model pick(List<Model> candidates, boolean availableOnly) {
+        Model first = null;
+        Model second = null;
+        int eligible = 0;
+        // reservoir sampling of two distinct eligible models, without allocating
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (Model candidate : candidates) {
+            if (!candidate.isEnabled() || availableOnly && !guard.isAvailable(candidate)) {
+                continue;
+            }
+            eligible++;
+            if (eligible == 1) {
+                first = candidate;
+            } else if (eligible == 2) {
+                second = candidate;
+            } else {
+                int slot = random.nextInt(eligible);
+                if (slot == 0) {
+                    first = candidate;
+                } else if (slot == 1) {
+                    second = candidate;
+                }
+            }
+        }
+        if (first == null) {
+            return null;
+        }
+        return second == null || cost(first) <= cost(second) ? first : second;
+    }
+
+    private UpstreamStats stats(Model model) {
+        return stats.computeIfAbsent(model.getName(), name -> new UpstreamStats(meterRegistry, name));
+    }
+
+    private static final class UpstreamStats {
+
+        private final MeterRegistry meterRegistry;
+        private final String model;
+        // doubles stored as raw long bits so they can be updated with CAS
+        private final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(0));
+        private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0));
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Map<String, Counter> decisions = new ConcurrentHashMap<>();
+
+        UpstreamStats(MeterRegistry meterRegistry, String model) {
+            this.meterRegistry = meterRegistry;
+            this.model = model;
+            Gauge.builder("aibroker.routing.latency", this, UpstreamStats::latencyMillis)
+                    .description("Moving average of the upstream latency of a model")
+                    .baseUnit("milliseconds")
+                    .tag("model", model)
+                    .register(meterRegistry);
+            Gauge.builder("aibroker.routing.error.rate", this, UpstreamStats::errorRate)
+                    .description("Moving average of the share of upstream calls to a model the provider failed")
+                    .tag("model", model)
+                    .register(meterRegistry);
+            Gauge.builder("aibroker.routing.in.flight", inFlight, AtomicInteger::get)
+                    .description("Upstream calls to a model in flight")
+                    .tag("model", model)
+                    .register(meterRegistry);
+        }
+
+        Counter decisions(String alias) {
+            return decisions.computeIfAbsent(alias, a -> Counter.builder("aibroker.routing.decisions")
+                    .description("Requests to an alias routed to a model")
+                    .tag("alias", a)
+                    .tag("model", model)
+                    .register(meterRegistry));
+        }
+
+        long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        void finish(long start, boolean responded, boolean failed, SignalType signal, double alpha) {
+            inFlight.decrementAndGet();
+            if (signal != SignalType.CANCEL && (responded || failed)) {
+                record(start, responded, alpha);
+            }
+        }
+
+        void record(long start, boolean responded, double alpha) {
+            double latency = (System.nanoTime() - start) / 1_000_000.0;
+            update(latencyBits, latency, alpha);
+            update(errorRateBits, responded ? 0 : 1, alpha);
+        }
+
+        double latencyMillis() {
+            return Double.longBitsToDouble(latencyBits.get());
+        }
+
+        double errorRate() {
+            return Double.longBitsToDouble(errorRateBits.get());
+        }
+
+        private static void update(AtomicLong bits, double sample, double alpha) {
+            long current;
+            long next;
+            do {
+                current = bits.get();
+                double average = Double.longBitsToDouble(current);
+                next = Double.doubleToRawLongBits(average + alpha * (sample - average));
+            } while (!bits.compareAndSet(current, next));
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.delimce.aibroker.application.llm;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleUnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.exceptions.ProviderUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Per-provider circuit breaker and adaptive concurrency limit for upstream
+ * calls. The breaker opens when the share of failed calls among the last
+ * {@code window} reaches the threshold, fails calls fast while open, and lets
+ * a single trial call through once the open duration has passed; the trial
+ * closes it again or reopens it. A call fails when the provider fails to
+ * answer it: a {@link ProviderFailureException} (a 5xx response, a timeout or
+ * a connection error) or a {@link TimeoutException}. A call refused for the
+ * request itself, such as a 4xx response, says nothing about the provider and
+ * is not counted. The concurrency limit grows by one per limit's worth of
+ * fast responses and shrinks by the backoff ratio on a failure or on a
+ * response slower than the latency tolerance times the provider's moving
+ * average latency (AIMD). Calls over the limit are refused rather than
+ * queued. All state is atomic counters, so guarding never blocks.
+ */
+@Service
+@Log4j2
+public class ProviderGuard {
+
+    static final int CLOSED = 0;
+    static final int OPEN = 1;
+    static final int HALF_OPEN = 2;
+
+    static final String CIRCUIT_OPEN = "circuit_open";
+    static final String SATURATED = "saturated";
+
+    private static final Duration SATURATED_RETRY_AFTER = Duration.ofSeconds(1);
+    // slow average, so a latency spike stands out against it
+    private static final double BASELINE_ALPHA = 0.1;
+
+    /**
+     * State of the guard of a provider, as reported by the health endpoint.
+     *
+     * @param state       CLOSED, OPEN or HALF_OPEN
+     * @param failureRate share of failed calls in the breaker window
+     * @param limit       the concurrency limit
+     * @param inFlight    calls in flight
+     */
+    public record ProviderHealth(String state, double failureRate, int limit, int inFlight) {
+
+        public boolean isOpen() {
+            return "OPEN".equals(state);
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean breakerEnabled;
+    private final double failureRateThreshold;
+    private final int window;
+    private final int minCalls;
+    private final long openNanos;
+    private final boolean limitEnabled;
+    private final double initialLimit;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final Map<String, ProviderState> providers = new ConcurrentHashMap<>();
+
+    public ProviderGuard(MeterRegistry meterRegistry,
+            @Value("${aibroker.circuit-breaker.enabled:true}") boolean breakerEnabled,
+            @Value("${aibroker.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${aibroker.circuit-breaker.window:20}") int window,
+            @Value("${aibroker.circuit-breaker.min-calls:10}") int minCalls,
+            @Value("${aibroker.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${aibroker.concurrency-limit.enabled:true}") boolean limitEnabled,
+            @Value("${aibroker.concurrency-limit.initial:50}") int initialLimit,
+            @Value("${aibroker.concurrency-limit.min:1}") int minLimit,
+            @Value("${aibroker.concurrency-limit.max:500}") int maxLimit,
+            @Value("${aibroker.concurrency-limit.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${aibroker.concurrency-limit.latency-tolerance:2}") double latencyTolerance) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("circuit-breaker failure-rate-threshold must be in (0, 1]");
+        }
+        if (window < 1 || minCalls > window) {
+            throw new IllegalArgumentException("circuit-breaker window must be positive and hold min-calls");
+        }
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("concurrency-limit must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("concurrency-limit backoff-ratio must be in (0, 1)");
+        }
+        this.meterRegistry = meterRegistry;
+        this.breakerEnabled = breakerEnabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = window;
+        this.minCalls = Math.max(1, minCalls);
+        this.openNanos = openDuration.toNanos();
+        this.limitEnabled = limitEnabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Whether a call to the model's provider would be let through now, for
+     * routing around providers that would refuse it.
+     *
+     * @param model the model to call
+     * @return false when the breaker is open or the limit is reached
+     */
+    public boolean isAvailable(Model model) {
+        ProviderState provider = state(model);
+        return provider == null || provider.isAvailable();
+    }
+
+    /**
+     * Guards a call to the model's provider. A refused call fails with a
+     * {@link ProviderUnavailableException} without being subscribed.
+     *
+     * @param model the model called
+     * @param call  the upstream call
+     * @return the call, guarded once subscribed
+     */
+    public <T> Mono<T> guard(Model model, Mono<T> call) {
+        ProviderState provider = state(model);
+        if (provider == null) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            Permit permit = provider.acquire();
+            if (permit.refusal() != null) {
+                return Mono.error(permit.refusal());
+            }
+            long start = System.nanoTime();
+            AtomicBoolean responded = new AtomicBoolean();
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                    .doOnNext(response -> responded.set(true))
+                    .doOnError(e -> failed.set(isProviderFailure(e)))
+                    .doFinally(signal -> provider.release(permit, start, responded.get(), failed.get(), signal));
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #guard(Model, Mono)}. The permit is held
+     * for the whole stream; the latency is the time to the first chunk, and
+     * a stream that fails before its first chunk counts as a failure.
+     *
+     * @param model the model called
+     * @param call  the upstream stream
+     * @return the stream, guarded once subscribed
+     */
+    public <T> Flux<T> guardStream(Model model, Flux<T> call) {
+        ProviderState provider = state(model);
+        if (provider == null) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            Permit permit = provider.acquire();
+            if (permit.refusal() != null) {
+                return Flux.error(permit.refusal());
+            }
+            long start = System.nanoTime();
+            AtomicBoolean firstChunk = new AtomicBoolean(true);
+            AtomicBoolean failed = new AtomicBoolean();
+            return call
+                    .doOnNext(chunk -> {
+                        if (firstChunk.compareAndSet(true, false)) {
+                            provider.record(permit, start, true);
+                        }
+                    })
+                    .doOnError(e -> failed.set(isProviderFailure(e)))
+                    .doFinally(signal -> {
+                        provider.inFlight.decrementAndGet();
+                        if (firstChunk.get()) {
+                            provider.settle(permit, start, failed.get());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * @return the guard state of every provider called so far, by name
+     */
+    public Map<String, ProviderHealth> health() {
+        Map<String, ProviderHealth> health = new TreeMap<>();
+        providers.forEach((name, provider) -> health.put(name, provider.health()));
+        return health;
+    }
+
+    static boolean isProviderFailure(Throwable e) {
+        return e instanceof ProviderFailureException || e instanceof TimeoutException;
+    }
+
+    private ProviderState state(Model model) {
+        if (model.getProvider() == null || (!breakerEnabled && !limitEnabled)) {
+            return null;
+        }
+        return providers.computeIfAbsent(model.getProvider().getName(), ProviderState::new);
+    }
+
+    /**
+     * @param trial   whether the call is the trial of a half-open breaker
+     * @param refusal why the call may not go ahead, null when it may
+     */
+    private record Permit(boolean trial, ProviderUnavailableException refusal) {
+
+        static final Permit GRANTED = new Permit(false, null);
+        static final Permit TRIAL = new Permit(true, null);
+    }
+
+    /** Outcomes of the latest calls, in a fixed ring. */
+    private static final class OutcomeWindow {
+
+        private static final int SUCCESS = 1;
+        private static final int FAILURE = 2;
+
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong recorded = new AtomicLong();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        OutcomeWindow(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        void record(boolean success) {
+            int outcome = success ? SUCCESS : FAILURE;
+            int slot = (int) (recorded.getAndIncrement() % outcomes.length());
+            int previous = outcomes.getAndSet(slot, outcome);
+            failures.addAndGet((outcome == FAILURE ? 1 : 0) - (previous == FAILURE ? 1 : 0));
+        }
+
+        int calls() {
+            return (int) Math.min(recorded.get(), outcomes.length());
+        }
+
+        double failureRate() {
+            int calls = calls();
+            return calls == 0 ? 0 : (double) failures.get() / calls;
+        }
+    }
+
+    private final class ProviderState {
+
+        private final String name;
+        private final AtomicInteger state = new AtomicInteger(CLOSED);
+        private final AtomicLong openUntil = new AtomicLong();
+        private final AtomicReference<OutcomeWindow> outcomes = new AtomicReference<>(new OutcomeWindow(window));
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // doubles stored as raw long bits so they can be updated with CAS
+        private final AtomicLong limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+        private final AtomicLong baselineBits = new AtomicLong(Double.doubleToRawLongBits(0));
+        private final Counter openRefusals;
+        private final Counter saturatedRefusals;
+
+        ProviderState(String name) {
+            this.name = name;
+            Gauge.builder("aibroker.provider.circuit.state", state, AtomicInteger::get)
+                    .description("Circuit breaker state of a provider: 0 closed, 1 open, 2 half-open")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("aibroker.provider.concurrency.limit", this, ProviderState::limit)
+                    .description("Adaptive limit of the upstream calls to a provider in flight")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("aibroker.provider.in.flight", inFlight, AtomicInteger::get)
+                    .description("Upstream calls to a provider in flight")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.openRefusals = refusals(CIRCUIT_OPEN);
+            this.saturatedRefusals = refusals(SATURATED);
+        }
+
+        boolean isAvailable() {
+            if (breakerEnabled) {
+                int current = state.get();
+                if (current == HALF_OPEN || current == OPEN && System.nanoTime() - openUntil.get() < 0) {
+                    return false;
+                }
+            }
+            return !limitEnabled || inFlight.get() < limit();
+        }
+
+        Permit acquire() {
+            Permit permit = Permit.GRANTED;
+            if (breakerEnabled) {
+                int current = state.get();
+                if (current == OPEN && System.nanoTime() - openUntil.get() >= 0
+                        && state.compareAndSet(OPEN, HALF_OPEN)) {
+                    permit = Permit.TRIAL;
+                } else if (current != CLOSED) {
+                    openRefusals.increment();
+                    long remaining = Math.max(0, openUntil.get() - System.nanoTime());
+                    return new Permit(false, new ProviderUnavailableException(
+                            "Provider " + name + " is unavailable", Duration.ofNanos(remaining)));
+                }
+            }
+            if (inFlight.incrementAndGet() > limit()) {
+                inFlight.decrementAndGet();
+                abandon(permit);
+                saturatedRefusals.increment();
+                return new Permit(false, new ProviderUnavailableException(
+                        "Provider " + name + " is saturated", SATURATED_RETRY_AFTER));
+            }
+            return permit;
+        }
+
+        void release(Permit permit, long start, boolean responded, boolean failed, SignalType signal) {
+            inFlight.decrementAndGet();
+            if (signal == SignalType.CANCEL) {
+                abandon(permit);
+            } else if (responded) {
+                record(permit, start, true);
+            } else {
+                settle(permit, start, failed);
+            }
+        }
+
+        // a call that ended without a response counts only when the provider failed it
+        void settle(Permit permit, long start, boolean failed) {
+            if (failed) {
+                record(permit, start, false);
+            } else {
+                abandon(permit);
+            }
+        }
+
+        // a trial that never ran leaves the breaker open, due for another trial
+        void abandon(Permit permit) {
+            if (permit.trial()) {
+                openUntil.set(System.nanoTime());
+                state.compareAndSet(HALF_OPEN, OPEN);
+            }
+        }
+
+        void record(Permit permit, long start, boolean success) {
+            if (limitEnabled) {
+                adjustLimit((System.nanoTime() - start) / 1_000_000.0, success);
+            }
+            if (!breakerEnabled) {
+                return;
+            }
+            if (permit.trial()) {
+                if (success) {
+                    outcomes.set(new OutcomeWindow(window));
+                    state.set(CLOSED);
+                    log.info("Circuit of provider {} closed", name);
+                } else {
+                    open();
+                }
+                return;
+            }
+            // calls started before the breaker opened do not count against the next window
+            if (state.get() != CLOSED) {
+                return;
+            }
+            OutcomeWindow current = outcomes.get();
+            current.record(success);
+            if (!success && current.calls() >= minCalls && current.failureRate() >= failureRateThreshold
+                    && state.compareAndSet(CLOSED, OPEN)) {
+                openUntil.set(System.nanoTime() + openNanos);
+                outcomes.set(new OutcomeWindow(window));
+                log.warn("Circuit of provider {} opened: {} of the last {} calls failed", name,
+                        String.format("%.0f%%", current.failureRate() * 100), current.calls());
+            }
+        }
+
+        private void open() {
+            openUntil.set(System.nanoTime() + openNanos);
+            state.set(OPEN);
+            log.warn("Circuit of provider {} reopened: trial call failed", name);
+        }
+
+        private void adjustLimit(double latencyMillis, boolean success) {
+            double baseline = Double.longBitsToDouble(baselineBits.get());
+            // sub-millisecond jitter is not a slowdown
+            boolean slow = baseline > 0 && latencyMillis > latencyTolerance * Math.max(1, baseline);
+            if (!success || slow) {
+                update(limitBits, limit -> Math.max(minLimit, limit * backoffRatio));
+            } else if (inFlight.get() >= limit() / 2) {
+                // only grow while the limit is actually being used
+                update(limitBits, limit -> Math.min(maxLimit, limit + 1 / limit));
+            }
+            if (success) {
+                update(baselineBits, average -> average == 0 ? latencyMillis
+                        : average + BASELINE_ALPHA * (latencyMillis - average));
+            }
+        }
+
+        int limit() {
+            return limitEnabled ? (int) Double.longBitsToDouble(limitBits.get()) : Integer.MAX_VALUE;
+        }
+
+        ProviderHealth health() {
+            String stateName = switch (state.get()) {
+                case OPEN -> "OPEN";
+                case HALF_OPEN -> "HALF_OPEN";
+                default -> "CLOSED";
+            };
+            return new ProviderHealth(stateName, outcomes.get().failureRate(), limit(), inFlight.get());
+        }
+
+        private Counter refusals(String reason) {
+            return Counter.builder("aibroker.provider.rejected")
+                    .description("Upstream calls to a provider refused by its guard")
+                    .tag("provider", name)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static void update(AtomicLong bits, DoubleUnaryOperator function) {
+        long current;
+        long next;
+        do {
+            current = bits.get();
+            next = Double.doubleToRawLongBits(function.applyAsDouble(Double.longBitsToDouble(current)));
+        } while (!bits.compareAndSet(current, next));
+    }
+}
@@ -0,0 +1,182 @@
+package com.delimce.aibroker.application.llm;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.ChatFingerprint;
+import com.delimce.aibroker.domain.dto.values.VectorMatch;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.domain.enums.PromptMessageType;
+import com.delimce.aibroker.domain.ports.EmbeddingInterface;
+import com.delimce.aibroker.domain.ports.VectorIndexInterface;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opt-in semantic response cache. The last user message of a request is
+ * embedded with the configured embedding model and looked up in the vector
+ * index; a stored completion whose prompt is similar enough is returned
+ * instead of calling the chat model. Matches are only searched among
+ * requests to the same model with the same sampling parameters and the same
+ * preceding messages, so a system prompt or conversation history never gets
+ * an answer written for another one. A failed embedding call is a miss, not
+ * an error.
+ */
+@Service
+@Log4j2
+public class SemanticResponseCache {
+
+    /**
+     * Outcome of a lookup, handed back to {@link #store(Lookup, ModelChatResponse)}
+     * so the upstream response can be indexed without embedding the prompt
+     * again.
+     *
+     * @param scope    the conversation the prompt belongs to, null when the
+     *                 request was not looked up
+     * @param vector   the prompt embedding
+     * @param response the cached response, null on a miss
+     */
+    public record Lookup(String scope, float[] vector, ModelChatResponse response) {
+
+        static final Lookup SKIPPED = new Lookup(null, null, null);
+
+        public boolean isHit() {
+            return response != null;
+        }
+    }
+
+    private final ModelRegistry modelRegistry;
+    private final EmbeddingInterface embedder;
+    private final VectorIndexInterface index;
+    private final boolean enabled;
+    private final String embeddingModel;
+    private final Set<String> models;
+    private final double similarityThreshold;
+    private final Timer embedTimer;
+    private final Timer lookupTimer;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter errorCounter;
+
+    public SemanticResponseCache(ModelRegistry modelRegistry, EmbeddingInterface embedder,
+            VectorIndexInterface index, MeterRegistry meterRegistry,
+            @Value("${aibroker.semantic-cache.enabled:false}") boolean enabled,
+            @Value("${aibroker.semantic-cache.embedding-model:}") String embeddingModel,
+            @Value("${aibroker.semantic-cache.models:}") Set<String> models,
+            @Value("${aibroker.semantic-cache.similarity-threshold:0.95}") double similarityThreshold) {
+        this.modelRegistry = modelRegistry;
+        this.embedder = embedder;
+        this.index = index;
+        this.enabled = enabled;
+        this.embeddingModel = embeddingModel;
+        this.models = Set.copyOf(models);
+        this.similarityThreshold = similarityThreshold;
+        this.embedTimer = Timer.builder("aibroker.semantic.cache.embed")
+                .description("Time to embed the prompt of a chat request")
+                .register(meterRegistry);
+        this.lookupTimer = Timer.builder("aibroker.semantic.cache.lookup")
+                .description("Time to search the semantic cache index")
+                .register(meterRegistry);
+        this.hitCounter = counter(meterRegistry, "hit");
+        this.missCounter = counter(meterRegistry, "miss");
+        this.errorCounter = counter(meterRegistry, "error");
+    }
+
+    /**
+     * Embeds the prompt of a request and searches the index for it.
+     *
+     * @param model   the resolved chat model
+     * @param request the chat request
+     * @return the lookup; {@link Lookup#SKIPPED} when the cache is disabled,
+     *         the request does not end with a user message or the embedding
+     *         failed
+     */
+    public Mono<Lookup> lookup(Model model, ModelRequest request) {
+        if (!enabled || !isCachedModel(model.getName())) {
+            return Mono.just(Lookup.SKIPPED);
+        }
+        String prompt = lastUserMessage(request);
+        Model embedding = resolveEmbeddingModel();
+        if (prompt == null || embedding == null) {
+            return Mono.just(Lookup.SKIPPED);
+        }
+        String scope = ChatFingerprint.of(model, request, request.getMessages().length - 1);
+
+        return embedder.embed(embedding, prompt)
+                .elapsed()
+                .map(timed -> {
+                    embedTimer.record(timed.getT1(), TimeUnit.MILLISECONDS);
+                    float[] vector = timed.getT2();
+                    VectorMatch match = lookupTimer.record(() -> index.search(scope, vector, similarityThreshold));
+                    (match != null ? hitCounter : missCounter).increment();
+                    return new Lookup(scope, vector, match != null ? match.response() : null);
+                })
+                .onErrorResume(e -> {
+                    errorCounter.increment();
+                    log.warn("Semantic cache lookup with embedding model {} failed: {}", embeddingModel,
+                            e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(Lookup.SKIPPED);
+    }
+
+    /**
+     * Indexes an upstream response under the prompt of a missed lookup.
+     *
+     * @param lookup   the lookup made for the request
+     * @param response the upstream response
+     */
+    public void store(Lookup lookup, ModelChatResponse response) {
+        if (lookup.scope() == null || lookup.isHit()) {
+            return;
+        }
+        // an empty completion is more likely an upstream hiccup than the answer
+        if (response.getChoices() != null && response.getChoices().length > 0) {
+            index.add(lookup.scope(), lookup.vector(), response);
+        }
+    }
+
+    private Model resolveEmbeddingModel() {
+        Model model = embeddingModel.isBlank() ? null : modelRegistry.find(embeddingModel);
+        if (model == null || !model.isEnabled() || model.getType() != ModelType.EMBEDDING) {
+            log.debug("Semantic cache skipped: {} is not an enabled embedding model", embeddingModel);
+            return null;
+        }
+        return model;
+    }
+
+    private boolean isCachedModel(String name) {
+        return models.isEmpty() || models.contains(name);
+    }
+
+    private static String lastUserMessage(ModelRequest request) {
+        ModelMessageRequest[] messages = request.getMessages();
+        if (messages == null || messages.length == 0) {
+            return null;
+        }
+        ModelMessageRequest last = messages[messages.length - 1];
+        if (!PromptMessageType.user.name().equals(last.getRole())
+                || last.getContent() == null || last.getContent().isBlank()) {
+            return null;
+        }
+        return last.getContent();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("aibroker.semantic.cache")
+                .description("Chat requests looked up in the semantic cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
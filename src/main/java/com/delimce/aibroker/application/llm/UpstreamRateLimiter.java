@@ -0,0 +1,339 @@
+package com.delimce.aibroker.application.llm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps upstream calls within the requests-per-minute and tokens-per-minute
+ * quotas configured on providers and models. Each quota is a token bucket
+ * holding one minute's worth of it, kept as the time at which the bucket
+ * would be full again (GCRA) so that reserving is a single CAS. A call
+ * reserves one request and its estimated tokens (the prompt size plus
+ * max_tokens) from every bucket it is subject to and waits, without holding a
+ * thread, until the last of them allows it. Reservations are served in the
+ * order they were made, so a waiting request is never overtaken. A call that
+ * would have to wait longer than {@code max-wait} is refused with a
+ * {@link TooManyRequestsException} instead; the token charge is corrected
+ * with the usage the provider reports.
+ */
+@Service
+@Log4j2
+public class UpstreamRateLimiter {
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final int defaultMaxTokens;
+    private final int charsPerToken;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Timer> waits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> refusals = new ConcurrentHashMap<>();
+
+    public UpstreamRateLimiter(MeterRegistry meterRegistry,
+            @Value("${aibroker.rate-limit.enabled:true}") boolean enabled,
+            @Value("${aibroker.rate-limit.max-wait:10s}") Duration maxWait,
+            @Value("${aibroker.rate-limit.default-max-tokens:1024}") int defaultMaxTokens,
+            @Value("${aibroker.rate-limit.chars-per-token:4}") int charsPerToken) {
+        if (charsPerToken < 1) {
+            throw new IllegalArgumentException("rate-limit chars-per-token must be positive");
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.defaultMaxTokens = defaultMaxTokens;
+        this.charsPerToken = charsPerToken;
+    }
+
+    /**
+     * Delays a call to a model until its quotas allow it.
+     *
+     * @param model   the model called
+     * @param request the request sent to it
+     * @param call    the upstream call
+     * @return the call, subscribed once the quotas allow it
+     */
+    public Mono<ModelChatResponse> throttle(Model model, ModelRequest request, Mono<ModelChatResponse> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            Reservation reservation = reserve(model, request);
+            if (reservation == null) {
+                return call;
+            }
+            if (reservation.refusal() != null) {
+                return Mono.error(reservation.refusal());
+            }
+            return reservation.delay().then(call)
+                    .doOnNext(reservation::settle);
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #throttle(Model, ModelRequest, Mono)}; the
+     * token charge is corrected with the last chunk reporting usage.
+     *
+     * @param model   the model called
+     * @param request the request sent to it
+     * @param call    the upstream stream
+     * @return the stream, subscribed once the quotas allow it
+     */
+    public Flux<ModelChatResponse> throttleStream(Model model, ModelRequest request,
+            Flux<ModelChatResponse> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            Reservation reservation = reserve(model, request);
+            if (reservation == null) {
+                return call;
+            }
+            if (reservation.refusal() != null) {
+                return Flux.error(reservation.refusal());
+            }
+            AtomicReference<ModelChatResponse> usageChunk = new AtomicReference<>();
+            return reservation.delay().thenMany(call)
+                    .doOnNext(chunk -> {
+                        if (chunk.getUsage() != null) {
+                            usageChunk.set(chunk);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (usageChunk.get() != null) {
+                            reservation.settle(usageChunk.get());
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Estimated tokens of a call: the prompt at {@code chars-per-token}
+     * characters per token plus the completion allowance.
+     *
+     * @param request the chat request
+     * @return the tokens charged against the TPM quotas
+     */
+    int charge(ModelRequest request) {
+        long chars = 0;
+        if (request.getMessages() != null) {
+            for (ModelMessageRequest message : request.getMessages()) {
+                if (message != null && message.getContent() != null) {
+                    chars += message.getContent().length();
+                }
+            }
+        }
+        int completion = request.getMaxTokens() != null ? request.getMaxTokens() : defaultMaxTokens;
+        return (int) Math.min(Integer.MAX_VALUE, (chars + charsPerToken - 1) / charsPerToken + completion);
+    }
+
+    /**
+     * @return null when no quota applies to the model
+     */
+    private Reservation reserve(Model model, ModelRequest request) {
+        Provider provider = model.getProvider();
+        List<TokenBucket> requestBuckets = new ArrayList<>(2);
+        List<TokenBucket> tokenBuckets = new ArrayList<>(2);
+        if (provider != null) {
+            addBucket(requestBuckets, "provider ", provider.getName(), " requests", provider.getRpmLimit());
+            addBucket(tokenBuckets, "provider ", provider.getName(), " tokens", provider.getTpmLimit());
+        }
+        addBucket(requestBuckets, "model ", model.getName(), " requests", model.getRpmLimit());
+        addBucket(tokenBuckets, "model ", model.getName(), " tokens", model.getTpmLimit());
+        if (requestBuckets.isEmpty() && tokenBuckets.isEmpty()) {
+            return null;
+        }
+
+        String scope = provider != null ? provider.getName() : model.getName();
+        Reservation reservation = new Reservation(tokenBuckets.isEmpty() ? 0 : charge(request));
+        long now = System.nanoTime();
+        for (TokenBucket bucket : requestBuckets) {
+            if (!reservation.take(bucket, 1, now, false)) {
+                return refuse(scope, bucket, reservation);
+            }
+        }
+        for (TokenBucket bucket : tokenBuckets) {
+            if (!reservation.take(bucket, reservation.tokens, now, true)) {
+                return refuse(scope, bucket, reservation);
+            }
+        }
+        wait(scope).record(reservation.waitNanos, TimeUnit.NANOSECONDS);
+        return reservation;
+    }
+
+    private Reservation refuse(String scope, TokenBucket bucket, Reservation reservation) {
+        reservation.release();
+        refusals(scope).increment();
+        log.debug("Upstream quota of {} exhausted for the next {} ms", bucket.name(),
+                reservation.waitNanos / 1_000_000);
+        reservation.refusal = new TooManyRequestsException(
+                "Upstream quota of " + bucket.name() + " per minute exhausted",
+                Duration.ofNanos(reservation.waitNanos));
+        return reservation;
+    }
+
+    private void addBucket(List<TokenBucket> target, String kind, String owner, String unit, Integer limit) {
+        if (limit == null || limit <= 0) {
+            return;
+        }
+        String name = kind + owner + unit;
+        TokenBucket bucket = buckets.get(name);
+        if (bucket == null || bucket.limit() != limit) {
+            // a changed quota starts over with a full bucket
+            bucket = buckets.compute(name, (key, current) -> current != null && current.limit() == limit
+                    ? current
+                    : new TokenBucket(key, limit));
+        }
+        target.add(bucket);
+    }
+
+    private Timer wait(String scope) {
+        return waits.computeIfAbsent(scope, s -> Timer.builder("aibroker.rate.limit.wait")
+                .description("Time upstream calls waited for the RPM and TPM quotas of a provider")
+                .tag("provider", s)
+                .register(meterRegistry));
+    }
+
+    private Counter refusals(String scope) {
+        return refusals.computeIfAbsent(scope, s -> Counter.builder("aibroker.rate.limit.rejected")
+                .description("Upstream calls refused because the RPM or TPM quota of a provider was exhausted")
+                .tag("provider", s)
+                .register(meterRegistry));
+    }
+
+    /**
+     * What a call took from the buckets it is subject to, and how long it has
+     * to wait for them.
+     */
+    private final class Reservation {
+
+        private final int tokens;
+        private final List<TokenBucket> requestBuckets = new ArrayList<>(2);
+        private final List<TokenBucket> tokenBuckets = new ArrayList<>(2);
+        private final AtomicBoolean released = new AtomicBoolean();
+        private long waitNanos;
+        private TooManyRequestsException refusal;
+
+        Reservation(int tokens) {
+            this.tokens = tokens;
+        }
+
+        /**
+         * @return false when the bucket cannot serve the units within the
+         *         longest wait; waitNanos is then how long it would take
+         */
+        boolean take(TokenBucket bucket, int units, long now, boolean isTokens) {
+            long wait = bucket.reserve(units, now, maxWaitNanos);
+            if (wait > maxWaitNanos) {
+                waitNanos = wait;
+                return false;
+            }
+            (isTokens ? tokenBuckets : requestBuckets).add(bucket);
+            waitNanos = Math.max(waitNanos, wait);
+            return true;
+        }
+
+        TooManyRequestsException refusal() {
+            return refusal;
+        }
+
+        // a call cancelled while waiting gives its reservation back
+        Mono<Long> delay() {
+            if (waitNanos == 0) {
+                return Mono.empty();
+            }
+            return Mono.delay(Duration.ofNanos(waitNanos)).doOnCancel(this::release);
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                requestBuckets.forEach(bucket -> bucket.adjust(-1));
+                tokenBuckets.forEach(bucket -> bucket.adjust(-tokens));
+            }
+        }
+
+        void settle(ModelChatResponse response) {
+            if (response.getUsage() == null || tokenBuckets.isEmpty()) {
+                return;
+            }
+            int difference = response.getUsage().getTotal_tokens() - tokens;
+            tokenBuckets.forEach(bucket -> bucket.adjust(difference));
+        }
+    }
+
+    /**
+     * Token bucket of one minute's worth of a quota, stored as the time the
+     * bucket is full again (the theoretical arrival time of GCRA).
+     */
+    private static final class TokenBucket {
+
+        private final String name;
+        private final int limit;
+        private final long nanosPerUnit;
+        private final AtomicLong fullAt;
+
+        TokenBucket(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+            this.nanosPerUnit = Math.max(1, MINUTE_NANOS / limit);
+            this.fullAt = new AtomicLong(System.nanoTime());
+        }
+
+        String name() {
+            return name;
+        }
+
+        int limit() {
+            return limit;
+        }
+
+        /**
+         * @return how long the caller must wait for the units; when that is
+         *         over {@code maxWaitNanos} nothing is reserved
+         */
+        long reserve(int units, long now, long maxWaitNanos) {
+            // a charge over a whole minute's quota could never be served
+            long cost = Math.min(units, limit) * nanosPerUnit;
+            while (true) {
+                long current = fullAt.get();
+                long next = (current - now > 0 ? current : now) + cost;
+                long wait = next - now - MINUTE_NANOS;
+                if (wait > maxWaitNanos) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return Math.max(0, wait);
+                }
+            }
+        }
+
+        void adjust(int units) {
+            fullAt.addAndGet(Math.max(-limit, Math.min(limit, (long) units)) * nanosPerUnit);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.delimce.aibroker.application.llm;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.delimce.aibroker.domain.entities.Model;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * When the provider call that answered one request started, and when its
+ * first and last chunks arrived. A call that is not streamed arrives as a
+ * single chunk, so its time to first token is the whole call. When a request
+ * is hedged, the first call to respond owns the timings. The latencies are
+ * only known once the number of completion tokens is, from the usage of the
+ * response.
+ */
+class UpstreamTimings {
+
+    private final AtomicReference<Call> answered = new AtomicReference<>();
+
+    /**
+     * Times a call that answers with a single response.
+     */
+    <T> Mono<T> time(Model model, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnNext(response -> claim(model, start, System.nanoTime()));
+        });
+    }
+
+    /**
+     * Times a streamed call, chunk by chunk.
+     */
+    <T> Flux<T> time(Model model, Flux<T> call) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicReference<Call> owned = new AtomicReference<>();
+            return call.doOnNext(chunk -> {
+                long now = System.nanoTime();
+                Call timed = owned.get();
+                if (timed == null) {
+                    owned.set(claim(model, start, now));
+                } else {
+                    timed.last = now;
+                }
+            });
+        });
+    }
+
+    /**
+     * @return the model of the call that answered, null when no call did
+     */
+    Model model() {
+        Call call = answered.get();
+        return call != null ? call.model : null;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the call that answered
+     *         started, null when no call did
+     */
+    Long startNanos() {
+        Call call = answered.get();
+        return call != null ? call.start : null;
+    }
+
+    /**
+     * @return nanoseconds from the start of the call to its first chunk, null
+     *         when no call answered
+     */
+    Long timeToFirstTokenNanos() {
+        Call call = answered.get();
+        return call != null ? call.first - call.start : null;
+    }
+
+    /**
+     * @param completionTokens the completion tokens of the response
+     * @return the mean nanoseconds between tokens after the first, null when
+     *         the response came in a single chunk or has a single token
+     */
+    Double interTokenLatencyNanos(int completionTokens) {
+        Call call = answered.get();
+        if (call == null || call.last == call.first || completionTokens < 2) {
+            return null;
+        }
+        return (double) (call.last - call.first) / (completionTokens - 1);
+    }
+
+    /**
+     * @param completionTokens the completion tokens of the response
+     * @return completion tokens per second over the whole call, null when no
+     *         call answered or the response has no completion tokens
+     */
+    Double outputTokensPerSecond(int completionTokens) {
+        Call call = answered.get();
+        if (call == null || completionTokens <= 0) {
+            return null;
+        }
+        return completionTokens * 1e9 / Math.max(call.last - call.start, 1);
+    }
+
+    private Call claim(Model model, long start, long now) {
+        // a call that responds second keeps its own timings, which nobody reads
+        Call call = new Call(model, start, now);
+        answered.compareAndSet(null, call);
+        return call;
+    }
+
+    private static final class Call {
+
+        private final Model model;
+        private final long start;
+        private final long first;
+        private volatile long last;
+
+        Call(Model model, long start, long first) {
+            this.model = model;
+            this.start = start;
+            this.first = first;
+            this.last = first;
+        }
+    }
+}
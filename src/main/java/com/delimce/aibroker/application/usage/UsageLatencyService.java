@@ -0,0 +1,56 @@
+package com.delimce.aibroker.application.usage;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.responses.usage.LatencyResponse;
+import com.delimce.aibroker.domain.dto.values.ModelLatency;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
+
+/**
+ * Mean time to first token, inter-token latency and output tokens per second
+ * of the upstream calls to each model over a range of whole hours, for
+ * capacity planning. It reads the request metrics of the range, so the range
+ * is bounded; the percentiles are in the Prometheus histograms.
+ */
+@Service
+public class UsageLatencyService {
+
+    private static final long MAX_HOURS = 31 * 24;
+
+    private final RequestMetricRepository requestMetricRepository;
+
+    public UsageLatencyService(RequestMetricRepository requestMetricRepository) {
+        this.requestMetricRepository = requestMetricRepository;
+    }
+
+    /**
+     * @param from the start of the range, today by default; rounded down to
+     *             the hour
+     * @param to   the end of the range, now by default; the hour it falls in
+     *             is included
+     * @return the latencies of every model with timed calls in the range, the
+     *         busiest first
+     */
+    public LatencyResponse execute(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = UsagePeriod.HOUR.plus(UsagePeriod.HOUR.startOf(to != null ? to : now), 1);
+        LocalDateTime start = UsagePeriod.HOUR.startOf(from != null ? from : UsagePeriod.DAY.startOf(now));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (start.until(end, ChronoUnit.HOURS) > MAX_HOURS) {
+            throw new IllegalArgumentException(String.format("The range is longer than %d hours", MAX_HOURS));
+        }
+
+        List<ModelLatency> models = requestMetricRepository.averageLatencyByModel(start, end).stream()
+                .sorted(Comparator.comparing(ModelLatency::calls).reversed().thenComparing(ModelLatency::modelId))
+                .toList();
+        return new LatencyResponse(start, end, models);
+    }
+}
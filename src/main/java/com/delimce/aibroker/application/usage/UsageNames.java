@@ -0,0 +1,51 @@
+package com.delimce.aibroker.application.usage;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.repositories.ModelRepository;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+
+/**
+ * Emails and model names of the ids found in usage rollups, looked up in one
+ * query each.
+ */
+@Component
+class UsageNames {
+
+    private final UserRepository userRepository;
+    private final ModelRepository modelRepository;
+
+    UsageNames(UserRepository userRepository, ModelRepository modelRepository) {
+        this.userRepository = userRepository;
+        this.modelRepository = modelRepository;
+    }
+
+    Names of(Collection<UsageRollup> rollups) {
+        return new Names(
+                userRepository.findAllById(rollups.stream().map(UsageRollup::userId).distinct().toList())
+                        .stream().collect(Collectors.toMap(User::getId, Function.identity())),
+                modelRepository.findAllById(rollups.stream().map(UsageRollup::modelId).distinct().toList())
+                        .stream().collect(Collectors.toMap(Model::getId, Function.identity())));
+    }
+
+    record Names(Map<Long, User> users, Map<Long, Model> models) {
+
+        String email(Long userId) {
+            User user = users.get(userId);
+            return user != null ? user.getEmail() : null;
+        }
+
+        String model(Long modelId) {
+            Model model = models.get(modelId);
+            return model != null ? model.getName() : null;
+        }
+    }
+}
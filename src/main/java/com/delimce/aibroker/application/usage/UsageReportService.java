@@ -0,0 +1,94 @@
+package com.delimce.aibroker.application.usage;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.responses.usage.UsageLine;
+import com.delimce.aibroker.domain.dto.responses.usage.UsageReportResponse;
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.domain.repositories.UsageDailyRepository;
+import com.delimce.aibroker.domain.repositories.UsageHourlyRepository;
+
+/**
+ * Usage per hour or per day of every user and model, read from the rollup of
+ * that period plus the usage not flushed to it yet.
+ */
+@Service
+public class UsageReportService {
+
+    private static final long MAX_HOURS = 31 * 24;
+    private static final long MAX_DAYS = 366;
+    private static final long DEFAULT_DAYS = 30;
+
+    private final UsageHourlyRepository usageHourlyRepository;
+    private final UsageDailyRepository usageDailyRepository;
+    private final UsageRollupInterface usageRollup;
+    private final UsageNames usageNames;
+
+    public UsageReportService(UsageHourlyRepository usageHourlyRepository, UsageDailyRepository usageDailyRepository,
+            UsageRollupInterface usageRollup, UsageNames usageNames) {
+        this.usageHourlyRepository = usageHourlyRepository;
+        this.usageDailyRepository = usageDailyRepository;
+        this.usageRollup = usageRollup;
+        this.usageNames = usageNames;
+    }
+
+    /**
+     * @param period the period of each line
+     * @param from   the start of the range, rounded down to the period; today
+     *               for hours and the last 30 days for days by default
+     * @param to     the end of the range, now by default; the period it falls
+     *               in is included
+     * @param userId the user to report on, or null for every user
+     * @return one line per period, user and model with usage in the range,
+     *         oldest first
+     */
+    public UsageReportResponse execute(UsagePeriod period, LocalDateTime from, LocalDateTime to, Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = period.plus(period.startOf(to != null ? to : now), 1);
+        LocalDateTime start = from != null ? period.startOf(from)
+                : period == UsagePeriod.DAY ? period.plus(end, -DEFAULT_DAYS) : UsagePeriod.DAY.startOf(now);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        long max = period == UsagePeriod.DAY ? MAX_DAYS : MAX_HOURS;
+        if (start.until(end, period == UsagePeriod.DAY ? ChronoUnit.DAYS : ChronoUnit.HOURS) > max) {
+            throw new IllegalArgumentException(
+                    String.format("The range is longer than %d %ss", max, period.name().toLowerCase()));
+        }
+
+        Map<List<Object>, UsageRollup> usage = new LinkedHashMap<>();
+        List<UsageRollup> stored = period == UsagePeriod.DAY
+                ? usageDailyRepository.findUsage(start, end, userId)
+                : usageHourlyRepository.findUsage(start, end, userId);
+        stored.forEach(rollup -> add(usage, rollup));
+        usageRollup.pending(period).stream()
+                .filter(rollup -> !rollup.start().isBefore(start) && rollup.start().isBefore(end))
+                .filter(rollup -> userId == null || Objects.equals(userId, rollup.userId()))
+                .forEach(rollup -> add(usage, rollup));
+
+        UsageNames.Names names = usageNames.of(usage.values());
+        List<UsageLine> lines = usage.values().stream()
+                .sorted(Comparator.comparing(UsageRollup::start).thenComparing(UsageRollup::userId)
+                        .thenComparing(UsageRollup::modelId))
+                .map(rollup -> new UsageLine(rollup.start(), rollup.userId(), names.email(rollup.userId()),
+                        rollup.modelId(), names.model(rollup.modelId()), rollup.requests(),
+                        rollup.cachedRequests(), rollup.promptTokens(), rollup.cacheHitTokens(),
+                        rollup.completionTokens(), rollup.totalTokens(), rollup.cost()))
+                .toList();
+        return new UsageReportResponse(period, start, end, lines);
+    }
+
+    private static void add(Map<List<Object>, UsageRollup> usage, UsageRollup rollup) {
+        usage.merge(List.of(rollup.start(), rollup.userId(), rollup.modelId()), rollup, UsageRollup::plus);
+    }
+}
@@ -0,0 +1,106 @@
+package com.delimce.aibroker.application.usage;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.responses.usage.SpendLine;
+import com.delimce.aibroker.domain.dto.responses.usage.SpendResponse;
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.domain.repositories.UsageDailyRepository;
+import com.delimce.aibroker.domain.repositories.UsageHourlyRepository;
+
+/**
+ * Spend per user and model over a range of whole hours, read from the
+ * rollups plus the usage not flushed to them yet: the whole days of the range
+ * from the daily rollup and the hours around them from the hourly one, so it
+ * costs about the same however long the range and however many requests it
+ * holds.
+ */
+@Service
+public class UsageSpendService {
+
+    private final UsageHourlyRepository usageHourlyRepository;
+    private final UsageDailyRepository usageDailyRepository;
+    private final UsageRollupInterface usageRollup;
+    private final UsageNames usageNames;
+
+    public UsageSpendService(UsageHourlyRepository usageHourlyRepository, UsageDailyRepository usageDailyRepository,
+            UsageRollupInterface usageRollup, UsageNames usageNames) {
+        this.usageHourlyRepository = usageHourlyRepository;
+        this.usageDailyRepository = usageDailyRepository;
+        this.usageRollup = usageRollup;
+        this.usageNames = usageNames;
+    }
+
+    /**
+     * @param from the start of the range, today by default; rounded down to
+     *             the hour
+     * @param to   the end of the range, now by default; the hour it falls in
+     *             is included
+     * @return the spend of every user and model with usage in the range, the
+     *         most expensive first
+     */
+    public SpendResponse execute(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = UsagePeriod.HOUR.plus(UsagePeriod.HOUR.startOf(to != null ? to : now), 1);
+        LocalDateTime start = UsagePeriod.HOUR.startOf(from != null ? from : UsagePeriod.DAY.startOf(now));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+
+        Map<List<Long>, UsageRollup> totals = new HashMap<>();
+        LocalDateTime firstDay = UsagePeriod.DAY.startOf(start).isBefore(start)
+                ? UsagePeriod.DAY.plus(UsagePeriod.DAY.startOf(start), 1)
+                : start;
+        LocalDateTime lastDay = UsagePeriod.DAY.startOf(end);
+        if (firstDay.isBefore(lastDay)) {
+            sum(totals, UsagePeriod.HOUR, start, firstDay);
+            sum(totals, UsagePeriod.DAY, firstDay, lastDay);
+            sum(totals, UsagePeriod.HOUR, lastDay, end);
+        } else {
+            sum(totals, UsagePeriod.HOUR, start, end);
+        }
+
+        UsageNames.Names names = usageNames.of(totals.values());
+        List<SpendLine> lines = totals.values().stream()
+                .map(rollup -> new SpendLine(rollup.userId(), names.email(rollup.userId()),
+                        rollup.modelId(), names.model(rollup.modelId()),
+                        rollup.requests(), rollup.cachedRequests(), rollup.promptTokens(), rollup.cacheHitTokens(),
+                        rollup.completionTokens(), rollup.totalTokens(), rollup.cost()))
+                .sorted(Comparator.comparing(SpendLine::cost).reversed()
+                        .thenComparing(SpendLine::userId).thenComparing(SpendLine::modelId))
+                .toList();
+
+        return new SpendResponse(start, end,
+                lines.stream().mapToLong(SpendLine::requests).sum(),
+                lines.stream().mapToLong(SpendLine::totalTokens).sum(),
+                lines.stream().map(SpendLine::cost).reduce(BigDecimal.ZERO, BigDecimal::add),
+                lines);
+    }
+
+    private void sum(Map<List<Long>, UsageRollup> totals, UsagePeriod period, LocalDateTime from,
+            LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        List<UsageRollup> stored = period == UsagePeriod.DAY
+                ? usageDailyRepository.sumByUserAndModel(from, to)
+                : usageHourlyRepository.sumByUserAndModel(from, to);
+        stored.forEach(rollup -> add(totals, rollup));
+        usageRollup.pending(period).stream()
+                .filter(rollup -> !rollup.start().isBefore(from) && rollup.start().isBefore(to))
+                .forEach(rollup -> add(totals, rollup));
+    }
+
+    private static void add(Map<List<Long>, UsageRollup> totals, UsageRollup rollup) {
+        totals.merge(List.of(rollup.userId(), rollup.modelId()), rollup, UsageRollup::plus);
+    }
+}
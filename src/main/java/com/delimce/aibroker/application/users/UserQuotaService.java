@@ -0,0 +1,237 @@
+package com.delimce.aibroker.application.users;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.delimce.aibroker.domain.dto.responses.users.UserQuotaResponse;
+import com.delimce.aibroker.domain.dto.values.UserUsageTotal;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
+import com.delimce.aibroker.domain.repositories.UserRequestRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Per-user request and token quotas over a fixed window, a day by default,
+ * aligned to the epoch (midnight UTC for a day). Usage is counted in memory
+ * on striped LongAdders, so the chat path neither contends on a shared
+ * counter nor reads tbl_request_metric; the check and the increment are not
+ * atomic together, so concurrent calls may overshoot a quota by a few
+ * requests. Tokens are known only once a response arrives: a user is refused
+ * once the tokens spent reach the quota. The counters are periodically
+ * reconciled with the requests and metrics audited in the database, which
+ * brings in usage from before a restart and from other instances. A user
+ * without quotas of their own gets the configured defaults; 0 is unlimited.
+ */
+@Service
+@Log4j2
+public class UserQuotaService {
+
+    private final UserRequestRepository userRequestRepository;
+    private final RequestMetricRepository requestMetricRepository;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final long defaultRequests;
+    private final long defaultTokens;
+    private final Map<Long, Usage> usage = new ConcurrentHashMap<>();
+    private final Counter requestRefusals;
+    private final Counter tokenRefusals;
+
+    public UserQuotaService(UserRequestRepository userRequestRepository,
+            RequestMetricRepository requestMetricRepository,
+            MeterRegistry meterRegistry,
+            @Value("${aibroker.user-quota.enabled:true}") boolean enabled,
+            @Value("${aibroker.user-quota.window:1d}") Duration window,
+            @Value("${aibroker.user-quota.default-requests:0}") long defaultRequests,
+            @Value("${aibroker.user-quota.default-tokens:0}") long defaultTokens) {
+        if (window.toMillis() < 1) {
+            throw new IllegalArgumentException("user-quota window must be positive");
+        }
+        this.userRequestRepository = userRequestRepository;
+        this.requestMetricRepository = requestMetricRepository;
+        this.enabled = enabled;
+        this.windowMillis = window.toMillis();
+        this.defaultRequests = defaultRequests;
+        this.defaultTokens = defaultTokens;
+        this.requestRefusals = refusals(meterRegistry, "requests");
+        this.tokenRefusals = refusals(meterRegistry, "tokens");
+    }
+
+    /**
+     * Counts a request against the quotas of its user.
+     *
+     * @param user the authenticated user
+     * @throws TooManyRequestsException when a quota of the user is exhausted
+     *                                  for the rest of the window
+     */
+    public void admit(User user) throws TooManyRequestsException {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Usage current = current(user.getId(), user.getEmail(), now);
+        current.requestQuota = user.getRequestQuota();
+        current.tokenQuota = user.getTokenQuota();
+
+        long requestQuota = current.requestQuota();
+        if (requestQuota > 0 && current.requests() >= requestQuota) {
+            requestRefusals.increment();
+            throw refusal("Request quota of " + requestQuota + " exhausted", current, now);
+        }
+        long tokenQuota = current.tokenQuota();
+        if (tokenQuota > 0 && current.tokens() >= tokenQuota) {
+            tokenRefusals.increment();
+            throw refusal("Token quota of " + tokenQuota + " exhausted", current, now);
+        }
+        current.requests.increment();
+    }
+
+    /**
+     * Counts the tokens a request of the user spent upstream.
+     *
+     * @param user   the user of the request
+     * @param tokens the total tokens of the response
+     */
+    public void record(User user, long tokens) {
+        if (!enabled || tokens <= 0) {
+            return;
+        }
+        current(user.getId(), user.getEmail(), System.currentTimeMillis()).tokens.add(tokens);
+    }
+
+    /**
+     * @return the live usage of every user with any in the current window
+     */
+    public List<UserQuotaResponse> usage() {
+        long start = windowStart(System.currentTimeMillis());
+        LocalDateTime resetsAt = toLocalDateTime(start + windowMillis);
+        return usage.values().stream()
+                .filter(current -> current.start == start)
+                .sorted(Comparator.comparing(current -> current.userId))
+                .map(current -> new UserQuotaResponse(current.userId, current.email,
+                        current.requests(), current.requestQuota(), current.tokens(), current.tokenQuota(),
+                        resetsAt))
+                .toList();
+    }
+
+    /**
+     * Raises the counters of the current window to the usage audited in the
+     * database, and drops the counters of past windows. Never lowers them:
+     * what was counted here may not have been written yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${aibroker.user-quota.reconcile-interval:30s}",
+            initialDelayString = "${aibroker.user-quota.reconcile-interval:30s}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long start = windowStart(now);
+        usage.values().removeIf(current -> current.start != start);
+        LocalDateTime since = toLocalDateTime(start);
+        try {
+            for (UserUsageTotal total : userRequestRepository.countRequestsByUserSince(since)) {
+                Usage current = current(total.userId(), total.email(), now);
+                current.requestOffset.accumulateAndGet(total.total(),
+                        (offset, audited) -> Math.max(offset, audited - current.requests.sum()));
+            }
+            for (UserUsageTotal total : requestMetricRepository.sumTokensByUserSince(since)) {
+                Usage current = current(total.userId(), total.email(), now);
+                current.tokenOffset.accumulateAndGet(total.total(),
+                        (offset, audited) -> Math.max(offset, audited - current.tokens.sum()));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not reconcile user quotas: {}", e.getMessage());
+        }
+    }
+
+    private Usage current(Long userId, String email, long now) {
+        long start = windowStart(now);
+        Usage current = usage.get(userId);
+        if (current == null || current.start != start) {
+            current = usage.compute(userId, (id, existing) -> existing != null && existing.start == start
+                    ? existing
+                    : new Usage(start, id, email));
+        }
+        return current;
+    }
+
+    private TooManyRequestsException refusal(String message, Usage current, long now) {
+        log.debug("User {} refused: {}", current.userId, message);
+        return new TooManyRequestsException(message, Duration.ofMillis(current.start + windowMillis - now));
+    }
+
+    private long windowStart(long now) {
+        return now - Math.floorMod(now, windowMillis);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        // audit timestamps are local date times
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static Counter refusals(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("aibroker.user.quota.rejected")
+                .description("Chat requests refused because a quota of their user was exhausted")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Usage of one user in one window: what was counted here, plus what the
+     * database had on top of it when last reconciled.
+     */
+    private final class Usage {
+
+        private final long start;
+        private final Long userId;
+        private final String email;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder tokens = new LongAdder();
+        private final AtomicLong requestOffset = new AtomicLong();
+        private final AtomicLong tokenOffset = new AtomicLong();
+        private volatile Integer requestQuota;
+        private volatile Long tokenQuota;
+
+        Usage(long start, Long userId, String email) {
+            this.start = start;
+            this.userId = userId;
+            this.email = email;
+        }
+
+        long requests() {
+            return requests.sum() + requestOffset.get();
+        }
+
+        long tokens() {
+            return tokens.sum() + tokenOffset.get();
+        }
+
+        long requestQuota() {
+            return requestQuota != null ? requestQuota : defaultRequests;
+        }
+
+        long tokenQuota() {
+            return tokenQuota != null ? tokenQuota : defaultTokens;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.delimce.aibroker.domain.dto.values.UserToken;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
 
 @Service
@@ -15,10 +16,13 @@ public class UserRefreshService extends BaseService {
 
     private final JwtTokenInterface jwtTokenInterface;
     private final UserRepository userRepository;
+    private final PrincipalCacheInterface principalCache;
 
-    public UserRefreshService(JwtTokenInterface jwtTokenInterface, UserRepository userRepository) {
+    public UserRefreshService(JwtTokenInterface jwtTokenInterface, UserRepository userRepository,
+            PrincipalCacheInterface principalCache) {
         this.jwtTokenInterface = jwtTokenInterface;
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     public UserLoggedResponse execute() throws JwtTokenException {
@@ -28,6 +32,7 @@ public class UserRefreshService extends BaseService {
 
         user.setTokenTs(token.issuedAt());
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
 
         return new UserLoggedResponse(
                 token.token(),
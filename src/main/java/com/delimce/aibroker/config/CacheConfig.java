@@ -13,7 +13,7 @@ public class CacheConfig {
     @Bean
     public CacheManager cacheManager() {
         ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-        cacheManager.setCacheNames(Arrays.asList("users", "models", "providers"));
+        cacheManager.setCacheNames(Arrays.asList("users", "providers"));
         return cacheManager;
     }
 }
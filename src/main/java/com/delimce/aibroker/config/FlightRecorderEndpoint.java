@@ -0,0 +1,184 @@
+package com.delimce.aibroker.config;
+
+import com.delimce.aibroker.domain.jfr.AuditFlushEvent;
+import com.delimce.aibroker.domain.jfr.AuthEvent;
+import com.delimce.aibroker.domain.jfr.ChatRequestEvent;
+import com.delimce.aibroker.domain.jfr.UpstreamCallEvent;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Flight recordings on demand, at /actuator/jfr once the endpoint is exposed:
+ * POST starts one, GET tells its state, DELETE stops it, and GET
+ * /actuator/jfr/aibroker downloads what it holds, while it runs or once it
+ * stopped. There is one recording at a time; starting a new one discards the
+ * one that stopped, and starting while one runs leaves it running. The broker
+ * events are recorded with the given threshold, every other event with the
+ * JDK settings it names, except the environment variables and system
+ * properties of the process, which may hold secrets. Recordings are kept to
+ * disk within max-age and max-size. Each download is dumped to a file of its
+ * own, deleted once it has been read. The endpoint is only served on a
+ * management.server.port of its own, see {@link SecurityConfig}.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Log4j2
+public class FlightRecorderEndpoint {
+
+    static final String RECORDING_NAME = "aibroker";
+    static final String DEFAULT_SETTINGS = "default";
+
+    static final List<Class<? extends Event>> EVENTS = List.of(
+            AuthEvent.class, ChatRequestEvent.class, UpstreamCallEvent.class, AuditFlushEvent.class);
+
+    static final List<String> DISABLED_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+
+    private final Duration maxAge;
+    private final DataSize maxSize;
+
+    private Recording recording;
+    private String settings;
+
+    public FlightRecorderEndpoint(
+            @Value("${aibroker.jfr.max-age:1h}") Duration maxAge,
+            @Value("${aibroker.jfr.max-size:256MB}") DataSize maxSize) {
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+    }
+
+    @ReadOperation
+    public synchronized RecordingStatus status() {
+        return status(recording, settings);
+    }
+
+    /**
+     * @param settings  the JDK settings of the other events, default or
+     *                  profile; default when not given
+     * @param threshold the shortest broker event recorded; all when not given
+     * @param duration  how long to record before stopping; until stopped when
+     *                  not given
+     */
+    @WriteOperation
+    public synchronized RecordingStatus start(@Nullable String settings, @Nullable Duration threshold,
+            @Nullable Duration duration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return status();
+        }
+        String name = settings != null ? settings : DEFAULT_SETTINGS;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(name);
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException("Unknown settings: " + name, "Unknown settings");
+        }
+
+        close();
+        Recording started = new Recording(configuration);
+        started.setName(RECORDING_NAME);
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSize.toBytes());
+        started.setDuration(duration);
+        for (Class<? extends Event> event : EVENTS) {
+            started.enable(event).withThreshold(threshold != null ? threshold : Duration.ZERO);
+        }
+        DISABLED_EVENTS.forEach(started::disable);
+        started.start();
+        recording = started;
+        this.settings = name;
+        log.info("Started flight recording with {} settings", name);
+        return status();
+    }
+
+    @DeleteOperation
+    public synchronized RecordingStatus stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped flight recording");
+        }
+        return status();
+    }
+
+    /**
+     * @return the events recorded so far, null when there is no such recording
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized Resource download(@Selector String name) throws IOException {
+        if (!RECORDING_NAME.equals(name) || recording == null
+                || recording.getState() == RecordingState.NEW || recording.getState() == RecordingState.CLOSED) {
+            return null;
+        }
+        Path dump = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+        try {
+            recording.dump(dump);
+        } catch (IOException e) {
+            Files.deleteIfExists(dump);
+            throw e;
+        }
+        return new DumpResource(dump);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private static RecordingStatus status(Recording recording, String settings) {
+        if (recording == null) {
+            return new RecordingStatus(RECORDING_NAME, "NONE", null, null, null, 0);
+        }
+        return new RecordingStatus(recording.getName(), recording.getState().name(), settings,
+                recording.getStartTime(), recording.getStopTime(), recording.getSize());
+    }
+
+    /**
+     * A dump that is deleted once the response has read it, so concurrent
+     * downloads never share a file.
+     */
+    private static final class DumpResource extends FileSystemResource {
+
+        DumpResource(Path dump) {
+            super(dump);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+    }
+
+    public record RecordingStatus(String name, String state, String settings, Instant startTime,
+            Instant stopTime, long size) {
+    }
+}
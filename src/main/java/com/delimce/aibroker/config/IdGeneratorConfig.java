@@ -0,0 +1,20 @@
+package com.delimce.aibroker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import com.delimce.aibroker.domain.entities.TimeOrderedIdGenerator;
+
+/**
+ * Applies the configured node id to {@link TimeOrderedIdGenerator}. Without
+ * one, each instance picks a random node id at startup.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    public IdGeneratorConfig(@Value("${aibroker.ids.node-id:-1}") int nodeId) {
+        if (nodeId >= 0) {
+            TimeOrderedIdGenerator.useNodeId(nodeId);
+        }
+    }
+}
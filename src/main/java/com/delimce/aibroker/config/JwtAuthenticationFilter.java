@@ -1,16 +1,19 @@
 package com.delimce.aibroker.config;
 
+import com.delimce.aibroker.application.ServerTimings;
 import com.delimce.aibroker.domain.entities.User;
-import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.jfr.AuthEvent;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
-import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,37 +23,70 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Authenticates a request from its bearer token. The time spent doing so,
+ * without the rest of the chain, is timed by outcome: anonymous (no bearer
+ * token), authenticated, or rejected, is part of the {@link ServerTimings}
+ * of the request when it is timed, and is an {@link AuthEvent} of the flight
+ * recorder.
+ */
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    static final String AUTH_TIMER = "aibroker.auth";
+
+    private static final String ANONYMOUS = "anonymous";
+    private static final String AUTHENTICATED = "authenticated";
+    private static final String REJECTED = "rejected";
+
     private final JwtTokenInterface jwtService;
-    private final UserRepository userRepository;
+    private final PrincipalCacheInterface principalCache;
+    private final Timer anonymousTimer;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+
+    public JwtAuthenticationFilter(JwtTokenInterface jwtService, PrincipalCacheInterface principalCache,
+            MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.principalCache = principalCache;
+        this.anonymousTimer = timer(meterRegistry, ANONYMOUS);
+        this.authenticatedTimer = timer(meterRegistry, AUTHENTICATED);
+        this.rejectedTimer = timer(meterRegistry, REJECTED);
+    }
 
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain) throws ServletException, IOException {
+        final AuthEvent event = new AuthEvent();
+        event.begin();
+        final long start = System.nanoTime();
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
+        final Claims claims;
         final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            record(anonymousTimer, event, ANONYMOUS, request, start);
             filterChain.doFilter(request, response);
             return;
         }
 
         jwt = authHeader.substring(7);
         try {
-            userEmail = jwtService.extractEmail(jwt);
+            // one signature check per token; repeated requests hit the verified-claims cache
+            claims = jwtService.verifyToken(jwt);
+            userEmail = claims.getSubject();
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                User user = userRepository.findUserByEmailAndStatus(userEmail, UserStatus.ACTIVE);
+                User user = principalCache.findActiveUser(userEmail);
 
-                if ((user == null) || (!jwtService.isTokenValid(jwt, user))) {
+                if ((user == null) || (!jwtService.areClaimsValid(claims, user))) {
+                    record(rejectedTimer, event, REJECTED, request, start);
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.getWriter().write("User not found, inactive, or token has expired.");
                     return;
@@ -67,12 +103,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
         } catch (SecurityValidationException e) {
             // Handle the exception - either log it or set an error response
+            record(rejectedTimer, event, REJECTED, request, start);
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Invalid token: " + e.getMessage());
             return;
         }
 
+        record(authenticatedTimer, event, AUTHENTICATED, request, start);
         filterChain.doFilter(request, response);
     }
 
+    private static void record(Timer timer, AuthEvent event, String outcome, HttpServletRequest request,
+            long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        ServerTimings.of(request).record(ServerTimings.Stage.AUTH, start);
+        event.finish(outcome);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder(AUTH_TIMER)
+                .description("Time spent authenticating a request from its bearer token")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
 }
@@ -0,0 +1,73 @@
+package com.delimce.aibroker.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import com.delimce.aibroker.application.llm.ModelRegistry;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Makes {@link ModelRegistry} reload once a change to a model or a provider
+ * is committed. Registered with Hibernate's insert, update and delete events,
+ * so the entities carry no listener of their own.
+ */
+@Component
+public class ModelRegistryInvalidator
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ModelRegistry modelRegistry;
+
+    public ModelRegistryInvalidator(EntityManagerFactory entityManagerFactory, ModelRegistry modelRegistry) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.modelRegistry = modelRegistry;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, this);
+        listeners.appendListeners(EventType.POST_UPDATE, this);
+        listeners.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        onChange(event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void onChange(Object entity) {
+        if (entity instanceof Model || entity instanceof Provider) {
+            modelRegistry.invalidateAfterCommit();
+        }
+    }
+}
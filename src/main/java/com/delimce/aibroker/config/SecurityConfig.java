@@ -1,8 +1,14 @@
 package com.delimce.aibroker.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -10,6 +16,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -18,6 +25,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final Environment environment;
 
     @Bean
     public PasswordEncoder passwordEncoder() {
@@ -31,15 +39,46 @@ public class SecurityConfig {
             "/account/**"
     };
 
+    /**
+     * Actuator endpoints that are only served on a management.server.port of
+     * their own, one that is not published, and are refused while the
+     * actuator shares the port of the API.
+     */
+    protected static final String[] MANAGEMENT_PORT_URLS = {
+            "/actuator/jfr/**"
+    };
+
+    /**
+     * Scrape endpoints, open without a token on a management.server.port of
+     * their own and refused while the actuator shares the port of the API.
+     */
+    protected static final String[] SCRAPE_URLS = {
+            "/actuator/prometheus"
+    };
+
     @Bean
     public SecurityFilterChain securityFilterChain2(HttpSecurity http) throws Exception {
         http.sessionManagement(sessionManagement -> sessionManagement
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorizeRequests -> authorizeRequests
+                        // async re-dispatches (reactive/deferred results) were authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(WHITELISTED_URLS).permitAll() // Allow whitelisted URLs
+                        .requestMatchers(MANAGEMENT_PORT_URLS)
+                        .access(onManagementPort(AuthenticatedAuthorizationManager.authenticated()))
+                        .requestMatchers(SCRAPE_URLS)
+                        .access(onManagementPort((authentication, context) -> new AuthorizationDecision(true)))
                         .anyRequest().authenticated()) // Require authentication for all other requests
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
+
+    private AuthorizationManager<RequestAuthorizationContext> onManagementPort(
+            AuthorizationManager<RequestAuthorizationContext> authorization) {
+        if (ManagementPortType.get(environment) != ManagementPortType.DIFFERENT) {
+            return (authentication, context) -> new AuthorizationDecision(false);
+        }
+        return authorization;
+    }
 }
@@ -0,0 +1,54 @@
+package com.delimce.aibroker.config;
+
+import com.delimce.aibroker.application.ServerTimings;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Starts the {@link ServerTimings} of a chat request, ahead of the security
+ * chain so authentication is part of them. The chat controller sends them
+ * back in the Server-Timing header, and in the response body when in-body is
+ * set. Other requests, and every request when disabled, are not timed.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String TIMED_PATH = "/llm/chat";
+
+    private final boolean enabled;
+    private final boolean inBody;
+
+    public ServerTimingFilter(
+            @Value("${aibroker.server-timing.enabled:true}") boolean enabled,
+            @Value("${aibroker.server-timing.in-body:false}") boolean inBody) {
+        this.enabled = enabled;
+        this.inBody = inBody;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !TIMED_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        request.setAttribute(ServerTimings.ATTRIBUTE, ServerTimings.start(inBody));
+        filterChain.doFilter(request, response);
+    }
+}
@@ -1,8 +1,13 @@
 package com.delimce.aibroker.domain.dto;
 
+import java.util.Map;
+
 import org.springframework.http.HttpStatus;
 
-public record ApiResponse(Object info, int status, String message) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public record ApiResponse(Object info, int status, String message,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Map<String, Double> timings) {
 
 
     public static final String CREATED = HttpStatus.CREATED.getReasonPhrase();
@@ -13,6 +18,10 @@ public record ApiResponse(Object info, int status, String message) {
         }
     }
 
+    public ApiResponse(Object info, int status, String message) {
+        this(info, status, message, null);
+    }
+
     public ApiResponse(Object info) {
         this(info, 200, "OK");
     }
@@ -20,4 +29,12 @@ public record ApiResponse(Object info, int status, String message) {
     public ApiResponse(String message, int status) {
         this(null, status, message);
     }
+
+    /**
+     * @param timings milliseconds spent per stage of the request
+     * @return this response with the server timings of its request
+     */
+    public ApiResponse withTimings(Map<String, Double> timings) {
+        return new ApiResponse(info, status, message, timings);
+    }
 }
@@ -1,9 +1,13 @@
 package com.delimce.aibroker.domain.dto.requests.llm;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -29,4 +33,14 @@ public class ModelRequest {
 
     @Builder.Default
     double temperature = 1.0;
+
+    // upper bound of the completion; rate limiting charges it against the TPM quota
+    @JsonProperty("max_tokens")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Positive(message = "max_tokens must be positive")
+    Integer maxTokens;
+
+    public ModelRequest(String model, boolean stream, ModelMessageRequest[] messages, double temperature) {
+        this(model, stream, messages, temperature, null);
+    }
 }
@@ -1,5 +1,6 @@
 package com.delimce.aibroker.domain.dto.responses.llm;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.AllArgsConstructor;
@@ -11,6 +12,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Choice {
     private int index;
+    // streamed chunks carry the partial message as "delta"
+    @JsonAlias("delta")
     private Message message;
     @JsonIgnore
     private String logprobs;
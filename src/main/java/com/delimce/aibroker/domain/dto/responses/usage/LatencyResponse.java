@@ -0,0 +1,12 @@
+package com.delimce.aibroker.domain.dto.responses.usage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.delimce.aibroker.domain.dto.values.ModelLatency;
+
+public record LatencyResponse(
+                LocalDateTime from,
+                LocalDateTime to,
+                List<ModelLatency> models) {
+}
@@ -0,0 +1,17 @@
+package com.delimce.aibroker.domain.dto.responses.usage;
+
+import java.math.BigDecimal;
+
+public record SpendLine(
+                Long userId,
+                String email,
+                Long modelId,
+                String model,
+                long requests,
+                long cachedRequests,
+                long promptTokens,
+                long cacheHitTokens,
+                long completionTokens,
+                long totalTokens,
+                BigDecimal cost) {
+}
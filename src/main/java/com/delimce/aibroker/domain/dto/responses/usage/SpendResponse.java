@@ -0,0 +1,14 @@
+package com.delimce.aibroker.domain.dto.responses.usage;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record SpendResponse(
+                LocalDateTime from,
+                LocalDateTime to,
+                long requests,
+                long totalTokens,
+                BigDecimal cost,
+                List<SpendLine> lines) {
+}
@@ -0,0 +1,19 @@
+package com.delimce.aibroker.domain.dto.responses.usage;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record UsageLine(
+                LocalDateTime start,
+                Long userId,
+                String email,
+                Long modelId,
+                String model,
+                long requests,
+                long cachedRequests,
+                long promptTokens,
+                long cacheHitTokens,
+                long completionTokens,
+                long totalTokens,
+                BigDecimal cost) {
+}
@@ -0,0 +1,13 @@
+package com.delimce.aibroker.domain.dto.responses.usage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+
+public record UsageReportResponse(
+                UsagePeriod period,
+                LocalDateTime from,
+                LocalDateTime to,
+                List<UsageLine> lines) {
+}
@@ -0,0 +1,13 @@
+package com.delimce.aibroker.domain.dto.responses.users;
+
+import java.time.LocalDateTime;
+
+public record UserQuotaResponse(
+                Long userId,
+                String email,
+                long requests,
+                long requestQuota,
+                long tokens,
+                long tokenQuota,
+                LocalDateTime resetsAt) {
+}
@@ -0,0 +1,83 @@
+package com.delimce.aibroker.domain.dto.values;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.entities.Model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Canonical SHA-256 of everything that determines a chat completion: the
+ * model name, the sampling parameters and every message. Two requests with
+ * the same fingerprint get the same answer when they are deterministic.
+ */
+public final class ChatFingerprint {
+
+    private ChatFingerprint() {
+    }
+
+    /**
+     * @param request the chat request
+     * @return true when the provider answers the request the same way every time
+     */
+    public static boolean isDeterministic(ModelRequest request) {
+        return request.getTemperature() == 0.0;
+    }
+
+    /**
+     * @param model   the resolved model
+     * @param request the chat request
+     * @return the Base64 encoded fingerprint
+     */
+    public static String of(Model model, ModelRequest request) {
+        return of(model, request, request.getMessages().length);
+    }
+
+    /**
+     * Fingerprint of the conversation leading up to a message: the same as
+     * {@link #of(Model, ModelRequest)} but over the first messages only.
+     *
+     * @param model        the resolved model
+     * @param request      the chat request
+     * @param messageCount how many leading messages to include
+     * @return the Base64 encoded fingerprint
+     */
+    public static String of(Model model, ModelRequest request, int messageCount) {
+        MessageDigest digest = sha256();
+        update(digest, model.getName());
+        // sampling parameters; adding 0.0 folds -0.0 into 0.0
+        digest.update(ByteBuffer.allocate(Double.BYTES).putDouble(request.getTemperature() + 0.0).array());
+        Integer maxTokens = request.getMaxTokens();
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(maxTokens != null ? maxTokens : -1).array());
+        ModelMessageRequest[] messages = request.getMessages();
+        for (int i = 0; i < messageCount; i++) {
+            update(digest, messages[i].getRole());
+            update(digest, messages[i].getContent());
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    // length-prefixed, so ("ab", "c") and ("a", "bc") never share a fingerprint
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
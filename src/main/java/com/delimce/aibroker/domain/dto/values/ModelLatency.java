@@ -0,0 +1,17 @@
+package com.delimce.aibroker.domain.dto.values;
+
+/**
+ * Mean latencies of the upstream calls to a model over a range.
+ *
+ * @param modelId               the model
+ * @param model                 the name of the model
+ * @param provider              the name of its provider
+ * @param calls                 the upstream calls timed
+ * @param timeToFirstTokenMs    the mean time to the first chunk
+ * @param interTokenLatencyMs   the mean time between tokens of the streamed
+ *                              calls, null when none was streamed
+ * @param outputTokensPerSecond the mean completion tokens per second
+ */
+public record ModelLatency(Long modelId, String model, String provider, Long calls, Double timeToFirstTokenMs,
+        Double interTokenLatencyMs, Double outputTokensPerSecond) {
+}
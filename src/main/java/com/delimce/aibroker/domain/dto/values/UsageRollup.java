@@ -0,0 +1,44 @@
+package com.delimce.aibroker.domain.dto.values;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Usage of one user on one model, summed over an hour, a day or a longer
+ * range. Tokens and cost are the ones spent upstream: requests answered from
+ * the response cache only count as requests.
+ *
+ * @param start            the start of the first period summed
+ * @param userId           the user
+ * @param modelId          the model
+ * @param requests         the requests with usage
+ * @param cachedRequests   the requests answered without an upstream call
+ * @param promptTokens     the prompt tokens spent
+ * @param cacheHitTokens   the prompt tokens the provider served from its
+ *                         context cache
+ * @param completionTokens the completion tokens spent
+ * @param totalTokens      the tokens spent
+ * @param cost             the USD spent
+ */
+public record UsageRollup(
+        LocalDateTime start,
+        Long userId,
+        Long modelId,
+        long requests,
+        long cachedRequests,
+        long promptTokens,
+        long cacheHitTokens,
+        long completionTokens,
+        long totalTokens,
+        BigDecimal cost) {
+
+    /**
+     * @return the usage of both rollups, starting at the earliest
+     */
+    public UsageRollup plus(UsageRollup other) {
+        return new UsageRollup(start.isAfter(other.start) ? other.start : start, userId, modelId,
+                requests + other.requests, cachedRequests + other.cachedRequests,
+                promptTokens + other.promptTokens, cacheHitTokens + other.cacheHitTokens,
+                completionTokens + other.completionTokens, totalTokens + other.totalTokens, cost.add(other.cost));
+    }
+}
@@ -0,0 +1,11 @@
+package com.delimce.aibroker.domain.dto.values;
+
+/**
+ * Requests or tokens a user has audited since a point in time.
+ *
+ * @param userId the user
+ * @param email  the email of the user
+ * @param total  the requests or tokens audited
+ */
+public record UserUsageTotal(Long userId, String email, Long total) {
+}
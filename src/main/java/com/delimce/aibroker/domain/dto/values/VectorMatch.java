@@ -0,0 +1,12 @@
+package com.delimce.aibroker.domain.dto.values;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+
+/**
+ * The closest entry a vector index found for a query vector.
+ *
+ * @param response   the response stored with the entry
+ * @param similarity the cosine similarity between the entry and the query
+ */
+public record VectorMatch(ModelChatResponse response, double similarity) {
+}
@@ -1,5 +1,8 @@
 package com.delimce.aibroker.domain.entities;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 import com.delimce.aibroker.domain.enums.ModelType;
 
 import jakarta.persistence.Column;
@@ -27,6 +30,11 @@ import lombok.NoArgsConstructor;
 @Table(name = "tbl_model")
 public class Model extends BaseEntity {
 
+    // USD amounts are kept to the hundred-millionth of a dollar
+    public static final int COST_SCALE = 8;
+
+    private static final long DEFAULT_TOKEN_UNIT = 1_000_000;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,6 +46,10 @@ public class Model extends BaseEntity {
     @Column(nullable = false, length = 120)
     private String name;
 
+    // logical name shared by the models a request for it is routed across
+    @Column(nullable = true, length = 120)
+    private String alias;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private ModelType type;
@@ -56,4 +68,45 @@ public class Model extends BaseEntity {
     @Column(nullable = true)
     private String costTokenUnit; // ex: 1M -> million
 
+    // upstream quotas of the model itself; null means unlimited
+    @Column(nullable = true)
+    private Integer rpmLimit; // requests per minute
+
+    @Column(nullable = true)
+    private Integer tpmLimit; // tokens per minute
+
+    /**
+     * Cost in USD of a call to the model. The unit is a token count with an
+     * optional K or M suffix; prices without one, or with one that cannot be
+     * read, are taken as quoted per million tokens.
+     *
+     * @param promptTokens     the tokens sent
+     * @param completionTokens the tokens generated
+     * @return the cost of the call
+     */
+    public BigDecimal costOf(long promptTokens, long completionTokens) {
+        BigDecimal spent = new BigDecimal(Float.toString(costTokenIn)).multiply(BigDecimal.valueOf(promptTokens))
+                .add(new BigDecimal(Float.toString(costTokenOut)).multiply(BigDecimal.valueOf(completionTokens)));
+        return spent.divide(BigDecimal.valueOf(tokenUnit()), COST_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private long tokenUnit() {
+        if (costTokenUnit == null || costTokenUnit.isBlank()) {
+            return DEFAULT_TOKEN_UNIT;
+        }
+        String unit = costTokenUnit.trim().toUpperCase();
+        long multiplier = 1;
+        if (unit.endsWith("K")) {
+            multiplier = 1_000;
+        } else if (unit.endsWith("M")) {
+            multiplier = 1_000_000;
+        }
+        try {
+            long count = Long.parseLong(multiplier == 1 ? unit : unit.substring(0, unit.length() - 1).trim());
+            return count > 0 ? count * multiplier : DEFAULT_TOKEN_UNIT;
+        } catch (NumberFormatException e) {
+            return DEFAULT_TOKEN_UNIT;
+        }
+    }
+
 }
@@ -45,6 +45,13 @@ public class Provider extends BaseEntity {
     @Column(nullable = false)
     private String apiKey;
 
+    // upstream quotas shared by all models of the provider; null means unlimited
+    @Column(nullable = true)
+    private Integer rpmLimit; // requests per minute
+
+    @Column(nullable = true)
+    private Integer tpmLimit; // tokens per minute
+
     @OneToMany(mappedBy = "provider", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Model> models;
 
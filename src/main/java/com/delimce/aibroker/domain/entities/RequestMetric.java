@@ -1,13 +1,12 @@
 package com.delimce.aibroker.domain.entities;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import org.hibernate.annotations.CreationTimestamp;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
@@ -25,7 +24,7 @@ import lombok.NoArgsConstructor;
 @Table(name = "tbl_request_metric")
 public class RequestMetric {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @OneToOne
@@ -50,4 +49,26 @@ public class RequestMetric {
 
     @Column(name = "prompt_cache_miss_tokens")
     private Integer promptCacheMissTokens;
+
+    // USD spent upstream, priced when the metric is recorded; zero when answered without an upstream call
+    @Column(name = "cost", precision = 18, scale = Model.COST_SCALE)
+    private BigDecimal cost;
+
+    // latencies of the upstream call that answered, null when there was none; a call that is not
+    // streamed arrives in one chunk, so its time to first token is the whole call
+    @Column(name = "time_to_first_token_ms")
+    private Integer timeToFirstTokenMs;
+
+    // mean time between the tokens of a stream after the first
+    @Column(name = "inter_token_latency_ms")
+    private Double interTokenLatencyMs;
+
+    // completion tokens per second over the whole call
+    @Column(name = "output_tokens_per_second")
+    private Double outputTokensPerSecond;
+
+    // answered from the response cache or by an identical request in flight, the tokens were not spent upstream
+    @Column(name = "response_cache_hit", nullable = false)
+    @Builder.Default
+    private boolean responseCacheHit = false;
 }
@@ -0,0 +1,72 @@
+package com.delimce.aibroker.domain.entities;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+/**
+ * Assigns 64-bit ids in-process so Hibernate can batch inserts (identity
+ * columns force one round trip per row). Ids are laid out as
+ * {@code [41 bits millis since 2024-01-01][12 bits sequence][10 bits node]}
+ * and increase monotonically within a process, which keeps new rows at the
+ * right-hand edge of the primary key index.
+ */
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // (millis << SEQUENCE_BITS | sequence) of the last id handed out
+    private static final AtomicLong lastTick = new AtomicLong();
+    private static volatile long nodeId = ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+
+    /**
+     * Sets the node id mixed into every id, so several instances writing to
+     * the same tables never collide
+     * @param id a value between 0 and {@value #MAX_NODE_ID}
+     */
+    public static void useNodeId(int id) {
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        nodeId = id;
+    }
+
+    /**
+     * Returns the next id. When more than 4096 ids are requested within the
+     * same millisecond, or the clock moves backwards, the sequence carries
+     * into the timestamp so ids never repeat or decrease.
+     */
+    public static long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long tick = lastTick.accumulateAndGet(now, (last, candidate) -> Math.max(last + 1, candidate));
+        return (tick >>> SEQUENCE_BITS) << (SEQUENCE_BITS + NODE_BITS)
+                | (tick & SEQUENCE_MASK) << NODE_BITS
+                | nodeId;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+            EventType eventType) {
+        return currentValue != null ? currentValue : nextId();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,63 @@
+package com.delimce.aibroker.domain.entities;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Usage of a user on a model during one day, kept alongside the hourly rows
+ * so that long ranges read one row per day.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+@Table(name = "tbl_usage_daily")
+public class UsageDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "day_start", nullable = false)
+    private LocalDateTime dayStart;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "model_id", nullable = false)
+    private Long modelId;
+
+    @Column(nullable = false)
+    private long requests;
+
+    // answered from the response cache, no tokens nor cost counted
+    @Column(name = "cached_requests", nullable = false)
+    private long cachedRequests;
+
+    @Column(name = "prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name = "cache_hit_tokens", nullable = false)
+    private long cacheHitTokens;
+
+    @Column(name = "completion_tokens", nullable = false)
+    private long completionTokens;
+
+    @Column(name = "total_tokens", nullable = false)
+    private long totalTokens;
+
+    @Column(nullable = false, precision = 18, scale = Model.COST_SCALE)
+    private BigDecimal cost; // usd
+}
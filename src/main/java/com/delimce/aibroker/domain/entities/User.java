@@ -55,4 +55,11 @@ public class User extends BaseEntity {
     @Builder.Default
     private UserStatus status = UserStatus.PENDING;
 
+    // quotas per window over the configured defaults; null means the default
+    @Column(nullable = true)
+    private Integer requestQuota;
+
+    @Column(nullable = true)
+    private Long tokenQuota;
+
 }
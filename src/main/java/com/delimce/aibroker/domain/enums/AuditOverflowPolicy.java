@@ -0,0 +1,6 @@
+package com.delimce.aibroker.domain.enums;
+
+public enum AuditOverflowPolicy {
+    DROP,
+    BLOCK
+}
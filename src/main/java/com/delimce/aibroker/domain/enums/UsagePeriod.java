@@ -0,0 +1,29 @@
+package com.delimce.aibroker.domain.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum UsagePeriod {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    UsagePeriod(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @return the start of the period the time falls in
+     */
+    public LocalDateTime startOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * @return the start of the period that many periods after the given one
+     */
+    public LocalDateTime plus(LocalDateTime start, long periods) {
+        return start.plus(periods, unit);
+    }
+}
@@ -0,0 +1,27 @@
+package com.delimce.aibroker.domain.exceptions;
+
+/**
+ * The provider failed to answer a call: it responded with a 5xx status, timed
+ * out or could not be reached. Errors caused by the request itself, such as a
+ * 4xx response, are not provider failures. Unchecked, as adapters raise it
+ * from calls whose signatures declare no exceptions.
+ */
+public class ProviderFailureException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Integer status;
+
+    public ProviderFailureException(String message, Integer status, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    /**
+     * @return the HTTP status the provider responded with, null when it did
+     *         not respond
+     */
+    public Integer getStatus() {
+        return status;
+    }
+}
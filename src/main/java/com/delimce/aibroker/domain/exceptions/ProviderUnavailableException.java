@@ -0,0 +1,22 @@
+package com.delimce.aibroker.domain.exceptions;
+
+import java.time.Duration;
+
+public class ProviderUnavailableException extends DomainException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public ProviderUnavailableException(String message, Duration retryAfter) {
+        super(message, null);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how long the client should wait before trying again
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
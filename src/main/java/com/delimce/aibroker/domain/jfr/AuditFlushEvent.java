@@ -0,0 +1,58 @@
+package com.delimce.aibroker.domain.jfr;
+
+import java.util.List;
+
+import com.delimce.aibroker.domain.entities.RequestMetric;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One batch written by the audit writer.
+ */
+@Name(AuditFlushEvent.NAME)
+@Label("Audit Flush")
+@Category({ "AI Broker", "Audit" })
+@Description("One batch of audited requests and metrics written to the database")
+@StackTrace(false)
+public class AuditFlushEvent extends Event {
+
+    public static final String NAME = "aibroker.AuditFlush";
+
+    @Label("Requests")
+    int requests;
+
+    @Label("Metrics")
+    int metrics;
+
+    @Label("Total Tokens")
+    @Description("Total tokens of the metrics of the batch")
+    long totalTokens;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Ends the batch and commits the event when its duration passes the
+     * threshold of the recording.
+     */
+    public void finish(int requests, List<RequestMetric> metrics, boolean failed) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.requests = requests;
+        this.metrics = metrics.size();
+        for (RequestMetric metric : metrics) {
+            if (metric.getTotalTokens() != null) {
+                this.totalTokens += metric.getTotalTokens();
+            }
+        }
+        this.failed = failed;
+        commit();
+    }
+}
@@ -0,0 +1,36 @@
+package com.delimce.aibroker.domain.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Authentication of a request from its bearer token, without the rest of the
+ * filter chain.
+ */
+@Name(AuthEvent.NAME)
+@Label("Authentication")
+@Category({ "AI Broker", "Security" })
+@Description("Authentication of a request from its bearer token")
+@StackTrace(false)
+public class AuthEvent extends Event {
+
+    public static final String NAME = "aibroker.Auth";
+
+    @Label("Outcome")
+    @Description("anonymous, authenticated or rejected")
+    String outcome;
+
+    /**
+     * Ends the authentication and commits the event when a recording wants it.
+     */
+    public void finish(String outcome) {
+        if (shouldCommit()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
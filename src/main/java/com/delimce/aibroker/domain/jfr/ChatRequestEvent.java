@@ -0,0 +1,150 @@
+package com.delimce.aibroker.domain.jfr;
+
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A chat request, from the resolution of its model until its response is
+ * accounted. A request is only followed when a recording enables this event
+ * as it starts; any other request gets {@link #DISABLED}, which ignores every
+ * call, so a request costs nothing to follow when nothing records. Requests
+ * that fail are not committed; their upstream call is, as an
+ * {@link UpstreamCallEvent}.
+ */
+@Name(ChatRequestEvent.NAME)
+@Label("Chat Request")
+@Category({ "AI Broker", "Chat" })
+@Description("A chat request, from the resolution of its model until its response is accounted")
+@StackTrace(false)
+public class ChatRequestEvent extends Event {
+
+    public static final String NAME = "aibroker.ChatRequest";
+
+    public static final ChatRequestEvent DISABLED = new ChatRequestEvent();
+
+    private static final EventType TYPE = EventType.getEventType(ChatRequestEvent.class);
+
+    @Label("Model")
+    String model;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Streamed")
+    boolean stream;
+
+    @Label("Response Cache Hit")
+    @Description("Answered without an upstream call of its own")
+    boolean responseCacheHit;
+
+    @Label("Prompt Tokens")
+    int promptTokens;
+
+    @Label("Completion Tokens")
+    int completionTokens;
+
+    @Label("Total Tokens")
+    int totalTokens;
+
+    @Label("Resolve")
+    @Description("Time spent resolving the model")
+    @Timespan
+    long resolve;
+
+    @Label("Audit")
+    @Description("Time spent checking the quotas of the user and auditing the request")
+    @Timespan
+    long audit;
+
+    @Label("Time To First Token")
+    @Description("Time from the start of the upstream call to its first chunk")
+    @Timespan
+    long timeToFirstToken;
+
+    private transient long mark;
+
+    /**
+     * @return the event of a request that starts now, {@link #DISABLED} when
+     *         no recording enables it
+     */
+    public static ChatRequestEvent start(boolean stream) {
+        if (!TYPE.isEnabled()) {
+            return DISABLED;
+        }
+        ChatRequestEvent event = new ChatRequestEvent();
+        event.stream = stream;
+        event.begin();
+        event.mark = System.nanoTime();
+        return event;
+    }
+
+    public boolean isRecording() {
+        return this != DISABLED;
+    }
+
+    /**
+     * The model of the request is resolved.
+     */
+    public void resolved(Model model) {
+        if (this == DISABLED) {
+            return;
+        }
+        long now = System.nanoTime();
+        this.model = model.getName();
+        this.provider = model.getProvider() != null ? model.getProvider().getName() : null;
+        this.resolve = now - mark;
+        this.mark = now;
+    }
+
+    /**
+     * The request is admitted and audited.
+     */
+    public void audited() {
+        if (this == DISABLED) {
+            return;
+        }
+        long now = System.nanoTime();
+        this.audit = now - mark;
+        this.mark = now;
+    }
+
+    /**
+     * The response is accounted: the event ends and is committed when its
+     * duration passes the threshold of the recording.
+     *
+     * @param usage                 the usage of the response, null when not
+     *                              reported
+     * @param responseCacheHit      whether the request made no upstream call of
+     *                              its own
+     * @param timeToFirstTokenNanos the time to first token of the upstream
+     *                              call, null when there was none
+     */
+    public void answered(Usage usage, boolean responseCacheHit, Long timeToFirstTokenNanos) {
+        if (this == DISABLED) {
+            return;
+        }
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.responseCacheHit = responseCacheHit;
+        if (usage != null) {
+            this.promptTokens = usage.getPrompt_tokens();
+            this.completionTokens = usage.getCompletion_tokens();
+            this.totalTokens = usage.getTotal_tokens();
+        }
+        if (timeToFirstTokenNanos != null) {
+            this.timeToFirstToken = timeToFirstTokenNanos;
+        }
+        commit();
+    }
+}
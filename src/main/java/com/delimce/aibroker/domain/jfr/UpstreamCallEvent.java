@@ -0,0 +1,156 @@
+package com.delimce.aibroker.domain.jfr;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * One call of an AI client adapter to a provider, from its start until its
+ * response or last chunk arrived. A blocking call follows the usual
+ * begin/commit pattern; a reactive call is only wrapped when a recording
+ * enables this event as the call is assembled, so calls cost nothing to
+ * follow when nothing records.
+ */
+@Name(UpstreamCallEvent.NAME)
+@Label("Upstream Call")
+@Category({ "AI Broker", "Upstream" })
+@Description("A call to a provider, from its start until its response or last chunk arrived")
+@StackTrace(false)
+public class UpstreamCallEvent extends Event {
+
+    public static final String NAME = "aibroker.UpstreamCall";
+
+    public static final String SUCCESS = "success";
+    public static final String EMPTY = "empty";
+    public static final String ERROR = "error";
+    public static final String CANCELLED = "cancelled";
+
+    private static final EventType TYPE = EventType.getEventType(UpstreamCallEvent.class);
+
+    @Label("Model")
+    String model;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Streamed")
+    boolean stream;
+
+    @Label("Outcome")
+    @Description("success, empty, error or cancelled")
+    String outcome;
+
+    @Label("Chunks")
+    int chunks;
+
+    @Label("Prompt Tokens")
+    int promptTokens;
+
+    @Label("Completion Tokens")
+    int completionTokens;
+
+    @Label("Total Tokens")
+    int totalTokens;
+
+    @Label("Time To First Token")
+    @Description("Time from the start of the call to its first chunk")
+    @Timespan
+    long timeToFirstToken;
+
+    private transient long start;
+
+    /**
+     * Starts following a call to the model.
+     */
+    public static UpstreamCallEvent start(Model model, boolean stream) {
+        UpstreamCallEvent event = new UpstreamCallEvent();
+        event.begin();
+        event.start = System.nanoTime();
+        if (event.isEnabled()) {
+            event.model = model.getName();
+            event.provider = model.getProvider() != null ? model.getProvider().getName() : null;
+            event.stream = stream;
+        }
+        return event;
+    }
+
+    /**
+     * Follows a reactive call answering with a single response.
+     */
+    public static Mono<ModelChatResponse> time(Model model, Mono<ModelChatResponse> call) {
+        if (!TYPE.isEnabled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            UpstreamCallEvent event = start(model, false);
+            return call.doOnNext(event::received)
+                    .doOnError(e -> event.failed())
+                    .doOnCancel(event::cancelled)
+                    .doFinally(signal -> event.finish());
+        });
+    }
+
+    /**
+     * Follows a streamed call, chunk by chunk.
+     */
+    public static Flux<ModelChatResponse> time(Model model, Flux<ModelChatResponse> call) {
+        if (!TYPE.isEnabled()) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            UpstreamCallEvent event = start(model, true);
+            return call.doOnNext(event::received)
+                    .doOnError(e -> event.failed())
+                    .doOnCancel(event::cancelled)
+                    .doFinally(signal -> event.finish());
+        });
+    }
+
+    /**
+     * A response, or a chunk of it, arrived; the last usage reported is kept.
+     */
+    public void received(ModelChatResponse chunk) {
+        if (chunks++ == 0) {
+            timeToFirstToken = System.nanoTime() - start;
+        }
+        Usage usage = chunk != null ? chunk.getUsage() : null;
+        if (usage != null) {
+            promptTokens = usage.getPrompt_tokens();
+            completionTokens = usage.getCompletion_tokens();
+            totalTokens = usage.getTotal_tokens();
+        }
+    }
+
+    public void failed() {
+        outcome = ERROR;
+    }
+
+    public void cancelled() {
+        outcome = CANCELLED;
+    }
+
+    /**
+     * Ends the call and commits the event when its duration passes the
+     * threshold of the recording.
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            if (outcome == null) {
+                outcome = chunks > 0 ? SUCCESS : EMPTY;
+            }
+            commit();
+        }
+    }
+}
@@ -22,6 +22,15 @@ public interface ChatResponseMapper {
     @Mapping(target = "system_fingerprint", ignore = true)
     ModelChatResponse toModelChatResponse(ChatResponse chatResponse);
 
+    @Mapping(target = "id", expression = "java(getId(chatResponse))")
+    @Mapping(target = "object", constant = "chat.completion.chunk")
+    @Mapping(target = "created", expression = "java(getCreated(chatResponse))")
+    @Mapping(target = "model", expression = "java(getModel(chatResponse))")
+    @Mapping(target = "choices", expression = "java(mapChoices(chatResponse))")
+    @Mapping(target = "usage", expression = "java(mapChunkUsage(chatResponse))")
+    @Mapping(target = "system_fingerprint", ignore = true)
+    ModelChatResponse toModelChatChunk(ChatResponse chatResponse);
+
     default String getId(ChatResponse chatResponse) {
         var metadata = chatResponse.getMetadata();
         return metadata != null ? metadata.getId() : null;
@@ -79,4 +88,13 @@ public interface ChatResponseMapper {
         return new Usage(promptTokens, completionTokens, totalTokens, null, 0, 0);
     }
 
+    /**
+     * Intermediate stream chunks report an empty usage; only the final chunk
+     * carries token counts.
+     */
+    default Usage mapChunkUsage(ChatResponse response) {
+        Usage usage = mapUsage(response);
+        return usage != null && usage.getTotal_tokens() > 0 ? usage : null;
+    }
+
 }
@@ -4,7 +4,39 @@ import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
 import com.delimce.aibroker.domain.entities.Model;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 public interface AiApiClientInterface {
 
     ModelChatResponse requestToModel(Model model, ModelRequest modelRequest);
+
+    /**
+     * Non-blocking variant of {@link #requestToModel(Model, ModelRequest)}.
+     * Adapters backed by a blocking client inherit this default, which moves
+     * the call off the caller thread onto the bounded elastic scheduler.
+     *
+     * @param model        the model to call, with its provider
+     * @param modelRequest the chat request
+     * @return the response, or an empty Mono when the adapter has no response
+     */
+    default Mono<ModelChatResponse> requestToModelAsync(Model model, ModelRequest modelRequest) {
+        return Mono.fromCallable(() -> requestToModel(model, modelRequest))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Streams the completion as chunks while the provider produces them. The
+     * last chunk carries the usage when the provider reports it. Adapters
+     * without native streaming inherit this default, which emits the whole
+     * response as a single chunk.
+     *
+     * @param model        the model to call, with its provider
+     * @param modelRequest the chat request
+     * @return the completion chunks, empty when the adapter has no response
+     */
+    default Flux<ModelChatResponse> streamToModel(Model model, ModelRequest modelRequest) {
+        return requestToModelAsync(model, modelRequest).flux();
+    }
 }
@@ -0,0 +1,31 @@
+package com.delimce.aibroker.domain.ports;
+
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.UserRequest;
+
+public interface AuditLogInterface {
+    /**
+     * Queues a chat request for persistence. The id of the request is
+     * assigned right away; it is cleared again if the queue has no room for it.
+     * @param userRequest the request to store
+     */
+    void recordRequest(UserRequest userRequest);
+
+    /**
+     * Queues the usage metric of a previously recorded request
+     * @param requestMetric the metric to store
+     */
+    void recordMetric(RequestMetric requestMetric);
+
+    /**
+     * Queues the model of a previously recorded request that was answered by
+     * another model than the one it was recorded with
+     * @param userRequest the request, holding the model that answered it
+     */
+    void recordModel(UserRequest userRequest);
+
+    /**
+     * Blocks until everything queued before this call has been written
+     */
+    void flush();
+}
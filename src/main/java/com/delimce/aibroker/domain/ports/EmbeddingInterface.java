@@ -0,0 +1,15 @@
+package com.delimce.aibroker.domain.ports;
+
+import com.delimce.aibroker.domain.entities.Model;
+
+import reactor.core.publisher.Mono;
+
+public interface EmbeddingInterface {
+    /**
+     * Embeds a text with an embedding model
+     * @param model the embedding model, with its provider
+     * @param input the text to embed
+     * @return the embedding vector, or an empty Mono when the adapter has none
+     */
+    Mono<float[]> embed(Model model, String input);
+}
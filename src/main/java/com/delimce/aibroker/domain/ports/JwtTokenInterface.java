@@ -43,6 +43,16 @@ public interface JwtTokenInterface {
          */
         Claims extractAllClaims(String token) throws JwtTokenException;
 
+        /**
+         * Verify the signature of a JWT token and return its claims. Verified
+         * claims may be served from a cache, so callers must still check
+         * expiration and treat the claims as read-only.
+         *
+         * @param token JWT token
+         * @return verified claims
+         */
+        Claims verifyToken(String token) throws JwtTokenException;
+
         /**
          * Generate JWT token for user
          *
@@ -79,6 +89,16 @@ public interface JwtTokenInterface {
         boolean isTokenValid(String token, User userDetails)
                         throws JwtTokenException;
 
+        /**
+         * Validate already verified claims against the user
+         *
+         * @param claims      claims returned by {@link #verifyToken(String)}
+         * @param userDetails user details
+         * @return true if the claims belong to the user, are not expired and
+         *         match the user's current token timestamp
+         */
+        boolean areClaimsValid(Claims claims, User userDetails);
+
         /**
          * Value Object representing a generated JWT token with its metadata.
          * Immutable record used to encapsulate token data across application layers.
@@ -1,18 +1,22 @@
 package com.delimce.aibroker.domain.ports;
 
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+
 public interface PasswordInterface {
     /**
      * Encodes a raw password
      * @param rawPassword the password to encode
      * @return the encoded password
+     * @throws TooManyRequestsException if hashing capacity is exhausted
      */
-    String encode(String rawPassword);
+    String encode(String rawPassword) throws TooManyRequestsException;
     
     /**
      * Checks if a raw password matches an encoded password
      * @param rawPassword the raw password to check
      * @param encodedPassword the encoded password to check against
      * @return true if the passwords match, false otherwise
+     * @throws TooManyRequestsException if hashing capacity is exhausted
      */
-    boolean matches(String rawPassword, String encodedPassword);
+    boolean matches(String rawPassword, String encodedPassword) throws TooManyRequestsException;
 }
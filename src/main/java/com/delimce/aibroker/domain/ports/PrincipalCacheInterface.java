@@ -0,0 +1,20 @@
+package com.delimce.aibroker.domain.ports;
+
+import com.delimce.aibroker.domain.entities.User;
+
+public interface PrincipalCacheInterface {
+    /**
+     * Finds the active user with the given email, from the cache when
+     * possible. Each call returns its own copy, so callers may modify it.
+     * @param email the user email
+     * @return the active user, or null when there is none
+     */
+    User findActiveUser(String email);
+
+    /**
+     * Drops the cached user, so a changed status or token timestamp takes
+     * effect on the next request
+     * @param email the user email
+     */
+    void invalidate(String email);
+}
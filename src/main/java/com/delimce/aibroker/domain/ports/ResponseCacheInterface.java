@@ -0,0 +1,30 @@
+package com.delimce.aibroker.domain.ports;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+
+public interface ResponseCacheInterface {
+    /**
+     * Computes the cache key of a chat request: a canonical hash of the
+     * model, the messages and the sampling parameters
+     * @param model the resolved model
+     * @param request the chat request
+     * @return the key, or null when responses to this request are not cached
+     */
+    String fingerprint(Model model, ModelRequest request);
+
+    /**
+     * Looks up a cached response
+     * @param fingerprint a key returned by {@link #fingerprint(Model, ModelRequest)}
+     * @return the cached response, or null on a miss
+     */
+    ModelChatResponse find(String fingerprint);
+
+    /**
+     * Caches a response for later identical requests
+     * @param fingerprint a key returned by {@link #fingerprint(Model, ModelRequest)}
+     * @param response the upstream response
+     */
+    void store(String fingerprint, ModelChatResponse response);
+}
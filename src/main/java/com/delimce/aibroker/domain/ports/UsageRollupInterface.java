@@ -0,0 +1,30 @@
+package com.delimce.aibroker.domain.ports;
+
+import java.util.List;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+
+public interface UsageRollupInterface {
+    /**
+     * Adds a priced metric to the hourly and daily rollups of its user and
+     * model
+     * @param userRequest   the request the metric belongs to
+     * @param requestMetric the metric
+     */
+    void record(UserRequest userRequest, RequestMetric requestMetric);
+
+    /**
+     * @param period the rollup to read
+     * @return the usage recorded since the last flush of that rollup, one
+     *         entry per period, user and model
+     */
+    List<UsageRollup> pending(UsagePeriod period);
+
+    /**
+     * Adds the pending usage to the rollup tables
+     */
+    void flush();
+}
@@ -0,0 +1,29 @@
+package com.delimce.aibroker.domain.ports;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.VectorMatch;
+
+public interface VectorIndexInterface {
+    /**
+     * Finds the stored entry closest to a vector. Entries are only compared
+     * with vectors of the same scope.
+     * @param scope the scope the entry was added under
+     * @param vector the query vector
+     * @param minSimilarity the lowest cosine similarity that counts as a match
+     * @return the closest match, or null when no entry is similar enough
+     */
+    VectorMatch search(String scope, float[] vector, double minSimilarity);
+
+    /**
+     * Adds an entry, evicting the oldest one when the index is full
+     * @param scope the scope later searches must use to find the entry
+     * @param vector the entry vector
+     * @param response the response returned for matching searches
+     */
+    void add(String scope, float[] vector, ModelChatResponse response);
+
+    /**
+     * @return the number of entries held
+     */
+    int size();
+}
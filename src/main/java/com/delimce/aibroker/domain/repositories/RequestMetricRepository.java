@@ -1,8 +1,11 @@
 package com.delimce.aibroker.domain.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.delimce.aibroker.domain.dto.values.ModelLatency;
+import com.delimce.aibroker.domain.dto.values.UserUsageTotal;
 import com.delimce.aibroker.domain.entities.RequestMetric;
 import com.delimce.aibroker.domain.entities.UserRequest;
 
@@ -22,10 +25,39 @@ public interface RequestMetricRepository extends JpaRepository<RequestMetric, Lo
 
     /**
      * Find metrics within a date range
+     * (loads every row of the range: usage reports read the rollups in
+     * UsageHourlyRepository and UsageDailyRepository instead)
      * 
      * @param startDate The start date of the range
      * @param endDate   The end date of the range
      * @return List of RequestMetric entities
      */
     List<RequestMetric> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Sum the tokens every user spent upstream since a point in time; tokens
+     * of responses served from the cache are not counted
+     *
+     * @param since The start of the sum
+     * @return The tokens of each user with any metric
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.UserUsageTotal(u.id, u.email, "
+            + "COALESCE(SUM(m.totalTokens), 0)) FROM RequestMetric m JOIN m.userRequest r JOIN r.user u "
+            + "WHERE m.createdAt >= :since AND m.responseCacheHit = false GROUP BY u.id, u.email")
+    List<UserUsageTotal> sumTokensByUserSince(LocalDateTime since);
+
+    /**
+     * Average the latencies of the upstream calls to each model in a range;
+     * responses served without a call of their own are not counted
+     *
+     * @param from The start of the range
+     * @param to   The end of the range, excluded
+     * @return The latencies of each model with any timed call
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.ModelLatency(mo.id, mo.name, p.name, COUNT(m), "
+            + "AVG(m.timeToFirstTokenMs), AVG(m.interTokenLatencyMs), AVG(m.outputTokensPerSecond)) "
+            + "FROM RequestMetric m JOIN m.userRequest r JOIN r.model mo JOIN mo.provider p "
+            + "WHERE m.createdAt >= :from AND m.createdAt < :to AND m.responseCacheHit = false "
+            + "AND m.timeToFirstTokenMs IS NOT NULL GROUP BY mo.id, mo.name, p.name")
+    List<ModelLatency> averageLatencyByModel(LocalDateTime from, LocalDateTime to);
 }
@@ -0,0 +1,42 @@
+package com.delimce.aibroker.domain.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.UsageDaily;
+
+@Repository
+public interface UsageDailyRepository extends JpaRepository<UsageDaily, Long> {
+
+    /**
+     * Sum the daily usage of every user and model over a range of days
+     *
+     * @param from The first day of the range
+     * @param to   The day after the range
+     * @return The usage of each user and model with any in the range
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.UsageRollup(MIN(d.dayStart), d.userId, d.modelId, "
+            + "SUM(d.requests), SUM(d.cachedRequests), SUM(d.promptTokens), SUM(d.cacheHitTokens), "
+            + "SUM(d.completionTokens), SUM(d.totalTokens), SUM(d.cost)) FROM UsageDaily d "
+            + "WHERE d.dayStart >= :from AND d.dayStart < :to GROUP BY d.userId, d.modelId")
+    List<UsageRollup> sumByUserAndModel(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Find the daily usage over a range of days
+     *
+     * @param from   The first day of the range
+     * @param to     The day after the range
+     * @param userId The user to keep, or null for every user
+     * @return The usage of each day, user and model with any in the range
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.UsageRollup(d.dayStart, d.userId, d.modelId, "
+            + "d.requests, d.cachedRequests, d.promptTokens, d.cacheHitTokens, d.completionTokens, "
+            + "d.totalTokens, d.cost) FROM UsageDaily d "
+            + "WHERE d.dayStart >= :from AND d.dayStart < :to AND (:userId IS NULL OR d.userId = :userId)")
+    List<UsageRollup> findUsage(LocalDateTime from, LocalDateTime to, Long userId);
+}
@@ -0,0 +1,42 @@
+package com.delimce.aibroker.domain.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.UsageHourly;
+
+@Repository
+public interface UsageHourlyRepository extends JpaRepository<UsageHourly, Long> {
+
+    /**
+     * Sum the hourly usage of every user and model over a range of hours
+     *
+     * @param from The first hour of the range
+     * @param to   The hour after the range
+     * @return The usage of each user and model with any in the range
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.UsageRollup(MIN(h.hourStart), h.userId, h.modelId, "
+            + "SUM(h.requests), SUM(h.cachedRequests), SUM(h.promptTokens), SUM(h.cacheHitTokens), "
+            + "SUM(h.completionTokens), SUM(h.totalTokens), SUM(h.cost)) FROM UsageHourly h "
+            + "WHERE h.hourStart >= :from AND h.hourStart < :to GROUP BY h.userId, h.modelId")
+    List<UsageRollup> sumByUserAndModel(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Find the hourly usage over a range of hours
+     *
+     * @param from   The first hour of the range
+     * @param to     The hour after the range
+     * @param userId The user to keep, or null for every user
+     * @return The usage of each hour, user and model with any in the range
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.UsageRollup(h.hourStart, h.userId, h.modelId, "
+            + "h.requests, h.cachedRequests, h.promptTokens, h.cacheHitTokens, h.completionTokens, "
+            + "h.totalTokens, h.cost) FROM UsageHourly h "
+            + "WHERE h.hourStart >= :from AND h.hourStart < :to AND (:userId IS NULL OR h.userId = :userId)")
+    List<UsageRollup> findUsage(LocalDateTime from, LocalDateTime to, Long userId);
+}
@@ -1,8 +1,10 @@
 package com.delimce.aibroker.domain.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.delimce.aibroker.domain.dto.values.UserUsageTotal;
 import com.delimce.aibroker.domain.entities.Model;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.entities.UserRequest;
@@ -40,6 +42,8 @@ public interface UserRequestRepository extends JpaRepository<UserRequest, Long>
 
     /**
      * Find all requests made within a date range
+     * (loads every row of the range: usage reports read the rollups in
+     * UsageHourlyRepository and UsageDailyRepository instead)
      * 
      * @param startDate The start date of the range
      * @param endDate   The end date of the range
@@ -49,6 +53,8 @@ public interface UserRequestRepository extends JpaRepository<UserRequest, Long>
 
     /**
      * Find all requests by a user within a date range
+     * (loads every row of the range: usage reports read the rollups in
+     * UsageHourlyRepository and UsageDailyRepository instead)
      * 
      * @param user      The user who made the requests
      * @param startDate The start date of the range
@@ -56,4 +62,14 @@ public interface UserRequestRepository extends JpaRepository<UserRequest, Long>
      * @return List of UserRequest entities
      */
     List<UserRequest> findByUserAndCreatedAtBetween(User user, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Count the requests of every user made since a point in time
+     *
+     * @param since The start of the count
+     * @return The requests of each user with any
+     */
+    @Query("SELECT new com.delimce.aibroker.domain.dto.values.UserUsageTotal(r.user.id, r.user.email, COUNT(r)) "
+            + "FROM UserRequest r WHERE r.createdAt >= :since GROUP BY r.user.id, r.user.email")
+    List<UserUsageTotal> countRequestsByUserSince(LocalDateTime since);
 }
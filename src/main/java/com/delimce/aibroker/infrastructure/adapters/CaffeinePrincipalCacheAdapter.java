@@ -0,0 +1,70 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps active users for a short TTL so authenticating a request does not
+ * query tbl_user. Services that change a user's status or token timestamp
+ * invalidate the entry, which makes revocation immediate on this node; other
+ * nodes pick it up when the TTL runs out.
+ */
+@Component
+public class CaffeinePrincipalCacheAdapter implements PrincipalCacheInterface {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> principals;
+
+    public CaffeinePrincipalCacheAdapter(
+        UserRepository userRepository,
+        @Value("${aibroker.principal-cache.ttl:30s}") Duration ttl,
+        @Value("${aibroker.principal-cache.max-size:10000}") long maxSize
+    ) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maxSize)
+            .build();
+    }
+
+    @Override
+    public User findActiveUser(String email) {
+        // inactive or unknown users are not cached: the loader returns null
+        User cached = principals.get(email,
+            key -> userRepository.findUserByEmailAndStatus(key, UserStatus.ACTIVE));
+        return cached != null ? copyOf(cached) : null;
+    }
+
+    @Override
+    public void invalidate(String email) {
+        if (email != null) {
+            principals.invalidate(email);
+        }
+    }
+
+    // the principal may be modified and saved by the request, never share the cached instance
+    private static User copyOf(User user) {
+        User copy = User.builder()
+            .id(user.getId())
+            .name(user.getName())
+            .lastName(user.getLastName())
+            .email(user.getEmail())
+            .password(user.getPassword())
+            .tempToken(user.getTempToken())
+            .tokenTs(user.getTokenTs())
+            .status(user.getStatus())
+            .requestQuota(user.getRequestQuota())
+            .tokenQuota(user.getTokenQuota())
+            .build();
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setUpdatedAt(user.getUpdatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,82 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.ChatFingerprint;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.ports.ResponseCacheInterface;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opt-in exact-match cache of upstream chat responses. Only deterministic
+ * requests (temperature 0) to enabled models are cached, keyed by their
+ * {@link ChatFingerprint}. Caffeine bounds the cache by entry count with
+ * W-TinyLFU eviction, so one-off prompts do not push out the ones clients
+ * keep repeating.
+ */
+@Component
+public class CaffeineResponseCacheAdapter implements ResponseCacheInterface {
+
+    private final boolean enabled;
+    private final Set<String> models;
+    private final Cache<String, ModelChatResponse> responses;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public CaffeineResponseCacheAdapter(
+        MeterRegistry meterRegistry,
+        @Value("${aibroker.response-cache.enabled:false}") boolean enabled,
+        @Value("${aibroker.response-cache.models:}") Set<String> models,
+        @Value("${aibroker.response-cache.ttl:10m}") Duration ttl,
+        @Value("${aibroker.response-cache.max-size:10000}") long maxSize
+    ) {
+        this.enabled = enabled;
+        this.models = Set.copyOf(models);
+        this.responses = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maxSize)
+            .build();
+        this.hitCounter = Counter.builder("aibroker.response.cache")
+            .description("Chat requests looked up in the response cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.missCounter = Counter.builder("aibroker.response.cache")
+            .description("Chat requests looked up in the response cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public String fingerprint(Model model, ModelRequest request) {
+        if (!enabled || !isCachedModel(model.getName()) || !ChatFingerprint.isDeterministic(request)) {
+            return null;
+        }
+        return ChatFingerprint.of(model, request);
+    }
+
+    @Override
+    public ModelChatResponse find(String fingerprint) {
+        ModelChatResponse cached = responses.getIfPresent(fingerprint);
+        (cached != null ? hitCounter : missCounter).increment();
+        return cached;
+    }
+
+    @Override
+    public void store(String fingerprint, ModelChatResponse response) {
+        // an empty completion is more likely an upstream hiccup than the answer
+        if (response.getChoices() != null && response.getChoices().length > 0) {
+            responses.put(fingerprint, response);
+        }
+    }
+
+    private boolean isCachedModel(String name) {
+        return models.isEmpty() || models.contains(name);
+    }
+}
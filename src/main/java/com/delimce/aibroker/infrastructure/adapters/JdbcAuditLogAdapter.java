@@ -0,0 +1,413 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.TimeOrderedIdGenerator;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.AuditOverflowPolicy;
+import com.delimce.aibroker.domain.jfr.AuditFlushEvent;
+import com.delimce.aibroker.domain.ports.AuditLogInterface;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind audit log. Chat requests and their usage metrics are put on a
+ * bounded in-memory queue and a single background writer drains it in JDBC
+ * batches, flushing when a batch is full or the flush interval elapses. Ids
+ * are assigned when an entry is recorded, so a metric can reference its
+ * request before either row is written. A request answered by another model
+ * than the one it was recorded with is moved to that model by an update
+ * queued after its insert. When
+ * the queue is full, the overflow policy either drops the entry or blocks
+ * the caller until there is room. A batch the database refuses is retried
+ * with backoff, then written row by row, so only the rows it keeps refusing
+ * are dropped, each one logged. The writer remembers the ids of the last
+ * requests it dropped, and skips their metrics and model changes rather than
+ * failing the foreign key. Each batch is an
+ * {@link AuditFlushEvent} of the flight recorder.
+ */
+@Component
+@Log4j2
+public class JdbcAuditLogAdapter implements AuditLogInterface {
+
+    static final String INSERT_REQUEST_SQL =
+        "INSERT INTO tbl_user_request (id, model_id, user_id, prompt, created_at) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_METRIC_SQL =
+        "INSERT INTO tbl_request_metric (id, request_id, prompt_tokens, completion_tokens, total_tokens, " +
+        "prompt_cache_hit_tokens, prompt_cache_miss_tokens, cost, time_to_first_token_ms, " +
+        "inter_token_latency_ms, output_tokens_per_second, response_cache_hit, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_REQUEST_MODEL_SQL = "UPDATE tbl_user_request SET model_id = ? WHERE id = ?";
+
+    // a metric follows its request within the length of one chat call
+    private static final int MAX_LOST_REQUEST_IDS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<AuditEntry> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final int retries;
+    private final long retryBackoffMillis;
+    private final Timer flushTimer;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Thread writer;
+    // only touched by the writer thread
+    private final Set<Long> lostRequestIds = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > MAX_LOST_REQUEST_IDS;
+        }
+    });
+
+    private volatile boolean running = true;
+
+    public JdbcAuditLogAdapter(
+        JdbcTemplate jdbcTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${aibroker.audit.queue-capacity:10000}") int queueCapacity,
+        @Value("${aibroker.audit.batch-size:200}") int batchSize,
+        @Value("${aibroker.audit.flush-interval:1s}") Duration flushInterval,
+        @Value("${aibroker.audit.overflow-policy:DROP}") AuditOverflowPolicy overflowPolicy,
+        @Value("${aibroker.audit.retries:3}") int retries,
+        @Value("${aibroker.audit.retry-backoff:100ms}") Duration retryBackoff
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.retries = retries;
+        this.retryBackoffMillis = retryBackoff.toMillis();
+
+        Gauge.builder("aibroker.audit.queue.depth", queue, BlockingQueue::size)
+            .description("Audit entries waiting to be written")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("aibroker.audit.flush")
+            .description("Time spent writing one audit batch")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("aibroker.audit.dropped")
+            .description("Audit entries dropped because the queue was full")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("aibroker.audit.failed")
+            .description("Audit entries dropped because the database refused them")
+            .register(meterRegistry);
+
+        this.writer = Thread.ofPlatform()
+            .name("audit-writer")
+            .daemon()
+            .start(this::drainLoop);
+    }
+
+    @Override
+    public void recordRequest(UserRequest userRequest) {
+        if (userRequest.getId() == null) {
+            userRequest.setId(TimeOrderedIdGenerator.nextId());
+        }
+        if (userRequest.getCreatedAt() == null) {
+            userRequest.setCreatedAt(LocalDateTime.now());
+        }
+        if (!enqueue(new RequestEntry(userRequest))) {
+            // never written: metrics recorded for it later are skipped
+            userRequest.setId(null);
+        }
+    }
+
+    @Override
+    public void recordMetric(RequestMetric requestMetric) {
+        if (requestMetric.getId() == null) {
+            requestMetric.setId(TimeOrderedIdGenerator.nextId());
+        }
+        if (requestMetric.getCreatedAt() == null) {
+            requestMetric.setCreatedAt(LocalDateTime.now());
+        }
+        enqueue(new MetricEntry(requestMetric));
+    }
+
+    @Override
+    public void recordModel(UserRequest userRequest) {
+        if (userRequest.getId() == null) {
+            // the request was never written
+            return;
+        }
+        enqueue(new ModelEntry(userRequest.getId(), userRequest.getModel().getId()));
+    }
+
+    @Override
+    public void flush() {
+        if (!running) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        try {
+            queue.put(new FlushMarker(written));
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the writer and writes whatever is still queued.
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<AuditEntry> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        writeBatch(remaining);
+    }
+
+    private boolean enqueue(AuditEntry entry) {
+        if (overflowPolicy == AuditOverflowPolicy.BLOCK) {
+            try {
+                queue.put(entry);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (queue.offer(entry)) {
+            return true;
+        }
+        droppedCounter.increment();
+        log.warn("Audit queue is full, dropping {}", entry.getClass().getSimpleName());
+        return false;
+    }
+
+    private void drainLoop() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // close() drains and writes what is left
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Waits for a first entry, then keeps collecting until the batch is full
+     * or the flush interval since that first entry has elapsed.
+     */
+    private void collectBatch(List<AuditEntry> batch) throws InterruptedException {
+        AuditEntry next = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (next != null) {
+            batch.add(next);
+            // a flush marker closes the batch so flush() does not wait for the interval
+            if (next instanceof FlushMarker || batch.size() >= batchSize) {
+                return;
+            }
+            next = queue.poll();
+            if (next == null) {
+                next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void writeBatch(List<AuditEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<UserRequest> requests = new ArrayList<>();
+        List<ModelEntry> models = new ArrayList<>();
+        List<RequestMetric> metrics = new ArrayList<>();
+        List<FlushMarker> markers = new ArrayList<>();
+        for (AuditEntry entry : batch) {
+            switch (entry) {
+                case RequestEntry request -> requests.add(request.userRequest());
+                case ModelEntry model -> models.add(model);
+                case MetricEntry metric -> metrics.add(metric.requestMetric());
+                case FlushMarker marker -> markers.add(marker);
+            }
+        }
+
+        AuditFlushEvent event = new AuditFlushEvent();
+        event.begin();
+        long start = System.nanoTime();
+        List<UserRequest> lostRequests = write("request", requests, this::insertRequests, UserRequest::getId);
+        lostRequests.forEach(request -> lostRequestIds.add(request.getId()));
+        int lost = lostRequests.size()
+            + write("model change", writableModels(models), this::updateModels, ModelEntry::requestId).size()
+            + write("metric", writable(metrics), this::insertMetrics, RequestMetric::getId).size();
+        if (lost > 0) {
+            failedCounter.increment(lost);
+            log.error("Dropped {} of {} audit entries the database refused", lost, batch.size() - markers.size());
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        event.finish(requests.size(), metrics, lost > 0);
+
+        markers.forEach(marker -> marker.written().countDown());
+    }
+
+    /**
+     * Writes the rows in one batch, retried with backoff, then one by one so
+     * that a row the database refuses only loses itself. A row an earlier
+     * attempt already wrote counts as written.
+     *
+     * @return the rows that could not be written, each one logged
+     */
+    private <T> List<T> write(String type, List<T> rows, Consumer<List<T>> insert, Function<T, Long> idOf) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (attempt > 0 && !backOff(attempt)) {
+                break;
+            }
+            try {
+                insert.accept(rows);
+                return List.of();
+            } catch (DuplicateKeyException e) {
+                // part of the batch made it in before it failed
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Failed to write audit batch of {} {} rows (attempt {} of {}): {}", rows.size(), type,
+                    attempt + 1, retries + 1, e.getMessage());
+            }
+        }
+
+        List<T> lost = new ArrayList<>();
+        for (T row : rows) {
+            try {
+                insert.accept(List.of(row));
+            } catch (DuplicateKeyException e) {
+                // written by an earlier attempt
+            } catch (RuntimeException e) {
+                lost.add(row);
+                log.error("Dropping audit {} {}: {}", type, idOf.apply(row), e.getMessage(), e);
+            }
+        }
+        return lost;
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            // closing: skip the remaining retries
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void insertRequests(List<UserRequest> requests) {
+        jdbcTemplate.batchUpdate(INSERT_REQUEST_SQL, requests, requests.size(), (statement, request) -> {
+            statement.setLong(1, request.getId());
+            statement.setLong(2, request.getModel().getId());
+            statement.setLong(3, request.getUser().getId());
+            statement.setString(4, request.getPrompt());
+            statement.setTimestamp(5, Timestamp.valueOf(request.getCreatedAt()));
+        });
+    }
+
+    private void updateModels(List<ModelEntry> models) {
+        jdbcTemplate.batchUpdate(UPDATE_REQUEST_MODEL_SQL, models, models.size(), (statement, model) -> {
+            statement.setLong(1, model.modelId());
+            statement.setLong(2, model.requestId());
+        });
+    }
+
+    private List<ModelEntry> writableModels(List<ModelEntry> models) {
+        // a request that was not written has no row to move
+        return models.stream()
+            .filter(model -> !lostRequestIds.contains(model.requestId()))
+            .toList();
+    }
+
+    private List<RequestMetric> writable(List<RequestMetric> metrics) {
+        List<RequestMetric> writable = metrics.stream()
+            .filter(metric -> metric.getUserRequest() != null && metric.getUserRequest().getId() != null
+                && !lostRequestIds.contains(metric.getUserRequest().getId()))
+            .toList();
+        if (writable.size() < metrics.size()) {
+            failedCounter.increment(metrics.size() - writable.size());
+            log.warn("Skipping {} audit metrics whose request was not written", metrics.size() - writable.size());
+        }
+        return writable;
+    }
+
+    private void insertMetrics(List<RequestMetric> metrics) {
+        jdbcTemplate.batchUpdate(INSERT_METRIC_SQL, metrics, metrics.size(), (statement, metric) -> {
+            statement.setLong(1, metric.getId());
+            statement.setLong(2, metric.getUserRequest().getId());
+            setInteger(statement, 3, metric.getPromptTokens());
+            setInteger(statement, 4, metric.getCompletionTokens());
+            setInteger(statement, 5, metric.getTotalTokens());
+            setInteger(statement, 6, metric.getPromptCacheHitTokens());
+            setInteger(statement, 7, metric.getPromptCacheMissTokens());
+            statement.setBigDecimal(8, metric.getCost());
+            setInteger(statement, 9, metric.getTimeToFirstTokenMs());
+            setDouble(statement, 10, metric.getInterTokenLatencyMs());
+            setDouble(statement, 11, metric.getOutputTokensPerSecond());
+            statement.setBoolean(12, metric.isResponseCacheHit());
+            statement.setTimestamp(13, Timestamp.valueOf(metric.getCreatedAt()));
+        });
+    }
+
+    private static void setInteger(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, value);
+        }
+    }
+
+    private static void setDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.DOUBLE);
+        } else {
+            statement.setDouble(index, value);
+        }
+    }
+
+    private sealed interface AuditEntry permits RequestEntry, ModelEntry, MetricEntry, FlushMarker {
+    }
+
+    private record RequestEntry(UserRequest userRequest) implements AuditEntry {
+    }
+
+    private record ModelEntry(Long requestId, Long modelId) implements AuditEntry {
+    }
+
+    private record MetricEntry(RequestMetric requestMetric) implements AuditEntry {
+    }
+
+    private record FlushMarker(CountDownLatch written) implements AuditEntry {
+    }
+}
@@ -0,0 +1,222 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hourly and daily usage rollups kept in memory and added to
+ * tbl_usage_hourly and tbl_usage_daily in the background. Recording a metric
+ * only bumps the LongAdders of its hour and of its day; a flush takes what
+ * each bucket gathered since the last one (sum-then-reset, so usage recorded
+ * meanwhile waits for the next flush) and adds it to the row of the bucket,
+ * creating the row on its first flush. What a failed flush took is put back.
+ * Cost is counted in units of the cost scale so it can be summed on a
+ * LongAdder.
+ */
+@Component
+@Log4j2
+public class JdbcUsageRollupAdapter implements UsageRollupInterface {
+
+    static final Map<UsagePeriod, String> UPDATE_SQL = Map.of(
+        UsagePeriod.HOUR, updateSql("tbl_usage_hourly", "hour_start"),
+        UsagePeriod.DAY, updateSql("tbl_usage_daily", "day_start"));
+    static final Map<UsagePeriod, String> INSERT_SQL = Map.of(
+        UsagePeriod.HOUR, insertSql("tbl_usage_hourly", "hour_start"),
+        UsagePeriod.DAY, insertSql("tbl_usage_daily", "day_start"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Key, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Timer flushTimer;
+    private final Counter failedCounter;
+
+    public JdbcUsageRollupAdapter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushTimer = Timer.builder("aibroker.usage.flush")
+            .description("Time spent adding the pending usage to the rollups")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("aibroker.usage.failed")
+            .description("Rollups whose pending usage could not be written")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void record(UserRequest userRequest, RequestMetric requestMetric) {
+        if (userRequest.getUser() == null || userRequest.getUser().getId() == null
+            || userRequest.getModel() == null || userRequest.getModel().getId() == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (UsagePeriod period : UsagePeriod.values()) {
+            Key key = new Key(period, period.startOf(now), userRequest.getUser().getId(),
+                userRequest.getModel().getId());
+            buckets.computeIfAbsent(key, k -> new Bucket()).add(requestMetric);
+        }
+    }
+
+    @Override
+    public List<UsageRollup> pending(UsagePeriod period) {
+        List<UsageRollup> pending = new ArrayList<>();
+        buckets.forEach((key, bucket) -> {
+            if (key.period() != period) {
+                return;
+            }
+            UsageRollup rollup = bucket.rollup(key, false);
+            if (!isEmpty(rollup)) {
+                pending.add(rollup);
+            }
+        });
+        return pending;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${aibroker.usage.flush-interval:10s}",
+        initialDelayString = "${aibroker.usage.flush-interval:10s}")
+    public synchronized void flush() {
+        LocalDateTime now = LocalDateTime.now();
+        flushTimer.record(() -> buckets.forEach((key, bucket) -> {
+            UsageRollup rollup = bucket.rollup(key, true);
+            if (isEmpty(rollup)) {
+                // no new usage is recorded for a period before the previous one
+                if (key.start().isBefore(key.period().plus(key.period().startOf(now), -1))) {
+                    buckets.remove(key, bucket);
+                }
+                return;
+            }
+            try {
+                write(key.period(), rollup);
+            } catch (RuntimeException e) {
+                bucket.putBack(rollup);
+                failedCounter.increment();
+                log.error("Failed to write the {} usage of user {} on model {} at {}: {}", key.period(),
+                    key.userId(), key.modelId(), key.start(), e.getMessage(), e);
+            }
+        }));
+    }
+
+    /**
+     * Writes whatever is still pending.
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void write(UsagePeriod period, UsageRollup rollup) {
+        if (update(period, rollup) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL.get(period), parameters(rollup));
+        } catch (DuplicateKeyException e) {
+            // another instance created the row first
+            update(period, rollup);
+        }
+    }
+
+    private int update(UsagePeriod period, UsageRollup rollup) {
+        return jdbcTemplate.update(UPDATE_SQL.get(period), parameters(rollup));
+    }
+
+    private static Object[] parameters(UsageRollup rollup) {
+        return new Object[] { rollup.requests(), rollup.cachedRequests(), rollup.promptTokens(),
+            rollup.cacheHitTokens(), rollup.completionTokens(), rollup.totalTokens(), rollup.cost(),
+            Timestamp.valueOf(rollup.start()), rollup.userId(), rollup.modelId() };
+    }
+
+    private static String updateSql(String table, String startColumn) {
+        return "UPDATE " + table + " SET requests = requests + ?, cached_requests = cached_requests + ?, " +
+            "prompt_tokens = prompt_tokens + ?, cache_hit_tokens = cache_hit_tokens + ?, " +
+            "completion_tokens = completion_tokens + ?, total_tokens = total_tokens + ?, cost = cost + ? " +
+            "WHERE " + startColumn + " = ? AND user_id = ? AND model_id = ?";
+    }
+
+    private static String insertSql(String table, String startColumn) {
+        return "INSERT INTO " + table + " (requests, cached_requests, prompt_tokens, cache_hit_tokens, " +
+            "completion_tokens, total_tokens, cost, " + startColumn + ", user_id, model_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    // the adders are not reset together: a flush may take a request and leave its tokens for the next one
+    private static boolean isEmpty(UsageRollup rollup) {
+        return rollup.requests() == 0 && rollup.cachedRequests() == 0 && rollup.promptTokens() == 0
+            && rollup.cacheHitTokens() == 0 && rollup.completionTokens() == 0 && rollup.totalTokens() == 0
+            && rollup.cost().signum() == 0;
+    }
+
+    private static long valueOf(Integer tokens) {
+        return tokens != null ? tokens : 0;
+    }
+
+    private record Key(UsagePeriod period, LocalDateTime start, Long userId, Long modelId) {
+    }
+
+    private static final class Bucket {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder cachedRequests = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder cacheHitTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder totalTokens = new LongAdder();
+        private final LongAdder costUnits = new LongAdder();
+
+        void add(RequestMetric requestMetric) {
+            requests.increment();
+            if (requestMetric.isResponseCacheHit()) {
+                cachedRequests.increment();
+                return;
+            }
+            promptTokens.add(valueOf(requestMetric.getPromptTokens()));
+            cacheHitTokens.add(valueOf(requestMetric.getPromptCacheHitTokens()));
+            completionTokens.add(valueOf(requestMetric.getCompletionTokens()));
+            totalTokens.add(valueOf(requestMetric.getTotalTokens()));
+            if (requestMetric.getCost() != null) {
+                costUnits.add(requestMetric.getCost().setScale(Model.COST_SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue().longValue());
+            }
+        }
+
+        UsageRollup rollup(Key key, boolean reset) {
+            return new UsageRollup(key.start(), key.userId(), key.modelId(),
+                take(requests, reset), take(cachedRequests, reset), take(promptTokens, reset),
+                take(cacheHitTokens, reset), take(completionTokens, reset), take(totalTokens, reset),
+                BigDecimal.valueOf(take(costUnits, reset), Model.COST_SCALE));
+        }
+
+        void putBack(UsageRollup rollup) {
+            requests.add(rollup.requests());
+            cachedRequests.add(rollup.cachedRequests());
+            promptTokens.add(rollup.promptTokens());
+            cacheHitTokens.add(rollup.cacheHitTokens());
+            completionTokens.add(rollup.completionTokens());
+            totalTokens.add(rollup.totalTokens());
+            costUnits.add(rollup.cost().unscaledValue().longValue());
+        }
+
+        private static long take(LongAdder adder, boolean reset) {
+            return reset ? adder.sumThenReset() : adder.sum();
+        }
+    }
+}
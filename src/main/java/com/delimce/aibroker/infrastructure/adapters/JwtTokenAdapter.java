@@ -4,12 +4,21 @@ import com.delimce.aibroker.domain.dto.values.UserToken;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,6 +26,12 @@ import java.util.function.Function;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Signs and verifies JWTs. The signing key and parser are built once, and
+ * verified claims are cached under the SHA-256 digest of the token until the
+ * token expires (capped at the cache TTL), so an authenticated request pays
+ * for at most one signature check.
+ */
 @Service
 public class JwtTokenAdapter implements JwtTokenInterface {
 
@@ -26,6 +41,14 @@ public class JwtTokenAdapter implements JwtTokenInterface {
     @Value("${spring.security.jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${aibroker.jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize = 10_000;
+
+    @Value("${aibroker.jwt.verified-cache.ttl:5m}")
+    private Duration verifiedCacheTtl = Duration.ofMinutes(5);
+
+    private volatile Verifier verifier;
+
     @Override
     public String extractEmail(String token) throws JwtTokenException {
         return extractClaim(token, Claims::getSubject);
@@ -55,15 +78,27 @@ public class JwtTokenAdapter implements JwtTokenInterface {
 
     @Override
     public Claims extractAllClaims(String token) throws JwtTokenException {
+        return verifyToken(token);
+    }
+
+    @Override
+    public Claims verifyToken(String token) throws JwtTokenException {
+        if (token == null) {
+            throw new JwtTokenException();
+        }
+        Verifier current = verifier();
+        String digest = digest(token);
+        Claims claims = current.verified().getIfPresent(digest);
+        if (claims != null) {
+            return claims;
+        }
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            claims = current.parser().parseClaimsJws(token).getBody();
         } catch (Exception e) {
             throw new JwtTokenException();
         }
+        current.verified().put(digest, claims);
+        return claims;
     }
 
     @Override
@@ -79,27 +114,64 @@ public class JwtTokenAdapter implements JwtTokenInterface {
                 .setSubject(userDetails.getEmail())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(verifier().key(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     @Override
     public boolean isTokenValid(String token, User userDetails)
             throws JwtTokenException {
-        final String email = extractEmail(token);
-        final long issuedAt = extractIssuedAt(token);
-        return (email.equals(userDetails.getEmail()) &&
-                !isTokenExpired(token) &&
-                issuedAt == userDetails.getTokenTs());
+        return areClaimsValid(verifyToken(token), userDetails);
+    }
+
+    @Override
+    public boolean areClaimsValid(Claims claims, User userDetails) {
+        final String email = claims.getSubject();
+        final Date issuedAt = claims.getIssuedAt();
+        final Date expiration = claims.getExpiration();
+        return (email != null && email.equals(userDetails.getEmail()) &&
+                // checked on every call: the claims may come from the cache
+                expiration != null && expiration.after(new Date()) &&
+                issuedAt != null && Long.valueOf(issuedAt.getTime() / 1000).equals(userDetails.getTokenTs()));
+    }
+
+    private Verifier verifier() {
+        Verifier current = verifier;
+        if (current == null) {
+            synchronized (this) {
+                current = verifier;
+                if (current == null) {
+                    Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+                    JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+                    Cache<String, Claims> verified = Caffeine.newBuilder()
+                            .maximumSize(verifiedCacheMaxSize)
+                            .expireAfter(Expiry.creating((String digest, Claims claims) -> timeToLive(claims)))
+                            .build();
+                    current = new Verifier(key, parser, verified);
+                    verifier = current;
+                }
+            }
+        }
+        return current;
     }
 
-    private boolean isTokenExpired(String token) throws JwtTokenException {
-        return extractExpiration(token).before(new Date());
+    private Duration timeToLive(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return verifiedCacheTtl;
+        }
+        Duration untilExpiry = Duration.ofMillis(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+        return untilExpiry.compareTo(verifiedCacheTtl) < 0 ? untilExpiry : verifiedCacheTtl;
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     public UserToken generateUserToken(User userDetails) throws JwtTokenException {
@@ -115,4 +187,7 @@ public class JwtTokenAdapter implements JwtTokenInterface {
                 expiresAt,
                 expirationTimeMs);
     }
+
+    private record Verifier(Key key, JwtParser parser, Cache<String, Claims> verified) {
+    }
 }
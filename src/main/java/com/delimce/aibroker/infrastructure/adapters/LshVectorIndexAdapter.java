@@ -0,0 +1,411 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.VectorMatch;
+import com.delimce.aibroker.domain.ports.VectorIndexInterface;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process approximate nearest neighbour index over unit vectors, using
+ * random-hyperplane LSH: each table hashes a vector to the signs of its dot
+ * products with a few random hyperplanes, so vectors at a small angle share
+ * a bucket in at least one table with high probability. Candidates from the
+ * buckets are then ranked by exact cosine similarity.
+ * <p>
+ * Vectors live in one primitive {@code float[]} arena used as a ring, so a
+ * full index overwrites its oldest entry and the heap holds no per-entry
+ * vector objects. The index can be written to a snapshot file and read back
+ * at startup, so a restart does not begin with a cold cache.
+ */
+@Component
+@Log4j2
+public class LshVectorIndexAdapter implements VectorIndexInterface {
+
+    static final int MAX_TABLES = 64;
+    static final int MAX_BITS = 24;
+
+    private static final int SNAPSHOT_MAGIC = 0x41425649; // "ABVI"
+    private static final int SNAPSHOT_VERSION = 1;
+    // fixed so the hyperplanes, and with them the buckets, are the same after a restart
+    private static final long HYPERPLANE_SEED = 0x5eed_1dc0_ffeeL;
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int capacity;
+    private final int tables;
+    private final int bits;
+    private final long ttlMillis;
+    private final Path snapshotPath;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // per-slot entry data; a null scope marks a free slot
+    private final String[] scopes;
+    private final ModelChatResponse[] responses;
+    private final long[] storedAt;
+    private final int[] signatures;
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+
+    // sized on the first vector, when the embedding dimensions are known
+    private int dimensions;
+    private float[] vectors;
+    private float[] hyperplanes;
+
+    private int next;
+    private int size;
+    private long modifications;
+    private long snapshotModifications;
+
+    public LshVectorIndexAdapter(
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        @Value("${aibroker.semantic-cache.capacity:10000}") int capacity,
+        @Value("${aibroker.semantic-cache.lsh-tables:8}") int tables,
+        @Value("${aibroker.semantic-cache.lsh-bits:12}") int bits,
+        @Value("${aibroker.semantic-cache.ttl:1h}") Duration ttl,
+        @Value("${aibroker.semantic-cache.snapshot-path:}") String snapshotPath
+    ) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (tables < 1 || tables > MAX_TABLES) {
+            throw new IllegalArgumentException("lsh-tables must be between 1 and " + MAX_TABLES);
+        }
+        if (bits < 1 || bits > MAX_BITS) {
+            throw new IllegalArgumentException("lsh-bits must be between 1 and " + MAX_BITS);
+        }
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.capacity = capacity;
+        this.tables = tables;
+        this.bits = bits;
+        this.ttlMillis = ttl.toMillis();
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.scopes = new String[capacity];
+        this.responses = new ModelChatResponse[capacity];
+        this.storedAt = new long[capacity];
+        this.signatures = new int[capacity * tables];
+    }
+
+    /**
+     * Registers the size gauge once the index is fully built.
+     */
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("aibroker.semantic.cache.size", this, LshVectorIndexAdapter::size)
+            .description("Entries held by the semantic cache index")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public VectorMatch search(String scope, float[] vector, double minSimilarity) {
+        float[] unit = normalize(vector);
+        if (unit == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (size == 0 || unit.length != dimensions) {
+                return null;
+            }
+            long oldest = System.currentTimeMillis() - ttlMillis;
+            BitSet seen = new BitSet(capacity);
+            int best = -1;
+            double bestSimilarity = minSimilarity;
+            for (int table = 0; table < tables; table++) {
+                Bucket bucket = buckets.get(bucketKey(scope, table, signature(unit, table)));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    int slot = bucket.slots[i];
+                    if (seen.get(slot)) {
+                        continue;
+                    }
+                    seen.set(slot);
+                    if (storedAt[slot] < oldest || !scope.equals(scopes[slot])) {
+                        continue;
+                    }
+                    double similarity = dot(unit, slot);
+                    if (similarity >= bestSimilarity) {
+                        best = slot;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+            return best < 0 ? null : new VectorMatch(responses[best], bestSimilarity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void add(String scope, float[] vector, ModelChatResponse response) {
+        float[] unit = normalize(vector);
+        if (unit == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            insert(scope, unit, response, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the snapshot file, when one is configured and present. Entries
+     * that expired while the service was down are skipped.
+     */
+    @PostConstruct
+    public void restore() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        long oldest = System.currentTimeMillis() - ttlMillis;
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring semantic cache snapshot {}: unknown format", snapshotPath);
+                return;
+            }
+            int snapshotDimensions = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String scope = in.readUTF();
+                long entryStoredAt = in.readLong();
+                byte[] json = new byte[in.readInt()];
+                in.readFully(json);
+                float[] vector = new float[snapshotDimensions];
+                for (int d = 0; d < snapshotDimensions; d++) {
+                    vector[d] = in.readFloat();
+                }
+                if (entryStoredAt >= oldest) {
+                    insert(scope, vector, objectMapper.readValue(json, ModelChatResponse.class), entryStoredAt);
+                }
+            }
+            snapshotModifications = modifications;
+            log.info("Restored {} semantic cache entries from {}", size, snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore semantic cache snapshot {}: {}", snapshotPath, e.getMessage());
+            clear(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index to the snapshot file, oldest entry first, when it
+     * changed since the last snapshot. The file is replaced atomically, so a
+     * crash mid-write leaves the previous snapshot in place. Adds wait while
+     * the snapshot is written; searches do not.
+     */
+    @Scheduled(fixedDelayString = "${aibroker.semantic-cache.snapshot-interval:10m}",
+        initialDelayString = "${aibroker.semantic-cache.snapshot-interval:10m}")
+    public synchronized void snapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (modifications == snapshotModifications) {
+                return;
+            }
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, snapshotPath.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(dimensions);
+                out.writeInt(size);
+                for (int i = 0; i < capacity; i++) {
+                    int slot = (next + i) % capacity;
+                    if (scopes[slot] == null) {
+                        continue;
+                    }
+                    out.writeUTF(scopes[slot]);
+                    out.writeLong(storedAt[slot]);
+                    byte[] json = objectMapper.writeValueAsBytes(responses[slot]);
+                    out.writeInt(json.length);
+                    out.write(json);
+                    int offset = slot * dimensions;
+                    for (int d = 0; d < dimensions; d++) {
+                        out.writeFloat(vectors[offset + d]);
+                    }
+                }
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotModifications = modifications;
+            log.debug("Wrote {} semantic cache entries to {}", size, snapshotPath);
+        } catch (IOException e) {
+            log.warn("Could not write semantic cache snapshot {}: {}", snapshotPath, e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshot();
+    }
+
+    // callers hold the write lock
+    private void insert(String scope, float[] unit, ModelChatResponse response, long time) {
+        if (unit.length != dimensions) {
+            if (dimensions != 0) {
+                log.warn("Embedding dimensions changed from {} to {}, clearing the semantic cache",
+                    dimensions, unit.length);
+            }
+            clear(unit.length);
+        }
+        int slot = next;
+        if (scopes[slot] != null) {
+            unlink(slot);
+        } else {
+            size++;
+        }
+        System.arraycopy(unit, 0, vectors, slot * dimensions, dimensions);
+        scopes[slot] = scope;
+        responses[slot] = response;
+        storedAt[slot] = time;
+        for (int table = 0; table < tables; table++) {
+            int signature = signature(unit, table);
+            signatures[slot * tables + table] = signature;
+            buckets.computeIfAbsent(bucketKey(scope, table, signature), key -> new Bucket()).add(slot);
+        }
+        next = (slot + 1) % capacity;
+        modifications++;
+    }
+
+    private void unlink(int slot) {
+        for (int table = 0; table < tables; table++) {
+            long key = bucketKey(scopes[slot], table, signatures[slot * tables + table]);
+            Bucket bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(slot) && bucket.size == 0) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private void clear(int newDimensions) {
+        Arrays.fill(scopes, null);
+        Arrays.fill(responses, null);
+        buckets.clear();
+        next = 0;
+        size = 0;
+        dimensions = newDimensions;
+        vectors = newDimensions == 0 ? null : new float[capacity * newDimensions];
+        hyperplanes = newDimensions == 0 ? null : hyperplanes(newDimensions);
+        modifications++;
+    }
+
+    private float[] hyperplanes(int dims) {
+        Random random = new Random(HYPERPLANE_SEED ^ dims);
+        float[] planes = new float[tables * bits * dims];
+        for (int i = 0; i < planes.length; i++) {
+            planes[i] = (float) random.nextGaussian();
+        }
+        return planes;
+    }
+
+    private int signature(float[] unit, int table) {
+        int signature = 0;
+        int offset = table * bits * dimensions;
+        for (int bit = 0; bit < bits; bit++, offset += dimensions) {
+            float projection = 0;
+            for (int d = 0; d < dimensions; d++) {
+                projection += hyperplanes[offset + d] * unit[d];
+            }
+            if (projection >= 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    private double dot(float[] unit, int slot) {
+        float sum = 0;
+        int offset = slot * dimensions;
+        for (int d = 0; d < dimensions; d++) {
+            sum += vectors[offset + d] * unit[d];
+        }
+        return sum;
+    }
+
+    // the scope hash keeps different conversations apart; collisions are caught by the scope check
+    private long bucketKey(String scope, int table, int signature) {
+        return ((long) scope.hashCode() << 32) | ((long) table << bits) | signature;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (vector.length == 0 || norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    /** Growable list of the slots that hash to one bucket. */
+    private static final class Bucket {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
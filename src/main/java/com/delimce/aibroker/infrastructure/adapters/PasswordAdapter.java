@@ -1,31 +1,146 @@
 package com.delimce.aibroker.infrastructure.adapters;
 
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.ports.PasswordInterface;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+/**
+ * Runs password hashing on a small dedicated pool, so a burst of logins or
+ * registrations cannot take more than {@code pool-size} cores away from the
+ * rest of the service. Work that cannot be queued, or that waited longer
+ * than {@code max-queue-time} before starting, is refused with a
+ * {@link TooManyRequestsException} instead of being hashed late.
+ */
 @Component
-@AllArgsConstructor
+@Log4j2
 public class PasswordAdapter implements PasswordInterface {
 
+    private static final String BUSY_MESSAGE = "Too many authentication requests, try again later";
+
     private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueTimeNanos;
+    private final Duration retryAfter;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueTimer;
+    private final Counter rejectedCounter;
 
-    public PasswordAdapter() {
-        // Using BCrypt as the default password encoder
-        this.passwordEncoder = new BCryptPasswordEncoder(12);
+    public PasswordAdapter(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${aibroker.password.pool-size:2}") int poolSize,
+            @Value("${aibroker.password.queue-capacity:16}") int queueCapacity,
+            @Value("${aibroker.password.max-queue-time:1s}") Duration maxQueueTime) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxQueueTimeNanos = maxQueueTime.toNanos();
+        this.retryAfter = maxQueueTime;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hash-", 0).daemon().factory());
+
+        Gauge.builder("aibroker.password.queue.depth", executor.getQueue(), BlockingQueue::size)
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("aibroker.password.hash")
+                .description("Time spent hashing or verifying one password")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("aibroker.password.hash")
+                .description("Time spent hashing or verifying one password")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.queueTimer = Timer.builder("aibroker.password.queue.wait")
+                .description("Time a password hashing task waited for a thread")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("aibroker.password.rejected")
+                .description("Password hashing tasks refused because the pool was saturated")
+                .register(meterRegistry);
     }
 
     @Override
-    public String encode(String rawPassword) {
-        return passwordEncoder.encode(rawPassword);
+    public String encode(String rawPassword) throws TooManyRequestsException {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
     }
 
     @Override
-    public boolean matches(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+    public boolean matches(String rawPassword, String encodedPassword) throws TooManyRequestsException {
+        return run(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Stops the hashing threads; callers still waiting are interrupted.
+     */
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timer timer, Callable<T> work) throws TooManyRequestsException {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                queueTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxQueueTimeNanos) {
+                    throw new QueueTimeExceededException();
+                }
+                return timer.recordCallable(work);
+            });
+        } catch (RejectedExecutionException e) {
+            return reject("queue full");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueueTimeExceededException) {
+                return reject("queue time exceeded");
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T reject(String reason) throws TooManyRequestsException {
+        rejectedCounter.increment();
+        log.warn("Password hashing request refused: {}", reason);
+        throw new TooManyRequestsException(BUSY_MESSAGE, retryAfter);
+    }
+
+    // thrown on the hashing thread, never reaches callers
+    private static final class QueueTimeExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        QueueTimeExceededException() {
+            super(null, null, false, false);
+        }
     }
 }
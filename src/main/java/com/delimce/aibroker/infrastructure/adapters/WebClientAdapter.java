@@ -3,22 +3,36 @@ package com.delimce.aibroker.infrastructure.adapters;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
 import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.jfr.UpstreamCallEvent;
 import com.delimce.aibroker.domain.ports.AiApiClientInterface;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
 @Log4j2
 public class WebClientAdapter implements AiApiClientInterface {
 
+    private static final String STREAM_DONE = "[DONE]";
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_STRING =
+        new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
 
@@ -32,44 +46,49 @@ public class WebClientAdapter implements AiApiClientInterface {
 
     /**
      * Sends a request to an LLM API endpoint based on the provided model's
-     * provider.
+     * provider and waits for the result.
      *
      * @param model        The Model entity containing provider details (URL, API
      *                     key).
      * @param modelRequest The request object containing model details and messages.
      * @return The parsed ModelChatResponse object, or null in case of error or
      *         non-successful response.
+     * @throws ProviderFailureException when the provider failed to answer
      */
-    @SuppressWarnings("null")
     @Override
     public ModelChatResponse requestToModel(
         Model model,
         ModelRequest modelRequest
     ) {
-        if (model == null || model.getProvider() == null) {
-            log.error("Cannot request model: Model or its Provider is null.");
-            return null;
+        return requestToModelAsync(model, modelRequest).block();
+    }
+
+    /**
+     * Sends a request to an LLM API endpoint based on the provided model's
+     * provider without blocking the calling thread.
+     *
+     * @param model        The Model entity containing provider details (URL, API
+     *                     key).
+     * @param modelRequest The request object containing model details and messages.
+     * @return A Mono with the parsed ModelChatResponse, empty in case of error or
+     *         non-successful response; failing with a
+     *         {@link ProviderFailureException} when the provider failed.
+     */
+    @SuppressWarnings("null")
+    @Override
+    public Mono<ModelChatResponse> requestToModelAsync(
+        Model model,
+        ModelRequest modelRequest
+    ) {
+        if (!isRequestable(model)) {
+            return Mono.empty();
         }
 
         String targetUrl = model.getProvider().getBaseUrl();
         String apiKey = model.getProvider().getApiKey();
 
-        // Basic validation for URL and API Key
-        if (
-            targetUrl == null ||
-            targetUrl.isBlank() ||
-            apiKey == null ||
-            apiKey.isBlank()
-        ) {
-            log.error(
-                "Cannot request model '{}': Provider URL or API Key is missing.",
-                model.getName()
-            );
-            return null;
-        }
-
-        try {
-            String responseBodyString = webClient
+        Mono<ModelChatResponse> call = Mono.defer(() ->
+            webClient
                 .post()
                 .uri(targetUrl)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
@@ -77,62 +96,172 @@ public class WebClientAdapter implements AiApiClientInterface {
                 .body(Mono.just(modelRequest), ModelRequest.class)
                 .retrieve() // Initiate the request and retrieve the response spec
                 .bodyToMono(String.class) // Convert the response body to a Mono<String>
-                .doOnSuccess(responseBody ->
-                    log.info(
-                        "Successfully received response string from model {} at {}: {}",
-                        modelRequest.getModel(),
-                        targetUrl,
-                        responseBody
-                    )
+        )
+            .doOnSuccess(responseBody ->
+                log.info(
+                    "Successfully received response string from model {} at {}: {}",
+                    modelRequest.getModel(),
+                    targetUrl,
+                    responseBody
                 )
-                // Apply error handling *after* bodyToMono
-                .onErrorResume(WebClientResponseException.class, e -> {
-                    HttpStatusCode statusCode = e.getStatusCode();
-                    String responseBody = e.getResponseBodyAsString();
+            )
+            // Apply error handling *after* bodyToMono
+            .onErrorResume(WebClientResponseException.class, e -> {
+                HttpStatusCode statusCode = e.getStatusCode();
+                String responseBody = e.getResponseBodyAsString();
+                log.error(
+                    "Request to model {} at {} failed with status {}: {}. Response body: {}",
+                    modelRequest.getModel(),
+                    targetUrl,
+                    statusCode,
+                    e.getMessage(),
+                    responseBody,
+                    e
+                );
+                return failedOrEmpty(e); // Empty Mono on client errors
+            })
+            .onErrorResume(
+                e ->
+                    !(e instanceof WebClientResponseException) &&
+                    !(e instanceof ProviderFailureException),
+                e -> {
                     log.error(
-                        "Request to model {} at {} failed with status {}: {}. Response body: {}",
+                        "Request to model {} at {} failed due to unexpected error: {}",
                         modelRequest.getModel(),
                         targetUrl,
-                        statusCode,
                         e.getMessage(),
-                        responseBody,
                         e
                     );
-                    return Mono.empty(); // Return empty Mono on client/server error
-                })
-                .onErrorResume(
-                    e -> !(e instanceof WebClientResponseException),
-                    e -> {
-                        log.error(
-                            "Request to model {} at {} failed due to unexpected error: {}",
-                            modelRequest.getModel(),
-                            targetUrl,
-                            e.getMessage(),
-                            e
-                        );
-                        return Mono.empty(); // Return empty Mono on other errors
-                    }
+                    return failedOrEmpty(e); // Empty Mono on other errors
+                }
+            )
+            .flatMap(responseBodyString ->
+                Mono.justOrEmpty(
+                    parseResponseBody(
+                        responseBodyString,
+                        modelRequest.getModel(),
+                        targetUrl
+                    )
                 )
-                .block(); // Block synchronously for the result
+            );
+        return UpstreamCallEvent.time(model, call);
+    }
+
+    /**
+     * Streams the completion from an OpenAI-compatible endpoint as
+     * Server-Sent Events, emitting one parsed chunk per event until the
+     * provider sends its [DONE] marker. The usage is requested, so the last
+     * chunk carries it.
+     *
+     * @param model        The Model entity containing provider details (URL, API
+     *                     key).
+     * @param modelRequest The request object containing model details and messages.
+     * @return A Flux with the parsed chunks, empty in case of error or
+     *         non-successful response; failing with a
+     *         {@link ProviderFailureException} when the provider failed.
+     */
+    @SuppressWarnings("null")
+    @Override
+    public Flux<ModelChatResponse> streamToModel(
+        Model model,
+        ModelRequest modelRequest
+    ) {
+        if (!isRequestable(model)) {
+            return Flux.empty();
+        }
 
-            if (responseBodyString == null) {
-                return null; // Indicate failure
-            }
+        String targetUrl = model.getProvider().getBaseUrl();
+        String apiKey = model.getProvider().getApiKey();
 
-            return parseResponseBody(
-                responseBodyString,
-                modelRequest.getModel(),
-                targetUrl
-            );
-        } catch (Exception e) {
+        Flux<ModelChatResponse> call = Flux.defer(() ->
+            webClient
+                .post()
+                .uri(targetUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(streamBody(modelRequest))
+                .retrieve()
+                .bodyToFlux(SSE_STRING)
+        )
+            .mapNotNull(ServerSentEvent::data)
+            .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+            .mapNotNull(data ->
+                parseResponseBody(data, modelRequest.getModel(), targetUrl)
+            )
+            .onErrorResume(e -> {
+                log.error(
+                    "Stream from model {} at {} failed: {}",
+                    modelRequest.getModel(),
+                    targetUrl,
+                    e.getMessage(),
+                    e
+                );
+                return WebClientAdapter.<ModelChatResponse>failedOrEmpty(e).flux();
+            });
+        return UpstreamCallEvent.time(model, call);
+    }
+
+    /**
+     * The request as a stream: OpenAI-compatible providers send the usage of
+     * a streamed completion, in a last chunk without choices, only when
+     * asked to with stream_options.include_usage.
+     */
+    private JsonNode streamBody(ModelRequest modelRequest) {
+        ObjectNode body = objectMapper.valueToTree(modelRequest);
+        body.put("stream", true);
+        body.putObject("stream_options").put("include_usage", true);
+        return body;
+    }
+
+    /**
+     * Fails with a {@link ProviderFailureException} when the provider failed:
+     * a 5xx response, a timeout or an I/O error. Other errors, such as a 4xx
+     * response to a request the provider refused, complete empty, so they do
+     * not count against the provider.
+     */
+    private static <T> Mono<T> failedOrEmpty(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            HttpStatusCode statusCode = response.getStatusCode();
+            return statusCode.is5xxServerError()
+                ? Mono.error(new ProviderFailureException(
+                    "Provider responded with status " + statusCode.value(), statusCode.value(), e))
+                : Mono.empty();
+        }
+        if (
+            e instanceof WebClientRequestException ||
+            e instanceof TimeoutException ||
+            e instanceof IOException
+        ) {
+            return Mono.error(new ProviderFailureException(
+                "Provider did not respond: " + e.getMessage(), null, e));
+        }
+        return Mono.empty();
+    }
+
+    private boolean isRequestable(Model model) {
+        if (model == null || model.getProvider() == null) {
+            log.error("Cannot request model: Model or its Provider is null.");
+            return false;
+        }
+
+        String targetUrl = model.getProvider().getBaseUrl();
+        String apiKey = model.getProvider().getApiKey();
+
+        // Basic validation for URL and API Key
+        if (
+            targetUrl == null ||
+            targetUrl.isBlank() ||
+            apiKey == null ||
+            apiKey.isBlank()
+        ) {
             log.error(
-                "Unexpected synchronous error during requestToModel for model {}: {}",
-                modelRequest.getModel(),
-                e.getMessage(),
-                e
+                "Cannot request model '{}': Provider URL or API Key is missing.",
+                model.getName()
             );
-            return null; // Indicate failure
+            return false;
         }
+        return true;
     }
 
     /**
@@ -0,0 +1,137 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.ports.EmbeddingInterface;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Component
+@Log4j2
+public class WebClientEmbeddingAdapter implements EmbeddingInterface {
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+
+    public WebClientEmbeddingAdapter(
+        WebClient.Builder webClientBuilder,
+        ObjectMapper objectMapper
+    ) {
+        this.webClient = webClientBuilder.build();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Requests an embedding from an OpenAI-compatible endpoint. As for chat
+     * models, the provider base URL of an embedding model is the endpoint
+     * itself.
+     *
+     * @param model The embedding Model entity containing provider details (URL,
+     *              API key).
+     * @param input The text to embed.
+     * @return A Mono with the embedding, empty when the provider is not
+     *         configured or the response has no embedding; upstream failures
+     *         are signalled as errors.
+     */
+    @SuppressWarnings("null")
+    @Override
+    public Mono<float[]> embed(Model model, String input) {
+        if (!isRequestable(model)) {
+            return Mono.empty();
+        }
+
+        String targetUrl = model.getProvider().getBaseUrl();
+        String apiKey = model.getProvider().getApiKey();
+        Map<String, Object> body = Map.of("model", model.getName(), "input", input);
+
+        return Mono.defer(() ->
+            webClient
+                .post()
+                .uri(targetUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(String.class)
+        ).flatMap(responseBody ->
+            Mono.justOrEmpty(parseEmbedding(responseBody, model.getName(), targetUrl))
+        );
+    }
+
+    private boolean isRequestable(Model model) {
+        if (model == null || model.getProvider() == null) {
+            log.error("Cannot request embedding: Model or its Provider is null.");
+            return false;
+        }
+
+        String targetUrl = model.getProvider().getBaseUrl();
+        String apiKey = model.getProvider().getApiKey();
+
+        if (
+            targetUrl == null ||
+            targetUrl.isBlank() ||
+            apiKey == null ||
+            apiKey.isBlank()
+        ) {
+            log.error(
+                "Cannot request embedding model '{}': Provider URL or API Key is missing.",
+                model.getName()
+            );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the first embedding of an OpenAI-style response,
+     * {@code {"data": [{"embedding": [...]}]}}.
+     *
+     * @param responseBodyString The raw JSON response string.
+     * @param modelName          The model name for logging purposes.
+     * @param targetUrl          The target URL for logging purposes.
+     * @return The embedding, or null if the response has none.
+     */
+    private float[] parseEmbedding(
+        String responseBodyString,
+        String modelName,
+        String targetUrl
+    ) {
+        try {
+            JsonNode embedding = objectMapper
+                .readTree(responseBodyString)
+                .path("data")
+                .path(0)
+                .path("embedding");
+            if (!embedding.isArray() || embedding.isEmpty()) {
+                log.error(
+                    "Response from embedding model {} at {} has no embedding. Response body: {}",
+                    modelName,
+                    targetUrl,
+                    responseBodyString
+                );
+                return null;
+            }
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = embedding.get(i).floatValue();
+            }
+            return vector;
+        } catch (JsonProcessingException e) {
+            log.error(
+                "Failed to parse JSON response from embedding model {} at {}: {}",
+                modelName,
+                targetUrl,
+                e.getMessage(),
+                e
+            );
+            return null;
+        }
+    }
+}
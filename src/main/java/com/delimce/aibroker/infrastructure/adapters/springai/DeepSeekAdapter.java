@@ -5,6 +5,8 @@ import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
 import com.delimce.aibroker.domain.entities.Model;
 import com.delimce.aibroker.domain.enums.PromptMessageType;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.jfr.UpstreamCallEvent;
 import com.delimce.aibroker.domain.mappers.llm.ChatResponseMapper;
 import com.delimce.aibroker.domain.ports.AiApiClientInterface;
 import java.util.ArrayList;
@@ -19,9 +21,13 @@ import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.deepseek.DeepSeekChatModel;
 import org.springframework.ai.deepseek.DeepSeekChatOptions;
-import org.springframework.ai.deepseek.api.DeepSeekApi;
+import org.springframework.ai.retry.TransientAiException;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 
 @Component
 @AllArgsConstructor
@@ -29,31 +35,56 @@ import org.springframework.stereotype.Component;
 public class DeepSeekAdapter implements AiApiClientInterface {
 
     private final ChatResponseMapper chatResponseMapper;
+    private final DeepSeekClientRegistry clientRegistry;
 
     @Override
     public ModelChatResponse requestToModel(
         Model model,
         ModelRequest modelRequest
     ) {
-        DeepSeekApi deepSeekApi = DeepSeekApi.builder()
-            .apiKey(model.getProvider().getApiKey())
-            .build();
-        DeepSeekChatOptions options = DeepSeekChatOptions.builder()
-            .model(DeepSeekApi.ChatModel.DEEPSEEK_CHAT.getValue())
-            .temperature(modelRequest.getTemperature())
-            .maxTokens(200)
-            .build();
+        DeepSeekChatModel chatModel = clientRegistry.clientFor(
+            model.getProvider()
+        );
 
-        DeepSeekChatModel chatModel = DeepSeekChatModel.builder()
-            .deepSeekApi(deepSeekApi)
-            .defaultOptions(options)
-            .build();
+        UpstreamCallEvent event = UpstreamCallEvent.start(model, false);
+        try {
+            ChatResponse response = chatModel.call(buildPrompt(modelRequest));
+            ModelChatResponse chatResponse = mapToModelChatResponse(response);
+            event.received(chatResponse);
+            return chatResponse;
+        } catch (RuntimeException e) {
+            event.failed();
+            throw translate(e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    @Override
+    public Flux<ModelChatResponse> streamToModel(
+        Model model,
+        ModelRequest modelRequest
+    ) {
+        DeepSeekChatModel chatModel = clientRegistry.clientFor(
+            model.getProvider()
+        );
 
-        var messages = mergeMessages(modelRequest.getMessages());
+        return UpstreamCallEvent.time(
+            model,
+            chatModel
+                .stream(buildPrompt(modelRequest))
+                .map(chatResponseMapper::toModelChatChunk)
+                .onErrorMap(RuntimeException.class, DeepSeekAdapter::translate)
+        );
+    }
 
-        ChatResponse response = chatModel.call(new Prompt(messages));
+    protected Prompt buildPrompt(ModelRequest modelRequest) {
+        DeepSeekChatOptions options = DeepSeekChatOptions.builder()
+            .temperature(modelRequest.getTemperature())
+            .maxTokens(modelRequest.getMaxTokens())
+            .build();
 
-        return mapToModelChatResponse(response);
+        return new Prompt(mergeMessages(modelRequest.getMessages()), options);
     }
 
     @SuppressWarnings("null")
@@ -85,6 +116,36 @@ public class DeepSeekAdapter implements AiApiClientInterface {
         return messages;
     }
 
+    /**
+     * Raises the errors that mean the provider failed (a 5xx response after
+     * the retries of the client, a timeout or a connection error) as
+     * {@link ProviderFailureException}; an error caused by the request is
+     * left as it is.
+     */
+    static RuntimeException translate(RuntimeException e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError()
+                ? new ProviderFailureException(
+                    "Provider responded with status " + response.getStatusCode().value(),
+                    response.getStatusCode().value(),
+                    e
+                )
+                : e;
+        }
+        if (
+            e instanceof TransientAiException ||
+            e instanceof ResourceAccessException ||
+            e instanceof WebClientRequestException
+        ) {
+            return new ProviderFailureException(
+                "Provider did not respond: " + e.getMessage(),
+                null,
+                e
+            );
+        }
+        return e;
+    }
+
     protected ModelChatResponse mapToModelChatResponse(ChatResponse response) {
         return chatResponseMapper.toModelChatResponse(response);
     }
@@ -0,0 +1,115 @@
+package com.delimce.aibroker.infrastructure.adapters.springai;
+
+import com.delimce.aibroker.domain.entities.Provider;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.ai.deepseek.DeepSeekChatModel;
+import org.springframework.ai.deepseek.DeepSeekChatOptions;
+import org.springframework.ai.deepseek.api.DeepSeekApi;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Keeps one warm {@link DeepSeekChatModel} per {@link Provider} so the
+ * underlying HTTP client and its connection pool are reused across chat
+ * calls. Each client calls the base URL of its provider, or the DeepSeek API
+ * when it has none. An entry is rebuilt when the provider's API key or base
+ * URL changes.
+ */
+@Component
+@Log4j2
+public class DeepSeekClientRegistry {
+
+    static final int DEFAULT_MAX_TOKENS = 200;
+
+    private static final String COMPLETIONS_PATH = "/chat/completions";
+
+    private final ConcurrentMap<String, RegisteredClient> clients = new ConcurrentHashMap<>();
+    private final Function<Provider, DeepSeekChatModel> clientFactory;
+
+    public DeepSeekClientRegistry() {
+        this(DeepSeekClientRegistry::createChatModel);
+    }
+
+    DeepSeekClientRegistry(Function<Provider, DeepSeekChatModel> clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Returns the cached client for the provider, building a new one on first
+     * use or when the provider credentials/endpoint changed since it was built.
+     *
+     * @param provider the provider owning the model
+     * @return a reusable chat model bound to the provider
+     */
+    public DeepSeekChatModel clientFor(Provider provider) {
+        String key = registryKey(provider);
+        ClientFingerprint fingerprint = ClientFingerprint.of(provider);
+
+        RegisteredClient current = clients.get(key);
+        if (current != null && current.fingerprint().equals(fingerprint)) {
+            return current.chatModel();
+        }
+
+        return clients.compute(key, (k, existing) -> {
+            if (existing != null && existing.fingerprint().equals(fingerprint)) {
+                return existing;
+            }
+            if (existing != null) {
+                log.info("Provider {} changed its API key or base URL, rebuilding DeepSeek client", k);
+            }
+            return new RegisteredClient(fingerprint, clientFactory.apply(provider));
+        }).chatModel();
+    }
+
+    int size() {
+        return clients.size();
+    }
+
+    private static String registryKey(Provider provider) {
+        return provider.getId() != null
+                ? "id:" + provider.getId()
+                : "name:" + provider.getName();
+    }
+
+    private static DeepSeekChatModel createChatModel(Provider provider) {
+        DeepSeekApi.Builder api = DeepSeekApi.builder()
+                .apiKey(provider.getApiKey());
+        if (StringUtils.hasText(provider.getBaseUrl())) {
+            api.baseUrl(apiBaseUrl(provider.getBaseUrl()));
+        }
+        DeepSeekApi deepSeekApi = api.build();
+        DeepSeekChatOptions options = DeepSeekChatOptions.builder()
+                .model(DeepSeekApi.ChatModel.DEEPSEEK_CHAT.getValue())
+                .maxTokens(DEFAULT_MAX_TOKENS)
+                .build();
+
+        return DeepSeekChatModel.builder()
+                .deepSeekApi(deepSeekApi)
+                .defaultOptions(options)
+                .build();
+    }
+
+    /**
+     * The base URL the completions path is appended to: tbl_provider.base_url
+     * may hold the full completions endpoint, as the WebClient adapter calls it.
+     */
+    static String apiBaseUrl(String baseUrl) {
+        String trimmed = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return trimmed.endsWith(COMPLETIONS_PATH)
+                ? trimmed.substring(0, trimmed.length() - COMPLETIONS_PATH.length())
+                : trimmed;
+    }
+
+    private record ClientFingerprint(String apiKey, String baseUrl) {
+
+        static ClientFingerprint of(Provider provider) {
+            return new ClientFingerprint(provider.getApiKey(), provider.getBaseUrl());
+        }
+    }
+
+    private record RegisteredClient(ClientFingerprint fingerprint, DeepSeekChatModel chatModel) {
+    }
+}
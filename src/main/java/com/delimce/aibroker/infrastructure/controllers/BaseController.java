@@ -1,8 +1,10 @@
 package com.delimce.aibroker.infrastructure.controllers;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
@@ -13,7 +15,10 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import com.delimce.aibroker.domain.dto.ApiResponse;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.exceptions.ProviderUnavailableException;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 
 import io.jsonwebtoken.io.DecodingException;
 import lombok.extern.log4j.Log4j2;
@@ -79,7 +84,7 @@ public class BaseController extends ResponseEntityExceptionHandler
     }
 
     protected ResponseEntity<ApiResponse> unhandledExceptionResponse(
-            Exception e) {
+            Throwable e) {
         log.error("Unhandled exception: {}", e.getMessage(), e);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(responseError("An error occurred during execution", 500));
@@ -91,4 +96,29 @@ public class BaseController extends ResponseEntityExceptionHandler
                 .body(responseError(e.getMessage(), HttpStatus.UNAUTHORIZED.value()));
     }
 
+    protected ResponseEntity<ApiResponse> tooManyRequestsExceptionResponse(
+            TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(responseError(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+
+    protected ResponseEntity<ApiResponse> serviceUnavailableExceptionResponse(
+            ProviderUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(responseError(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value()));
+    }
+
+    protected ResponseEntity<ApiResponse> badGatewayExceptionResponse(
+            ProviderFailureException e) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(responseError(e.getMessage(), HttpStatus.BAD_GATEWAY.value()));
+    }
+
+    private static String retryAfterSeconds(Duration retryAfter) {
+        // Retry-After is whole seconds, and 0 would invite an immediate retry
+        return String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+
 }
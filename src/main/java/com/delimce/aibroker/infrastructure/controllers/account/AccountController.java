@@ -12,6 +12,7 @@ import com.delimce.aibroker.domain.dto.responses.users.UserCreatedResponse;
 import com.delimce.aibroker.domain.dto.responses.users.UserLoggedResponse;
 import com.delimce.aibroker.domain.dto.responses.users.UserMinDetail;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.exceptions.account.UserAlreadyExistsException;
 import com.delimce.aibroker.domain.exceptions.account.UserIsNotActiveException;
 import com.delimce.aibroker.infrastructure.controllers.BaseController;
@@ -49,6 +50,8 @@ public class AccountController extends BaseController {
             return illegalArgumentExceptionResponse(e);
         } catch (SecurityValidationException e) {
             return unAuthorizedExceptionResponse(e);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequestsExceptionResponse(e);
         } catch (Exception e) {
             return unhandledExceptionResponse(e);
         }
@@ -65,6 +68,8 @@ public class AccountController extends BaseController {
             return illegalArgumentExceptionResponse(e);
         } catch (SecurityValidationException e) {
             return unAuthorizedExceptionResponse(e);
+        } catch (TooManyRequestsException e) {
+            return tooManyRequestsExceptionResponse(e);
         } catch (Exception e) {
             return unhandledExceptionResponse(e);
         }
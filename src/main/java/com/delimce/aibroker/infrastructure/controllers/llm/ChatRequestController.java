@@ -1,33 +1,170 @@
 package com.delimce.aibroker.infrastructure.controllers.llm;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.delimce.aibroker.application.ServerTimings;
 import com.delimce.aibroker.application.llm.LlmChatService;
 import com.delimce.aibroker.domain.dto.ApiResponse;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.exceptions.ProviderUnavailableException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.infrastructure.controllers.BaseController;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 @RestController
 @AllArgsConstructor
 @RequestMapping("/llm")
 public class ChatRequestController extends BaseController {
 
+    static final String STREAM_DONE = "[DONE]";
+
     private final LlmChatService llmChatService;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Chat completion. The servlet thread is released while the upstream call
+     * is in flight; the response is written when the Mono completes. When the
+     * request asks for streaming, chunks are relayed as Server-Sent Events as
+     * soon as the provider emits them, followed by a [DONE] event. A timed
+     * request gets its {@link ServerTimings} in the Server-Timing header. A
+     * stream sends its headers with its first chunk: a request refused before
+     * it (user quota, upstream rate limit, open circuit) gets its own status
+     * code rather than an error event in a 200 stream.
+     */
     @PostMapping("/chat")
-    public ResponseEntity<ApiResponse> chatRequest(@Valid @RequestBody ModelRequest request) {
+    public Mono<ResponseEntity<?>> chatRequest(@Valid @RequestBody ModelRequest request) {
         try {
-            return ResponseEntity.ok(responseOk(llmChatService.execute(request)));
-        } catch (IllegalArgumentException e) {
-            return illegalArgumentExceptionResponse(e);
+            ServerTimings timings = ServerTimings.current();
+            if (request.isStream()) {
+                return streamResponse(llmChatService.executeStream(request), timings);
+            }
+            return llmChatService.executeAsync(request)
+                    .<ResponseEntity<?>>map(chatResponse -> chatResponse(chatResponse, timings))
+                    .onErrorResume(e -> Mono.just(chatErrorResponse(e)));
         } catch (Exception e) {
+            return Mono.just(chatErrorResponse(e));
+        }
+    }
+
+    /**
+     * A timed response is serialized here rather than by the message
+     * converter, so the serialization is part of its timings.
+     */
+    private ResponseEntity<?> chatResponse(ModelChatResponse chatResponse, ServerTimings timings) {
+        if (!timings.isEnabled()) {
+            return ResponseEntity.ok(responseOk(chatResponse));
+        }
+        ApiResponse body = responseOk(chatResponse);
+        if (timings.isInBody()) {
+            body = body.withTimings(timings.millis());
+        }
+        long start = System.nanoTime();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
             return unhandledExceptionResponse(e);
         }
+        timings.record(ServerTimings.Stage.SERIALIZE, start);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(ServerTimings.HEADER, timings.header())
+                .body(json);
+    }
+
+    /**
+     * Relays the chunks through an {@link SseEmitter} once the first one
+     * arrives. An error before it is answered as a plain error response; an
+     * error after it is sent as an "error" event.
+     */
+    private Mono<ResponseEntity<?>> streamResponse(Flux<ModelChatResponse> chunks, ServerTimings timings) {
+        // no explicit timeout: falls back to spring.mvc.async.request-timeout
+        SseEmitter emitter = new SseEmitter();
+        Sinks.One<ResponseEntity<?>> response = Sinks.one();
+        AtomicBoolean opened = new AtomicBoolean();
+        Runnable open = () -> {
+            if (opened.compareAndSet(false, true)) {
+                response.tryEmitValue(streamOpened(emitter, timings));
+            }
+        };
+
+        Disposable subscription = chunks.subscribe(
+                chunk -> {
+                    open.run();
+                    send(emitter, SseEmitter.event().data(chunk, MediaType.APPLICATION_JSON));
+                },
+                e -> {
+                    if (!opened.get()) {
+                        response.tryEmitValue(chatErrorResponse(e));
+                        return;
+                    }
+                    ApiResponse error = chatErrorResponse(e).getBody();
+                    send(emitter, SseEmitter.event().name("error").data(error, MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                },
+                () -> {
+                    open.run();
+                    send(emitter, SseEmitter.event().data(STREAM_DONE));
+                    emitter.complete();
+                });
+
+        // client went away or the stream timed out: stop pulling from the provider
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+
+        return response.asMono().doOnCancel(() -> {
+            if (!opened.get()) {
+                subscription.dispose();
+            }
+        });
+    }
+
+    private static ResponseEntity<?> streamOpened(SseEmitter emitter, ServerTimings timings) {
+        if (!timings.isEnabled()) {
+            return ResponseEntity.ok(emitter);
+        }
+        return ResponseEntity.ok().header(ServerTimings.HEADER, timings.header()).body(emitter);
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private ResponseEntity<ApiResponse> chatErrorResponse(Throwable e) {
+        if (e instanceof IllegalArgumentException illegalArgumentException) {
+            return illegalArgumentExceptionResponse(illegalArgumentException);
+        }
+        if (e instanceof ProviderUnavailableException providerUnavailableException) {
+            return serviceUnavailableExceptionResponse(providerUnavailableException);
+        }
+        if (e instanceof TooManyRequestsException tooManyRequestsException) {
+            return tooManyRequestsExceptionResponse(tooManyRequestsException);
+        }
+        if (e instanceof ProviderFailureException providerFailureException) {
+            return badGatewayExceptionResponse(providerFailureException);
+        }
+        return unhandledExceptionResponse(e);
     }
 }
@@ -0,0 +1,34 @@
+package com.delimce.aibroker.infrastructure.controllers.system;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.delimce.aibroker.application.llm.ProviderGuard;
+import com.delimce.aibroker.application.llm.ProviderGuard.ProviderHealth;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Reports the circuit breaker and concurrency limit of every provider called
+ * so far under the "provider" health component. The service is out of
+ * service only while the circuits of all of them are open; a single open
+ * circuit is rerouted around and shows in the details.
+ */
+@Component
+@AllArgsConstructor
+final class ProviderHealthIndicator implements HealthIndicator {
+
+    private final ProviderGuard guard;
+
+    @Override
+    public Health health() {
+        Map<String, ProviderHealth> providers = guard.health();
+        boolean allOpen = !providers.isEmpty() && providers.values().stream().allMatch(ProviderHealth::isOpen);
+        return (allOpen ? Health.outOfService() : Health.up())
+                .withDetails(providers)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.delimce.aibroker.infrastructure.controllers.usage;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.delimce.aibroker.application.usage.UsageLatencyService;
+import com.delimce.aibroker.application.usage.UsageReportService;
+import com.delimce.aibroker.application.usage.UsageSpendService;
+import com.delimce.aibroker.domain.dto.ApiResponse;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.infrastructure.controllers.BaseController;
+
+import lombok.AllArgsConstructor;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/usage")
+public class UsageController extends BaseController {
+
+    private final UsageSpendService usageSpendService;
+    private final UsageReportService usageReportService;
+    private final UsageLatencyService usageLatencyService;
+
+    /**
+     * Spend per user and model between two ISO date-times, read from the
+     * rollups; today so far when no range is given.
+     */
+    @GetMapping("/spend")
+    public ResponseEntity<ApiResponse> spend(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(responseOk(usageSpendService.execute(from, to)));
+        } catch (IllegalArgumentException e) {
+            return illegalArgumentExceptionResponse(e);
+        } catch (Exception e) {
+            return unhandledExceptionResponse(e);
+        }
+    }
+
+    /**
+     * Usage per hour, user and model, today so far when no range is given.
+     */
+    @GetMapping("/hourly")
+    public ResponseEntity<ApiResponse> hourly(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId) {
+        return report(UsagePeriod.HOUR, from, to, userId);
+    }
+
+    /**
+     * Usage per day, user and model, the last 30 days when no range is given.
+     */
+    @GetMapping("/daily")
+    public ResponseEntity<ApiResponse> daily(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId) {
+        return report(UsagePeriod.DAY, from, to, userId);
+    }
+
+    /**
+     * Mean upstream latencies per model, today so far when no range is given.
+     */
+    @GetMapping("/latency")
+    public ResponseEntity<ApiResponse> latency(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(responseOk(usageLatencyService.execute(from, to)));
+        } catch (IllegalArgumentException e) {
+            return illegalArgumentExceptionResponse(e);
+        } catch (Exception e) {
+            return unhandledExceptionResponse(e);
+        }
+    }
+
+    private ResponseEntity<ApiResponse> report(UsagePeriod period, LocalDateTime from, LocalDateTime to,
+            Long userId) {
+        try {
+            return ResponseEntity.ok(responseOk(usageReportService.execute(period, from, to, userId)));
+        } catch (IllegalArgumentException e) {
+            return illegalArgumentExceptionResponse(e);
+        } catch (Exception e) {
+            return unhandledExceptionResponse(e);
+        }
+    }
+}
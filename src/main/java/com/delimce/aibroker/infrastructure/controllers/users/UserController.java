@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import com.delimce.aibroker.domain.dto.ApiResponse;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
 import com.delimce.aibroker.application.users.UserListService;
+import com.delimce.aibroker.application.users.UserQuotaService;
 import com.delimce.aibroker.application.users.UserRefreshService;
 import com.delimce.aibroker.infrastructure.controllers.BaseController;
 import org.springframework.http.ResponseEntity;
@@ -17,10 +18,13 @@ public class UserController extends BaseController {
 
     private final UserListService userListService;
     private final UserRefreshService userRefreshService;
+    private final UserQuotaService userQuotaService;
 
-    public UserController(UserListService userListService, UserRefreshService userRefreshService) {
+    public UserController(UserListService userListService, UserRefreshService userRefreshService,
+            UserQuotaService userQuotaService) {
         this.userListService = userListService;
         this.userRefreshService = userRefreshService;
+        this.userQuotaService = userQuotaService;
     }
 
     @GetMapping("/all")
@@ -32,6 +36,19 @@ public class UserController extends BaseController {
         }
     }
 
+    /**
+     * Live request and token usage of every user in the current quota window,
+     * from the in-memory counters rather than the metrics table.
+     */
+    @GetMapping("/quota")
+    public ResponseEntity<ApiResponse> listQuotas() {
+        try {
+            return ResponseEntity.ok(responseOk(userQuotaService.usage()));
+        } catch (Exception e) {
+            return unhandledExceptionResponse(e);
+        }
+    }
+
     @PutMapping("/refresh")
     public ResponseEntity<ApiResponse> refreshUserData() {
         try {
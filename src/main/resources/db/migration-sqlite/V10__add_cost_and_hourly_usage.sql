@@ -0,0 +1,23 @@
+PRAGMA foreign_keys = ON;
+
+ALTER TABLE tbl_request_metric
+    ADD COLUMN cost NUMERIC(18,8) NULL;
+
+CREATE TABLE IF NOT EXISTS tbl_usage_hourly (
+  id INTEGER PRIMARY KEY AUTOINCREMENT,
+  hour_start DATETIME NOT NULL,
+  user_id INTEGER NOT NULL,
+  model_id INTEGER NOT NULL,
+  requests INTEGER NOT NULL DEFAULT 0,
+  cached_requests INTEGER NOT NULL DEFAULT 0,
+  prompt_tokens INTEGER NOT NULL DEFAULT 0,
+  completion_tokens INTEGER NOT NULL DEFAULT 0,
+  total_tokens INTEGER NOT NULL DEFAULT 0,
+  cost NUMERIC(18,8) NOT NULL DEFAULT 0,
+  CONSTRAINT usage_hourly_user_fk FOREIGN KEY (user_id) REFERENCES tbl_user (id),
+  CONSTRAINT usage_hourly_model_fk FOREIGN KEY (model_id) REFERENCES tbl_model (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS usage_hourly_hour_user_model_index ON tbl_usage_hourly (hour_start, user_id, model_id);
+CREATE INDEX IF NOT EXISTS usage_hourly_user_index ON tbl_usage_hourly (user_id);
+CREATE INDEX IF NOT EXISTS usage_hourly_model_index ON tbl_usage_hourly (model_id);
@@ -0,0 +1,24 @@
+PRAGMA foreign_keys = ON;
+
+ALTER TABLE tbl_usage_hourly
+    ADD COLUMN cache_hit_tokens INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS tbl_usage_daily (
+  id INTEGER PRIMARY KEY AUTOINCREMENT,
+  day_start DATETIME NOT NULL,
+  user_id INTEGER NOT NULL,
+  model_id INTEGER NOT NULL,
+  requests INTEGER NOT NULL DEFAULT 0,
+  cached_requests INTEGER NOT NULL DEFAULT 0,
+  prompt_tokens INTEGER NOT NULL DEFAULT 0,
+  cache_hit_tokens INTEGER NOT NULL DEFAULT 0,
+  completion_tokens INTEGER NOT NULL DEFAULT 0,
+  total_tokens INTEGER NOT NULL DEFAULT 0,
+  cost NUMERIC(18,8) NOT NULL DEFAULT 0,
+  CONSTRAINT usage_daily_user_fk FOREIGN KEY (user_id) REFERENCES tbl_user (id),
+  CONSTRAINT usage_daily_model_fk FOREIGN KEY (model_id) REFERENCES tbl_model (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS usage_daily_day_user_model_index ON tbl_usage_daily (day_start, user_id, model_id);
+CREATE INDEX IF NOT EXISTS usage_daily_user_index ON tbl_usage_daily (user_id);
+CREATE INDEX IF NOT EXISTS usage_daily_model_index ON tbl_usage_daily (model_id);
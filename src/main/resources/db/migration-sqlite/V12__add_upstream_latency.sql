@@ -0,0 +1,3 @@
+ALTER TABLE tbl_request_metric ADD COLUMN time_to_first_token_ms INTEGER NULL;
+ALTER TABLE tbl_request_metric ADD COLUMN inter_token_latency_ms REAL NULL;
+ALTER TABLE tbl_request_metric ADD COLUMN output_tokens_per_second REAL NULL;
@@ -0,0 +1,45 @@
+PRAGMA foreign_keys = ON;
+
+-- ids for tbl_user_request and tbl_request_metric are assigned by the
+-- application (TimeOrderedIdGenerator); SQLite cannot drop AUTOINCREMENT
+-- in place, so both tables are rebuilt as plain INTEGER PRIMARY KEY
+CREATE TABLE tbl_user_request_new (
+  id INTEGER PRIMARY KEY,
+  model_id INTEGER NOT NULL,
+  user_id INTEGER NOT NULL,
+  prompt TEXT NOT NULL,
+  created_at DATETIME NOT NULL,
+  CONSTRAINT user_request_model_fk FOREIGN KEY (model_id) REFERENCES tbl_model (id),
+  CONSTRAINT user_request_user_fk FOREIGN KEY (user_id) REFERENCES tbl_user (id)
+);
+
+INSERT INTO tbl_user_request_new (id, model_id, user_id, prompt, created_at)
+SELECT id, model_id, user_id, prompt, created_at FROM tbl_user_request;
+
+CREATE TABLE tbl_request_metric_new (
+  id INTEGER PRIMARY KEY,
+  request_id INTEGER NOT NULL,
+  completion_tokens INTEGER,
+  prompt_tokens INTEGER,
+  total_tokens INTEGER,
+  prompt_cache_hit_tokens INTEGER,
+  prompt_cache_miss_tokens INTEGER,
+  created_at DATETIME NOT NULL,
+  CONSTRAINT request_metric_fk FOREIGN KEY (request_id) REFERENCES tbl_user_request_new (id)
+);
+
+INSERT INTO tbl_request_metric_new (id, request_id, completion_tokens, prompt_tokens, total_tokens,
+  prompt_cache_hit_tokens, prompt_cache_miss_tokens, created_at)
+SELECT id, request_id, completion_tokens, prompt_tokens, total_tokens,
+  prompt_cache_hit_tokens, prompt_cache_miss_tokens, created_at FROM tbl_request_metric;
+
+DROP TABLE tbl_request_metric;
+DROP TABLE tbl_user_request;
+
+-- renaming also rewrites the request_metric_fk reference
+ALTER TABLE tbl_user_request_new RENAME TO tbl_user_request;
+ALTER TABLE tbl_request_metric_new RENAME TO tbl_request_metric;
+
+CREATE INDEX IF NOT EXISTS user_request_model_index ON tbl_user_request (model_id);
+CREATE INDEX IF NOT EXISTS user_request_user_index ON tbl_user_request (user_id);
+CREATE UNIQUE INDEX IF NOT EXISTS request_metric_index ON tbl_request_metric (request_id);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS model_name_index ON tbl_model (name);
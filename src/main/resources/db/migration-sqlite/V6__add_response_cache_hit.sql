@@ -0,0 +1,2 @@
+ALTER TABLE tbl_request_metric
+    ADD COLUMN response_cache_hit INTEGER NOT NULL DEFAULT 0 CHECK (response_cache_hit IN (0,1));
@@ -0,0 +1,4 @@
+ALTER TABLE tbl_model
+    ADD COLUMN alias TEXT NULL;
+
+CREATE INDEX IF NOT EXISTS model_alias_index ON tbl_model (alias);
@@ -0,0 +1,11 @@
+ALTER TABLE tbl_provider
+    ADD COLUMN rpm_limit INTEGER NULL;
+
+ALTER TABLE tbl_provider
+    ADD COLUMN tpm_limit INTEGER NULL;
+
+ALTER TABLE tbl_model
+    ADD COLUMN rpm_limit INTEGER NULL;
+
+ALTER TABLE tbl_model
+    ADD COLUMN tpm_limit INTEGER NULL;
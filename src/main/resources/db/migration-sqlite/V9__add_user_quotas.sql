@@ -0,0 +1,9 @@
+ALTER TABLE tbl_user
+    ADD COLUMN request_quota INTEGER NULL;
+
+ALTER TABLE tbl_user
+    ADD COLUMN token_quota INTEGER NULL;
+
+CREATE INDEX IF NOT EXISTS user_request_created_user_index ON tbl_user_request (created_at, user_id);
+
+CREATE INDEX IF NOT EXISTS request_metric_created_index ON tbl_request_metric (created_at);
@@ -0,0 +1,21 @@
+ALTER TABLE `tbl_request_metric`
+    ADD COLUMN `cost` DECIMAL(18,8) NULL AFTER `prompt_cache_miss_tokens`;
+
+CREATE TABLE IF NOT EXISTS `tbl_usage_hourly` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `hour_start` datetime NOT NULL,
+  `user_id` bigint NOT NULL,
+  `model_id` bigint NOT NULL,
+  `requests` bigint NOT NULL DEFAULT 0,
+  `cached_requests` bigint NOT NULL DEFAULT 0,
+  `prompt_tokens` bigint NOT NULL DEFAULT 0,
+  `completion_tokens` bigint NOT NULL DEFAULT 0,
+  `total_tokens` bigint NOT NULL DEFAULT 0,
+  `cost` DECIMAL(18,8) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `usage_hourly_hour_user_model_index` (`hour_start`, `user_id`, `model_id`),
+  KEY `usage_hourly_user_index` (`user_id`),
+  KEY `usage_hourly_model_index` (`model_id`),
+  CONSTRAINT `usage_hourly_user_fk` FOREIGN KEY (`user_id`) REFERENCES `tbl_user` (`id`),
+  CONSTRAINT `usage_hourly_model_fk` FOREIGN KEY (`model_id`) REFERENCES `tbl_model` (`id`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,22 @@
+ALTER TABLE `tbl_usage_hourly`
+    ADD COLUMN `cache_hit_tokens` bigint NOT NULL DEFAULT 0 AFTER `prompt_tokens`;
+
+CREATE TABLE IF NOT EXISTS `tbl_usage_daily` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `day_start` datetime NOT NULL,
+  `user_id` bigint NOT NULL,
+  `model_id` bigint NOT NULL,
+  `requests` bigint NOT NULL DEFAULT 0,
+  `cached_requests` bigint NOT NULL DEFAULT 0,
+  `prompt_tokens` bigint NOT NULL DEFAULT 0,
+  `cache_hit_tokens` bigint NOT NULL DEFAULT 0,
+  `completion_tokens` bigint NOT NULL DEFAULT 0,
+  `total_tokens` bigint NOT NULL DEFAULT 0,
+  `cost` DECIMAL(18,8) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `usage_daily_day_user_model_index` (`day_start`, `user_id`, `model_id`),
+  KEY `usage_daily_user_index` (`user_id`),
+  KEY `usage_daily_model_index` (`model_id`),
+  CONSTRAINT `usage_daily_user_fk` FOREIGN KEY (`user_id`) REFERENCES `tbl_user` (`id`),
+  CONSTRAINT `usage_daily_model_fk` FOREIGN KEY (`model_id`) REFERENCES `tbl_model` (`id`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
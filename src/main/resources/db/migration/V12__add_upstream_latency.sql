@@ -0,0 +1,4 @@
+ALTER TABLE `tbl_request_metric`
+    ADD COLUMN `time_to_first_token_ms` int NULL AFTER `cost`,
+    ADD COLUMN `inter_token_latency_ms` double NULL AFTER `time_to_first_token_ms`,
+    ADD COLUMN `output_tokens_per_second` double NULL AFTER `inter_token_latency_ms`;
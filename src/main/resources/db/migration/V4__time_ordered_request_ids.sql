@@ -0,0 +1,13 @@
+-- ids for tbl_user_request and tbl_request_metric are assigned by the
+-- application (TimeOrderedIdGenerator) so inserts can be batched
+ALTER TABLE `tbl_request_metric`
+    DROP FOREIGN KEY `request_metric_fk`;
+
+ALTER TABLE `tbl_user_request`
+    MODIFY COLUMN `id` bigint NOT NULL;
+
+ALTER TABLE `tbl_request_metric`
+    MODIFY COLUMN `id` bigint NOT NULL;
+
+ALTER TABLE `tbl_request_metric`
+    ADD CONSTRAINT `request_metric_fk` FOREIGN KEY (`request_id`) REFERENCES `tbl_user_request` (`id`);
@@ -0,0 +1,2 @@
+ALTER TABLE `tbl_model`
+    ADD INDEX `model_name_index` (`name`);
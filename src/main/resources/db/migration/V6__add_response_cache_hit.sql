@@ -0,0 +1,2 @@
+ALTER TABLE `tbl_request_metric`
+    ADD COLUMN `response_cache_hit` bit(1) NOT NULL DEFAULT b'0' AFTER `prompt_cache_miss_tokens`;
@@ -0,0 +1,3 @@
+ALTER TABLE `tbl_model`
+    ADD COLUMN `alias` varchar(120) NULL AFTER `name`,
+    ADD INDEX `model_alias_index` (`alias`);
@@ -0,0 +1,7 @@
+ALTER TABLE `tbl_provider`
+    ADD COLUMN `rpm_limit` int NULL AFTER `api_key`,
+    ADD COLUMN `tpm_limit` int NULL AFTER `rpm_limit`;
+
+ALTER TABLE `tbl_model`
+    ADD COLUMN `rpm_limit` int NULL AFTER `cost_token_unit`,
+    ADD COLUMN `tpm_limit` int NULL AFTER `rpm_limit`;
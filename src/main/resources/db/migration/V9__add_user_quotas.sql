@@ -0,0 +1,9 @@
+ALTER TABLE `tbl_user`
+    ADD COLUMN `request_quota` int NULL AFTER `status`,
+    ADD COLUMN `token_quota` bigint NULL AFTER `request_quota`;
+
+ALTER TABLE `tbl_user_request`
+    ADD INDEX `user_request_created_user_index` (`created_at`, `user_id`);
+
+ALTER TABLE `tbl_request_metric`
+    ADD INDEX `request_metric_created_index` (`created_at`);
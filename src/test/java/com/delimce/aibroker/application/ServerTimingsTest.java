@@ -0,0 +1,74 @@
+package com.delimce.aibroker.application;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingsTest {
+
+    @Test
+    void header_shouldListTheRecordedStagesInTheOrderTheyRun_thenTheTotal() {
+        ServerTimings timings = ServerTimings.start(false);
+
+        timings.recordNanos(ServerTimings.Stage.TTFT, 812_500_000L);
+        timings.recordNanos(ServerTimings.Stage.AUTH, 400_000L);
+
+        assertTrue(timings.isEnabled());
+        assertTrue(timings.header().startsWith(
+                "auth;dur=0.400;desc=\"Authentication\", ttft;dur=812.500;desc=\"Provider time to first token\", "
+                        + "total;dur="));
+    }
+
+    @Test
+    void millis_shouldHoldTheRecordedStagesAndTheTotal() {
+        ServerTimings timings = ServerTimings.start(true);
+
+        timings.record(ServerTimings.Stage.RESOLVE, System.nanoTime());
+        timings.recordNanos(ServerTimings.Stage.SERIALIZE, 1_500_000L);
+
+        assertTrue(timings.isInBody());
+        assertEquals(List.of("resolve", "ser", "total"), List.copyOf(timings.millis().keySet()));
+        assertEquals(1.5, timings.millis().get(ServerTimings.Stage.SERIALIZE.metric()));
+    }
+
+    @Test
+    void disabled_shouldRecordNothing() {
+        ServerTimings.DISABLED.record(ServerTimings.Stage.AUTH, System.nanoTime());
+        ServerTimings.DISABLED.recordNanos(ServerTimings.Stage.TTFT, 1L);
+
+        assertFalse(ServerTimings.DISABLED.isEnabled());
+        assertFalse(ServerTimings.DISABLED.isInBody());
+        assertNull(ServerTimings.DISABLED.header());
+        assertTrue(ServerTimings.DISABLED.millis().isEmpty());
+    }
+
+    @Test
+    void of_shouldFindTheTimingsOfATimedRequestOnly() {
+        ServerTimings timings = ServerTimings.start(false);
+        MockHttpServletRequest timed = new MockHttpServletRequest();
+        timed.setAttribute(ServerTimings.ATTRIBUTE, timings);
+
+        assertSame(timings, ServerTimings.of(timed));
+        assertSame(ServerTimings.DISABLED, ServerTimings.of(new MockHttpServletRequest()));
+    }
+
+    @Test
+    void current_shouldFindTheTimingsOfTheRequestOfTheThread() {
+        ServerTimings timings = ServerTimings.start(false);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(ServerTimings.ATTRIBUTE, timings);
+
+        assertSame(ServerTimings.DISABLED, ServerTimings.current());
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            assertSame(timings, ServerTimings.current());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
@@ -1,21 +1,27 @@
 package com.delimce.aibroker.application.account;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import com.delimce.aibroker.domain.dto.requests.users.UserLoginRequest;
 import com.delimce.aibroker.domain.dto.responses.users.UserLoggedResponse;
 import com.delimce.aibroker.domain.dto.values.UserToken;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.exceptions.account.UserIsNotActiveException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PasswordInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
 
 class AccountLoginServiceTest {
@@ -24,11 +30,14 @@ class AccountLoginServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordInterface passwordInterface;
 
     @Mock
     private JwtTokenInterface jwtTokenAdapter;
 
+    @Mock
+    private PrincipalCacheInterface principalCache;
+
     @InjectMocks
     private AccountLoginService accountLoginService;
 
@@ -39,7 +48,8 @@ class AccountLoginServiceTest {
 
     @Test
     @SuppressWarnings("null")
-    void shouldLoginSuccessfully() throws UserIsNotActiveException, SecurityValidationException {
+    void shouldLoginSuccessfully()
+            throws UserIsNotActiveException, SecurityValidationException, TooManyRequestsException {
         // Arrange
         UserLoginRequest request = new UserLoginRequest("test@test.com", "password");
         User user = new User();
@@ -57,7 +67,7 @@ class AccountLoginServiceTest {
                 3600000);
 
         when(userRepository.findByEmail("test@test.com")).thenReturn(user);
-        when(passwordEncoder.matches("password", "encodedPassword")).thenReturn(true);
+        when(passwordInterface.matches("password", "encodedPassword")).thenReturn(true);
         when(jwtTokenAdapter.generateUserToken(user)).thenReturn(userToken);
 
         // Act
@@ -69,6 +79,7 @@ class AccountLoginServiceTest {
         assertEquals("John", response.name());
         assertEquals("Doe", response.lastName());
         assertEquals("test@test.com", response.email());
+        verify(principalCache).invalidate("test@test.com");
     }
 
     @Test
@@ -82,21 +93,21 @@ class AccountLoginServiceTest {
     }
 
     @Test
-    void shouldThrowExceptionWhenPasswordIsIncorrect() {
+    void shouldThrowExceptionWhenPasswordIsIncorrect() throws TooManyRequestsException {
         // Arrange
         UserLoginRequest request = new UserLoginRequest("test@test.com", "wrong-password");
         User user = new User();
         user.setPassword("encodedPassword");
 
         when(userRepository.findByEmail("test@test.com")).thenReturn(user);
-        when(passwordEncoder.matches("wrong-password", "encodedPassword")).thenReturn(false);
+        when(passwordInterface.matches("wrong-password", "encodedPassword")).thenReturn(false);
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> accountLoginService.execute(request));
     }
 
     @Test
-    void shouldThrowExceptionWhenUserIsNotActive() {
+    void shouldThrowExceptionWhenUserIsNotActive() throws TooManyRequestsException {
         // Arrange
         UserLoginRequest request = new UserLoginRequest("test@test.com", "password");
         User user = new User();
@@ -104,9 +115,25 @@ class AccountLoginServiceTest {
         user.setStatus(UserStatus.INACTIVE);
 
         when(userRepository.findByEmail("test@test.com")).thenReturn(user);
-        when(passwordEncoder.matches("password", "encodedPassword")).thenReturn(true);
+        when(passwordInterface.matches("password", "encodedPassword")).thenReturn(true);
 
         // Act & Assert
         assertThrows(UserIsNotActiveException.class, () -> accountLoginService.execute(request));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPropagateTooManyRequests_whenPasswordHashingIsSaturated() throws Throwable {
+        // Arrange
+        UserLoginRequest request = new UserLoginRequest("test@test.com", "password");
+        User user = new User();
+        user.setPassword("encodedPassword");
+
+        when(userRepository.findByEmail("test@test.com")).thenReturn(user);
+        when(passwordInterface.matches("password", "encodedPassword"))
+                .thenThrow(new TooManyRequestsException("busy", Duration.ofSeconds(1)));
+
+        // Act & Assert
+        assertThrows(TooManyRequestsException.class, () -> accountLoginService.execute(request));
+        verify(jwtTokenAdapter, never()).generateUserToken(any());
+    }
+}
@@ -9,15 +9,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import com.delimce.aibroker.domain.dto.requests.users.UserRegistrationRequest;
 import com.delimce.aibroker.domain.dto.responses.users.UserCreatedResponse;
 import com.delimce.aibroker.domain.dto.values.UserToken;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.exceptions.account.UserAlreadyExistsException;
 import com.delimce.aibroker.domain.mappers.users.UserMapper;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PasswordInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,7 +28,7 @@ public class AccountRegisterServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordInterface passwordInterface;
 
     @Mock
     private JwtTokenInterface jwtTokenInterface;
@@ -68,7 +69,8 @@ public class AccountRegisterServiceTest {
 
     @Test
     @SuppressWarnings("null")
-    void shouldCreateUserSuccessfully() throws UserAlreadyExistsException, SecurityValidationException {
+    void shouldCreateUserSuccessfully() throws UserAlreadyExistsException, SecurityValidationException,
+            TooManyRequestsException {
         // Mock JWT token generation
         UserToken userToken = new UserToken(
                 "jwt.token.here",
@@ -78,7 +80,7 @@ public class AccountRegisterServiceTest {
                 3600000);
 
         when(userRepository.findByEmail(request.getEmail())).thenReturn(null);
-        when(passwordEncoder.encode(request.getPassword())).thenReturn("encodedPassword");
+        when(passwordInterface.encode(request.getPassword())).thenReturn("encodedPassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(jwtTokenInterface.generateUserToken(any(User.class))).thenReturn(userToken);
         when(userMapper.userToUserCreatedResponse(user)).thenReturn(response);
@@ -87,7 +89,7 @@ public class AccountRegisterServiceTest {
 
         assertNotNull(result);
         verify(userRepository).findByEmail(request.getEmail());
-        verify(passwordEncoder).encode(request.getPassword());
+        verify(passwordInterface).encode(request.getPassword());
         verify(userRepository).save(any(User.class));
         verify(jwtTokenInterface).generateUserToken(any(User.class));
         verify(userMapper).userToUserCreatedResponse(user);
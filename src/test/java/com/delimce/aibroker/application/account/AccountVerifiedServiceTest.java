@@ -15,6 +15,7 @@ import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.mappers.users.UserMapper;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
 
 class AccountVerifiedServiceTest {
@@ -28,6 +29,9 @@ class AccountVerifiedServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private PrincipalCacheInterface principalCache;
+
     @InjectMocks
     private AccountVerifiedService accountVerifiedService;
 
@@ -68,6 +72,7 @@ class AccountVerifiedServiceTest {
         assertNotNull(response);
         assertEquals(TEST_EMAIL, response.email());
         verify(userRepository).save(any(User.class));
+        verify(principalCache).invalidate(TEST_EMAIL);
     }
 
     @SuppressWarnings("null")
@@ -0,0 +1,127 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ChatMetrics metrics = new ChatMetrics(meterRegistry);
+    private final Model model = model();
+
+    @Test
+    void stage_shouldTimeAStageOfTheCallingThread_byModelProviderAndOutcome() {
+        metrics.stage(ChatMetrics.RESOLVE, model, ChatMetrics.SUCCESS, System.nanoTime());
+        metrics.stage(ChatMetrics.RESOLVE, model, ChatMetrics.SUCCESS, System.nanoTime());
+        metrics.stage(ChatMetrics.RESOLVE, null, ChatMetrics.ERROR, System.nanoTime());
+
+        assertEquals(2, meterRegistry.get(ChatMetrics.STAGE_TIMER).tag("stage", ChatMetrics.RESOLVE)
+                .tag("model", "deepseek-chat").tag("provider", "DeepSeek").tag("outcome", ChatMetrics.SUCCESS)
+                .timer().count());
+        assertEquals(1, meterRegistry.get(ChatMetrics.STAGE_TIMER).tag("model", "unknown")
+                .tag("provider", "unknown").tag("outcome", ChatMetrics.ERROR).timer().count());
+    }
+
+    @Test
+    void stage_shouldTimeAMonoUntilItEnds() {
+        assertEquals("ok", metrics.stage(ChatMetrics.UPSTREAM, model,
+                Mono.just("ok").delayElement(Duration.ofMillis(20))).block());
+        assertThrows(IllegalStateException.class, () -> metrics.stage(ChatMetrics.UPSTREAM, model,
+                Mono.error(new IllegalStateException("down"))).block());
+        metrics.stage(ChatMetrics.UPSTREAM, model, Mono.never()).subscribe().dispose();
+
+        assertTrue(upstream(ChatMetrics.SUCCESS).totalTime(TimeUnit.MILLISECONDS) >= 20);
+        assertEquals(1, upstream(ChatMetrics.ERROR).count());
+        assertEquals(1, upstream(ChatMetrics.CANCELLED).count());
+    }
+
+    @Test
+    void stage_shouldTimeAFluxUntilItsLastElement() {
+        assertEquals(3, metrics.stage(ChatMetrics.UPSTREAM, model, Flux.just(1, 2, 3)).count().block());
+        assertThrows(IllegalStateException.class, () -> metrics.stage(ChatMetrics.UPSTREAM, model,
+                Flux.error(new IllegalStateException("down"))).blockLast());
+        metrics.stage(ChatMetrics.UPSTREAM, model, Flux.never()).subscribe().dispose();
+
+        assertEquals(1, upstream(ChatMetrics.SUCCESS).count());
+        assertEquals(1, upstream(ChatMetrics.ERROR).count());
+        assertEquals(1, upstream(ChatMetrics.CANCELLED).count());
+    }
+
+    @Test
+    void call_shouldTimeEachCallToTheProvider() {
+        metrics.call(model, Mono.just("ok")).block();
+        metrics.call(model, Flux.just("a", "b")).blockLast();
+
+        assertEquals(2, meterRegistry.get(ChatMetrics.CALL_TIMER).tag("model", "deepseek-chat")
+                .tag("provider", "DeepSeek").tag("outcome", ChatMetrics.SUCCESS).timer().count());
+    }
+
+    @Test
+    void tokens_shouldCountTheTokensByTypeAndSource() {
+        metrics.tokens(model, usage(100, 50, 40), false);
+        metrics.tokens(model, usage(100, 50, 40), false);
+        metrics.tokens(model, usage(10, 5, 0), true);
+
+        assertEquals(200, tokens("prompt", "upstream"));
+        assertEquals(100, tokens("completion", "upstream"));
+        assertEquals(80, tokens("prompt_cache_hit", "upstream"));
+        assertEquals(10, tokens("prompt", "cache"));
+        assertNull(meterRegistry.find(ChatMetrics.TOKEN_COUNTER).tag("type", "prompt_cache_hit")
+                .tag("source", "cache").counter());
+    }
+
+    @Test
+    void latency_shouldRecordTheLatenciesOfTheCallThatAnswered() {
+        metrics.latency(model, Duration.ofMillis(300).toNanos(), 20e6, 45.0);
+        metrics.latency(model, Duration.ofMillis(900).toNanos(), null, null);
+
+        Timer timeToFirstToken = meterRegistry.get(ChatMetrics.TTFT_TIMER).tag("model", "deepseek-chat")
+                .tag("provider", "DeepSeek").timer();
+        assertEquals(2, timeToFirstToken.count());
+        assertEquals(1200, timeToFirstToken.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(20, meterRegistry.get(ChatMetrics.INTER_TOKEN_TIMER).timer().totalTime(TimeUnit.MILLISECONDS),
+                0.001);
+        assertEquals(1, meterRegistry.get(ChatMetrics.OUTPUT_RATE_SUMMARY).tag("model", "deepseek-chat")
+                .summary().count());
+        assertEquals(45.0, meterRegistry.get(ChatMetrics.OUTPUT_RATE_SUMMARY).summary().totalAmount());
+    }
+
+    private Timer upstream(String outcome) {
+        return meterRegistry.get(ChatMetrics.STAGE_TIMER).tag("stage", ChatMetrics.UPSTREAM)
+                .tag("outcome", outcome).timer();
+    }
+
+    private double tokens(String type, String source) {
+        return meterRegistry.get(ChatMetrics.TOKEN_COUNTER).tag("model", "deepseek-chat").tag("type", type)
+                .tag("source", source).counter().count();
+    }
+
+    private static Usage usage(int prompt, int completion, int cacheHit) {
+        Usage usage = new Usage();
+        usage.setPrompt_tokens(prompt);
+        usage.setCompletion_tokens(completion);
+        usage.setTotal_tokens(prompt + completion);
+        usage.setPrompt_cache_hit_tokens(cacheHit);
+        return usage;
+    }
+
+    private static Model model() {
+        Provider provider = new Provider();
+        provider.setName("DeepSeek");
+        Model model = new Model();
+        model.setName("deepseek-chat");
+        model.setProvider(provider);
+        return model;
+    }
+}
@@ -0,0 +1,136 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ChatRequestCoalescer coalescer = new ChatRequestCoalescer(meterRegistry, true);
+    private final Model model = Model.builder().id(1L).name("deepseek-chat").build();
+
+    @Test
+    void keyFor_shouldOnlyKeyDeterministicRequests_whenEnabled() {
+        assertNotNull(coalescer.keyFor(model, request(0)));
+        assertNull(coalescer.keyFor(model, request(0.7)));
+        assertNull(new ChatRequestCoalescer(meterRegistry, false).keyFor(model, request(0)));
+    }
+
+    @Test
+    void coalesce_shouldShareOneCall_whileItIsInFlight() {
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<ModelChatResponse> upstream = Sinks.one();
+        ModelChatResponse response = ModelChatResponse.builder().object("chat.completion").build();
+
+        Mono<ModelChatResponse> first = coalescer.coalesce("key", () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        }).cache();
+        Mono<ModelChatResponse> second = coalescer.coalesce("key", () -> {
+            calls.incrementAndGet();
+            return upstream.asMono();
+        }).cache();
+        first.subscribe();
+        second.subscribe();
+        upstream.tryEmitValue(response);
+
+        assertSame(response, first.block());
+        assertSame(response, second.block());
+        assertEquals(1, calls.get());
+        assertEquals(1.0, meterRegistry.get("aibroker.chat.coalesced").counter().count());
+    }
+
+    @Test
+    void coalesce_shouldStartANewCall_onceThePreviousOneTerminated() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<ModelChatResponse> failing = coalescer.coalesce("key", () -> {
+            calls.incrementAndGet();
+            return Mono.error(new IllegalStateException("upstream down"));
+        });
+        assertThrows(IllegalStateException.class, failing::block);
+
+        ModelChatResponse response = coalescer.coalesce("key", () -> {
+            calls.incrementAndGet();
+            return Mono.just(ModelChatResponse.builder().build());
+        }).block();
+
+        assertNotNull(response);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void coalesce_shouldCallThrough_whenKeyIsNull() {
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.coalesce(null, () -> {
+            calls.incrementAndGet();
+            return Mono.just(ModelChatResponse.builder().build());
+        }).block();
+        coalescer.coalesce(null, () -> {
+            calls.incrementAndGet();
+            return Mono.just(ModelChatResponse.builder().build());
+        }).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void coalesceStream_shouldReplayEarlierChunks_toCallersThatJoinLate() {
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.Many<ModelChatResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        ModelChatResponse firstChunk = ModelChatResponse.builder().object("chunk-1").build();
+        ModelChatResponse secondChunk = ModelChatResponse.builder().object("chunk-2").build();
+
+        Flux<ModelChatResponse> first = coalescer.coalesceStream("key", () -> {
+            calls.incrementAndGet();
+            return upstream.asFlux();
+        }).cache();
+        first.subscribe();
+        upstream.tryEmitNext(firstChunk);
+
+        Flux<ModelChatResponse> late = coalescer.coalesceStream("key", () -> {
+            calls.incrementAndGet();
+            return upstream.asFlux();
+        }).cache();
+        late.subscribe();
+        upstream.tryEmitNext(secondChunk);
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of(firstChunk, secondChunk), first.collectList().block());
+        assertEquals(List.of(firstChunk, secondChunk), late.collectList().block());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void coalesceStream_shouldStartANewStream_onceThePreviousOneCompleted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            coalescer.coalesceStream("key", () -> {
+                calls.incrementAndGet();
+                return Flux.just(ModelChatResponse.builder().build());
+            }).blockLast();
+        }
+
+        assertEquals(2, calls.get());
+    }
+
+    private static ModelRequest request(double temperature) {
+        return new ModelRequest("deepseek-chat", false,
+                new ModelMessageRequest[] { new ModelMessageRequest("user", "hello") }, temperature);
+    }
+}
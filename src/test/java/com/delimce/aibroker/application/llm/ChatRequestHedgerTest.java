@@ -0,0 +1,172 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatRequestHedgerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelRegistry modelRegistry = mock(ModelRegistry.class);
+    private final ModelRouter router = new ModelRouter(new SimpleMeterRegistry(),
+            new ProviderGuard(new SimpleMeterRegistry(), true, 0.5, 20, 10, Duration.ofSeconds(30), true, 50, 1, 500, 0.9, 2), 0.2, 10);
+    private final Model primary = Model.builder().name("primary-model").alias("chat").enabled(true).build();
+    private final Model backup = Model.builder().name("backup-model").alias("chat").enabled(true).build();
+    private final ModelChatResponse primaryResponse = ModelChatResponse.builder().model("primary-model").build();
+    private final ModelChatResponse backupResponse = ModelChatResponse.builder().model("backup-model").build();
+    private final List<String> called = new CopyOnWriteArrayList<>();
+
+    @Test
+    void call_shouldCallThrough_whenDisabled() {
+        ChatRequestHedger hedger = hedger(false, 10);
+
+        assertSame(primaryResponse, hedger.call(primary, model -> respond(model, primaryResponse)).block(TIMEOUT));
+        assertEquals(List.of("primary-model"), called);
+        assertEquals(0.0, outcome(ChatRequestHedger.NOT_HEDGED));
+    }
+
+    @Test
+    void call_shouldNotHedge_untilTheModelHasLatencySamples() {
+        ChatRequestHedger hedger = hedger(true, 10);
+
+        assertSame(primaryResponse, hedger.call(primary, model -> respond(model, primaryResponse)).block(TIMEOUT));
+        assertSame(primaryResponse, hedger.call(primary, model -> respond(model, primaryResponse)).block(TIMEOUT));
+
+        assertEquals(List.of("primary-model", "primary-model"), called);
+        assertEquals(2.0, outcome(ChatRequestHedger.NOT_HEDGED));
+    }
+
+    @Test
+    void call_shouldTakeTheHedge_andCancelTheSlowPrimary() throws InterruptedException {
+        ChatRequestHedger hedger = primed(hedger(true, 10));
+        when(modelRegistry.findAlias("chat")).thenReturn(List.of(primary, backup));
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        ModelChatResponse response = hedger.call(primary, model -> model == primary
+                ? respond(model, Mono.<ModelChatResponse>never().doOnCancel(primaryCancelled::countDown))
+                : respond(model, backupResponse)).block(TIMEOUT);
+
+        assertSame(backupResponse, response);
+        assertTrue(primaryCancelled.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("primary-model", "backup-model"), called.subList(1, 3));
+        assertEquals(1.0, outcome(ChatRequestHedger.HEDGE_WON));
+    }
+
+    @Test
+    void call_shouldHedgeOnTheSameModel_whenItHasNoAlias() {
+        Model plain = Model.builder().name("plain-model").enabled(true).build();
+        ChatRequestHedger hedger = hedger(true, 10);
+        hedger.call(plain, model -> respond(model, primaryResponse)).block(TIMEOUT);
+        called.clear();
+
+        ModelChatResponse response = hedger.call(plain, model -> called.size() == 0
+                ? respond(model, Mono.never())
+                : respond(model, backupResponse)).block(TIMEOUT);
+
+        assertSame(backupResponse, response);
+        assertEquals(List.of("plain-model", "plain-model"), called);
+    }
+
+    @Test
+    void call_shouldKeepThePrimary_whenItAnswersAfterTheHedgeStarted() {
+        ChatRequestHedger hedger = primed(hedger(true, 10));
+        when(modelRegistry.findAlias("chat")).thenReturn(List.of(primary, backup));
+
+        ModelChatResponse response = hedger.call(primary, model -> model == primary
+                ? respond(model, Mono.just(primaryResponse).delayElement(Duration.ofSeconds(1)))
+                : respond(model, Mono.never())).block(TIMEOUT);
+
+        assertSame(primaryResponse, response);
+        assertEquals(1.0, outcome(ChatRequestHedger.PRIMARY_WON));
+    }
+
+    @Test
+    void call_shouldFailWithThePrimaryError_whenNeitherCallAnswers() {
+        ChatRequestHedger hedger = primed(hedger(true, 10));
+        when(modelRegistry.findAlias("chat")).thenReturn(List.of(primary, backup));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> hedger.call(primary, model -> model == primary
+                        ? respond(model, Mono.<ModelChatResponse>error(new IllegalStateException("primary down"))
+                                .delaySubscription(Duration.ofSeconds(1)))
+                        : respond(model, Mono.empty())).block(TIMEOUT));
+
+        assertEquals("primary down", e.getMessage());
+        assertEquals(1.0, outcome(ChatRequestHedger.FAILED));
+    }
+
+    @Test
+    void call_shouldNotHedge_whenThePrimaryFailsFirst() {
+        ChatRequestHedger hedger = primed(hedger(true, 10));
+
+        assertThrows(IllegalStateException.class, () -> hedger.call(primary,
+                model -> respond(model, Mono.error(new IllegalStateException("primary down")))).block(TIMEOUT));
+        assertNull(hedger.call(primary, model -> respond(model, Mono.empty())).block(TIMEOUT));
+
+        assertEquals(List.of("primary-model", "primary-model"), called.subList(1, 3));
+        // the priming call was not hedged either
+        assertEquals(3.0, outcome(ChatRequestHedger.NOT_HEDGED));
+    }
+
+    @Test
+    void call_shouldWaitForThePrimary_whenTheBudgetIsSpent() {
+        ChatRequestHedger hedger = primed(hedger(true, 0));
+
+        ModelChatResponse response = hedger.call(primary,
+                model -> respond(model, Mono.just(primaryResponse).delayElement(Duration.ofMillis(100))))
+                .block(TIMEOUT);
+
+        assertSame(primaryResponse, response);
+        assertEquals(List.of("primary-model"), called.subList(1, 2));
+        assertEquals(1.0, outcome(ChatRequestHedger.BUDGET_EXHAUSTED));
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ChatRequestHedger(modelRegistry, router,
+                meterRegistry, true, 0, 1, Duration.ZERO, 4, 0.1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ChatRequestHedger(modelRegistry, router,
+                meterRegistry, true, 0.9, 8, Duration.ZERO, 4, 0.1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ChatRequestHedger(modelRegistry, router,
+                meterRegistry, true, 0.9, 1, Duration.ZERO, 0, 0.1, 1));
+    }
+
+    private ChatRequestHedger hedger(boolean enabled, int budgetBurst) {
+        return new ChatRequestHedger(modelRegistry, router, meterRegistry, enabled, 0.9, 1,
+                Duration.ofMillis(20), 4, 0, budgetBurst);
+    }
+
+    // one fast sample, so the next call is hedged after the minimum delay
+    private ChatRequestHedger primed(ChatRequestHedger hedger) {
+        hedger.call(primary, model -> respond(model, primaryResponse)).block(TIMEOUT);
+        return hedger;
+    }
+
+    private Mono<ModelChatResponse> respond(Model model, ModelChatResponse response) {
+        return respond(model, Mono.just(response));
+    }
+
+    private Mono<ModelChatResponse> respond(Model model, Mono<ModelChatResponse> response) {
+        called.add(model.getName());
+        return response;
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("aibroker.chat.hedge").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,59 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link LlmChatService#transformMessages}, the prompt preview
+ * audited with every chat request, for conversations of a few turns up to a
+ * long one, with messages of a short question up to a pasted document.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=LlmChatServiceBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LlmChatServiceBenchmark {
+
+    @Param({ "2", "16", "64" })
+    private int messages;
+
+    @Param({ "80", "2000", "32000" })
+    private int messageChars;
+
+    private LlmChatService service;
+    private ModelMessageRequest[] conversation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // transformMessages uses none of the collaborators
+        service = new LlmChatService(null, null, null, null, null, null, null, null, null, null, null, null, null);
+        conversation = new ModelMessageRequest[messages];
+        for (int i = 0; i < messages; i++) {
+            String role = i == 0 ? "system" : i % 2 == 1 ? "user" : "assistant";
+            conversation[i] = new ModelMessageRequest(role, "x".repeat(messageChars));
+        }
+    }
+
+    @Benchmark
+    public String transformMessages() {
+        return service.transformMessages(conversation);
+    }
+}
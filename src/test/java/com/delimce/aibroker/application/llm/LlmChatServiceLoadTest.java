@@ -0,0 +1,218 @@
+package com.delimce.aibroker.application.llm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.ports.AiApiClientInterface;
+import com.delimce.aibroker.domain.ports.AuditLogInterface;
+import com.delimce.aibroker.utils.TestHandler;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs more concurrent chat calls than the Hikari pool has connections
+ * against a slow upstream stub. With no connection held across the upstream
+ * phase, the time each connection stays borrowed (Hikari's usage timer) stays
+ * far below the upstream latency.
+ */
+class LlmChatServiceLoadTest extends TestHandler {
+
+    private static final String MODEL_NAME = "load-test-model";
+    private static final int CONCURRENT_CALLS = 24;
+    private static final long SLOW_UPSTREAM_MILLIS = 800;
+
+    @Autowired
+    private LlmChatService llmChatService;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditLogInterface auditLog;
+
+    @MockitoBean
+    private AiApiClientInterface client;
+
+    private User user;
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        deleteChatRows();
+        super.setUp();
+        user = insertUser();
+        insertModel();
+    }
+
+    @AfterEach
+    void tearDown() {
+        auditLog.flush();
+        deleteChatRows();
+        providerRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM tbl_user WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void executeAsync_shouldKeepConnectionUsageFlat_asUpstreamLatencyGrows() throws Exception {
+        // warm-up: opens the pool connections and loads the persistence paths
+        runConcurrentCalls(20);
+
+        LoadRun fast = runConcurrentCalls(200);
+        LoadRun slow = runConcurrentCalls(SLOW_UPSTREAM_MILLIS);
+
+        assertThat(CONCURRENT_CALLS).isGreaterThan(dataSource.getMaximumPoolSize());
+        assertThat(fast.upstreamCallsInTransaction()).isZero();
+        assertThat(slow.upstreamCallsInTransaction()).isZero();
+        // the remaining borrows are audit batch writes, whose duration does not depend on the upstream
+        assertThat(fast.meanConnectionUsageMillis()).isLessThan(SLOW_UPSTREAM_MILLIS / 4);
+        assertThat(slow.meanConnectionUsageMillis()).isLessThan(SLOW_UPSTREAM_MILLIS / 4);
+        auditLog.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tbl_request_metric", Integer.class))
+                .isEqualTo(CONCURRENT_CALLS * 3);
+    }
+
+    private LoadRun runConcurrentCalls(long upstreamLatencyMillis) throws Exception {
+        AtomicInteger upstreamCallsInTransaction = new AtomicInteger();
+        when(client.requestToModelAsync(any(), any())).thenAnswer(invocation -> Mono.fromCallable(() -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                upstreamCallsInTransaction.incrementAndGet();
+            }
+            Thread.sleep(upstreamLatencyMillis);
+            return completion();
+        }));
+
+        Timer usage = meterRegistry.get("hikaricp.connections.usage")
+                .tag("pool", dataSource.getPoolName())
+                .timer();
+        long countBefore = usage.count();
+        double millisBefore = usage.totalTime(TimeUnit.MILLISECONDS);
+
+        ExecutorService callers = Executors.newFixedThreadPool(CONCURRENT_CALLS);
+        try {
+            List<CompletableFuture<ModelChatResponse>> calls = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CALLS; i++) {
+                calls.add(CompletableFuture.supplyAsync(this::authenticatedCall, callers));
+            }
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            callers.shutdownNow();
+        }
+
+        double meanUsage = (usage.totalTime(TimeUnit.MILLISECONDS) - millisBefore)
+                / Math.max(1, usage.count() - countBefore);
+        return new LoadRun(upstreamCallsInTransaction.get(), meanUsage);
+    }
+
+    private ModelChatResponse authenticatedCall() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+        try {
+            return llmChatService.executeAsync(ModelRequest.builder()
+                    .model(MODEL_NAME)
+                    .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "ping") })
+                    .build()).block();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static ModelChatResponse completion() {
+        return ModelChatResponse.builder()
+                .object("chat.completion")
+                .usage(new Usage(5, 1, 6, null, 0, 0))
+                .build();
+    }
+
+    private User insertUser() {
+        String email = faker().internet().emailAddress();
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO tbl_user (name, last_name, email, password, status, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, "Load");
+            statement.setString(2, "Test");
+            statement.setString(3, email);
+            statement.setString(4, "secret");
+            statement.setString(5, UserStatus.ACTIVE.name());
+            statement.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+            return statement;
+        }, keyHolder);
+
+        return User.builder()
+                .id(keyHolder.getKey().longValue())
+                .name("Load")
+                .lastName("Test")
+                .email(email)
+                .password("secret")
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+
+    private void insertModel() {
+        Provider provider = new Provider();
+        provider.setName("Load provider");
+        provider.setDescription("Upstream stub");
+        provider.setBaseUrl("http://localhost");
+        provider.setApiKey("load-key");
+        provider.setEnabled(true);
+        providerRepository.save(provider);
+
+        Model model = new Model();
+        model.setName(MODEL_NAME);
+        model.setType(ModelType.CHAT);
+        model.setProvider(provider);
+        model.setEnabled(true);
+        modelRepository.save(model);
+    }
+
+    private void deleteChatRows() {
+        jdbcTemplate.update("DELETE FROM tbl_request_metric");
+        jdbcTemplate.update("DELETE FROM tbl_user_request");
+    }
+
+    private record LoadRun(int upstreamCallsInTransaction, double meanConnectionUsageMillis) {
+    }
+}
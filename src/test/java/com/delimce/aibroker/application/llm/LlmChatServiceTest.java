@@ -1,28 +1,62 @@
 package com.delimce.aibroker.application.llm;
 
+import com.delimce.aibroker.application.ServerTimings;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.Choice;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.VectorMatch;
 import com.delimce.aibroker.domain.entities.Model;
 import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.entities.RequestMetric;
 import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.entities.UserRequest;
 import com.delimce.aibroker.domain.enums.ModelType;
 import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.jfr.ChatRequestEvent;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.exceptions.ProviderUnavailableException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.ports.AiApiClientInterface;
-import com.delimce.aibroker.domain.repositories.ModelRepository;
+import com.delimce.aibroker.domain.ports.AuditLogInterface;
+import com.delimce.aibroker.domain.ports.EmbeddingInterface;
+import com.delimce.aibroker.domain.ports.ResponseCacheInterface;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.domain.ports.VectorIndexInterface;
 import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
 import com.delimce.aibroker.domain.repositories.UserRequestRepository;
+import com.delimce.aibroker.application.users.UserQuotaService;
+import com.delimce.aibroker.utils.FlightRecordings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,30 +64,68 @@ import static org.mockito.Mockito.when;
 class LlmChatServiceTest {
 
     @Mock
-    private ModelRepository modelRepository;
+    private ModelRegistry modelRegistry;
 
     @Mock
-    private UserRequestRepository userRequestRepository;
+    private AuditLogInterface auditLog;
 
     @Mock
-    private RequestMetricRepository requestMetricRepository;
+    private AiApiClientInterface client;
 
     @Mock
-    private AiApiClientInterface client;
+    private ResponseCacheInterface responseCache;
+
+    @Mock
+    private EmbeddingInterface embedder;
+
+    @Mock
+    private VectorIndexInterface vectorIndex;
+
+    @Mock
+    private UsageRollupInterface usageRollup;
+
+    @Mock
+    private UserRequestRepository userRequestRepository;
+
+    @Mock
+    private RequestMetricRepository requestMetricRepository;
 
     private User testUser;
+    private UserQuotaService quota;
     private TestLlmChatService llmChatService;
+    private final ProviderGuard guard = new ProviderGuard(new SimpleMeterRegistry(), true, 0.5, 4, 2,
+            Duration.ofSeconds(30), true, 50, 1, 500, 0.9, 2);
+    private final UpstreamRateLimiter rateLimiter = new UpstreamRateLimiter(new SimpleMeterRegistry(), true,
+            Duration.ZERO, 1024, 4);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     // Testable subclass that allows us to override the protected method
     class TestLlmChatService extends LlmChatService {
         private User mockUser;
 
-        public TestLlmChatService(ModelRepository modelRepository,
-                UserRequestRepository userRequestRepository,
-                RequestMetricRepository requestMetricRepository,
+        public TestLlmChatService(ModelRegistry modelRegistry,
+                AuditLogInterface auditLog,
+                AiApiClientInterface client,
+                ResponseCacheInterface responseCache,
+                SemanticResponseCache semanticCache,
+                User mockUser) {
+            this(modelRegistry, auditLog, client, responseCache, semanticCache,
+                    new ChatRequestHedger(modelRegistry, new ModelRouter(new SimpleMeterRegistry(), guard, 0.2, 10),
+                            new SimpleMeterRegistry(), false, 0.95, 20, Duration.ofMillis(100), 256, 0.05, 10),
+                    mockUser);
+        }
+
+        public TestLlmChatService(ModelRegistry modelRegistry,
+                AuditLogInterface auditLog,
                 AiApiClientInterface client,
+                ResponseCacheInterface responseCache,
+                SemanticResponseCache semanticCache,
+                ChatRequestHedger hedger,
                 User mockUser) {
-            super(modelRepository, userRequestRepository, requestMetricRepository, client);
+            super(modelRegistry, auditLog, client, responseCache,
+                    new ChatRequestCoalescer(new SimpleMeterRegistry(), true), semanticCache,
+                    new ModelRouter(new SimpleMeterRegistry(), guard, 0.2, 10), hedger,
+                    guard, rateLimiter, quota, usageRollup, new ChatMetrics(meterRegistry));
             this.mockUser = mockUser;
         }
 
@@ -74,18 +146,22 @@ class LlmChatServiceTest {
                 .status(UserStatus.ACTIVE)
                 .build();
 
+        quota = new UserQuotaService(userRequestRepository, requestMetricRepository, new SimpleMeterRegistry(),
+                true, Duration.ofDays(1), 0, 0);
+
         // Initialize the service with our test user
         llmChatService = new TestLlmChatService(
-                modelRepository,
-                userRequestRepository,
-                requestMetricRepository,
+                modelRegistry,
+                auditLog,
                 client,
+                responseCache,
+                semanticCache(false),
                 testUser);
     }
 
     @SuppressWarnings("null")
     @Test
-    void execute_shouldReturnChatResponse_whenModelExistsAndIsEnabled() {
+    void executeAsync_shouldReturnChatResponse_whenModelExistsAndIsEnabled() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -106,22 +182,21 @@ class LlmChatServiceTest {
         ModelChatResponse expectedResponse = new ModelChatResponse();
         // Populate expectedResponse as needed
 
-        when(modelRepository.findByName("TestModel")).thenReturn(model);
-        when(userRequestRepository.save(any(UserRequest.class))).thenAnswer(i -> i.getArgument(0));
-        when(client.requestToModel(model, request)).thenReturn(expectedResponse);
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(expectedResponse));
 
         // Act
-        ModelChatResponse actualResponse = llmChatService.execute(request);
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
 
         // Assert
         assertNotNull(actualResponse);
         assertEquals(expectedResponse, actualResponse);
-        // Verify userRequestRepository.save was called once
-        verify(userRequestRepository).save(any(UserRequest.class));
+        // Verify the request was queued to the audit log once
+        verify(auditLog).recordRequest(any(UserRequest.class));
     }
 
     @Test
-    void execute_shouldThrowIllegalArgumentException_whenModelNotFound() {
+    void executeAsync_shouldThrowIllegalArgumentException_whenModelNotFound() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -129,17 +204,17 @@ class LlmChatServiceTest {
 
         ModelRequest request = new ModelRequest("NonExistentModel", false, messages, 1);
 
-        when(modelRepository.findByName("NonExistentModel")).thenReturn(null);
+        when(modelRegistry.find("NonExistentModel")).thenReturn(null);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            llmChatService.execute(request);
+            llmChatService.executeAsync(request).block();
         });
         assertEquals("Model not found", exception.getMessage());
     }
 
     @Test
-    void execute_shouldThrowIllegalArgumentException_whenModelNotEnabled() {
+    void executeAsync_shouldThrowIllegalArgumentException_whenModelNotEnabled() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -151,18 +226,18 @@ class LlmChatServiceTest {
         model.setName("DisabledModel");
         model.setEnabled(false);
 
-        when(modelRepository.findByName("DisabledModel")).thenReturn(model);
+        when(modelRegistry.find("DisabledModel")).thenReturn(model);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            llmChatService.execute(request);
+            llmChatService.executeAsync(request).block();
         });
         assertEquals("Model is not enabled", exception.getMessage());
     }
 
     @SuppressWarnings("null")
     @Test
-    void execute_shouldThrowIllegalArgumentException_whenChatResponseIsNull() {
+    void executeAsync_shouldThrowIllegalArgumentException_whenChatResponseIsNull() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -180,22 +255,21 @@ class LlmChatServiceTest {
         model.setEnabled(true);
         model.setCreatedAt(LocalDateTime.now());
 
-        when(modelRepository.findByName("TestModel")).thenReturn(model);
-        when(userRequestRepository.save(any(UserRequest.class))).thenAnswer(i -> i.getArgument(0));
-        when(client.requestToModel(model, request)).thenReturn(null);
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.empty());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            llmChatService.execute(request);
+            llmChatService.executeAsync(request).block();
         });
         assertEquals("Chat response is null", exception.getMessage());
-        // Verify userRequestRepository.save was called once
-        verify(userRequestRepository).save(any(UserRequest.class));
+        // Verify the request was queued to the audit log once
+        verify(auditLog).recordRequest(any(UserRequest.class));
     }
 
     @SuppressWarnings("null")
     @Test
-    void execute_shouldRollbackTransaction_whenExceptionOccurs() {
+    void executeAsync_shouldRollbackTransaction_whenExceptionOccurs() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -213,20 +287,20 @@ class LlmChatServiceTest {
         model.setEnabled(true);
         model.setCreatedAt(LocalDateTime.now());
 
-        when(modelRepository.findByName("TestModel")).thenReturn(model);
+        when(modelRegistry.find("TestModel")).thenReturn(model);
         // Simulate database error when saving
-        when(userRequestRepository.save(any(UserRequest.class))).thenThrow(new RuntimeException("Database error"));
+        doThrow(new RuntimeException("Database error")).when(auditLog).recordRequest(any(UserRequest.class));
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            llmChatService.execute(request);
+            llmChatService.executeAsync(request).block();
         });
         assertEquals("Database error", exception.getMessage());
     }
 
     @SuppressWarnings("null")
     @Test
-    void execute_shouldSaveUsageMetrics_whenResponseHasUsageData() {
+    void executeAsync_shouldSaveUsageMetrics_whenResponseHasUsageData() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -249,25 +323,36 @@ class LlmChatServiceTest {
                 100, 50, 150, null, 20, 80);
         ModelChatResponse expectedResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
 
-        when(modelRepository.findByName("TestModel")).thenReturn(model);
-        when(userRequestRepository.save(any(UserRequest.class))).thenAnswer(i -> i.getArgument(0));
-        when(client.requestToModel(model, request)).thenReturn(expectedResponse);
-        // Use mockito answer to capture the RequestMetric being saved
-        when(requestMetricRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(expectedResponse));
 
         // Act
-        ModelChatResponse actualResponse = llmChatService.execute(request);
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
 
         // Assert
         assertNotNull(actualResponse);
         assertEquals(expectedResponse, actualResponse);
-        verify(userRequestRepository).save(any(UserRequest.class));
-        verify(requestMetricRepository).save(any(com.delimce.aibroker.domain.entities.RequestMetric.class));
+        verify(auditLog).recordRequest(any(UserRequest.class));
+        verify(auditLog).recordMetric(any(com.delimce.aibroker.domain.entities.RequestMetric.class));
+        for (String stage : List.of(ChatMetrics.RESOLVE, ChatMetrics.REGISTER, ChatMetrics.UPSTREAM,
+                ChatMetrics.STATS)) {
+            assertEquals(1, meterRegistry.get(ChatMetrics.STAGE_TIMER).tag("stage", stage)
+                    .tag("model", "TestModel").tag("provider", "TestProvider")
+                    .tag("outcome", ChatMetrics.SUCCESS).timer().count(), stage);
+        }
+        assertEquals(1, meterRegistry.get(ChatMetrics.CALL_TIMER).tag("model", "TestModel").timer().count());
+        assertEquals(100, meterRegistry.get(ChatMetrics.TOKEN_COUNTER).tag("type", "prompt")
+                .tag("source", "upstream").counter().count());
+        ArgumentCaptor<RequestMetric> metric = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog).recordMetric(metric.capture());
+        assertNotNull(metric.getValue().getTimeToFirstTokenMs());
+        assertNull(metric.getValue().getInterTokenLatencyMs());
+        assertNotNull(metric.getValue().getOutputTokensPerSecond());
     }
 
     @SuppressWarnings("null")
     @Test
-    void execute_shouldNotSaveMetrics_whenResponseHasNoUsageData() {
+    void executeAsync_shouldNotSaveMetrics_whenResponseHasNoUsageData() {
         // Arrange
         ModelMessageRequest[] messages = new ModelMessageRequest[] {
                 new ModelMessageRequest("user", "Hello, how are you?")
@@ -288,18 +373,817 @@ class LlmChatServiceTest {
         // Create a response with no usage data
         ModelChatResponse expectedResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
 
-        when(modelRepository.findByName("TestModel")).thenReturn(model);
-        when(userRequestRepository.save(any(UserRequest.class))).thenAnswer(i -> i.getArgument(0));
-        when(client.requestToModel(model, request)).thenReturn(expectedResponse);
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(expectedResponse));
 
         // Act
-        ModelChatResponse actualResponse = llmChatService.execute(request);
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
 
         // Assert
         assertNotNull(actualResponse);
         assertEquals(expectedResponse, actualResponse);
-        verify(userRequestRepository).save(any(UserRequest.class));
-        // Verify that requestMetricRepository.save is never called
-        verify(requestMetricRepository, org.mockito.Mockito.never()).save(any());
+        verify(auditLog).recordRequest(any(UserRequest.class));
+        // Verify that no metric is queued
+        verify(auditLog, org.mockito.Mockito.never()).recordMetric(any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldEmitResponseAndSaveMetrics_whenUpstreamResponds() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 20, 80);
+        ModelChatResponse expectedResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(expectedResponse));
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
+
+        // Assert
+        assertEquals(expectedResponse, actualResponse);
+        verify(auditLog).recordRequest(any(UserRequest.class));
+        verify(auditLog).recordMetric(any(com.delimce.aibroker.domain.entities.RequestMetric.class));
+        assertEquals(1, quota.usage().get(0).requests());
+        assertEquals(150, quota.usage().get(0).tokens());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldRecordEveryStageInTheServerTimings_whenTheRequestIsTimed() {
+        ModelRequest request = new ModelRequest("TestModel", false,
+                new ModelMessageRequest[] { new ModelMessageRequest("user", "Hello") }, 1);
+        Model model = enabledModel("TestModel");
+        ModelChatResponse expectedResponse = new ModelChatResponse(null, null, 0, null, null,
+                new com.delimce.aibroker.domain.dto.responses.llm.Usage(10, 5, 15, null, 0, 10), null);
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(expectedResponse));
+        ServerTimings timings = timeRequest();
+
+        try {
+            llmChatService.executeAsync(request).block();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        assertEquals(List.of("resolve", "audit", "connect", "ttft", "total"),
+                List.copyOf(timings.millis().keySet()));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldRecordTheAnsweredRequestAsAFlightRecorderEvent() throws Throwable {
+        ModelRequest request = new ModelRequest("TestModel", false,
+                new ModelMessageRequest[] { new ModelMessageRequest("user", "Hello") }, 1);
+        Model model = enabledModel("TestModel");
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(new ModelChatResponse(null, null, 0,
+                null, null, new com.delimce.aibroker.domain.dto.responses.llm.Usage(10, 5, 15, null, 0, 10), null)));
+
+        List<RecordedEvent> events = FlightRecordings.record(ChatRequestEvent.NAME,
+                () -> llmChatService.executeAsync(request).block());
+
+        assertEquals(1, events.size());
+        assertEquals("TestModel", events.get(0).getString("model"));
+        assertEquals("TestProvider", events.get(0).getString("provider"));
+        assertEquals(15, events.get(0).getInt("totalTokens"));
+        assertFalse(events.get(0).getBoolean("responseCacheHit"));
+        assertTrue(events.get(0).getDuration("timeToFirstToken").toNanos() > 0);
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldLeaveTheUpstreamOutOfTheServerTimings_whenServedFromTheCache() {
+        ModelRequest request = new ModelRequest("TestModel", false,
+                new ModelMessageRequest[] { new ModelMessageRequest("user", "Hello") }, 0);
+        Model model = enabledModel("TestModel");
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(responseCache.fingerprint(model, request)).thenReturn("key");
+        when(responseCache.find("key")).thenReturn(new ModelChatResponse());
+        ServerTimings timings = timeRequest();
+
+        try {
+            llmChatService.executeAsync(request).block();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        assertEquals(List.of("resolve", "audit", "total"), List.copyOf(timings.millis().keySet()));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldRecordTheUpstreamInTheServerTimings_whenTheRequestIsTimed() {
+        ModelRequest request = new ModelRequest("TestModel", false,
+                new ModelMessageRequest[] { new ModelMessageRequest("user", "Hello") }, 1);
+        Model model = enabledModel("TestModel");
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(new ModelChatResponse()));
+        ServerTimings timings = timeRequest();
+
+        try {
+            llmChatService.executeAsync(request).block();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        assertTrue(timings.millis().containsKey("connect"));
+        assertTrue(timings.millis().containsKey("ttft"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeStream_shouldRecordTheUpstreamInTheServerTimings_beforeTheFirstChunkIsRelayed() {
+        ModelRequest request = new ModelRequest("TestModel", true,
+                new ModelMessageRequest[] { new ModelMessageRequest("user", "Hello") }, 1);
+        Model model = enabledModel("TestModel");
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.streamToModel(model, request)).thenReturn(
+                Flux.just(new ModelChatResponse(), new ModelChatResponse()));
+        ServerTimings timings = timeRequest();
+
+        List<Set<String>> recorded;
+        try {
+            recorded = llmChatService.executeStream(request)
+                    .map(chunk -> Set.copyOf(timings.millis().keySet()))
+                    .collectList().block();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        assertTrue(recorded.get(0).contains("connect"));
+        assertTrue(recorded.get(0).contains("ttft"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldRefuseWithoutAuditing_onceTheRequestQuotaOfTheUserIsSpent() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+        testUser.setRequestQuota(1);
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(upstreamResponse));
+
+        llmChatService.executeAsync(request).block();
+
+        // Act
+        Object failure = llmChatService.executeAsync(request).map(Object.class::cast)
+                .onErrorResume(e -> Mono.<Object>just(e)).block();
+
+        // Assert
+        TooManyRequestsException exception = assertInstanceOf(TooManyRequestsException.class, failure);
+        assertEquals("Request quota of 1 exhausted", exception.getMessage());
+        verify(auditLog, times(1)).recordRequest(any(UserRequest.class));
+        verify(client, times(1)).requestToModelAsync(model, request);
+    }
+
+    @Test
+    void executeStream_shouldRefuse_whenTheRequestQuotaOfTheUserIsSpent() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        Model model = enabledModel("TestModel");
+        testUser.setRequestQuota(1);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.streamToModel(any(), any())).thenReturn(Flux.empty());
+
+        llmChatService.executeStream(new ModelRequest("TestModel", true, messages, 1)).onErrorResume(e -> Flux.empty())
+                .blockLast();
+
+        // Act & Assert
+        Object streamed = llmChatService.executeStream(new ModelRequest("TestModel", true, messages, 1))
+                .map(Object.class::cast).onErrorResume(e -> Flux.<Object>just(e)).blockLast();
+        assertInstanceOf(TooManyRequestsException.class, streamed);
+        verify(auditLog, times(1)).recordRequest(any(UserRequest.class));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldSignalIllegalArgumentException_whenUpstreamReturnsNothing() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.empty());
+
+        // Act & Assert
+        Mono<ModelChatResponse> response = llmChatService.executeAsync(request);
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, response::block);
+        assertEquals("Chat response is null", exception.getMessage());
+        verify(auditLog).recordRequest(any(UserRequest.class));
+        verify(auditLog, never()).recordMetric(any());
+    }
+
+    @Test
+    void executeAsync_shouldThrowBeforeSubscribing_whenModelNotFound() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("NonExistentModel", false, messages, 1);
+
+        when(modelRegistry.find("NonExistentModel")).thenReturn(null);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            llmChatService.executeAsync(request);
+        });
+        assertEquals("Model not found", exception.getMessage());
+        verify(client, never()).requestToModelAsync(any(), any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeStream_shouldRelayChunksAndSaveMetricsFromUsageChunk() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", true, messages, 1);
+
+        Model model = enabledModel("TestModel");
+        model.setCostTokenIn(0.27f);
+        model.setCostTokenOut(1.10f);
+        model.setCostTokenUnit("1M");
+
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 20, 80);
+        ModelChatResponse firstChunk = new ModelChatResponse(null, "chat.completion.chunk", 0, null, null, null, null);
+        ModelChatResponse lastChunk = new ModelChatResponse(null, "chat.completion.chunk", 0, null, null, usage, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.streamToModel(model, request))
+                .thenReturn(Flux.just(firstChunk, lastChunk).delayElements(Duration.ofMillis(50)));
+
+        // Act
+        List<ModelChatResponse> chunks = llmChatService.executeStream(request).collectList().block();
+
+        // Assert
+        assertEquals(List.of(firstChunk, lastChunk), chunks);
+        ArgumentCaptor<RequestMetric> metricCaptor = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog).recordMetric(metricCaptor.capture());
+        assertEquals(150, metricCaptor.getValue().getTotalTokens());
+        assertEquals(new BigDecimal("0.00008200"), metricCaptor.getValue().getCost());
+        verify(usageRollup).record(any(UserRequest.class), eq(metricCaptor.getValue()));
+        // first chunk after 50ms, the other 49 completion tokens over the next 50ms
+        assertTrue(metricCaptor.getValue().getTimeToFirstTokenMs() >= 50);
+        assertTrue(metricCaptor.getValue().getInterTokenLatencyMs() >= 50.0 / 49);
+        assertTrue(metricCaptor.getValue().getOutputTokensPerSecond() <= 50 / 0.1);
+        assertEquals(1, meterRegistry.get(ChatMetrics.TTFT_TIMER).tag("model", "TestModel").timer().count());
+        assertEquals(1, meterRegistry.get(ChatMetrics.INTER_TOKEN_TIMER).tag("model", "TestModel").timer().count());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeStream_shouldNotSaveMetrics_whenNoChunkReportsUsage() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", true, messages, 1);
+
+        Model model = enabledModel("TestModel");
+        ModelChatResponse chunk = new ModelChatResponse(null, "chat.completion.chunk", 0, null, null, null, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.streamToModel(model, request)).thenReturn(Flux.just(chunk));
+
+        // Act
+        List<ModelChatResponse> chunks = llmChatService.executeStream(request).collectList().block();
+
+        // Assert
+        assertEquals(List.of(chunk), chunks);
+        verify(auditLog, never()).recordMetric(any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeStream_shouldSignalIllegalArgumentException_whenUpstreamSendsNothing() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", true, messages, 1);
+
+        Model model = enabledModel("TestModel");
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.streamToModel(model, request)).thenReturn(Flux.empty());
+
+        // Act & Assert
+        Flux<ModelChatResponse> chunks = llmChatService.executeStream(request);
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, chunks::blockLast);
+        assertEquals("Chat response is null", exception.getMessage());
+        verify(auditLog, never()).recordMetric(any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldServeCachedResponseAndRecordHit_withoutCallingUpstream() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 0);
+
+        Model model = enabledModel("TestModel");
+
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 20, 80);
+        ModelChatResponse cachedResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(responseCache.fingerprint(model, request)).thenReturn("key");
+        when(responseCache.find("key")).thenReturn(cachedResponse);
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
+
+        // Assert
+        assertSame(cachedResponse, actualResponse);
+        verify(client, never()).requestToModelAsync(any(), any());
+        ArgumentCaptor<RequestMetric> metric = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog).recordMetric(metric.capture());
+        assertTrue(metric.getValue().isResponseCacheHit());
+        assertEquals(150, metric.getValue().getTotalTokens());
+        assertEquals(BigDecimal.ZERO, metric.getValue().getCost());
+        verify(usageRollup).record(any(UserRequest.class), eq(metric.getValue()));
+        assertEquals(1, meterRegistry.get(ChatMetrics.STAGE_TIMER).tag("stage", ChatMetrics.CACHE)
+                .tag("outcome", ChatMetrics.HIT).timer().count());
+        assertNull(meterRegistry.find(ChatMetrics.STAGE_TIMER).tag("stage", ChatMetrics.UPSTREAM).timer());
+        assertNull(metric.getValue().getTimeToFirstTokenMs());
+        assertNull(meterRegistry.find(ChatMetrics.TTFT_TIMER).timer());
+        assertEquals(100, meterRegistry.get(ChatMetrics.TOKEN_COUNTER).tag("type", "prompt")
+                .tag("source", "cache").counter().count());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldStoreUpstreamResponse_whenCacheableRequestMisses() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 0);
+
+        Model model = enabledModel("TestModel");
+
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 20, 80);
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(responseCache.fingerprint(model, request)).thenReturn("key");
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(upstreamResponse));
+
+        // Act
+        llmChatService.executeAsync(request).block();
+
+        // Assert
+        verify(responseCache).store("key", upstreamResponse);
+        ArgumentCaptor<RequestMetric> metric = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog).recordMetric(metric.capture());
+        assertFalse(metric.getValue().isResponseCacheHit());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldSkipCache_whenRequestIsNotCacheable() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(upstreamResponse));
+
+        // Act
+        llmChatService.executeAsync(request).block();
+
+        // Assert
+        verify(responseCache, never()).find(any());
+        verify(responseCache, never()).store(any(), any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldServeCachedResponse_withoutCallingUpstream() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 0);
+
+        Model model = enabledModel("TestModel");
+        ModelChatResponse cachedResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(responseCache.fingerprint(model, request)).thenReturn("key");
+        when(responseCache.find("key")).thenReturn(cachedResponse);
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
+
+        // Assert
+        assertSame(cachedResponse, actualResponse);
+        verify(client, never()).requestToModelAsync(any(), any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldShareOneUpstreamCall_betweenIdenticalConcurrentRequests() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 0);
+
+        Model model = enabledModel("TestModel");
+
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 20, 80);
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
+        Sinks.One<ModelChatResponse> upstream = Sinks.one();
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(upstream.asMono());
+
+        // Act
+        Mono<ModelChatResponse> first = llmChatService.executeAsync(request).cache();
+        Mono<ModelChatResponse> second = llmChatService.executeAsync(request).cache();
+        first.subscribe();
+        second.subscribe();
+        upstream.tryEmitValue(upstreamResponse);
+
+        // Assert
+        assertSame(upstreamResponse, first.block());
+        assertSame(upstreamResponse, second.block());
+        verify(client, times(1)).requestToModelAsync(model, request);
+        verify(auditLog, times(2)).recordRequest(any(UserRequest.class));
+        ArgumentCaptor<RequestMetric> metrics = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog, times(2)).recordMetric(metrics.capture());
+        assertEquals(1, metrics.getAllValues().stream().filter(RequestMetric::isResponseCacheHit).count());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeStream_shouldShareOneProviderStream_betweenIdenticalConcurrentRequests() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", true, messages, 0);
+
+        Model model = enabledModel("TestModel");
+        ModelChatResponse chunk = new ModelChatResponse(null, "chat.completion.chunk", 0, null, null, null, null);
+        Sinks.Many<ModelChatResponse> upstream = Sinks.many().replay().all();
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.streamToModel(model, request)).thenReturn(upstream.asFlux());
+
+        // Act
+        Flux<ModelChatResponse> first = llmChatService.executeStream(request).cache();
+        Flux<ModelChatResponse> second = llmChatService.executeStream(request).cache();
+        first.subscribe();
+        second.subscribe();
+        upstream.tryEmitNext(chunk);
+        upstream.tryEmitComplete();
+
+        // Assert
+        assertEquals(List.of(chunk), first.collectList().block());
+        assertEquals(List.of(chunk), second.collectList().block());
+        verify(client, times(1)).streamToModel(model, request);
+        verify(auditLog, times(2)).recordRequest(any(UserRequest.class));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldRouteAliasToAnEnabledModel_andNameItUpstream() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("chat-default", false, messages, 1);
+
+        Model routed = enabledModel("ModelA");
+        Model disabled = enabledModel("ModelB");
+        disabled.setEnabled(false);
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
+
+        when(modelRegistry.findAlias("chat-default")).thenReturn(List.of(disabled, routed));
+        when(client.requestToModelAsync(eq(routed), any())).thenReturn(Mono.just(upstreamResponse));
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
+
+        // Assert
+        assertSame(upstreamResponse, actualResponse);
+        ArgumentCaptor<ModelRequest> sent = ArgumentCaptor.forClass(ModelRequest.class);
+        verify(client).requestToModelAsync(eq(routed), sent.capture());
+        assertEquals("ModelA", sent.getValue().getModel());
+        assertSame(messages, sent.getValue().getMessages());
+        ArgumentCaptor<UserRequest> audited = ArgumentCaptor.forClass(UserRequest.class);
+        verify(auditLog).recordRequest(audited.capture());
+        assertSame(routed, audited.getValue().getModel());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldBookTheRequestToTheAlternate_whenTheHedgeWinsOnIt() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("Primary", false, messages, 1);
+
+        Model primary = pricedModel("Primary", 1L, 10f, 20f);
+        Model alternate = pricedModel("Alternate", 2L, 1f, 2f);
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 0, 100);
+        ModelChatResponse hedgeResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
+
+        ChatRequestHedger hedger = new ChatRequestHedger(modelRegistry,
+                new ModelRouter(new SimpleMeterRegistry(), guard, 0.2, 10), new SimpleMeterRegistry(), true,
+                1.0, 1, Duration.ofMillis(20), 1, 0.05, 10);
+        // one fast sample, so the next call to the primary is hedged after 20 ms
+        hedger.call(primary, model -> Mono.just(hedgeResponse)).block();
+        llmChatService = new TestLlmChatService(modelRegistry, auditLog, client, responseCache,
+                semanticCache(false), hedger, testUser);
+
+        when(modelRegistry.findAlias("Primary")).thenReturn(List.of());
+        when(modelRegistry.find("Primary")).thenReturn(primary);
+        when(modelRegistry.findAlias("chat")).thenReturn(List.of(primary, alternate));
+        when(client.requestToModelAsync(eq(primary), any())).thenReturn(Mono.never());
+        when(client.requestToModelAsync(eq(alternate), any())).thenReturn(Mono.just(hedgeResponse));
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertSame(hedgeResponse, actualResponse);
+        ArgumentCaptor<UserRequest> moved = ArgumentCaptor.forClass(UserRequest.class);
+        verify(auditLog).recordModel(moved.capture());
+        assertSame(alternate, moved.getValue().getModel());
+        ArgumentCaptor<RequestMetric> metric = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog).recordMetric(metric.capture());
+        assertEquals(alternate.costOf(100, 50), metric.getValue().getCost());
+        assertNotEquals(primary.costOf(100, 50), metric.getValue().getCost());
+        verify(usageRollup).record(moved.getValue(), metric.getValue());
+        assertEquals(100, meterRegistry.get(ChatMetrics.TOKEN_COUNTER).tag("model", "Alternate")
+                .tag("type", "prompt").counter().count());
+        assertTrue(meterRegistry.find(ChatMetrics.TOKEN_COUNTER).tag("model", "Primary").counters().isEmpty());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldFailFast_onceTheCircuitOfTheProviderIsOpen() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request))
+                .thenReturn(Mono.error(new ProviderFailureException("Provider responded with status 503", 503, null)));
+
+        assertThrows(ProviderFailureException.class, () -> llmChatService.executeAsync(request).block());
+        assertThrows(ProviderFailureException.class, () -> llmChatService.executeAsync(request).block());
+
+        // Act
+        Object failure = llmChatService.executeAsync(request).map(Object.class::cast)
+                .onErrorResume(e -> Mono.<Object>just(e)).block();
+
+        // Assert
+        ProviderUnavailableException exception = assertInstanceOf(ProviderUnavailableException.class, failure);
+        assertEquals("Provider TestProvider is unavailable", exception.getMessage());
+        verify(client, times(2)).requestToModelAsync(model, request);
+    }
+
+    @Test
+    void executeAsync_shouldRefuseWithoutCallingTheProvider_onceTheRpmQuotaIsSpent() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+        model.setRpmLimit(1);
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
+
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(upstreamResponse));
+
+        llmChatService.executeAsync(request).block();
+
+        // Act
+        Object failure = llmChatService.executeAsync(request).map(Object.class::cast)
+                .onErrorResume(e -> Mono.<Object>just(e)).block();
+
+        // Assert
+        TooManyRequestsException exception = assertInstanceOf(TooManyRequestsException.class, failure);
+        assertEquals("Upstream quota of model TestModel requests per minute exhausted", exception.getMessage());
+        verify(client, times(1)).requestToModelAsync(model, request);
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldRouteAliasAroundAProviderWithAnOpenCircuit() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("chat-default", false, messages, 1);
+
+        Model failing = enabledModel("ModelA");
+        failing.setProvider(Provider.builder().name("FailingProvider").build());
+        Model healthy = enabledModel("ModelB");
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null, null, null, null);
+
+        guard.guard(failing, Mono.error(new ProviderFailureException("down", 503, null))).onErrorComplete().block();
+        guard.guard(failing, Mono.error(new ProviderFailureException("down", 503, null))).onErrorComplete().block();
+        when(modelRegistry.findAlias("chat-default")).thenReturn(List.of(failing, healthy));
+        when(client.requestToModelAsync(eq(healthy), any())).thenReturn(Mono.just(upstreamResponse));
+
+        // Act & Assert
+        for (int i = 0; i < 10; i++) {
+            assertSame(upstreamResponse, llmChatService.executeAsync(request).block());
+        }
+        verify(client, never()).requestToModelAsync(eq(failing), any());
+    }
+
+    @Test
+    void executeAsync_shouldThrowIllegalArgumentException_whenNoModelOfTheAliasIsEnabled() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("chat-default", false, messages, 1);
+
+        Model disabled = enabledModel("ModelB");
+        disabled.setEnabled(false);
+
+        when(modelRegistry.findAlias("chat-default")).thenReturn(List.of(disabled));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> llmChatService.executeAsync(request).block());
+        assertEquals("Model is not enabled", exception.getMessage());
+        verify(modelRegistry, never()).find(any());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldServeSimilarResponseAndRecordHit_withoutCallingUpstream() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+
+        com.delimce.aibroker.domain.dto.responses.llm.Usage usage = new com.delimce.aibroker.domain.dto.responses.llm.Usage(
+                100, 50, 150, null, 20, 80);
+        ModelChatResponse similarResponse = new ModelChatResponse(null, null, 0, null, null, usage, null);
+        float[] vector = { 0.1f, 0.2f };
+
+        useSemanticCache();
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(embedder.embed(any(), eq("Hello, how are you?"))).thenReturn(Mono.just(vector));
+        when(vectorIndex.search(anyString(), eq(vector), anyDouble()))
+                .thenReturn(new VectorMatch(similarResponse, 0.97));
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
+
+        // Assert
+        assertSame(similarResponse, actualResponse);
+        verify(client, never()).requestToModelAsync(any(), any());
+        ArgumentCaptor<RequestMetric> metric = ArgumentCaptor.forClass(RequestMetric.class);
+        verify(auditLog).recordMetric(metric.capture());
+        assertTrue(metric.getValue().isResponseCacheHit());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void executeAsync_shouldIndexUpstreamResponse_whenSemanticLookupMisses() {
+        // Arrange
+        ModelMessageRequest[] messages = new ModelMessageRequest[] {
+                new ModelMessageRequest("user", "Hello, how are you?")
+        };
+
+        ModelRequest request = new ModelRequest("TestModel", false, messages, 1);
+
+        Model model = enabledModel("TestModel");
+        ModelChatResponse upstreamResponse = new ModelChatResponse(null, null, 0, null,
+                new Choice[] { new Choice() }, null, null);
+        float[] vector = { 0.1f, 0.2f };
+
+        useSemanticCache();
+        when(modelRegistry.find("TestModel")).thenReturn(model);
+        when(embedder.embed(any(), eq("Hello, how are you?"))).thenReturn(Mono.just(vector));
+        when(client.requestToModelAsync(model, request)).thenReturn(Mono.just(upstreamResponse));
+
+        // Act
+        ModelChatResponse actualResponse = llmChatService.executeAsync(request).block();
+
+        // Assert
+        assertSame(upstreamResponse, actualResponse);
+        verify(vectorIndex).add(anyString(), eq(vector), eq(upstreamResponse));
+    }
+
+    private SemanticResponseCache semanticCache(boolean enabled) {
+        return new SemanticResponseCache(modelRegistry, embedder, vectorIndex, new SimpleMeterRegistry(),
+                enabled, "text-embedding", Set.of(), 0.9);
+    }
+
+    private void useSemanticCache() {
+        Model embeddingModel = enabledModel("text-embedding");
+        embeddingModel.setType(ModelType.EMBEDDING);
+        when(modelRegistry.find("text-embedding")).thenReturn(embeddingModel);
+        llmChatService = new TestLlmChatService(modelRegistry, auditLog, client, responseCache,
+                semanticCache(true), testUser);
+    }
+
+    private static ServerTimings timeRequest() {
+        ServerTimings timings = ServerTimings.start(false);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/llm/chat");
+        servletRequest.setAttribute(ServerTimings.ATTRIBUTE, timings);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+        return timings;
+    }
+
+    private static Model pricedModel(String name, Long id, float costTokenIn, float costTokenOut) {
+        Model model = enabledModel(name);
+        model.setId(id);
+        model.setAlias("chat");
+        model.setCostTokenIn(costTokenIn);
+        model.setCostTokenOut(costTokenOut);
+        model.setCostTokenUnit("1M");
+        return model;
+    }
+
+    private static Model enabledModel(String name) {
+        Provider provider = new Provider();
+        provider.setName("TestProvider");
+
+        Model model = new Model();
+        model.setName(name);
+        model.setProvider(provider);
+        model.setType(ModelType.CHAT);
+        model.setEnabled(true);
+        model.setCreatedAt(LocalDateTime.now());
+        return model;
     }
 }
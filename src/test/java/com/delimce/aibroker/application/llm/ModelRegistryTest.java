@@ -0,0 +1,171 @@
+package com.delimce.aibroker.application.llm;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.repositories.ModelRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ModelRegistryTest {
+
+    @Mock
+    private ModelRepository modelRepository;
+
+    private ModelRegistry modelRegistry;
+
+    @BeforeEach
+    void setUp() {
+        modelRegistry = new ModelRegistry(modelRepository, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void find_shouldServeModelsFromSnapshot_withoutQueryingPerLookup() {
+        Model chat = model("chat", true);
+        Model disabled = model("old", false);
+        when(modelRepository.findAll()).thenReturn(List.of(chat, disabled));
+
+        assertSame(chat, modelRegistry.find("chat"));
+        assertSame(chat, modelRegistry.find("chat"));
+        assertSame(disabled, modelRegistry.find("old"));
+
+        verify(modelRepository, times(1)).findAll();
+        verify(modelRepository, never()).findByName("chat");
+    }
+
+    @Test
+    void findAlias_shouldGroupModelsSharingAnAlias() {
+        Model primary = model("deepseek-chat", true);
+        primary.setAlias("chat");
+        Model fallback = model("deepseek-chat-backup", false);
+        fallback.setAlias("chat");
+        Model plain = model("embedder", true);
+        when(modelRepository.findAll()).thenReturn(List.of(primary, fallback, plain));
+
+        assertEquals(List.of(primary, fallback), modelRegistry.findAlias("chat"));
+        assertTrue(modelRegistry.findAlias("embedder").isEmpty());
+        assertTrue(modelRegistry.findAlias(null).isEmpty());
+        assertSame(primary, modelRegistry.find("deepseek-chat"));
+
+        verify(modelRepository, times(1)).findAll();
+    }
+
+    @Test
+    void find_shouldRememberUnknownNames() {
+        when(modelRepository.findAll()).thenReturn(List.of());
+
+        assertNull(modelRegistry.find("missing"));
+        assertNull(modelRegistry.find("missing"));
+        assertNull(modelRegistry.find(null));
+
+        verify(modelRepository, times(1)).findByName("missing");
+    }
+
+    @Test
+    void find_shouldLookUpUnknownNameAgain_afterTtlExpires() {
+        modelRegistry = new ModelRegistry(modelRepository, Duration.ZERO);
+        when(modelRepository.findAll()).thenReturn(List.of());
+
+        modelRegistry.find("missing");
+        modelRegistry.find("missing");
+
+        verify(modelRepository, times(2)).findByName("missing");
+    }
+
+    @Test
+    void find_shouldReload_whenMissingNameExistsInDatabase() {
+        Model created = model("new", true);
+        when(modelRepository.findAll()).thenReturn(List.of(), List.of(created));
+        when(modelRepository.findByName("new")).thenReturn(created);
+
+        assertSame(created, modelRegistry.find("new"));
+        assertSame(created, modelRegistry.find("new"));
+
+        verify(modelRepository, times(2)).findAll();
+        verify(modelRepository, times(1)).findByName("new");
+    }
+
+    @Test
+    void find_shouldBoundUnknownNames() {
+        when(modelRepository.findAll()).thenReturn(List.of());
+
+        for (int i = 0; i <= ModelRegistry.MAX_UNKNOWN_NAMES; i++) {
+            modelRegistry.find("missing-" + i);
+        }
+        modelRegistry.find("missing-0");
+
+        verify(modelRepository, times(2)).findByName("missing-0");
+    }
+
+    @Test
+    void refresh_shouldSwapSnapshotAndForgetUnknownNames() {
+        Model created = model("chat", true);
+        when(modelRepository.findAll()).thenReturn(List.of(), List.of(created));
+
+        assertNull(modelRegistry.find("chat"));
+        modelRegistry.refresh();
+
+        assertSame(created, modelRegistry.find("chat"));
+    }
+
+    @Test
+    void invalidateAfterCommit_shouldReloadOnNextLookup_whenNoTransactionIsActive() {
+        Model before = model("chat", true);
+        Model after = model("chat", false);
+        when(modelRepository.findAll()).thenReturn(List.of(before), List.of(after));
+
+        assertSame(before, modelRegistry.find("chat"));
+        modelRegistry.invalidateAfterCommit();
+
+        assertSame(after, modelRegistry.find("chat"));
+    }
+
+    @Test
+    void invalidateAfterCommit_shouldWaitForTransactionToComplete() {
+        Model before = model("chat", true);
+        Model after = model("chat", false);
+        when(modelRepository.findAll()).thenReturn(List.of(before), List.of(after));
+        modelRegistry.find("chat");
+
+        TransactionSynchronizationManager.initSynchronization();
+        modelRegistry.invalidateAfterCommit();
+
+        assertSame(before, modelRegistry.find("chat"));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertSame(after, modelRegistry.find("chat"));
+    }
+
+    private static Model model(String name, boolean enabled) {
+        Provider provider = new Provider();
+        provider.setName("provider");
+        Model model = new Model();
+        model.setName(name);
+        model.setEnabled(enabled);
+        model.setProvider(provider);
+        return model;
+    }
+}
@@ -0,0 +1,150 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelRouterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProviderGuard guard = new ProviderGuard(new SimpleMeterRegistry(), true, 0.5, 4, 2, Duration.ofSeconds(30), true, 50, 1, 500, 0.9, 2);
+    private final ModelRouter router = new ModelRouter(meterRegistry, guard, 0.5, 10);
+    private final Model fast = model("fast-model", true);
+    private final Model slow = model("slow-model", true);
+
+    @Test
+    void route_shouldOnlyPickEnabledModels() {
+        Model disabled = model("disabled-model", false);
+
+        assertNull(router.route("chat", List.of(disabled)));
+        assertNull(router.route("chat", List.of()));
+        for (int i = 0; i < 20; i++) {
+            assertSame(fast, router.route("chat", List.of(disabled, fast, disabled)));
+        }
+        assertEquals(20.0, meterRegistry.get("aibroker.routing.decisions")
+                .tag("alias", "chat").tag("model", "fast-model").counter().count());
+    }
+
+    @Test
+    void route_shouldPreferTheModelWithTheLowerLatency() {
+        // a call that completes on the calling thread, so doFinally has recorded it once block() returns
+        router.track(slow, Mono.fromCallable(() -> {
+            Thread.sleep(200);
+            return "slow";
+        })).block();
+        router.track(fast, Mono.just("fast")).block();
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(fast, router.route("chat", List.of(slow, fast)));
+        }
+        assertTrue(meterRegistry.get("aibroker.routing.latency").tag("model", "slow-model").gauge().value() >= 100);
+    }
+
+    @Test
+    void route_shouldAvoidTheModelWithMoreCallsInFlight() {
+        Sinks.One<String> pending = Sinks.one();
+        router.track(fast, pending.asMono()).subscribe();
+        router.track(fast, pending.asMono()).subscribe();
+
+        assertEquals(2.0, meterRegistry.get("aibroker.routing.in.flight").tag("model", "fast-model").gauge().value());
+        assertSame(slow, router.route("chat", List.of(fast, slow)));
+
+        pending.tryEmitValue("done");
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.in.flight").tag("model", "fast-model").gauge().value());
+    }
+
+    @Test
+    void route_shouldAvoidTheModelThatFailsToRespond() {
+        assertThrows(ProviderFailureException.class,
+                () -> router.track(fast, Mono.error(new ProviderFailureException("down", 503, null))).block());
+        assertThrows(ProviderFailureException.class,
+                () -> router.track(fast, Mono.error(new ProviderFailureException("down", null, null))).block());
+        router.track(slow, Mono.just("ok")).block();
+
+        assertSame(slow, router.route("chat", List.of(fast, slow)));
+        assertEquals(0.75, meterRegistry.get("aibroker.routing.error.rate").tag("model", "fast-model").gauge().value());
+    }
+
+    @Test
+    void route_shouldSampleAmongAllEnabledModels() {
+        List<Model> models = List.of(model("model-a", true), model("model-b", true), model("model-c", true),
+                model("model-d", true));
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(models.contains(router.route("chat", models)));
+        }
+    }
+
+    @Test
+    void route_shouldSkipModelsWhoseProviderRefusesCalls_whileAnotherIsAvailable() {
+        Model failing = Model.builder().name("failing-model").alias("chat").enabled(true)
+                .provider(Provider.builder().name("failing").build()).build();
+        Model healthy = Model.builder().name("healthy-model").alias("chat").enabled(true)
+                .provider(Provider.builder().name("healthy").build()).build();
+        guard.guard(failing, Mono.error(new ProviderFailureException("down", 503, null))).onErrorComplete().block();
+        guard.guard(failing, Mono.error(new ProviderFailureException("down", 503, null))).onErrorComplete().block();
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(healthy, router.route("chat", List.of(failing, healthy)));
+        }
+        assertSame(failing, router.route("chat", List.of(failing)));
+    }
+
+    @Test
+    void track_shouldNotCountCallsRefusedForTheRequest() {
+        // a 4xx completes empty in the adapters; any other error is not the provider's either
+        router.track(fast, Mono.empty()).block();
+        assertThrows(IllegalArgumentException.class,
+                () -> router.track(fast, Mono.error(new IllegalArgumentException("too long"))).block());
+        router.trackStream(fast, Flux.empty()).blockLast();
+        assertThrows(IllegalArgumentException.class,
+                () -> router.trackStream(fast, Flux.error(new IllegalArgumentException("too long"))).blockLast());
+
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.error.rate").tag("model", "fast-model").gauge().value());
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.in.flight").tag("model", "fast-model").gauge().value());
+    }
+
+    @Test
+    void track_shouldNotCountCancelledCalls() {
+        Sinks.One<String> pending = Sinks.one();
+        router.track(fast, pending.asMono()).subscribe().dispose();
+
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.in.flight").tag("model", "fast-model").gauge().value());
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.error.rate").tag("model", "fast-model").gauge().value());
+    }
+
+    @Test
+    void trackStream_shouldRecordTheFirstChunk_andCountProviderFailuresAsErrors() {
+        assertEquals(List.of("a", "b"), router.trackStream(fast, Flux.just("a", "b")).collectList().block());
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.error.rate").tag("model", "fast-model").gauge().value());
+
+        assertThrows(ProviderFailureException.class, () -> router.trackStream(fast,
+                Flux.error(new ProviderFailureException("down", 502, null))).blockLast());
+        assertEquals(0.5, meterRegistry.get("aibroker.routing.error.rate").tag("model", "fast-model").gauge().value());
+
+        router.trackStream(fast, Flux.never()).subscribe().dispose();
+        assertEquals(0.5, meterRegistry.get("aibroker.routing.error.rate").tag("model", "fast-model").gauge().value());
+        assertEquals(0.0, meterRegistry.get("aibroker.routing.in.flight").tag("model", "fast-model").gauge().value());
+    }
+
+    @Test
+    void constructor_shouldRejectAnInvalidAlpha() {
+        assertThrows(IllegalArgumentException.class, () -> new ModelRouter(meterRegistry, guard, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ModelRouter(meterRegistry, guard, 1.5, 10));
+    }
+
+    private static Model model(String name, boolean enabled) {
+        return Model.builder().name(name).alias("chat").enabled(enabled).build();
+    }
+}
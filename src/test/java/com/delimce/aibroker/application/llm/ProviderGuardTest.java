@@ -0,0 +1,335 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.exceptions.ProviderUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Model model = model("deepseek");
+
+    @Test
+    void guard_shouldOpenTheCircuit_onceTheFailureRateReachesTheThreshold() {
+        ProviderGuard guard = breaker(Duration.ofMinutes(1));
+
+        assertEquals("ok", guard.guard(model, Mono.just("ok")).block());
+        assertThrows(ProviderFailureException.class, () -> guard.guard(model, failure()).block());
+        assertTrue(guard.isAvailable(model));
+        assertThrows(ProviderFailureException.class, () -> guard.guard(model, failure()).block());
+
+        assertFalse(guard.isAvailable(model));
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+        ProviderUnavailableException refused = refusal(guard.guard(model, Mono.just("ok")));
+        assertEquals("Provider deepseek is unavailable", refused.getMessage());
+        assertTrue(refused.getRetryAfter().toSeconds() > 50);
+        assertEquals(1.0, meterRegistry.get("aibroker.provider.rejected")
+                .tag("provider", "deepseek").tag("reason", ProviderGuard.CIRCUIT_OPEN).counter().count());
+        assertEquals(ProviderGuard.OPEN, meterRegistry.get("aibroker.provider.circuit.state")
+                .tag("provider", "deepseek").gauge().value());
+    }
+
+    @Test
+    void guard_shouldCloseTheCircuit_whenTheTrialCallResponds() {
+        ProviderGuard guard = breaker(Duration.ZERO);
+        trip(guard);
+        Sinks.One<String> trial = Sinks.one();
+
+        Mono<String> trialCall = guard.guard(model, trial.asMono()).cache();
+        trialCall.subscribe();
+        assertEquals("HALF_OPEN", guard.health().get("deepseek").state());
+        assertFalse(guard.isAvailable(model));
+        refusal(guard.guard(model, Mono.just("concurrent")));
+
+        trial.tryEmitValue("ok");
+        assertEquals("ok", trialCall.block());
+        assertEquals("CLOSED", guard.health().get("deepseek").state());
+        assertEquals(0.0, guard.health().get("deepseek").failureRate());
+        assertEquals("ok", guard.guard(model, Mono.just("ok")).block());
+    }
+
+    @Test
+    void guard_shouldReopenTheCircuit_whenTheTrialCallFails() {
+        ProviderGuard guard = breaker(Duration.ZERO);
+        trip(guard);
+
+        assertThrows(ProviderFailureException.class, () -> guard.guard(model, failure()).block());
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+    }
+
+    @Test
+    void guard_shouldAllowAnotherTrial_whenTheTrialCallIsCancelled() {
+        ProviderGuard guard = breaker(Duration.ZERO);
+        trip(guard);
+
+        guard.guard(model, Mono.never()).subscribe().dispose();
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+        assertTrue(guard.isAvailable(model));
+        assertEquals("ok", guard.guard(model, Mono.just("ok")).block());
+        assertEquals("CLOSED", guard.health().get("deepseek").state());
+    }
+
+    @Test
+    void guard_shouldNotCountCallsStartedBeforeTheCircuitOpened() {
+        ProviderGuard guard = breaker(Duration.ofMinutes(1));
+        Sinks.One<String> late = Sinks.one();
+        guard.guard(model, late.asMono()).subscribe();
+        trip(guard);
+
+        late.tryEmitValue("late");
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+        assertEquals(0.0, guard.health().get("deepseek").failureRate());
+    }
+
+    @Test
+    void guard_shouldRefuseCallsOverTheConcurrencyLimit() {
+        ProviderGuard guard = limiter(2, 1, 4);
+        Sinks.One<String> pending = Sinks.one();
+        guard.guard(model, pending.asMono()).subscribe();
+        guard.guard(model, pending.asMono()).subscribe();
+
+        assertFalse(guard.isAvailable(model));
+        ProviderUnavailableException refused = refusal(guard.guard(model, Mono.just("ok")));
+        assertEquals("Provider deepseek is saturated", refused.getMessage());
+        assertEquals(Duration.ofSeconds(1), refused.getRetryAfter());
+        assertEquals(1.0, meterRegistry.get("aibroker.provider.rejected")
+                .tag("provider", "deepseek").tag("reason", ProviderGuard.SATURATED).counter().count());
+
+        pending.tryEmitValue("done");
+        assertTrue(guard.isAvailable(model));
+        assertEquals(0, guard.health().get("deepseek").inFlight());
+    }
+
+    @Test
+    void guard_shouldShrinkTheLimitOnFailures_andGrowItBackOnFastResponses() {
+        ProviderGuard guard = limiter(2, 1, 3);
+
+        assertThrows(ProviderFailureException.class, () -> guard.guard(model, failure()).block());
+        assertEquals(1.0, limit());
+        guard.guard(model, Mono.just("ok")).block();
+        assertEquals(2.0, limit());
+
+        // growth needs the limit to be in use
+        guard.guard(model, Sinks.<String>one().asMono()).subscribe();
+        for (int i = 0; i < 10; i++) {
+            guard.guard(model, Mono.just("ok")).block();
+        }
+        assertEquals(3.0, limit());
+    }
+
+    @Test
+    void guard_shouldShrinkTheLimit_onAResponseMuchSlowerThanUsual() {
+        ProviderGuard guard = limiter(4, 1, 4, 2);
+        guard.guard(model, respondAfter(5)).block();
+
+        guard.guard(model, respondAfter(100)).block();
+
+        assertEquals(2.0, limit());
+    }
+
+    @Test
+    void guard_shouldNotGrowTheLimit_whileMostOfItIsUnused() {
+        ProviderGuard guard = limiter(4, 1, 10);
+
+        for (int i = 0; i < 10; i++) {
+            guard.guard(model, Mono.just("ok")).block();
+        }
+
+        assertEquals(4.0, limit());
+    }
+
+    @Test
+    void guardStream_shouldCountTheFirstChunk_andStreamsTheProviderFailsAsFailures() {
+        ProviderGuard guard = breaker(Duration.ofMinutes(1));
+
+        assertEquals(List.of("a", "b"), guard.guardStream(model, Flux.just("a", "b")).collectList().block());
+        guard.guardStream(model, Flux.never()).subscribe().dispose();
+        assertEquals(0.0, guard.health().get("deepseek").failureRate());
+        assertEquals(0, guard.health().get("deepseek").inFlight());
+
+        guard.guardStream(model, Flux.empty()).blockLast();
+        assertEquals(0.0, guard.health().get("deepseek").failureRate());
+        assertThrows(ProviderFailureException.class, () -> guard.guardStream(model, failure().flux()).blockLast());
+        assertThrows(ProviderFailureException.class, () -> guard.guardStream(model, failure().flux()).blockLast());
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+        refusal(guard.guardStream(model, Flux.just("a")).next());
+    }
+
+    @Test
+    void guardStream_shouldAllowAnotherTrial_whenTheTrialStreamIsCancelled() {
+        ProviderGuard guard = breaker(Duration.ZERO);
+        trip(guard);
+
+        guard.guardStream(model, Flux.never()).subscribe().dispose();
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+        assertEquals(List.of("a"), guard.guardStream(model, Flux.just("a")).collectList().block());
+        assertEquals("CLOSED", guard.health().get("deepseek").state());
+    }
+
+    @Test
+    void guard_shouldNotCountCallsRefusedForTheRequest() {
+        ProviderGuard guard = new ProviderGuard(meterRegistry, true, 0.5, 4, 3, Duration.ofMinutes(1),
+                true, 4, 1, 4, 0.5, 100);
+
+        // a 4xx response completes empty, other errors of the request are not provider failures
+        for (int i = 0; i < 10; i++) {
+            guard.guard(model, Mono.empty()).block();
+            guard.guard(model, Mono.error(new IllegalStateException("context too long"))).onErrorComplete().block();
+            guard.guardStream(model, Flux.empty()).blockLast();
+        }
+
+        assertEquals("CLOSED", guard.health().get("deepseek").state());
+        assertEquals(0.0, guard.health().get("deepseek").failureRate());
+        assertEquals(4.0, limit());
+        assertTrue(guard.isAvailable(model));
+    }
+
+    @Test
+    void guard_shouldKeepTheCircuitOpenForAnotherTrial_whenTheTrialCallIsRefusedForTheRequest() {
+        ProviderGuard guard = breaker(Duration.ZERO);
+        trip(guard);
+
+        guard.guard(model, Mono.empty()).block();
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+        assertEquals("ok", guard.guard(model, Mono.just("ok")).block());
+        assertEquals("CLOSED", guard.health().get("deepseek").state());
+    }
+
+    @Test
+    void guard_shouldCountTimeoutsAsFailures() {
+        ProviderGuard guard = breaker(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            guard.guard(model, Mono.error(new TimeoutException())).onErrorComplete().block();
+        }
+
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+    }
+
+    @Test
+    void guard_shouldCallThrough_whenDisabledOrWithoutProvider() {
+        ProviderGuard disabled = new ProviderGuard(meterRegistry, false, 0.5, 4, 2, Duration.ofMinutes(1),
+                false, 1, 1, 1, 0.5, 2);
+        Mono<String> call = Mono.just("ok");
+        Flux<String> stream = Flux.just("ok");
+
+        assertSame(call, disabled.guard(model, call));
+        assertSame(stream, disabled.guardStream(model, stream));
+        assertTrue(disabled.isAvailable(model));
+        assertTrue(disabled.health().isEmpty());
+
+        ProviderGuard guard = breaker(Duration.ofMinutes(1));
+        Model orphan = Model.builder().name("orphan").build();
+        assertSame(call, guard.guard(orphan, call));
+        assertSame(stream, guard.guardStream(orphan, stream));
+        assertTrue(guard.isAvailable(orphan));
+    }
+
+    @Test
+    void guard_shouldTrackOnlyTheConfiguredMechanism() {
+        ProviderGuard limitOnly = new ProviderGuard(meterRegistry, false, 0.5, 4, 2, Duration.ofMinutes(1),
+                true, 1, 1, 1, 0.5, 2);
+        for (int i = 0; i < 5; i++) {
+            limitOnly.guard(model, failure()).onErrorComplete().block();
+        }
+        assertEquals("CLOSED", limitOnly.health().get("deepseek").state());
+
+        ProviderGuard breakerOnly = breaker(Duration.ofMinutes(1));
+        Sinks.One<String> pending = Sinks.one();
+        for (int i = 0; i < 5; i++) {
+            breakerOnly.guard(model, pending.asMono()).subscribe();
+        }
+        assertTrue(breakerOnly.isAvailable(model));
+        assertEquals(Integer.MAX_VALUE, breakerOnly.health().get("deepseek").limit());
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidSettings() {
+        Duration open = Duration.ofSeconds(30);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0, 20, 10, open, true, 50, 1, 500, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 1.5, 20, 10, open, true, 50, 1, 500, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 0, 0, open, true, 50, 1, 500, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 10, 20, open, true, 50, 1, 500, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 20, 10, open, true, 50, 0, 500, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 20, 10, open, true, 50, 60, 500, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 20, 10, open, true, 50, 1, 40, 0.9, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 20, 10, open, true, 50, 1, 500, 0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProviderGuard(meterRegistry, true, 0.5, 20, 10, open, true, 50, 1, 500, 1, 2));
+    }
+
+    // two failures among the last three or four calls open the circuit
+    private ProviderGuard breaker(Duration openDuration) {
+        return new ProviderGuard(meterRegistry, true, 0.5, 4, 3, openDuration, false, 1, 1, 1, 0.5, 2);
+    }
+
+    // a tolerance of 100 keeps pauses of the test JVM from counting as slow responses
+    private ProviderGuard limiter(int initial, int min, int max) {
+        return limiter(initial, min, max, 100);
+    }
+
+    private ProviderGuard limiter(int initial, int min, int max, double latencyTolerance) {
+        return new ProviderGuard(meterRegistry, false, 0.5, 4, 2, Duration.ofMinutes(1), true, initial, min, max,
+                0.5, latencyTolerance);
+    }
+
+    private void trip(ProviderGuard guard) {
+        for (int i = 0; i < 3; i++) {
+            guard.guard(model, failure()).onErrorComplete().block();
+        }
+        assertEquals("OPEN", guard.health().get("deepseek").state());
+    }
+
+    // responds on the subscribing thread, so the guard has recorded the call once block() returns
+    private static Mono<String> respondAfter(long millis) {
+        return Mono.fromCallable(() -> {
+            Thread.sleep(millis);
+            return "ok";
+        });
+    }
+
+    private static Mono<String> failure() {
+        return Mono.error(new ProviderFailureException("Provider responded with status 503", 503, null));
+    }
+
+    private double limit() {
+        return meterRegistry.get("aibroker.provider.concurrency.limit").tag("provider", "deepseek").gauge().value();
+    }
+
+    private static ProviderUnavailableException refusal(Mono<?> call) {
+        Object error = call.map(Object.class::cast).onErrorResume(e -> Mono.<Object>just(e)).block();
+        return assertInstanceOf(ProviderUnavailableException.class, error);
+    }
+
+    private static Model model(String provider) {
+        return Model.builder().name(provider + "-chat").enabled(true)
+                .provider(Provider.builder().name(provider).build()).build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.Choice;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.ChatFingerprint;
+import com.delimce.aibroker.domain.dto.values.VectorMatch;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.domain.ports.EmbeddingInterface;
+import com.delimce.aibroker.domain.ports.VectorIndexInterface;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SemanticResponseCacheTest {
+
+    @Mock
+    private ModelRegistry modelRegistry;
+
+    @Mock
+    private EmbeddingInterface embedder;
+
+    @Mock
+    private VectorIndexInterface index;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Model chatModel = Model.builder().name("deepseek-chat").type(ModelType.CHAT).enabled(true).build();
+    private final Model embeddingModel = Model.builder().name("text-embedding").type(ModelType.EMBEDDING)
+            .enabled(true).build();
+    private final float[] vector = { 0.1f, 0.2f, 0.3f };
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(modelRegistry.find("text-embedding")).thenReturn(embeddingModel);
+    }
+
+    @Test
+    void lookup_shouldReturnTheMatch_andScopeItToThePrecedingMessages() {
+        ModelRequest request = request("system", "be brief", "user", "what is the weather like?");
+        String scope = ChatFingerprint.of(chatModel, request, 1);
+        ModelChatResponse cached = response();
+        when(embedder.embed(embeddingModel, "what is the weather like?")).thenReturn(Mono.just(vector));
+        when(index.search(scope, vector, 0.9)).thenReturn(new VectorMatch(cached, 0.93));
+
+        SemanticResponseCache.Lookup lookup = cache(true, Set.of()).lookup(chatModel, request).block();
+
+        assertTrue(lookup.isHit());
+        assertSame(cached, lookup.response());
+        assertEquals(scope, lookup.scope());
+        assertEquals(1.0, meterRegistry.get("aibroker.semantic.cache").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("aibroker.semantic.cache.lookup").timer().count());
+        assertEquals(1, meterRegistry.get("aibroker.semantic.cache.embed").timer().count());
+    }
+
+    @Test
+    void lookup_shouldMissAndKeepTheVector_whenNothingIsSimilarEnough() {
+        when(embedder.embed(embeddingModel, "hello")).thenReturn(Mono.just(vector));
+
+        SemanticResponseCache.Lookup lookup = cache(true, Set.of()).lookup(chatModel, request("user", "hello"))
+                .block();
+
+        assertFalse(lookup.isHit());
+        assertSame(vector, lookup.vector());
+        assertEquals(1.0, meterRegistry.get("aibroker.semantic.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void lookup_shouldSkip_whenDisabledOrNotApplicable() {
+        assertSkipped(cache(false, Set.of()).lookup(chatModel, request("user", "hello")));
+        assertSkipped(cache(true, Set.of("other-model")).lookup(chatModel, request("user", "hello")));
+        assertSkipped(cache(true, Set.of()).lookup(chatModel, request("user", "hello", "assistant", "hi")));
+        assertSkipped(cache(true, Set.of()).lookup(chatModel, request("user", " ")));
+        assertSkipped(cache(true, Set.of()).lookup(chatModel, request("user", null)));
+        assertSkipped(cache(true, Set.of()).lookup(chatModel, request()));
+        verifyNoInteractions(embedder, index);
+    }
+
+    @Test
+    void lookup_shouldSkip_whenEmbeddingModelIsNotUsable() {
+        SemanticResponseCache cache = cache(true, Set.of());
+        Model disabled = Model.builder().name("text-embedding").type(ModelType.EMBEDDING).enabled(false).build();
+        when(modelRegistry.find("text-embedding")).thenReturn(chatModel, disabled, null);
+
+        assertSkipped(cache.lookup(chatModel, request("user", "hello")));
+        assertSkipped(cache.lookup(chatModel, request("user", "hello")));
+        assertSkipped(cache.lookup(chatModel, request("user", "hello")));
+        assertSkipped(new SemanticResponseCache(modelRegistry, embedder, index, meterRegistry, true, "",
+                Set.of(), 0.9).lookup(chatModel, request("user", "hello")));
+        verifyNoInteractions(embedder);
+    }
+
+    @Test
+    void lookup_shouldSkipAndCountError_whenEmbeddingFails() {
+        when(embedder.embed(any(), any())).thenReturn(Mono.error(new IllegalStateException("provider down")));
+
+        assertSkipped(cache(true, Set.of()).lookup(chatModel, request("user", "hello")));
+        assertEquals(1.0, meterRegistry.get("aibroker.semantic.cache").tag("result", "error").counter().count());
+    }
+
+    @Test
+    void store_shouldIndexResponsesOfMissedLookupsOnly() {
+        SemanticResponseCache cache = cache(true, Set.of());
+        ModelChatResponse upstream = response();
+
+        cache.store(new SemanticResponseCache.Lookup("scope", vector, null), upstream);
+        cache.store(new SemanticResponseCache.Lookup("scope", vector, response()), upstream);
+        cache.store(SemanticResponseCache.Lookup.SKIPPED, upstream);
+        cache.store(new SemanticResponseCache.Lookup("scope", vector, null), ModelChatResponse.builder().build());
+        cache.store(new SemanticResponseCache.Lookup("scope", vector, null),
+                ModelChatResponse.builder().choices(new Choice[0]).build());
+
+        verify(index).add("scope", vector, upstream);
+        verify(index, never()).add("scope", vector, null);
+    }
+
+    private SemanticResponseCache cache(boolean enabled, Set<String> models) {
+        return new SemanticResponseCache(modelRegistry, embedder, index, meterRegistry, enabled,
+                "text-embedding", models, 0.9);
+    }
+
+    private static void assertSkipped(Mono<SemanticResponseCache.Lookup> lookup) {
+        assertSame(SemanticResponseCache.Lookup.SKIPPED, lookup.block());
+    }
+
+    private static ModelChatResponse response() {
+        return ModelChatResponse.builder().choices(new Choice[] { new Choice() }).build();
+    }
+
+    private static ModelRequest request(String... roleAndContent) {
+        ModelMessageRequest[] messages = new ModelMessageRequest[roleAndContent.length / 2];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new ModelMessageRequest(roleAndContent[2 * i], roleAndContent[2 * i + 1]);
+        }
+        return new ModelRequest("deepseek-chat", false, messages, 0);
+    }
+}
@@ -0,0 +1,219 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamRateLimiterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    // 1200 tokens per minute: one token every 50 ms
+    private static final int TPM = 1200;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Provider provider = Provider.builder().name("deepseek").build();
+    private final Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+    private final ModelChatResponse response = ModelChatResponse.builder().model("deepseek-chat").build();
+
+    @Test
+    void throttle_shouldCallThrough_whenDisabledOrWithoutQuotas() {
+        UpstreamRateLimiter disabled = new UpstreamRateLimiter(meterRegistry, false, Duration.ZERO, 1024, 4);
+        Mono<ModelChatResponse> call = Mono.just(response);
+        Flux<ModelChatResponse> stream = Flux.just(response);
+        model.setRpmLimit(1);
+
+        assertSame(call, disabled.throttle(model, request(1), call));
+        assertSame(stream, disabled.throttleStream(model, request(1), stream));
+
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        Model unlimited = Model.builder().name("unlimited").build();
+        for (int i = 0; i < 10; i++) {
+            assertSame(response, limiter.throttle(unlimited, request(1), call).block(TIMEOUT));
+            assertSame(response, limiter.throttleStream(unlimited, request(1), stream).blockLast(TIMEOUT));
+        }
+    }
+
+    @Test
+    void throttle_shouldRefuseRequestsOverTheRpmQuota_onceTheBurstIsSpent() {
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        model.setRpmLimit(2);
+
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+        TooManyRequestsException refused = refusal(limiter.throttle(model, request(1), Mono.just(response)));
+
+        assertEquals("Upstream quota of model deepseek-chat requests per minute exhausted", refused.getMessage());
+        assertTrue(refused.getRetryAfter().toSeconds() >= 29);
+        assertEquals(1.0, meterRegistry.get("aibroker.rate.limit.rejected").tag("provider", "deepseek")
+                .counter().count());
+    }
+
+    @Test
+    void throttle_shouldShareTheProviderQuota_betweenItsModels() {
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        provider.setRpmLimit(1);
+        Model other = Model.builder().name("deepseek-coder").provider(provider).build();
+
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+        TooManyRequestsException refused = refusal(limiter.throttle(other, request(1), Mono.just(response)));
+
+        assertEquals("Upstream quota of provider deepseek requests per minute exhausted", refused.getMessage());
+    }
+
+    @Test
+    void throttle_shouldDelayTheCall_untilTheTpmQuotaAllowsIt() {
+        UpstreamRateLimiter limiter = limiter(Duration.ofSeconds(1));
+        model.setTpmLimit(TPM);
+        // a charge over the whole quota is capped to it, so it empties the bucket
+        limiter.throttle(model, request(5000), Mono.just(response)).block(TIMEOUT);
+
+        long start = System.nanoTime();
+        // one prompt token and one completion token: 100 ms
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(80));
+        assertTrue(meterRegistry.get("aibroker.rate.limit.wait").tag("provider", "deepseek").timer()
+                .max(TimeUnit.MILLISECONDS) >= 80);
+    }
+
+    @Test
+    void throttle_shouldServeWaitingCalls_inTheOrderTheyWereMade() {
+        UpstreamRateLimiter limiter = limiter(Duration.ofSeconds(1));
+        model.setTpmLimit(TPM);
+        limiter.throttle(model, request(5000), Mono.just(response)).block(TIMEOUT);
+        List<String> served = new CopyOnWriteArrayList<>();
+
+        Mono<ModelChatResponse> first = limiter.throttle(model, request(1),
+                Mono.fromCallable(() -> served.add("first")).thenReturn(response));
+        Mono<ModelChatResponse> second = limiter.throttle(model, request(1),
+                Mono.fromCallable(() -> served.add("second")).thenReturn(response));
+        Mono.when(first, second).block(TIMEOUT);
+
+        assertEquals(List.of("first", "second"), served);
+    }
+
+    @Test
+    void throttle_shouldRefuse_whenTheWaitWouldExceedTheDeadline() {
+        UpstreamRateLimiter limiter = limiter(Duration.ofMillis(50));
+        model.setTpmLimit(TPM);
+        limiter.throttle(model, request(5000), Mono.just(response)).block(TIMEOUT);
+
+        TooManyRequestsException refused = refusal(limiter.throttle(model, request(1), Mono.just(response)));
+
+        assertEquals("Upstream quota of model deepseek-chat tokens per minute exhausted", refused.getMessage());
+        assertTrue(refused.getRetryAfter().toMillis() > 50);
+    }
+
+    @Test
+    void throttle_shouldRefundTheTokensNotUsed_andTheRequestOfARefusedCall() {
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        model.setRpmLimit(3);
+        model.setTpmLimit(TPM);
+
+        // charged the whole quota, but only two tokens were used
+        limiter.throttle(model, request(5000), Mono.just(withUsage(2))).block(TIMEOUT);
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+        // refused on tokens: the request it took is given back
+        TooManyRequestsException onTokens = refusal(limiter.throttle(model, request(5000), Mono.just(response)));
+        assertEquals("Upstream quota of model deepseek-chat tokens per minute exhausted", onTokens.getMessage());
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+
+        TooManyRequestsException onRequests = refusal(limiter.throttle(model, request(1), Mono.just(response)));
+        assertEquals("Upstream quota of model deepseek-chat requests per minute exhausted", onRequests.getMessage());
+    }
+
+    @Test
+    void throttle_shouldGiveTheReservationBack_whenCancelledWhileWaiting() {
+        UpstreamRateLimiter limiter = limiter(Duration.ofMillis(150));
+        model.setTpmLimit(TPM);
+        limiter.throttle(model, request(5000), Mono.just(response)).block(TIMEOUT);
+
+        limiter.throttle(model, request(1), Mono.just(response)).subscribe().dispose();
+
+        // would wait 200 ms behind the cancelled call
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+    }
+
+    @Test
+    void throttle_shouldStartOver_whenTheQuotaChanges() {
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        model.setRpmLimit(1);
+        limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT);
+        refusal(limiter.throttle(model, request(1), Mono.just(response)));
+
+        model.setRpmLimit(2);
+
+        assertSame(response, limiter.throttle(model, request(1), Mono.just(response)).block(TIMEOUT));
+    }
+
+    @Test
+    void throttleStream_shouldSettleWithTheUsageChunk_andRefuseOverTheQuota() {
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        model.setTpmLimit(TPM);
+        ModelChatResponse chunk = ModelChatResponse.builder().build();
+
+        ModelChatResponse last = withUsage(2);
+
+        assertEquals(List.of(chunk, last),
+                limiter.throttleStream(model, request(5000), Flux.just(chunk, last)).collectList().block(TIMEOUT));
+        assertEquals(List.of(chunk),
+                limiter.throttleStream(model, request(5000), Flux.just(chunk)).collectList().block(TIMEOUT));
+
+        Object error = limiter.throttleStream(model, request(1), Flux.just(chunk)).next().map(Object.class::cast)
+                .onErrorResume(e -> Mono.<Object>just(e)).block(TIMEOUT);
+        assertInstanceOf(TooManyRequestsException.class, error);
+    }
+
+    @Test
+    void charge_shouldAddThePromptEstimate_toTheCompletionAllowance() {
+        UpstreamRateLimiter limiter = limiter(Duration.ZERO);
+        ModelRequest withoutMax = new ModelRequest("deepseek-chat", false, new ModelMessageRequest[] {
+                new ModelMessageRequest("system", "12345678"), new ModelMessageRequest("user", "1"), null,
+                new ModelMessageRequest("user", null) }, 0);
+
+        assertEquals(3 + 1024, limiter.charge(withoutMax));
+        assertEquals(1 + 10, limiter.charge(request(10)));
+        assertEquals(1024, limiter.charge(new ModelRequest()));
+    }
+
+    @Test
+    void constructor_shouldRejectAnInvalidCharsPerToken() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new UpstreamRateLimiter(meterRegistry, true, Duration.ZERO, 1024, 0));
+    }
+
+    private UpstreamRateLimiter limiter(Duration maxWait) {
+        return new UpstreamRateLimiter(meterRegistry, true, maxWait, 1024, 4);
+    }
+
+    // a one token prompt
+    private static ModelRequest request(int maxTokens) {
+        return ModelRequest.builder().model("deepseek-chat").maxTokens(maxTokens)
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "hi") }).build();
+    }
+
+    private static ModelChatResponse withUsage(int totalTokens) {
+        return ModelChatResponse.builder().usage(Usage.builder().total_tokens(totalTokens).build()).build();
+    }
+
+    private static TooManyRequestsException refusal(Mono<?> call) {
+        Object error = call.map(Object.class::cast).onErrorResume(e -> Mono.<Object>just(e)).block(TIMEOUT);
+        return assertInstanceOf(TooManyRequestsException.class, error);
+    }
+}
@@ -0,0 +1,72 @@
+package com.delimce.aibroker.application.llm;
+
+import com.delimce.aibroker.domain.entities.Model;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamTimingsTest {
+
+    private final UpstreamTimings timings = new UpstreamTimings();
+
+    @Test
+    void time_shouldTakeTheWholeCallAsTheFirstToken_whenTheCallIsNotStreamed() {
+        Model model = model("deepseek-chat");
+
+        timings.time(model, Mono.just("response").delayElement(Duration.ofMillis(50))).block();
+
+        assertSame(model, timings.model());
+        assertTrue(timings.timeToFirstTokenNanos() >= Duration.ofMillis(50).toNanos());
+        assertNull(timings.interTokenLatencyNanos(100));
+        assertTrue(timings.outputTokensPerSecond(100) <= 100 / 0.05);
+        assertNull(timings.outputTokensPerSecond(0));
+    }
+
+    @Test
+    void time_shouldSpreadTheTimeAfterTheFirstChunkOverTheTokens_whenTheCallIsStreamed() {
+        Model model = model("deepseek-chat");
+
+        timings.time(model, Flux.just("a", "b", "c").delayElements(Duration.ofMillis(40))).blockLast();
+
+        long timeToFirstToken = timings.timeToFirstTokenNanos();
+        assertTrue(timeToFirstToken >= Duration.ofMillis(40).toNanos());
+        // two more chunks 40ms apart, spread over the 4 tokens after the first
+        assertTrue(timings.interTokenLatencyNanos(5) >= Duration.ofMillis(80).toNanos() / 4.0);
+        assertNull(timings.interTokenLatencyNanos(1));
+        assertTrue(timings.outputTokensPerSecond(5) <= 5 / 0.12);
+    }
+
+    @Test
+    void time_shouldKeepTheTimingsOfTheFirstCallToRespond_whenTheRequestIsHedged() {
+        Model slow = model("slow-model");
+        Model fast = model("fast-model");
+
+        Mono.firstWithValue(
+                timings.time(slow, Mono.just("slow").delayElement(Duration.ofMillis(200))),
+                timings.time(fast, Mono.just("fast").delayElement(Duration.ofMillis(10))))
+                .block();
+
+        assertSame(fast, timings.model());
+        assertTrue(timings.timeToFirstTokenNanos() < Duration.ofMillis(200).toNanos());
+    }
+
+    @Test
+    void timings_shouldBeUnknown_whenNoCallAnswered() {
+        timings.time(model("deepseek-chat"), Mono.empty()).block();
+
+        assertNull(timings.model());
+        assertNull(timings.timeToFirstTokenNanos());
+        assertNull(timings.interTokenLatencyNanos(10));
+        assertNull(timings.outputTokensPerSecond(10));
+    }
+
+    private static Model model(String name) {
+        Model model = new Model();
+        model.setName(name);
+        return model;
+    }
+}
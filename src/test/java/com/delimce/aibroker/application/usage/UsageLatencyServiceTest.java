@@ -0,0 +1,80 @@
+package com.delimce.aibroker.application.usage;
+
+import com.delimce.aibroker.domain.dto.responses.usage.LatencyResponse;
+import com.delimce.aibroker.domain.dto.values.ModelLatency;
+import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UsageLatencyServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 1, 1, 0, 30);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 1, 1, 23, 30);
+
+    @Mock
+    private RequestMetricRepository requestMetricRepository;
+
+    private UsageLatencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UsageLatencyService(requestMetricRepository);
+    }
+
+    @Test
+    void execute_shouldListTheModelsOfTheWholeHours_theBusiestFirst() {
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2026, 1, 2, 0, 0);
+        when(requestMetricRepository.averageLatencyByModel(start, end)).thenReturn(List.of(
+                new ModelLatency(11L, "deepseek-reasoner", "DeepSeek", 3L, 2400.0, null, 18.0),
+                new ModelLatency(10L, "deepseek-chat", "DeepSeek", 40L, 800.0, 22.0, 45.0)));
+
+        LatencyResponse response = service.execute(FROM, TO);
+
+        assertEquals(start, response.from());
+        assertEquals(end, response.to());
+        assertEquals(List.of(10L, 11L), response.models().stream().map(ModelLatency::modelId).toList());
+    }
+
+    @Test
+    void execute_shouldDefaultToToday() {
+        LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+
+        LatencyResponse response = service.execute(null, null);
+
+        assertEquals(today, response.from());
+        assertTrue(response.models().isEmpty());
+        verify(requestMetricRepository).averageLatencyByModel(response.from(), response.to());
+    }
+
+    @Test
+    void execute_shouldRefuseAnInvertedRange() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.execute(TO, FROM));
+
+        assertEquals("from must be before to", e.getMessage());
+        verifyNoInteractions(requestMetricRepository);
+    }
+
+    @Test
+    void execute_shouldRefuseARangeLongerThanAMonth() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.execute(FROM, FROM.plusDays(40)));
+
+        assertEquals("The range is longer than 744 hours", e.getMessage());
+        verifyNoInteractions(requestMetricRepository);
+    }
+}
@@ -0,0 +1,152 @@
+package com.delimce.aibroker.application.usage;
+
+import com.delimce.aibroker.domain.dto.responses.usage.UsageLine;
+import com.delimce.aibroker.domain.dto.responses.usage.UsageReportResponse;
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.domain.repositories.ModelRepository;
+import com.delimce.aibroker.domain.repositories.UsageDailyRepository;
+import com.delimce.aibroker.domain.repositories.UsageHourlyRepository;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UsageReportServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Mock
+    private UsageHourlyRepository usageHourlyRepository;
+
+    @Mock
+    private UsageDailyRepository usageDailyRepository;
+
+    @Mock
+    private UsageRollupInterface usageRollup;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ModelRepository modelRepository;
+
+    private UsageReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UsageReportService(usageHourlyRepository, usageDailyRepository, usageRollup,
+                new UsageNames(userRepository, modelRepository));
+    }
+
+    @Test
+    void execute_shouldListEachHour_withThePendingUsageAdded_oldestFirst() {
+        LocalDateTime from = DAY.plusHours(10);
+        LocalDateTime end = DAY.plusHours(13);
+        when(usageHourlyRepository.findUsage(from, end, null)).thenReturn(List.of(
+                rollup(DAY.plusHours(12), 1L, 10L, 2, "0.2"),
+                rollup(DAY.plusHours(10), 2L, 10L, 1, "0.1")));
+        when(usageRollup.pending(UsagePeriod.HOUR)).thenReturn(List.of(
+                rollup(DAY.plusHours(12), 1L, 10L, 3, "0.3"),
+                rollup(DAY.plusHours(12), 1L, 20L, 1, "0.01"),
+                rollup(end, 1L, 10L, 9, "9")));
+        when(userRepository.findAllById(any())).thenReturn(List.of(
+                User.builder().id(1L).email("jane.doe@example.com").build()));
+        when(modelRepository.findAllById(any())).thenReturn(List.of(
+                Model.builder().id(10L).name("deepseek-chat").build()));
+
+        UsageReportResponse report = service.execute(UsagePeriod.HOUR, from.plusMinutes(20),
+                DAY.plusHours(12).plusMinutes(59), null);
+
+        assertEquals(UsagePeriod.HOUR, report.period());
+        assertEquals(from, report.from());
+        assertEquals(end, report.to());
+        List<UsageLine> lines = report.lines();
+        assertEquals(3, lines.size());
+        assertEquals(DAY.plusHours(10), lines.get(0).start());
+        assertEquals(2L, lines.get(0).userId());
+        assertNull(lines.get(0).email());
+        UsageLine merged = lines.get(1);
+        assertEquals(DAY.plusHours(12), merged.start());
+        assertEquals("jane.doe@example.com", merged.email());
+        assertEquals("deepseek-chat", merged.model());
+        assertEquals(5, merged.requests());
+        assertEquals(10, merged.cacheHitTokens());
+        assertEquals(new BigDecimal("0.5"), merged.cost());
+        assertEquals(20L, lines.get(2).modelId());
+        assertNull(lines.get(2).model());
+    }
+
+    @Test
+    void execute_shouldListEachDayOfOneUser_fromTheDailyRollup() {
+        when(usageDailyRepository.findUsage(DAY, DAY.plusDays(2), 1L)).thenReturn(List.of(
+                rollup(DAY, 1L, 10L, 4, "0.4")));
+        when(usageRollup.pending(UsagePeriod.DAY)).thenReturn(List.of(
+                rollup(DAY.plusDays(1), 1L, 10L, 1, "0.1"),
+                rollup(DAY.plusDays(1), 2L, 10L, 1, "0.1")));
+
+        UsageReportResponse report = service.execute(UsagePeriod.DAY, DAY, DAY.plusDays(1), 1L);
+
+        assertEquals(2, report.lines().size());
+        assertEquals(List.of(DAY, DAY.plusDays(1)), report.lines().stream().map(UsageLine::start).toList());
+        assertTrue(report.lines().stream().allMatch(line -> line.userId() == 1L));
+        verifyNoInteractions(usageHourlyRepository);
+    }
+
+    @Test
+    void execute_shouldCoverTheLastThirtyDays_byDefault() {
+        UsageReportResponse report = service.execute(UsagePeriod.DAY, null, null, null);
+
+        LocalDateTime tomorrow = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+        assertEquals(tomorrow, report.to());
+        assertEquals(tomorrow.minusDays(30), report.from());
+        assertTrue(report.lines().isEmpty());
+        verify(usageDailyRepository).findUsage(report.from(), report.to(), null);
+    }
+
+    @Test
+    void execute_shouldCoverTodaySoFar_hourlyByDefault() {
+        UsageReportResponse report = service.execute(UsagePeriod.HOUR, null, null, null);
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(now.truncatedTo(ChronoUnit.DAYS), report.from());
+        assertEquals(now.truncatedTo(ChronoUnit.HOURS).plusHours(1), report.to());
+    }
+
+    @Test
+    void execute_shouldRefuseAnInvertedOrOverlongRange() {
+        IllegalArgumentException inverted = assertThrows(IllegalArgumentException.class,
+                () -> service.execute(UsagePeriod.DAY, DAY.plusDays(2), DAY, null));
+        IllegalArgumentException hours = assertThrows(IllegalArgumentException.class,
+                () -> service.execute(UsagePeriod.HOUR, DAY, DAY.plusDays(40), null));
+        IllegalArgumentException days = assertThrows(IllegalArgumentException.class,
+                () -> service.execute(UsagePeriod.DAY, DAY, DAY.plusDays(400), null));
+
+        assertEquals("from must be before to", inverted.getMessage());
+        assertEquals("The range is longer than 744 hours", hours.getMessage());
+        assertEquals("The range is longer than 366 days", days.getMessage());
+        verifyNoInteractions(usageHourlyRepository, usageDailyRepository, usageRollup);
+    }
+
+    private static UsageRollup rollup(LocalDateTime start, Long userId, Long modelId, long requests, String cost) {
+        return new UsageRollup(start, userId, modelId, requests, 0, requests * 6, requests * 2, requests * 4,
+                requests * 10, new BigDecimal(cost));
+    }
+}
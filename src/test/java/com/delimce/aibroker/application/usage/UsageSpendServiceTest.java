@@ -0,0 +1,148 @@
+package com.delimce.aibroker.application.usage;
+
+import com.delimce.aibroker.domain.dto.responses.usage.SpendLine;
+import com.delimce.aibroker.domain.dto.responses.usage.SpendResponse;
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.domain.repositories.ModelRepository;
+import com.delimce.aibroker.domain.repositories.UsageDailyRepository;
+import com.delimce.aibroker.domain.repositories.UsageHourlyRepository;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UsageSpendServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 1, 1, 23, 30);
+
+    @Mock
+    private UsageHourlyRepository usageHourlyRepository;
+
+    @Mock
+    private UsageDailyRepository usageDailyRepository;
+
+    @Mock
+    private UsageRollupInterface usageRollup;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ModelRepository modelRepository;
+
+    private UsageSpendService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UsageSpendService(usageHourlyRepository, usageDailyRepository, usageRollup,
+                new UsageNames(userRepository, modelRepository));
+    }
+
+    @Test
+    void execute_shouldAddThePendingUsageToTheRollups_theMostExpensiveFirst() {
+        LocalDateTime end = LocalDateTime.of(2026, 1, 2, 0, 0);
+        when(usageDailyRepository.sumByUserAndModel(FROM, end)).thenReturn(List.of(
+                rollup(FROM, 1L, 10L, 4, "0.00010000"),
+                rollup(FROM, 2L, 10L, 1, "0.00100000")));
+        when(usageRollup.pending(UsagePeriod.DAY)).thenReturn(List.of(
+                rollup(FROM, 1L, 10L, 2, "0.00005000"),
+                rollup(FROM, 1L, 20L, 1, "0.00000000"),
+                rollup(end, 1L, 10L, 7, "1.00000000"),
+                rollup(FROM.minusDays(1), 1L, 10L, 7, "1.00000000")));
+        when(userRepository.findAllById(any())).thenReturn(List.of(
+                User.builder().id(1L).email("jane.doe@example.com").build()));
+        when(modelRepository.findAllById(any())).thenReturn(List.of(
+                Model.builder().id(10L).name("deepseek-chat").build()));
+
+        SpendResponse spend = service.execute(FROM, TO);
+
+        assertEquals(FROM, spend.from());
+        assertEquals(end, spend.to());
+        assertEquals(8, spend.requests());
+        assertEquals(80, spend.totalTokens());
+        assertEquals(new BigDecimal("0.00115000"), spend.cost());
+        List<SpendLine> lines = spend.lines();
+        assertEquals(3, lines.size());
+        assertEquals(2L, lines.get(0).userId());
+        assertNull(lines.get(0).email());
+        assertEquals("deepseek-chat", lines.get(0).model());
+        SpendLine merged = lines.get(1);
+        assertEquals(1L, merged.userId());
+        assertEquals("jane.doe@example.com", merged.email());
+        assertEquals(6, merged.requests());
+        assertEquals(12, merged.cacheHitTokens());
+        assertEquals(60, merged.totalTokens());
+        assertEquals(new BigDecimal("0.00015000"), merged.cost());
+        assertEquals(20L, lines.get(2).modelId());
+        assertNull(lines.get(2).model());
+        verifyNoInteractions(usageHourlyRepository);
+    }
+
+    @Test
+    void execute_shouldReadTheWholeDaysDaily_andTheHoursAroundThemHourly() {
+        LocalDateTime from = LocalDateTime.of(2026, 1, 1, 22, 15);
+        LocalDateTime to = LocalDateTime.of(2026, 1, 4, 1, 45);
+        LocalDateTime firstDay = LocalDateTime.of(2026, 1, 2, 0, 0);
+        LocalDateTime lastDay = LocalDateTime.of(2026, 1, 4, 0, 0);
+        when(usageHourlyRepository.sumByUserAndModel(from.truncatedTo(ChronoUnit.HOURS), firstDay))
+                .thenReturn(List.of(rollup(from.truncatedTo(ChronoUnit.HOURS), 1L, 10L, 1, "0.1")));
+        when(usageDailyRepository.sumByUserAndModel(firstDay, lastDay))
+                .thenReturn(List.of(rollup(firstDay, 1L, 10L, 10, "1")));
+        when(usageHourlyRepository.sumByUserAndModel(lastDay, lastDay.plusHours(2)))
+                .thenReturn(List.of(rollup(lastDay, 1L, 10L, 2, "0.2")));
+        when(usageRollup.pending(UsagePeriod.HOUR)).thenReturn(List.of(
+                rollup(lastDay.plusHours(1), 1L, 10L, 3, "0.3"),
+                rollup(firstDay.plusHours(5), 1L, 10L, 99, "99")));
+        when(usageRollup.pending(UsagePeriod.DAY)).thenReturn(List.of(rollup(lastDay, 1L, 10L, 99, "99")));
+
+        SpendResponse spend = service.execute(from, to);
+
+        assertEquals(16, spend.requests());
+        assertEquals(new BigDecimal("1.6"), spend.cost());
+        assertEquals(from.truncatedTo(ChronoUnit.HOURS), spend.from());
+        assertEquals(lastDay.plusHours(2), spend.to());
+    }
+
+    @Test
+    void execute_shouldCoverTodaySoFar_byDefault() {
+        SpendResponse spend = service.execute(null, null);
+
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(now.truncatedTo(ChronoUnit.DAYS), spend.from());
+        assertEquals(now.truncatedTo(ChronoUnit.HOURS).plusHours(1), spend.to());
+        assertTrue(spend.lines().isEmpty());
+        assertEquals(BigDecimal.ZERO, spend.cost());
+    }
+
+    @Test
+    void execute_shouldRefuseARangeThatEndsBeforeItStarts() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> service.execute(TO.plusHours(1), TO.minusHours(1)));
+
+        assertEquals("from must be before to", error.getMessage());
+        verifyNoInteractions(usageHourlyRepository, usageDailyRepository, usageRollup);
+    }
+
+    private static UsageRollup rollup(LocalDateTime start, Long userId, Long modelId, long requests, String cost) {
+        return new UsageRollup(start, userId, modelId, requests, 0, requests * 6, requests * 2, requests * 4,
+                requests * 10, new BigDecimal(cost));
+    }
+}
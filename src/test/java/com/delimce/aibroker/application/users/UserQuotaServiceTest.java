@@ -0,0 +1,212 @@
+package com.delimce.aibroker.application.users;
+
+import com.delimce.aibroker.domain.dto.responses.users.UserQuotaResponse;
+import com.delimce.aibroker.domain.dto.values.UserUsageTotal;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
+import com.delimce.aibroker.domain.repositories.UserRequestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserQuotaServiceTest {
+
+    @Mock
+    private UserRequestRepository userRequestRepository;
+
+    @Mock
+    private RequestMetricRepository requestMetricRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void admit_shouldRefuse_onceTheRequestQuotaOfTheUserIsSpent() throws TooManyRequestsException {
+        UserQuotaService quota = service(Duration.ofDays(1), 0, 0);
+        User user = user(1L, 2, null);
+
+        quota.admit(user);
+        quota.admit(user);
+        TooManyRequestsException refused = assertThrows(TooManyRequestsException.class, () -> quota.admit(user));
+
+        assertEquals("Request quota of 2 exhausted", refused.getMessage());
+        assertTrue(refused.getRetryAfter().compareTo(Duration.ZERO) > 0);
+        assertTrue(refused.getRetryAfter().compareTo(Duration.ofDays(1)) <= 0);
+        assertEquals(1.0, meterRegistry.get("aibroker.user.quota.rejected").tag("reason", "requests")
+                .counter().count());
+    }
+
+    @Test
+    void admit_shouldRefuse_onceTheTokensSpentReachTheTokenQuota() throws TooManyRequestsException {
+        UserQuotaService quota = service(Duration.ofDays(1), 0, 0);
+        User user = user(1L, null, 100L);
+
+        quota.admit(user);
+        quota.record(user, 60);
+        quota.admit(user);
+        quota.record(user, 40);
+        TooManyRequestsException refused = assertThrows(TooManyRequestsException.class, () -> quota.admit(user));
+
+        assertEquals("Token quota of 100 exhausted", refused.getMessage());
+        assertEquals(1.0, meterRegistry.get("aibroker.user.quota.rejected").tag("reason", "tokens")
+                .counter().count());
+    }
+
+    @Test
+    void admit_shouldApplyTheDefaults_toUsersWithoutQuotasOfTheirOwn() throws TooManyRequestsException {
+        UserQuotaService quota = service(Duration.ofDays(1), 1, 0);
+        User withDefault = user(1L, null, null);
+        User withOwn = user(2L, 3, null);
+
+        quota.admit(withDefault);
+        assertThrows(TooManyRequestsException.class, () -> quota.admit(withDefault));
+        for (int i = 0; i < 3; i++) {
+            quota.admit(withOwn);
+        }
+        assertThrows(TooManyRequestsException.class, () -> quota.admit(withOwn));
+    }
+
+    @Test
+    void admit_shouldStartOver_inTheNextWindow() throws TooManyRequestsException, InterruptedException {
+        UserQuotaService quota = service(Duration.ofMillis(500), 1, 0);
+        User user = user(1L, null, null);
+        quota.admit(user);
+        assertThrows(TooManyRequestsException.class, () -> quota.admit(user));
+
+        Thread.sleep(550);
+
+        quota.admit(user);
+    }
+
+    @Test
+    void admitAndRecord_shouldDoNothing_whenDisabled() throws TooManyRequestsException {
+        UserQuotaService quota = new UserQuotaService(userRequestRepository, requestMetricRepository, meterRegistry,
+                false, Duration.ofDays(1), 1, 1);
+        User user = user(1L, null, null);
+
+        quota.admit(user);
+        quota.record(user, 10);
+        quota.admit(user);
+        quota.reconcile();
+
+        assertTrue(quota.usage().isEmpty());
+        verifyNoInteractions(userRequestRepository, requestMetricRepository);
+    }
+
+    @Test
+    void usage_shouldListTheLiveUsageOfEveryUser_withTheirQuotas() throws TooManyRequestsException {
+        UserQuotaService quota = service(Duration.ofDays(1), 10, 1000);
+        User second = user(2L, 5, null);
+        User first = user(1L, null, 200L);
+
+        quota.admit(second);
+        quota.admit(first);
+        quota.admit(first);
+        quota.record(first, 120);
+        quota.record(first, 0);
+
+        List<UserQuotaResponse> usage = quota.usage();
+
+        assertEquals(2, usage.size());
+        UserQuotaResponse firstUsage = usage.get(0);
+        assertEquals(1L, firstUsage.userId());
+        assertEquals("user1@example.com", firstUsage.email());
+        assertEquals(2, firstUsage.requests());
+        assertEquals(10, firstUsage.requestQuota());
+        assertEquals(120, firstUsage.tokens());
+        assertEquals(200, firstUsage.tokenQuota());
+        assertTrue(firstUsage.resetsAt().isAfter(LocalDateTime.now()));
+        assertEquals(2L, usage.get(1).userId());
+        assertEquals(5, usage.get(1).requestQuota());
+        assertEquals(1000, usage.get(1).tokenQuota());
+    }
+
+    @Test
+    void reconcile_shouldRaiseTheCounters_toTheAuditedUsage() throws TooManyRequestsException {
+        UserQuotaService quota = service(Duration.ofDays(1), 5, 0);
+        User user = user(1L, null, null);
+        quota.admit(user);
+        when(userRequestRepository.countRequestsByUserSince(any())).thenReturn(List.of(
+                new UserUsageTotal(1L, "user1@example.com", 4L),
+                new UserUsageTotal(3L, "user3@example.com", 2L)));
+        when(requestMetricRepository.sumTokensByUserSince(any())).thenReturn(List.of(
+                new UserUsageTotal(1L, "user1@example.com", 700L)));
+
+        quota.reconcile();
+
+        List<UserQuotaResponse> usage = quota.usage();
+        assertEquals(4, usage.get(0).requests());
+        assertEquals(700, usage.get(0).tokens());
+        assertEquals(3L, usage.get(1).userId());
+        assertEquals(2, usage.get(1).requests());
+        quota.admit(user);
+        assertThrows(TooManyRequestsException.class, () -> quota.admit(user));
+    }
+
+    @Test
+    void reconcile_shouldNeverLowerTheCounters() throws TooManyRequestsException {
+        UserQuotaService quota = service(Duration.ofDays(1), 0, 0);
+        User user = user(1L, null, null);
+        for (int i = 0; i < 3; i++) {
+            quota.admit(user);
+        }
+        when(userRequestRepository.countRequestsByUserSince(any())).thenReturn(List.of(
+                new UserUsageTotal(1L, "user1@example.com", 1L)));
+        when(requestMetricRepository.sumTokensByUserSince(any())).thenReturn(List.of());
+
+        quota.reconcile();
+
+        assertEquals(3, quota.usage().get(0).requests());
+    }
+
+    @Test
+    void reconcile_shouldDropPastWindows_andKeepTheCounters_whenTheDatabaseFails()
+            throws TooManyRequestsException, InterruptedException {
+        UserQuotaService quota = service(Duration.ofMillis(500), 0, 0);
+        when(userRequestRepository.countRequestsByUserSince(any()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        // windows are aligned to the epoch: start at the beginning of one
+        Thread.sleep(500 - System.currentTimeMillis() % 500);
+        quota.admit(user(1L, null, null));
+
+        quota.reconcile();
+        assertEquals(1, quota.usage().size());
+
+        Thread.sleep(550);
+        quota.reconcile();
+
+        assertTrue(quota.usage().isEmpty());
+    }
+
+    @Test
+    void constructor_shouldRejectAnEmptyWindow() {
+        assertThrows(IllegalArgumentException.class, () -> service(Duration.ZERO, 0, 0));
+    }
+
+    private UserQuotaService service(Duration window, long defaultRequests, long defaultTokens) {
+        return new UserQuotaService(userRequestRepository, requestMetricRepository, meterRegistry, true, window,
+                defaultRequests, defaultTokens);
+    }
+
+    private static User user(Long id, Integer requestQuota, Long tokenQuota) {
+        return User.builder()
+                .id(id)
+                .email("user" + id + "@example.com")
+                .requestQuota(requestQuota)
+                .tokenQuota(tokenQuota)
+                .build();
+    }
+}
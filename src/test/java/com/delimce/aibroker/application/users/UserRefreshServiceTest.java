@@ -21,6 +21,7 @@ import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
 import com.delimce.aibroker.domain.repositories.UserRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +33,9 @@ class UserRefreshServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PrincipalCacheInterface principalCache;
+
     @InjectMocks
     private UserRefreshService userRefreshService;
 
@@ -89,6 +93,7 @@ class UserRefreshServiceTest {
             // Verify that token timestamp was updated
             verify(userRepository, times(1)).save(any(User.class));
             verify(jwtTokenInterface, times(1)).generateUserToken(testUser);
+            verify(principalCache).invalidate("john@example.com");
         }
     }
 
@@ -0,0 +1,132 @@
+package com.delimce.aibroker.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.delimce.aibroker.domain.jfr.AuthEvent;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+class FlightRecorderEndpointTest {
+
+    private final FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint(Duration.ofMinutes(5),
+            DataSize.ofMegabytes(16));
+
+    @AfterEach
+    void tearDown() {
+        endpoint.close();
+    }
+
+    @Test
+    void start_shouldRecordTheBrokerEvents_untilStopped() throws Exception {
+        assertEquals("NONE", endpoint.status().state());
+
+        FlightRecorderEndpoint.RecordingStatus started = endpoint.start(null, null, null);
+        new AuthEvent().finish("anonymous");
+        FlightRecorderEndpoint.RecordingStatus stopped = endpoint.stop();
+
+        assertEquals("RUNNING", started.state());
+        assertEquals(FlightRecorderEndpoint.DEFAULT_SETTINGS, started.settings());
+        assertNotNull(started.startTime());
+        assertEquals("STOPPED", stopped.state());
+        assertNotNull(stopped.stopTime());
+
+        Resource download = endpoint.download(FlightRecorderEndpoint.RECORDING_NAME);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(download.getFile().toPath());
+        Files.delete(download.getFile().toPath());
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals(AuthEvent.NAME)));
+    }
+
+    @Test
+    void start_shouldLeaveARunningRecordingRunning() {
+        FlightRecorderEndpoint.RecordingStatus first = endpoint.start("profile", Duration.ofMillis(10), null);
+        FlightRecorderEndpoint.RecordingStatus second = endpoint.start(null, null, null);
+
+        assertEquals("profile", second.settings());
+        assertEquals(first.startTime(), second.startTime());
+    }
+
+    @Test
+    void start_shouldReplaceAStoppedRecording() {
+        FlightRecorderEndpoint.RecordingStatus first = endpoint.start(null, null, Duration.ofMinutes(1));
+        endpoint.stop();
+
+        FlightRecorderEndpoint.RecordingStatus second = endpoint.start("profile", null, null);
+
+        assertEquals("RUNNING", second.state());
+        assertEquals("profile", second.settings());
+        assertTrue(second.startTime().compareTo(first.startTime()) >= 0);
+    }
+
+    @Test
+    void start_shouldLeaveTheEnvironmentOfTheProcessOutOfTheRecording() throws Exception {
+        endpoint.start(null, null, null);
+        endpoint.stop();
+
+        Path dump = endpoint.download(FlightRecorderEndpoint.RECORDING_NAME).getFile().toPath();
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+
+        assertFalse(events.isEmpty());
+        assertTrue(events.stream().noneMatch(
+                event -> FlightRecorderEndpoint.DISABLED_EVENTS.contains(event.getEventType().getName())));
+    }
+
+    @Test
+    void download_shouldDumpEachDownloadToAFileOfItsOwn_deletedOnceRead() throws Exception {
+        endpoint.start(null, null, null);
+
+        Resource first = endpoint.download(FlightRecorderEndpoint.RECORDING_NAME);
+        Resource second = endpoint.download(FlightRecorderEndpoint.RECORDING_NAME);
+        assertNotEquals(first.getFile(), second.getFile());
+
+        try (InputStream read = first.getInputStream()) {
+            assertTrue(read.readAllBytes().length > 0);
+        }
+        assertTrue(Files.notExists(first.getFile().toPath()));
+        assertTrue(Files.exists(second.getFile().toPath()));
+        second.getInputStream().close();
+        assertTrue(Files.notExists(second.getFile().toPath()));
+    }
+
+    @Test
+    void start_shouldRefuseUnknownSettings() {
+        InvalidEndpointRequestException e = assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.start("verbose", null, null));
+
+        assertEquals("Unknown settings: verbose", e.getMessage());
+        assertEquals("NONE", endpoint.status().state());
+    }
+
+    @Test
+    void download_shouldFindNothing_withoutThatRecording() throws Exception {
+        assertNull(endpoint.download(FlightRecorderEndpoint.RECORDING_NAME));
+
+        endpoint.start(null, null, null);
+
+        assertNull(endpoint.download("other"));
+        Resource download = endpoint.download(FlightRecorderEndpoint.RECORDING_NAME);
+        assertNotNull(download);
+        download.getInputStream().close();
+    }
+
+    @Test
+    void stop_shouldDoNothing_withoutARunningRecording() {
+        assertEquals("NONE", endpoint.stop().state());
+    }
+}
@@ -0,0 +1,119 @@
+package com.delimce.aibroker.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.infrastructure.adapters.CaffeinePrincipalCacheAdapter;
+import com.delimce.aibroker.infrastructure.adapters.JwtTokenAdapter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Cost of authenticating one request in {@link JwtAuthenticationFilter}.
+ * {@code parsePerClaim} repeats what the filter did before verification was
+ * centralised: four full parses, each rebuilding the parser and decoding the
+ * Base64 secret, plus the user lookup. {@code verifiedClaimsCache} runs the
+ * filter itself, which verifies a token once and then serves its claims and
+ * the principal from caches. The user repository is a mock here, so the
+ * saved SELECT is not part of the difference.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=JwtAuthenticationFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private UserRepository userRepository;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        User user = User.builder()
+                .id(1L)
+                .email("bench@example.com")
+                .status(UserStatus.ACTIVE)
+                .tokenTs(new Date().getTime() / 1000)
+                .build();
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findUserByEmailAndStatus(anyString(), any())).thenReturn(user);
+
+        JwtTokenAdapter jwtTokenAdapter = new JwtTokenAdapter();
+        ReflectionTestUtils.setField(jwtTokenAdapter, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtTokenAdapter, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        token = jwtTokenAdapter.generateToken(user);
+        filter = new JwtAuthenticationFilter(jwtTokenAdapter,
+                new CaffeinePrincipalCacheAdapter(userRepository, Duration.ofMinutes(1), 1000),
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public boolean parsePerClaim() {
+        // extractEmail, then isTokenValid: extractEmail, extractIssuedAt, extractExpiration
+        String email = parse(token, Claims::getSubject);
+        User found = userRepository.findUserByEmailAndStatus(email, UserStatus.ACTIVE);
+        return parse(token, Claims::getSubject).equals(found.getEmail())
+                && parse(token, Claims::getIssuedAt).getTime() / 1000 == found.getTokenTs()
+                && parse(token, Claims::getExpiration).after(new Date());
+    }
+
+    @Benchmark
+    public int verifiedClaimsCache() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/llm/chat");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, NO_OP_CHAIN);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+
+    private static <T> T parse(String token, Function<Claims, T> resolver) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return resolver.apply(claims);
+    }
+}
@@ -0,0 +1,195 @@
+package com.delimce.aibroker.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.delimce.aibroker.application.ServerTimings;
+import com.delimce.aibroker.application.users.UserQuotaService;
+import com.delimce.aibroker.application.users.UserRefreshService;
+import com.delimce.aibroker.domain.dto.values.UserToken;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+import com.delimce.aibroker.domain.jfr.AuthEvent;
+import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
+import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.domain.repositories.RequestMetricRepository;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.domain.repositories.UserRequestRepository;
+import com.delimce.aibroker.infrastructure.adapters.CaffeinePrincipalCacheAdapter;
+import com.delimce.aibroker.utils.FlightRecordings;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtTokenInterface jwtService;
+
+    @Mock
+    private PrincipalCacheInterface principalCache;
+
+    @Mock
+    private FilterChain chain;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_shouldPassAnonymousRequestsOn() throws Throwable {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/health");
+
+        filter().doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertEquals(1, count("anonymous"));
+    }
+
+    @Test
+    void doFilter_shouldAuthenticateAValidToken() throws Throwable {
+        User user = User.builder().id(1L).email("test@example.com").build();
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(jwtService.verifyToken("token")).thenReturn(claims);
+        when(principalCache.findActiveUser("test@example.com")).thenReturn(user);
+        when(jwtService.areClaimsValid(claims, user)).thenReturn(true);
+        MockHttpServletRequest request = bearer();
+
+        filter().doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(1, count("authenticated"));
+    }
+
+    @Test
+    void doFilter_shouldKeepTheQuotasOfACachedPrincipal_forTheQuotaCheckAndARefresh() throws Throwable {
+        UserRepository userRepository = mock(UserRepository.class);
+        User stored = User.builder().id(1L).name("John").lastName("Doe").email("test@example.com")
+                .status(UserStatus.ACTIVE).requestQuota(1).tokenQuota(5000L).build();
+        when(userRepository.findUserByEmailAndStatus("test@example.com", UserStatus.ACTIVE)).thenReturn(stored);
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn("test@example.com");
+        when(jwtService.verifyToken("token")).thenReturn(claims);
+        when(jwtService.areClaimsValid(any(Claims.class), any(User.class))).thenReturn(true);
+        when(jwtService.generateUserToken(any(User.class)))
+                .thenReturn(new UserToken("refreshed", "test@example.com", 2000L, 5600L, 3_600_000L));
+        CaffeinePrincipalCacheAdapter principals = new CaffeinePrincipalCacheAdapter(userRepository,
+                Duration.ofMinutes(1), 10);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, principals, meterRegistry);
+        UserQuotaService quota = new UserQuotaService(mock(UserRequestRepository.class),
+                mock(RequestMetricRepository.class), meterRegistry, true, Duration.ofDays(1), 0, 0);
+
+        filter.doFilter(bearer(), response, chain);
+        quota.admit(principal());
+        SecurityContextHolder.clearContext();
+        filter.doFilter(bearer(), response, chain);
+
+        // the default of 0 is unlimited: only the quota of the user refuses the second request
+        assertThrows(TooManyRequestsException.class, () -> quota.admit(principal()));
+        new UserRefreshService(jwtService, userRepository, principals).execute();
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(saved.capture());
+        assertEquals(1, saved.getValue().getRequestQuota());
+        assertEquals(5000L, saved.getValue().getTokenQuota());
+        assertEquals(2000L, saved.getValue().getTokenTs());
+    }
+
+    @Test
+    void doFilter_shouldAddAuthenticationToTheServerTimingsOfATimedRequest() throws Throwable {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/llm/chat");
+        ServerTimings timings = ServerTimings.start(false);
+        request.setAttribute(ServerTimings.ATTRIBUTE, timings);
+
+        filter().doFilter(request, response, chain);
+
+        assertTrue(timings.millis().containsKey("auth"));
+    }
+
+    @Test
+    void doFilter_shouldRecordTheOutcomeAsAFlightRecorderEvent() throws Throwable {
+        when(jwtService.verifyToken("token"))
+                .thenThrow(new JwtTokenException("bad signature"));
+
+        List<RecordedEvent> events = FlightRecordings.record(AuthEvent.NAME,
+                () -> filter().doFilter(bearer(), response, chain));
+
+        assertEquals(1, events.size());
+        assertEquals("rejected", events.get(0).getString("outcome"));
+    }
+
+    @Test
+    void doFilter_shouldRejectATokenOfAnUnknownUser() throws Throwable {
+        Claims claims = mock(Claims.class);
+        when(claims.getSubject()).thenReturn("gone@example.com");
+        when(jwtService.verifyToken("token")).thenReturn(claims);
+        MockHttpServletRequest request = bearer();
+
+        filter().doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(request, response);
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(1, count("rejected"));
+    }
+
+    @Test
+    void doFilter_shouldRejectAnInvalidToken() throws Throwable {
+        when(jwtService.verifyToken("token"))
+                .thenThrow(new JwtTokenException("bad signature"));
+        MockHttpServletRequest request = bearer();
+
+        filter().doFilter(request, response, chain);
+
+        verify(chain, never()).doFilter(request, response);
+        assertEquals(401, response.getStatus());
+        assertEquals("Invalid token: bad signature", response.getContentAsString());
+        assertEquals(1, count("rejected"));
+    }
+
+    private JwtAuthenticationFilter filter() {
+        return new JwtAuthenticationFilter(jwtService, principalCache, meterRegistry);
+    }
+
+    private static MockHttpServletRequest bearer() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/llm/chat");
+        request.addHeader("Authorization", "Bearer token");
+        return request;
+    }
+
+    private static User principal() {
+        return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+
+    private long count(String outcome) {
+        return meterRegistry.get(JwtAuthenticationFilter.AUTH_TIMER).tag("outcome", outcome).timer().count();
+    }
+}
@@ -0,0 +1,85 @@
+package com.delimce.aibroker.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.convention.TestBean;
+
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.server.port=0",
+        "management.endpoints.web.exposure.include=health,prometheus,jfr"
+})
+@ActiveProfiles("test")
+@AutoConfigureObservability
+class ManagementPortSecurityTest {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalManagementPort
+    private int managementPort;
+
+    private static final JwtTokenInterface jwtToken = mock(JwtTokenInterface.class);
+    private static final PrincipalCacheInterface principalCache = mock(PrincipalCacheInterface.class);
+
+    // the real filter, in place of the mock of TestConfig that ends every chain
+    @TestBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    static JwtAuthenticationFilter jwtAuthenticationFilter() {
+        return new JwtAuthenticationFilter(jwtToken, principalCache, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void jfr_shouldBeServedToAuthenticatedUsers_onAManagementPortOfItsOwn() throws Throwable {
+        Claims claims = mock(Claims.class);
+        User admin = User.builder().id(1L).email("admin@example.com").build();
+        when(claims.getSubject()).thenReturn("admin@example.com");
+        when(jwtToken.verifyToken("token")).thenReturn(claims);
+        when(principalCache.findActiveUser("admin@example.com")).thenReturn(admin);
+        when(jwtToken.areClaimsValid(any(), any())).thenReturn(true);
+
+        HttpResponse<String> anonymous = get("/actuator/jfr", null);
+        HttpResponse<String> authenticated = get("/actuator/jfr", "token");
+
+        assertEquals(403, anonymous.statusCode());
+        assertEquals(200, authenticated.statusCode());
+        assertTrue(authenticated.body().contains("\"state\":\"NONE\""));
+    }
+
+    @Test
+    void prometheus_shouldBeServedToScrapersWithoutAToken_onAManagementPortOfItsOwn() throws Exception {
+        HttpResponse<String> scrape = get("/actuator/prometheus", null);
+
+        assertEquals(200, scrape.statusCode());
+        assertTrue(scrape.body().contains("jvm_memory_used_bytes"));
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + managementPort + path));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,81 @@
+package com.delimce.aibroker.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.delimce.aibroker.application.llm.ModelRegistry;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.utils.TestHandler;
+
+public class ModelRegistryInvalidatorTest extends TestHandler {
+
+    @Autowired
+    private ModelRegistry modelRegistry;
+
+    private Provider provider;
+
+    private Model model;
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+        provider = new Provider();
+        provider.setName("OpenAI");
+        provider.setDescription("Artificial Intelligence");
+        provider.setBaseUrl("https://openai.com");
+        provider.setApiKey("api-token-here");
+        provider.setEnabled(true);
+        provider = providerRepository.save(provider);
+
+        model = new Model();
+        model.setName("GPT-4");
+        model.setType(ModelType.CHAT);
+        model.setProvider(provider);
+        model.setEnabled(true);
+        model = modelRepository.save(model);
+
+        assertThat(modelRegistry.find("GPT-4").isEnabled()).isTrue();
+    }
+
+    @Test
+    public void shouldReloadTheModel_whenItIsUpdated() {
+        model.setEnabled(false);
+        modelRepository.save(model);
+
+        assertThat(modelRegistry.find("GPT-4").isEnabled()).isFalse();
+    }
+
+    @Test
+    public void shouldReloadTheModel_whenItsProviderIsUpdated() {
+        provider.setEnabled(false);
+        providerRepository.save(provider);
+
+        assertThat(modelRegistry.find("GPT-4").getProvider().isEnabled()).isFalse();
+    }
+
+    @Test
+    public void shouldForgetTheModel_whenItIsDeleted() {
+        modelRepository.delete(model);
+
+        assertThat(modelRegistry.find("GPT-4")).isNull();
+    }
+
+    @Test
+    public void shouldFindTheModel_whenItIsInserted() {
+        Model other = new Model();
+        other.setName("GPT-4o");
+        other.setType(ModelType.CHAT);
+        other.setProvider(provider);
+        other.setAlias("gpt");
+        other.setEnabled(true);
+        modelRepository.save(other);
+
+        assertThat(modelRegistry.findAlias("gpt")).extracting(Model::getName).containsExactly("GPT-4o");
+    }
+}
@@ -0,0 +1,36 @@
+package com.delimce.aibroker.config;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.delimce.aibroker.application.llm.ChatMetrics;
+import com.delimce.aibroker.utils.TestHandler;
+
+@AutoConfigureMockMvc(addFilters = false)
+@AutoConfigureObservability
+class PrometheusEndpointTest extends TestHandler {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Test
+    void prometheus_shouldExportTheChatStagesWithTheirHistogram() throws Exception {
+        chatMetrics.stage("resolve", null, "success", System.nanoTime());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("aibroker_chat_stage_seconds_count{")))
+                .andExpect(content().string(containsString("aibroker_chat_stage_seconds_bucket{")));
+    }
+}
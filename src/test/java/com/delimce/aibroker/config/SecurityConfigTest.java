@@ -0,0 +1,55 @@
+package com.delimce.aibroker.config;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.convention.TestBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.utils.TestHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "management.endpoints.web.exposure.include=health,prometheus,jfr")
+class SecurityConfigTest extends TestHandler {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // the real filter, in place of the mock of TestConfig that ends every chain
+    @TestBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    static JwtAuthenticationFilter jwtAuthenticationFilter() {
+        return new JwtAuthenticationFilter(mock(JwtTokenInterface.class), mock(PrincipalCacheInterface.class),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void jfr_shouldBeRefused_whileTheActuatorSharesThePortOfTheApi() throws Exception {
+        mockMvc.perform(get("/actuator/jfr").with(user("user@example.com")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/actuator/jfr").with(user("user@example.com")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/jfr/aibroker"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void prometheus_shouldBeRefused_whileTheActuatorSharesThePortOfTheApi() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").with(user("user@example.com")))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,56 @@
+package com.delimce.aibroker.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import com.delimce.aibroker.application.ServerTimings;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@ExtendWith(MockitoExtension.class)
+class ServerTimingFilterTest {
+
+    @Mock
+    private FilterChain chain;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void doFilter_shouldTimeAChatRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/llm/chat");
+        request.setContextPath("/v1");
+
+        new ServerTimingFilter(true, true).doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertTrue(ServerTimings.of(request).isEnabled());
+        assertTrue(ServerTimings.of(request).isInBody());
+    }
+
+    @Test
+    void doFilter_shouldNotTimeOtherRequests() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/llm/models");
+
+        new ServerTimingFilter(true, false).doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertSame(ServerTimings.DISABLED, ServerTimings.of(request));
+    }
+
+    @Test
+    void doFilter_shouldNotTimeAnything_whenDisabled() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/llm/chat");
+
+        new ServerTimingFilter(false, false).doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertFalse(ServerTimings.of(request).isEnabled());
+    }
+}
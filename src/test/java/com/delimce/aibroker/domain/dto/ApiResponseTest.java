@@ -1,7 +1,11 @@
 package com.delimce.aibroker.domain.dto;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -31,6 +35,17 @@ public class ApiResponseTest {
         assertEquals("Error", response.message());
     }
 
+    @Test
+    public void testApiResponseWithTimings() throws Exception {
+        ApiResponse response = new ApiResponse("Info").withTimings(Map.of("total", 1.5));
+        assertEquals("Info", response.info());
+        assertEquals(Map.of("total", 1.5), response.timings());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertTrue(objectMapper.writeValueAsString(response).contains("\"timings\":{\"total\":1.5}"));
+        assertFalse(objectMapper.writeValueAsString(new ApiResponse("Info")).contains("timings"));
+    }
+
     @Test
     public void testInvalidStatusCodeThrowsException() {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -0,0 +1,96 @@
+package com.delimce.aibroker.domain.dto;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.Choice;
+import com.delimce.aibroker.domain.dto.responses.llm.Message;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Cost of reading a chat request and writing its response as JSON, with an
+ * object mapper configured like the one of the application, for prompts from
+ * a short question to a pasted document of about 8k tokens, answered with
+ * about 1k tokens.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=ChatPayloadSerializationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatPayloadSerializationBenchmark {
+
+    @Param({ "200", "4000", "32000" })
+    private int promptChars;
+
+    private ObjectMapper objectMapper;
+    private ModelRequest request;
+    private byte[] requestJson;
+    private ModelChatResponse response;
+    private byte[] responseJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .temperature(0.7)
+                .maxTokens(1024)
+                .messages(new ModelMessageRequest[] {
+                        new ModelMessageRequest("system", "You are a helpful assistant."),
+                        new ModelMessageRequest("user", "x".repeat(promptChars)),
+                })
+                .build();
+        requestJson = objectMapper.writeValueAsBytes(request);
+        response = new ModelChatResponse(
+                "chat-1",
+                "chat.completion",
+                1700000000L,
+                "deepseek-chat",
+                new Choice[] { new Choice(0, new Message("assistant", "x".repeat(4000)), null, "stop") },
+                new Usage(promptChars / 4, 1000, promptChars / 4 + 1000, null, 0, promptChars / 4),
+                "fp-1");
+        responseJson = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ModelRequest readRequest() throws IOException {
+        return objectMapper.readValue(requestJson, ModelRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ModelChatResponse readResponse() throws IOException {
+        return objectMapper.readValue(responseJson, ModelChatResponse.class);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(new ApiResponse(response));
+    }
+}
@@ -1,5 +1,6 @@
 package com.delimce.aibroker.domain.dto.requests.llm;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -88,6 +89,34 @@ class ModelRequestTest {
         assertEquals(0, request.getTemperature());
     }
 
+    @Test
+    void whenMaxTokensIsNotPositive_thenValidationViolation() {
+        ModelRequest request = ModelRequest.builder()
+                .model(VALID_MODEL)
+                .messages(new ModelMessageRequest[] {
+                        new ModelMessageRequest("user", "Hello")
+                })
+                .maxTokens(0)
+                .build();
+
+        Set<ConstraintViolation<ModelRequest>> violations = validator.validate(request);
+        assertEquals(1, violations.size());
+        assertEquals("max_tokens must be positive", violations.iterator().next().getMessage());
+    }
+
+    @Test
+    void testMaxTokensJsonName_andOmittedWhenUnset() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        ModelRequest request = objectMapper.readValue(
+                "{\"model\":\"" + VALID_MODEL + "\",\"messages\":[],\"max_tokens\":256}", ModelRequest.class);
+
+        assertEquals(256, request.getMaxTokens());
+        assertTrue(objectMapper.writeValueAsString(request).contains("\"max_tokens\":256"));
+        assertFalse(objectMapper.writeValueAsString(new ModelRequest(VALID_MODEL, false, null, 0))
+                .contains("max_tokens"));
+    }
+
     @Test
     void testNoArgsConstructor() {
         ModelRequest request = new ModelRequest();
@@ -96,6 +125,7 @@ class ModelRequestTest {
         assertFalse(request.isStream());
         assertNull(request.getMessages());
         assertEquals(1, request.getTemperature());
+        assertNull(request.getMaxTokens());
     }
 
     @Test
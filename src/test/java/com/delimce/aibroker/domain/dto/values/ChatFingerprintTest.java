@@ -0,0 +1,64 @@
+package com.delimce.aibroker.domain.dto.values;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.entities.Model;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatFingerprintTest {
+
+    private final Model model = Model.builder().id(1L).name("deepseek-chat").build();
+
+    @Test
+    void of_shouldMatch_forIdenticalRequests() {
+        String first = ChatFingerprint.of(model, request(0, "user", "hello"));
+        String second = ChatFingerprint.of(model, request(-0.0, "user", "hello"));
+
+        assertNotNull(first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void of_shouldDiffer_whenModelSamplingRoleOrContentDiffers() {
+        String base = ChatFingerprint.of(model, request(0, "user", "hello"));
+
+        assertNotEquals(base, ChatFingerprint.of(Model.builder().name("deepseek-coder").build(),
+                request(0, "user", "hello")));
+        assertNotEquals(base, ChatFingerprint.of(model, request(0.5, "user", "hello")));
+        assertNotEquals(base, ChatFingerprint.of(model, ModelRequest.builder().model("deepseek-chat")
+                .temperature(0).maxTokens(64)
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "hello") }).build()));
+        assertNotEquals(base, ChatFingerprint.of(model, request(0, "system", "hello")));
+        assertNotEquals(base, ChatFingerprint.of(model, request(0, "user", "hello!")));
+        assertNotEquals(base, ChatFingerprint.of(model, request(0, null, "hello")));
+        // message boundaries are part of the fingerprint
+        assertNotEquals(ChatFingerprint.of(model, request(0, "user", "ab", "user", "c")),
+                ChatFingerprint.of(model, request(0, "user", "a", "user", "bc")));
+    }
+
+    @Test
+    void of_shouldOnlyCoverTheLeadingMessages_whenGivenAMessageCount() {
+        ModelRequest first = request(0, "system", "be brief", "user", "hello");
+        ModelRequest second = request(0, "system", "be brief", "user", "hi there");
+
+        assertEquals(ChatFingerprint.of(model, first, 1), ChatFingerprint.of(model, second, 1));
+        assertNotEquals(ChatFingerprint.of(model, first, 2), ChatFingerprint.of(model, second, 2));
+        assertEquals(ChatFingerprint.of(model, first), ChatFingerprint.of(model, first, 2));
+    }
+
+    @Test
+    void isDeterministic_shouldOnlyAcceptTemperatureZero() {
+        assertTrue(ChatFingerprint.isDeterministic(request(0, "user", "hello")));
+        assertFalse(ChatFingerprint.isDeterministic(request(0.2, "user", "hello")));
+    }
+
+    private static ModelRequest request(double temperature, String... roleAndContent) {
+        ModelMessageRequest[] messages = new ModelMessageRequest[roleAndContent.length / 2];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new ModelMessageRequest(roleAndContent[2 * i], roleAndContent[2 * i + 1]);
+        }
+        return new ModelRequest("deepseek-chat", false, messages, temperature);
+    }
+}
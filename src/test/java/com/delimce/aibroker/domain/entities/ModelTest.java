@@ -0,0 +1,42 @@
+package com.delimce.aibroker.domain.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelTest {
+
+    @Test
+    void costOf_shouldPricePromptAndCompletionTokens_perUnit() {
+        Model model = priced(0.27f, 1.10f, "1M");
+
+        assertEquals(new BigDecimal("0.00008200"), model.costOf(100, 50));
+        assertEquals(new BigDecimal("1.37000000"), model.costOf(1_000_000, 1_000_000));
+    }
+
+    @Test
+    void costOf_shouldReadTheUnit_withOrWithoutASuffix() {
+        assertEquals(new BigDecimal("0.27000000"), priced(0.27f, 0, "1k").costOf(1_000, 0));
+        assertEquals(new BigDecimal("0.02700000"), priced(0.27f, 0, " 10K ").costOf(1_000, 0));
+        assertEquals(new BigDecimal("0.27000000"), priced(0.27f, 0, "1000").costOf(1_000, 0));
+        assertEquals(new BigDecimal("0.27000000"), priced(0.27f, 0, "2m").costOf(2_000_000, 0));
+    }
+
+    @Test
+    void costOf_shouldPricePerMillionTokens_whenTheUnitIsMissingOrUnreadable() {
+        for (String unit : new String[] { null, "", "per million", "0", "-1M" }) {
+            assertEquals(new BigDecimal("0.27000000"), priced(0.27f, 0, unit).costOf(1_000_000, 0), unit);
+        }
+    }
+
+    @Test
+    void costOf_shouldBeZero_forAFreeModel() {
+        assertEquals(0, Model.builder().build().costOf(5_000, 5_000).signum());
+    }
+
+    private static Model priced(float in, float out, String unit) {
+        return Model.builder().costTokenIn(in).costTokenOut(out).costTokenUnit(unit).build();
+    }
+}
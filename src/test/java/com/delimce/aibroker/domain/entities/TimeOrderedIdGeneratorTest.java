@@ -0,0 +1,84 @@
+package com.delimce.aibroker.domain.entities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedIdGeneratorTest {
+
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+
+    @AfterEach
+    void tearDown() {
+        TimeOrderedIdGenerator.useNodeId(0);
+    }
+
+    @Test
+    void nextId_shouldIncreaseMonotonically_acrossManyIdsInTheSameMillisecond() {
+        long previous = TimeOrderedIdGenerator.nextId();
+        for (int i = 0; i < 20_000; i++) {
+            long next = TimeOrderedIdGenerator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void nextId_shouldEncodeCurrentTimeAndNode() {
+        TimeOrderedIdGenerator.useNodeId(42);
+        long before = System.currentTimeMillis();
+
+        long id = TimeOrderedIdGenerator.nextId();
+
+        int shift = TimeOrderedIdGenerator.SEQUENCE_BITS + TimeOrderedIdGenerator.NODE_BITS;
+        long millis = (id >>> shift) + TimeOrderedIdGenerator.EPOCH_MILLIS;
+        assertTrue(id > 0);
+        assertTrue(millis >= before);
+        assertEquals(42, id & TimeOrderedIdGenerator.MAX_NODE_ID);
+    }
+
+    @Test
+    void nextId_shouldNotRepeat_underConcurrentCallers() {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> callers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            callers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    ids.add(TimeOrderedIdGenerator.nextId());
+                }
+            }));
+        }
+        callers.forEach(CompletableFuture::join);
+
+        assertEquals(40_000, ids.size());
+    }
+
+    @Test
+    void useNodeId_shouldRejectValuesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedIdGenerator.useNodeId(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> TimeOrderedIdGenerator.useNodeId(TimeOrderedIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    void generate_shouldKeepAssignedId_andOtherwiseGenerateOne() {
+        Set<Object> generated = new HashSet<>();
+        generated.add(generator.generate(null, new UserRequest(), null, EventType.INSERT));
+        generated.add(generator.generate(null, new UserRequest(), null, EventType.INSERT));
+
+        assertEquals(7L, generator.generate(null, new UserRequest(), 7L, EventType.INSERT));
+        assertEquals(2, generated.size());
+        assertTrue(generator.allowAssignedIdentifiers());
+        assertEquals(EventTypeSets.INSERT_ONLY, generator.getEventTypes());
+    }
+}
@@ -0,0 +1,68 @@
+package com.delimce.aibroker.domain.jfr;
+
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.utils.FlightRecordings;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRequestEventTest {
+
+    @Test
+    void start_shouldFollowNothing_whenNothingRecords() {
+        ChatRequestEvent event = ChatRequestEvent.start(false);
+
+        event.resolved(model());
+        event.audited();
+        event.answered(null, false, null);
+
+        assertSame(ChatRequestEvent.DISABLED, event);
+        assertFalse(event.isRecording());
+    }
+
+    @Test
+    void answered_shouldCommitTheModelTokensAndStages() throws Throwable {
+        List<RecordedEvent> events = FlightRecordings.record(ChatRequestEvent.NAME, () -> {
+            ChatRequestEvent event = ChatRequestEvent.start(true);
+            assertTrue(event.isRecording());
+            event.resolved(model());
+            event.audited();
+            event.answered(new Usage(10, 5, 15, null, 0, 10), false, 2_000_000L);
+        });
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("deepseek-chat", event.getString("model"));
+        assertEquals("DeepSeek", event.getString("provider"));
+        assertTrue(event.getBoolean("stream"));
+        assertFalse(event.getBoolean("responseCacheHit"));
+        assertEquals(10, event.getInt("promptTokens"));
+        assertEquals(5, event.getInt("completionTokens"));
+        assertEquals(15, event.getInt("totalTokens"));
+        assertEquals(2, event.getDuration("timeToFirstToken").toMillis());
+        assertTrue(event.getDuration("resolve").toNanos() > 0);
+    }
+
+    @Test
+    void answered_shouldCommitAResponseWithoutUsageOrUpstreamCall() throws Throwable {
+        List<RecordedEvent> events = FlightRecordings.record(ChatRequestEvent.NAME, () -> {
+            ChatRequestEvent event = ChatRequestEvent.start(false);
+            event.resolved(Model.builder().name("local").build());
+            event.answered(null, true, null);
+        });
+
+        assertEquals(1, events.size());
+        assertNull(events.get(0).getString("provider"));
+        assertTrue(events.get(0).getBoolean("responseCacheHit"));
+        assertEquals(0, events.get(0).getInt("totalTokens"));
+    }
+
+    private static Model model() {
+        return Model.builder().name("deepseek-chat").provider(Provider.builder().name("DeepSeek").build()).build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.delimce.aibroker.domain.jfr;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.utils.FlightRecordings;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamCallEventTest {
+
+    private final Model model = Model.builder().name("deepseek-chat")
+            .provider(Provider.builder().name("DeepSeek").build()).build();
+
+    @Test
+    void time_shouldLeaveTheCallAlone_whenNothingRecords() {
+        Mono<ModelChatResponse> call = Mono.just(new ModelChatResponse());
+        Flux<ModelChatResponse> stream = Flux.just(new ModelChatResponse());
+
+        assertSame(call, UpstreamCallEvent.time(model, call));
+        assertSame(stream, UpstreamCallEvent.time(model, stream));
+    }
+
+    @Test
+    void time_shouldCommitTheResponseOfACall() throws Throwable {
+        List<RecordedEvent> events = FlightRecordings.record(UpstreamCallEvent.NAME,
+                // answered on the calling thread, so the event is committed before block returns
+                () -> UpstreamCallEvent.time(model, Mono.fromCallable(() -> {
+                    Thread.sleep(20);
+                    return response(new Usage(10, 5, 15, null, 0, 10));
+                })).block());
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("deepseek-chat", event.getString("model"));
+        assertEquals("DeepSeek", event.getString("provider"));
+        assertFalse(event.getBoolean("stream"));
+        assertEquals(UpstreamCallEvent.SUCCESS, event.getString("outcome"));
+        assertEquals(15, event.getInt("totalTokens"));
+        assertTrue(event.getDuration("timeToFirstToken").toMillis() >= 20);
+    }
+
+    @Test
+    void time_shouldCountTheChunksOfAStream_andKeepTheLastUsage() throws Throwable {
+        List<RecordedEvent> events = FlightRecordings.record(UpstreamCallEvent.NAME,
+                () -> UpstreamCallEvent.time(model, Flux.just(response(null), response(null),
+                        response(new Usage(4, 2, 6, null, 0, 4)))).blockLast());
+
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getBoolean("stream"));
+        assertEquals(3, events.get(0).getInt("chunks"));
+        assertEquals(2, events.get(0).getInt("completionTokens"));
+    }
+
+    @Test
+    void time_shouldTellFailedEmptyAndCancelledCalls() throws Throwable {
+        List<RecordedEvent> events = FlightRecordings.record(UpstreamCallEvent.NAME, () -> {
+            UpstreamCallEvent.time(model, Mono.<ModelChatResponse>error(new IllegalStateException("down")))
+                    .onErrorResume(e -> Mono.empty()).block();
+            UpstreamCallEvent.time(model, Mono.<ModelChatResponse>empty()).block();
+            UpstreamCallEvent.time(model, Flux.just(response(null), response(null))).take(1).blockLast();
+        });
+
+        assertEquals(List.of(UpstreamCallEvent.ERROR, UpstreamCallEvent.EMPTY, UpstreamCallEvent.CANCELLED),
+                events.stream().sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                        .map(event -> event.getString("outcome")).toList());
+    }
+
+    private static ModelChatResponse response(Usage usage) {
+        return new ModelChatResponse(null, null, 0, null, null, usage, null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.delimce.aibroker.domain.mappers.llm;
+
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+/**
+ * Cost of mapping a Spring AI response to the broker's own with the
+ * generated {@link ChatResponseMapper}: a whole completion, and one chunk of
+ * a streamed one.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=ChatResponseMapperBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatResponseMapperBenchmark {
+
+    private ChatResponseMapper mapper;
+    private ChatResponse completion;
+    private ChatResponse chunk;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = new ChatResponseMapperImpl();
+        completion = response("x".repeat(4000), new DefaultUsage(900, 1000, 1900));
+        chunk = response("xxxx", new DefaultUsage(0, 0, 0));
+    }
+
+    @Benchmark
+    public ModelChatResponse toModelChatResponse() {
+        return mapper.toModelChatResponse(completion);
+    }
+
+    @Benchmark
+    public ModelChatResponse toModelChatChunk() {
+        return mapper.toModelChatChunk(chunk);
+    }
+
+    private static ChatResponse response(String content, DefaultUsage usage) {
+        Generation generation = new Generation(new AssistantMessage(content),
+                ChatGenerationMetadata.builder().finishReason("stop").build());
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .id("chat-1")
+                .model("deepseek-chat")
+                .usage(usage)
+                .keyValue("created", 1700000000L)
+                .build();
+        return new ChatResponse(List.of(generation), metadata);
+    }
+}
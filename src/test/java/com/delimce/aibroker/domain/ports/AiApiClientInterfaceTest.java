@@ -0,0 +1,38 @@
+package com.delimce.aibroker.domain.ports;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiApiClientInterfaceTest {
+
+    private final Model model = Model.builder().name("buffered-model").build();
+    private final ModelRequest request = ModelRequest.builder()
+            .model("buffered-model")
+            .stream(true)
+            .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+            .build();
+
+    @Test
+    void streamToModel_shouldEmitBufferedResponseAsSingleChunk_byDefault() {
+        ModelChatResponse response = new ModelChatResponse();
+        AiApiClientInterface client = (m, r) -> response;
+
+        List<ModelChatResponse> chunks = client.streamToModel(model, request).collectList().block();
+
+        assertEquals(List.of(response), chunks);
+    }
+
+    @Test
+    void streamToModel_shouldCompleteEmpty_whenBufferedResponseIsNull() {
+        AiApiClientInterface client = (m, r) -> null;
+
+        assertFalse(client.streamToModel(model, request).hasElements().block());
+    }
+}
@@ -0,0 +1,111 @@
+package com.delimce.aibroker.domain.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.utils.TestHandler;
+
+public class UsageDailyRepositoryTest extends TestHandler {
+
+    @Autowired
+    private UsageHourlyRepository usageHourlyRepository;
+
+    @Autowired
+    private UsageDailyRepository usageDailyRepository;
+
+    @Autowired
+    private UsageRollupInterface usageRollup;
+
+    private UserRequest request;
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+        User user = userRepository.save(User.builder()
+                .name(faker().name().firstName())
+                .lastName(faker().name().lastName())
+                .password(faker().internet().password())
+                .email(faker().internet().emailAddress())
+                .build());
+
+        Provider provider = new Provider();
+        provider.setName("DeepSeek");
+        provider.setDescription("Chat models");
+        provider.setBaseUrl("https://api.deepseek.com");
+        provider.setApiKey("api-token-here");
+        provider.setEnabled(true);
+
+        Model model = new Model();
+        model.setName("deepseek-chat");
+        model.setType(ModelType.CHAT);
+        model.setProvider(providerRepository.save(provider));
+        request = UserRequest.builder().user(user).model(modelRepository.save(model)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        usageHourlyRepository.deleteAll();
+        usageDailyRepository.deleteAll();
+    }
+
+    @Test
+    void sumByUserAndModel_shouldSumWhatEachFlushAddedToTheDay() {
+        LocalDateTime day = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        usageRollup.record(request, metric(100, 50, "0.00008200", false));
+        usageRollup.flush();
+        usageRollup.record(request, metric(10, 5, "0.00000820", false));
+        usageRollup.flush();
+
+        List<UsageRollup> totals = usageDailyRepository.sumByUserAndModel(day, day.plusDays(1));
+
+        assertThat(usageDailyRepository.count()).isEqualTo(1);
+        assertThat(totals).hasSize(1);
+        assertThat(totals.get(0).start()).isEqualTo(day);
+        assertThat(totals.get(0).requests()).isEqualTo(2);
+        assertThat(totals.get(0).cacheHitTokens()).isEqualTo(22);
+        assertThat(totals.get(0).cost()).isEqualByComparingTo("0.0000902");
+    }
+
+    @Test
+    void findUsage_shouldListTheDaysOfTheUser() {
+        LocalDateTime day = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+        usageRollup.record(request, metric(100, 50, "0.00008200", false));
+        usageRollup.flush();
+
+        List<UsageRollup> usage = usageDailyRepository.findUsage(day.minusDays(1), day.plusDays(1),
+                request.getUser().getId());
+
+        assertThat(usage).hasSize(1);
+        assertThat(usage.get(0).start()).isEqualTo(day);
+        assertThat(usageDailyRepository.findUsage(day.plusDays(1), day.plusDays(2), null)).isEmpty();
+    }
+
+    private static RequestMetric metric(int prompt, int completion, String cost, boolean responseCacheHit) {
+        return RequestMetric.builder()
+                .promptTokens(prompt)
+                .completionTokens(completion)
+                .totalTokens(prompt + completion)
+                .promptCacheHitTokens(prompt / 5)
+                .cost(new BigDecimal(cost))
+                .responseCacheHit(responseCacheHit)
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.delimce.aibroker.domain.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.domain.ports.UsageRollupInterface;
+import com.delimce.aibroker.utils.TestHandler;
+
+public class UsageHourlyRepositoryTest extends TestHandler {
+
+    @Autowired
+    private UsageHourlyRepository usageHourlyRepository;
+
+    @Autowired
+    private UsageDailyRepository usageDailyRepository;
+
+    @Autowired
+    private UsageRollupInterface usageRollup;
+
+    private UserRequest request;
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+        User user = userRepository.save(User.builder()
+                .name(faker().name().firstName())
+                .lastName(faker().name().lastName())
+                .password(faker().internet().password())
+                .email(faker().internet().emailAddress())
+                .build());
+
+        Provider provider = new Provider();
+        provider.setName("DeepSeek");
+        provider.setDescription("Chat models");
+        provider.setBaseUrl("https://api.deepseek.com");
+        provider.setApiKey("api-token-here");
+        provider.setEnabled(true);
+
+        Model model = new Model();
+        model.setName("deepseek-chat");
+        model.setType(ModelType.CHAT);
+        model.setProvider(providerRepository.save(provider));
+        request = UserRequest.builder().user(user).model(modelRepository.save(model)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        usageHourlyRepository.deleteAll();
+        usageDailyRepository.deleteAll();
+    }
+
+    @Test
+    void sumByUserAndModel_shouldSumWhatEachFlushAddedToTheHour() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        usageRollup.record(request, metric(100, 50, "0.00008200", false));
+        usageRollup.flush();
+        usageRollup.record(request, metric(10, 5, "0.00000820", false));
+        usageRollup.record(request, metric(100, 50, "0", true));
+        usageRollup.flush();
+
+        List<UsageRollup> totals = usageHourlyRepository.sumByUserAndModel(hour, hour.plusHours(1));
+
+        assertThat(usageHourlyRepository.count()).isEqualTo(1);
+        assertThat(totals).hasSize(1);
+        UsageRollup total = totals.get(0);
+        assertThat(total.start()).isEqualTo(hour);
+        assertThat(total.userId()).isEqualTo(request.getUser().getId());
+        assertThat(total.modelId()).isEqualTo(request.getModel().getId());
+        assertThat(total.requests()).isEqualTo(3);
+        assertThat(total.cachedRequests()).isEqualTo(1);
+        assertThat(total.cacheHitTokens()).isEqualTo(22);
+        assertThat(total.totalTokens()).isEqualTo(165);
+        assertThat(total.cost()).isEqualByComparingTo("0.0000902");
+        assertThat(usageHourlyRepository.sumByUserAndModel(hour.plusHours(1), hour.plusHours(2))).isEmpty();
+    }
+
+    @Test
+    void findUsage_shouldListTheHoursOfTheUser() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        usageRollup.record(request, metric(100, 50, "0.00008200", false));
+        usageRollup.flush();
+
+        List<UsageRollup> usage = usageHourlyRepository.findUsage(hour, hour.plusHours(1),
+                request.getUser().getId());
+
+        assertThat(usage).hasSize(1);
+        assertThat(usage.get(0).start()).isEqualTo(hour);
+        assertThat(usage.get(0).totalTokens()).isEqualTo(150);
+        assertThat(usageHourlyRepository.findUsage(hour, hour.plusHours(1), null)).hasSize(1);
+        assertThat(usageHourlyRepository.findUsage(hour, hour.plusHours(1), request.getUser().getId() + 1))
+                .isEmpty();
+    }
+
+    private static RequestMetric metric(int prompt, int completion, String cost, boolean responseCacheHit) {
+        return RequestMetric.builder()
+                .promptTokens(prompt)
+                .completionTokens(completion)
+                .totalTokens(prompt + completion)
+                .promptCacheHitTokens(prompt / 5)
+                .cost(new BigDecimal(cost))
+                .responseCacheHit(responseCacheHit)
+                .build();
+    }
+}
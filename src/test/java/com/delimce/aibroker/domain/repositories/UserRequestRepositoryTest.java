@@ -0,0 +1,147 @@
+package com.delimce.aibroker.domain.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.delimce.aibroker.domain.dto.values.ModelLatency;
+import com.delimce.aibroker.domain.dto.values.UserUsageTotal;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.ModelType;
+import com.delimce.aibroker.domain.ports.AuditLogInterface;
+import com.delimce.aibroker.utils.TestHandler;
+
+public class UserRequestRepositoryTest extends TestHandler {
+
+    @Autowired
+    private UserRequestRepository userRequestRepository;
+
+    @Autowired
+    private RequestMetricRepository requestMetricRepository;
+
+    @Autowired
+    private AuditLogInterface auditLog;
+
+    private User user;
+    private Model model;
+
+    @Override
+    @BeforeEach
+    public void setUp() {
+        super.setUp();
+        user = userRepository.save(User.builder()
+                .name(faker().name().firstName())
+                .lastName(faker().name().lastName())
+                .password(faker().internet().password())
+                .email(faker().internet().emailAddress())
+                .build());
+
+        Provider provider = new Provider();
+        provider.setName("DeepSeek");
+        provider.setDescription("Chat models");
+        provider.setBaseUrl("https://api.deepseek.com");
+        provider.setApiKey("api-token-here");
+        provider.setEnabled(true);
+
+        model = new Model();
+        model.setName("deepseek-chat");
+        model.setType(ModelType.CHAT);
+        model.setProvider(providerRepository.save(provider));
+        model = modelRepository.save(model);
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestMetricRepository.deleteAll();
+        userRequestRepository.deleteAll();
+    }
+
+    @Test
+    void countRequestsByUserSince_shouldCountTheRequestsOfEachUser() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+        request();
+        request();
+
+        List<UserUsageTotal> totals = userRequestRepository.countRequestsByUserSince(since);
+
+        assertThat(totals).containsExactly(new UserUsageTotal(user.getId(), user.getEmail(), 2L));
+        assertThat(userRequestRepository.countRequestsByUserSince(LocalDateTime.now().plusMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void sumTokensByUserSince_shouldSumTheTokensSpentUpstream() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+        metric(request(), 100, false);
+        metric(request(), 50, false);
+        metric(request(), 400, true);
+
+        List<UserUsageTotal> totals = requestMetricRepository.sumTokensByUserSince(since);
+
+        assertThat(totals).containsExactly(new UserUsageTotal(user.getId(), user.getEmail(), 150L));
+    }
+
+    @Test
+    void averageLatencyByModel_shouldAverageTheTimedUpstreamCallsOfEachModel() {
+        LocalDateTime from = LocalDateTime.now().minusMinutes(1);
+        latency(800, 20.0, 40.0, false);
+        latency(1200, null, 60.0, false);
+        latency(5, null, null, true);
+        metric(request(), 100, false);
+
+        List<ModelLatency> latencies = requestMetricRepository.averageLatencyByModel(from,
+                LocalDateTime.now().plusMinutes(1));
+
+        assertThat(latencies).hasSize(1);
+        ModelLatency latency = latencies.get(0);
+        assertThat(latency.modelId()).isEqualTo(model.getId());
+        assertThat(latency.model()).isEqualTo("deepseek-chat");
+        assertThat(latency.provider()).isEqualTo("DeepSeek");
+        assertThat(latency.calls()).isEqualTo(2L);
+        assertThat(latency.timeToFirstTokenMs()).isEqualTo(1000.0);
+        assertThat(latency.interTokenLatencyMs()).isEqualTo(20.0);
+        assertThat(latency.outputTokensPerSecond()).isEqualTo(50.0);
+        assertThat(requestMetricRepository.averageLatencyByModel(from.minusHours(1), from)).isEmpty();
+    }
+
+    private void latency(int timeToFirstTokenMs, Double interTokenLatencyMs, Double outputTokensPerSecond,
+            boolean responseCacheHit) {
+        // through the audit log, which writes the metrics with its own insert
+        UserRequest request = UserRequest.builder().user(user).model(model).prompt("[user]: hello").build();
+        auditLog.recordRequest(request);
+        auditLog.recordMetric(RequestMetric.builder()
+                .userRequest(request)
+                .totalTokens(100)
+                .timeToFirstTokenMs(timeToFirstTokenMs)
+                .interTokenLatencyMs(interTokenLatencyMs)
+                .outputTokensPerSecond(outputTokensPerSecond)
+                .responseCacheHit(responseCacheHit)
+                .build());
+        auditLog.flush();
+    }
+
+    private UserRequest request() {
+        return userRequestRepository.save(UserRequest.builder()
+                .user(user)
+                .model(model)
+                .prompt("[user]: hello")
+                .build());
+    }
+
+    private void metric(UserRequest request, int totalTokens, boolean responseCacheHit) {
+        requestMetricRepository.save(RequestMetric.builder()
+                .userRequest(request)
+                .totalTokens(totalTokens)
+                .responseCacheHit(responseCacheHit)
+                .build());
+    }
+}
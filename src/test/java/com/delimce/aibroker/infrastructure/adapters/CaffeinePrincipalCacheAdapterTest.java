@@ -0,0 +1,81 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.repositories.UserRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CaffeinePrincipalCacheAdapterTest {
+
+    private static final String EMAIL = "john@example.com";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private CaffeinePrincipalCacheAdapter principalCache;
+    private User activeUser;
+
+    @BeforeEach
+    void setUp() {
+        principalCache = new CaffeinePrincipalCacheAdapter(userRepository, Duration.ofMinutes(1), 100);
+        activeUser = User.builder()
+                .id(1L)
+                .name("John")
+                .lastName("Doe")
+                .email(EMAIL)
+                .password("encoded")
+                .tokenTs(1000L)
+                .status(UserStatus.ACTIVE)
+                .build();
+        activeUser.setCreatedAt(LocalDateTime.now());
+    }
+
+    @Test
+    void findActiveUser_shouldQueryOnce_andServeLaterLookupsFromCache() {
+        when(userRepository.findUserByEmailAndStatus(EMAIL, UserStatus.ACTIVE)).thenReturn(activeUser);
+
+        User first = principalCache.findActiveUser(EMAIL);
+        User second = principalCache.findActiveUser(EMAIL);
+
+        assertEquals(activeUser, first);
+        assertEquals(1000L, second.getTokenTs());
+        assertEquals("encoded", second.getPassword());
+        verify(userRepository, times(1)).findUserByEmailAndStatus(EMAIL, UserStatus.ACTIVE);
+    }
+
+    @Test
+    void findActiveUser_shouldReturnCopies_soChangesDoNotLeakIntoTheCache() {
+        when(userRepository.findUserByEmailAndStatus(EMAIL, UserStatus.ACTIVE)).thenReturn(activeUser);
+
+        User first = principalCache.findActiveUser(EMAIL);
+        first.setTokenTs(2000L);
+
+        assertNotSame(activeUser, first);
+        assertEquals(1000L, principalCache.findActiveUser(EMAIL).getTokenTs());
+    }
+
+    @Test
+    void findActiveUser_shouldNotCacheMissingUsers() {
+        when(userRepository.findUserByEmailAndStatus(EMAIL, UserStatus.ACTIVE)).thenReturn(null, activeUser);
+
+        assertNull(principalCache.findActiveUser(EMAIL));
+        assertNotNull(principalCache.findActiveUser(EMAIL));
+    }
+
+    @Test
+    void invalidate_shouldReloadUserOnNextLookup() {
+        User refreshed = User.builder().email(EMAIL).tokenTs(3000L).status(UserStatus.ACTIVE).build();
+        when(userRepository.findUserByEmailAndStatus(EMAIL, UserStatus.ACTIVE)).thenReturn(activeUser, refreshed);
+
+        principalCache.findActiveUser(EMAIL);
+        principalCache.invalidate(EMAIL);
+        principalCache.invalidate(null);
+
+        assertEquals(3000L, principalCache.findActiveUser(EMAIL).getTokenTs());
+        verify(userRepository, times(2)).findUserByEmailAndStatus(EMAIL, UserStatus.ACTIVE);
+    }
+}
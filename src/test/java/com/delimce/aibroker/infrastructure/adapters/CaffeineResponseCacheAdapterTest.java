@@ -0,0 +1,72 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
+import com.delimce.aibroker.domain.dto.responses.llm.Choice;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.ChatFingerprint;
+import com.delimce.aibroker.domain.entities.Model;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class CaffeineResponseCacheAdapterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Model model = Model.builder().id(1L).name("deepseek-chat").build();
+
+    @Test
+    void fingerprint_shouldBeTheChatFingerprint_whenRequestIsCacheable() {
+        ModelRequest request = request(0, "user", "hello");
+
+        assertEquals(ChatFingerprint.of(model, request), cache(true, Set.of()).fingerprint(model, request));
+    }
+
+    @Test
+    void fingerprint_shouldBeNull_whenRequestIsNotCacheable() {
+        assertNull(cache(false, Set.of()).fingerprint(model, request(0, "user", "hello")));
+        assertNull(cache(true, Set.of()).fingerprint(model, request(0.7, "user", "hello")));
+        assertNull(cache(true, Set.of("other-model")).fingerprint(model, request(0, "user", "hello")));
+        assertNotNull(cache(true, Set.of("deepseek-chat")).fingerprint(model, request(0, "user", "hello")));
+    }
+
+    @Test
+    void find_shouldReturnStoredResponse_andCountHitsAndMisses() {
+        CaffeineResponseCacheAdapter cache = cache(true, Set.of());
+        String key = cache.fingerprint(model, request(0, "user", "hello"));
+        ModelChatResponse response = ModelChatResponse.builder().choices(new Choice[] { new Choice() }).build();
+
+        assertNull(cache.find(key));
+        cache.store(key, response);
+
+        assertSame(response, cache.find(key));
+        assertEquals(1.0, meterRegistry.get("aibroker.response.cache").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("aibroker.response.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void store_shouldIgnoreResponsesWithoutChoices() {
+        CaffeineResponseCacheAdapter cache = cache(true, Set.of());
+        String key = cache.fingerprint(model, request(0, "user", "hello"));
+
+        cache.store(key, ModelChatResponse.builder().build());
+        cache.store(key, ModelChatResponse.builder().choices(new Choice[0]).build());
+
+        assertNull(cache.find(key));
+    }
+
+    private CaffeineResponseCacheAdapter cache(boolean enabled, Set<String> models) {
+        return new CaffeineResponseCacheAdapter(meterRegistry, enabled, models, Duration.ofMinutes(1), 100);
+    }
+
+    private static ModelRequest request(double temperature, String... roleAndContent) {
+        ModelMessageRequest[] messages = new ModelMessageRequest[roleAndContent.length / 2];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new ModelMessageRequest(roleAndContent[2 * i], roleAndContent[2 * i + 1]);
+        }
+        return new ModelRequest("deepseek-chat", false, messages, temperature);
+    }
+}
@@ -0,0 +1,372 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.AuditOverflowPolicy;
+import com.delimce.aibroker.domain.jfr.AuditFlushEvent;
+import com.delimce.aibroker.utils.FlightRecordings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings({ "unchecked", "null" })
+class JdbcAuditLogAdapterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcAuditLogAdapter adapter;
+
+    @AfterEach
+    void tearDown() {
+        if (adapter != null) {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void recordRequest_shouldAssignTimeOrderedIds_beforeTheRowIsWritten() {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        List<UserRequest> requests = List.of(userRequest(), userRequest(), userRequest());
+        requests.forEach(adapter::recordRequest);
+
+        List<Long> ids = requests.stream().map(UserRequest::getId).toList();
+        assertTrue(ids.get(0) < ids.get(1) && ids.get(1) < ids.get(2));
+        assertTrue(requests.stream().allMatch(request -> request.getCreatedAt() != null));
+    }
+
+    @Test
+    void flush_shouldBatchRequestsWithTheirAssignedIds() {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        List<UserRequest> requests = List.of(userRequest(), userRequest(), userRequest());
+        requests.forEach(adapter::recordRequest);
+        adapter.flush();
+
+        ArgumentCaptor<Collection<UserRequest>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), written.capture(), eq(3),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(requests, List.copyOf(written.getValue()));
+        assertEquals(1, meterRegistry.get("aibroker.audit.flush").timer().count());
+    }
+
+    @Test
+    void flush_shouldWriteMetricsAfterTheirRequestInTheSameBatch() {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        UserRequest request = userRequest();
+        adapter.recordRequest(request);
+        adapter.recordMetric(RequestMetric.builder().userRequest(request).totalTokens(12).build());
+        adapter.flush();
+
+        ArgumentCaptor<Collection<RequestMetric>> metrics = ArgumentCaptor.forClass(Collection.class);
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        inOrder.verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_METRIC_SQL), metrics.capture(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        RequestMetric metric = metrics.getValue().iterator().next();
+        assertNotNull(metric.getId());
+        assertEquals(request.getId(), metric.getUserRequest().getId());
+    }
+
+    @Test
+    void flush_shouldMoveARequestToTheModelThatAnsweredIt_afterItsInsert() throws Exception {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        UserRequest request = userRequest();
+        adapter.recordRequest(request);
+        request.setModel(Model.builder().id(7L).name("alternate").build());
+        adapter.recordModel(request);
+        adapter.recordModel(userRequest());
+        adapter.flush();
+
+        ArgumentCaptor<Collection<Object>> updates = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setter = ArgumentCaptor
+                .forClass(ParameterizedPreparedStatementSetter.class);
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        inOrder.verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.UPDATE_REQUEST_MODEL_SQL), updates.capture(), eq(1), setter.capture());
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        setter.getValue().setValues(statement, updates.getValue().iterator().next());
+        verify(statement).setLong(1, 7L);
+        verify(statement).setLong(2, request.getId());
+    }
+
+    @Test
+    void flush_shouldRecordTheBatchAsAFlightRecorderEvent() throws Throwable {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        List<RecordedEvent> events = FlightRecordings.record(AuditFlushEvent.NAME, () -> {
+            UserRequest request = userRequest();
+            adapter.recordRequest(request);
+            adapter.recordMetric(RequestMetric.builder().userRequest(request).totalTokens(12).build());
+            adapter.recordMetric(RequestMetric.builder().userRequest(request).build());
+            adapter.flush();
+        });
+
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).getInt("requests"));
+        assertEquals(2, events.get(0).getInt("metrics"));
+        assertEquals(12, events.get(0).getLong("totalTokens"));
+        assertFalse(events.get(0).getBoolean("failed"));
+    }
+
+    @Test
+    void flush_shouldSplitBatchesAtConfiguredSize() {
+        adapter = adapter(100, 2, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        for (int i = 0; i < 5; i++) {
+            adapter.recordRequest(userRequest());
+        }
+        adapter.flush();
+
+        verify(jdbcTemplate, times(3)).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void writer_shouldFlushPartialBatch_whenIntervalElapses() {
+        adapter = adapter(100, 50, Duration.ofMillis(20), AuditOverflowPolicy.DROP);
+
+        adapter.recordRequest(userRequest());
+
+        verify(jdbcTemplate, timeout(2000)).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void flush_shouldSkipMetrics_whoseRequestWasNotWritten() {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        adapter.recordMetric(RequestMetric.builder().userRequest(userRequest()).build());
+        adapter.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(
+                anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(1.0, meterRegistry.get("aibroker.audit.failed").counter().count());
+    }
+
+    @Test
+    void flush_shouldCountFailedEntries_whenBatchWriteFails() {
+        when(jdbcTemplate.batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("database down"));
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        adapter.recordRequest(userRequest());
+        adapter.recordRequest(userRequest());
+        adapter.flush();
+
+        assertEquals(2.0, meterRegistry.get("aibroker.audit.failed").counter().count());
+        // the batch and its two retries, then each row
+        verify(jdbcTemplate, times(3)).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate, times(2)).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void flush_shouldRetryABatch_whenTheDatabaseRefusesItForAWhile() {
+        when(jdbcTemplate.batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new TransientDataAccessResourceException("connection reset"))
+                .thenReturn(new int[0][0]);
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        UserRequest request = userRequest();
+        adapter.recordRequest(request);
+        adapter.recordRequest(userRequest());
+        adapter.recordMetric(RequestMetric.builder().userRequest(request).totalTokens(12).build());
+        adapter.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_METRIC_SQL), any(Collection.class), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(0.0, meterRegistry.get("aibroker.audit.failed").counter().count());
+    }
+
+    @Test
+    void flush_shouldDropOnlyTheRowsTheDatabaseRefuses_withTheMetricsOfADroppedRequest() {
+        UserRequest refused = userRequest();
+        UserRequest written = userRequest();
+        UserRequest writtenBefore = userRequest();
+        when(jdbcTemplate.batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+                    Collection<UserRequest> rows = invocation.getArgument(1);
+                    if (rows.size() > 1) {
+                        // the first row made it in before the batch failed
+                        throw new DuplicateKeyException("Duplicate entry");
+                    }
+                    if (rows.contains(writtenBefore)) {
+                        throw new DuplicateKeyException("Duplicate entry");
+                    }
+                    if (rows.contains(refused)) {
+                        throw new DataIntegrityViolationException("Cannot add a child row");
+                    }
+                    return new int[0][0];
+                });
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        adapter.recordRequest(writtenBefore);
+        adapter.recordRequest(refused);
+        adapter.recordRequest(written);
+        adapter.recordMetric(RequestMetric.builder().userRequest(refused).totalTokens(12).build());
+        adapter.recordMetric(RequestMetric.builder().userRequest(written).totalTokens(7).build());
+        adapter.flush();
+
+        ArgumentCaptor<Collection<RequestMetric>> metrics = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_METRIC_SQL), metrics.capture(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertSame(written, metrics.getValue().iterator().next().getUserRequest());
+        // the entity still belongs to the request pipeline
+        assertNotNull(refused.getId());
+        assertNotNull(writtenBefore.getId());
+        // the refused request and its metric
+        assertEquals(2.0, meterRegistry.get("aibroker.audit.failed").counter().count());
+    }
+
+    @Test
+    void flush_shouldSkipTheLaterEntriesOfADroppedRequest() {
+        UserRequest refused = userRequest();
+        when(jdbcTemplate.batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("Cannot add a child row"));
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+        adapter.recordRequest(refused);
+        adapter.flush();
+
+        refused.setModel(Model.builder().id(2L).build());
+        adapter.recordModel(refused);
+        adapter.recordMetric(RequestMetric.builder().userRequest(refused).totalTokens(12).build());
+        adapter.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(
+                eq(JdbcAuditLogAdapter.UPDATE_REQUEST_MODEL_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate, never()).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_METRIC_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        // the request and its metric
+        assertEquals(2.0, meterRegistry.get("aibroker.audit.failed").counter().count());
+    }
+
+    @Test
+    void recordRequest_shouldDropEntry_whenQueueIsFullAndPolicyIsDrop() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = blockWriter(writerBusy);
+        adapter = adapter(1, 50, Duration.ofMillis(10), AuditOverflowPolicy.DROP);
+
+        adapter.recordRequest(userRequest());
+        assertTrue(writerBusy.await(2, TimeUnit.SECONDS));
+        adapter.recordRequest(userRequest());
+        UserRequest dropped = userRequest();
+        adapter.recordRequest(dropped);
+
+        assertNull(dropped.getId());
+        assertEquals(1.0, meterRegistry.get("aibroker.audit.dropped").counter().count());
+        assertEquals(1.0, meterRegistry.get("aibroker.audit.queue.depth").gauge().value());
+        release.countDown();
+    }
+
+    @Test
+    void recordRequest_shouldWaitForRoom_whenQueueIsFullAndPolicyIsBlock() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = blockWriter(writerBusy);
+        adapter = adapter(1, 50, Duration.ofMillis(10), AuditOverflowPolicy.BLOCK);
+
+        adapter.recordRequest(userRequest());
+        assertTrue(writerBusy.await(2, TimeUnit.SECONDS));
+        adapter.recordRequest(userRequest());
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> adapter.recordRequest(userRequest()));
+
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+
+        release.countDown();
+        blocked.get(2, TimeUnit.SECONDS);
+        assertEquals(0.0, meterRegistry.get("aibroker.audit.dropped").counter().count());
+    }
+
+    @Test
+    void close_shouldWriteQueuedEntries_andMakeFlushANoOp() {
+        adapter = adapter(100, 50, Duration.ofSeconds(5), AuditOverflowPolicy.DROP);
+
+        adapter.recordRequest(userRequest());
+        adapter.close();
+        adapter.flush();
+
+        verify(jdbcTemplate).batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    private JdbcAuditLogAdapter adapter(int capacity, int batchSize, Duration flushInterval,
+            AuditOverflowPolicy policy) {
+        return new JdbcAuditLogAdapter(jdbcTemplate, meterRegistry, capacity, batchSize, flushInterval, policy, 2,
+                Duration.ofMillis(1));
+    }
+
+    private CountDownLatch blockWriter(CountDownLatch writerBusy) {
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(
+                eq(JdbcAuditLogAdapter.INSERT_REQUEST_SQL), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+                    writerBusy.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new int[0][0];
+                });
+        return release;
+    }
+
+    private static UserRequest userRequest() {
+        return UserRequest.builder()
+                .model(Model.builder().id(1L).name("model").build())
+                .user(User.builder().id(2L).build())
+                .prompt("[user]: hi\n")
+                .build();
+    }
+}
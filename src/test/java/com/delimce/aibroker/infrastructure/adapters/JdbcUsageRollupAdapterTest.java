@@ -0,0 +1,176 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.dto.values.UsageRollup;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.RequestMetric;
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.entities.UserRequest;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JdbcUsageRollupAdapterTest {
+
+    private static final String HOURLY_UPDATE = JdbcUsageRollupAdapter.UPDATE_SQL.get(UsagePeriod.HOUR);
+    private static final String HOURLY_INSERT = JdbcUsageRollupAdapter.INSERT_SQL.get(UsagePeriod.HOUR);
+    private static final String DAILY_UPDATE = JdbcUsageRollupAdapter.UPDATE_SQL.get(UsagePeriod.DAY);
+    private static final String DAILY_INSERT = JdbcUsageRollupAdapter.INSERT_SQL.get(UsagePeriod.DAY);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JdbcUsageRollupAdapter adapter = new JdbcUsageRollupAdapter(jdbcTemplate, meterRegistry);
+
+    @Test
+    void record_shouldSumTheMetricsOfAUserAndModel_inTheCurrentHour() {
+        adapter.record(request(1L, 10L), metric(100, 50, "0.00008200", false));
+        adapter.record(request(1L, 10L), metric(10, 5, "0.00000820", false));
+        adapter.record(request(1L, 10L), metric(100, 50, "0", true));
+        adapter.record(request(2L, 10L), metric(1, 1, null, false));
+
+        List<UsageRollup> pending = adapter.pending(UsagePeriod.HOUR);
+
+        assertEquals(2, pending.size());
+        UsageRollup first = pending.stream().filter(rollup -> rollup.userId() == 1L).findFirst().orElseThrow();
+        assertEquals(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS), first.start());
+        assertEquals(10L, first.modelId());
+        assertEquals(3, first.requests());
+        assertEquals(1, first.cachedRequests());
+        assertEquals(110, first.promptTokens());
+        assertEquals(22, first.cacheHitTokens());
+        assertEquals(55, first.completionTokens());
+        assertEquals(165, first.totalTokens());
+        assertEquals(new BigDecimal("0.00009020"), first.cost());
+        UsageRollup second = pending.stream().filter(rollup -> rollup.userId() == 2L).findFirst().orElseThrow();
+        assertEquals(0, second.cost().signum());
+    }
+
+    @Test
+    void record_shouldSumTheSameUsage_inTheCurrentDay() {
+        adapter.record(request(1L, 10L), metric(100, 50, "0.00008200", false));
+        adapter.record(request(1L, 10L), metric(10, 5, "0.00000820", false));
+
+        List<UsageRollup> pending = adapter.pending(UsagePeriod.DAY);
+
+        assertEquals(1, pending.size());
+        assertEquals(LocalDateTime.now().truncatedTo(ChronoUnit.DAYS), pending.get(0).start());
+        assertEquals(2, pending.get(0).requests());
+        assertEquals(165, pending.get(0).totalTokens());
+        assertEquals(new BigDecimal("0.00009020"), pending.get(0).cost());
+    }
+
+    @Test
+    void record_shouldSkipRequestsWithoutAUserOrModelId() {
+        adapter.record(UserRequest.builder().build(), metric(1, 1, "1", false));
+        adapter.record(UserRequest.builder().user(new User()).model(new Model()).build(), metric(1, 1, "1", false));
+        adapter.record(UserRequest.builder().user(User.builder().id(1L).build()).model(new Model()).build(),
+                metric(1, 1, "1", false));
+        adapter.record(UserRequest.builder().user(User.builder().id(1L).build()).build(), metric(1, 1, "1", false));
+
+        assertTrue(adapter.pending(UsagePeriod.HOUR).isEmpty());
+        assertTrue(adapter.pending(UsagePeriod.DAY).isEmpty());
+    }
+
+    @Test
+    void flush_shouldAddThePendingUsageToTheExistingRows() {
+        when(jdbcTemplate.update(eq(HOURLY_UPDATE), any(Object[].class))).thenReturn(1);
+        when(jdbcTemplate.update(eq(DAILY_UPDATE), any(Object[].class))).thenReturn(1);
+        adapter.record(request(1L, 10L), metric(100, 50, "0.00008200", false));
+
+        adapter.flush();
+
+        ArgumentCaptor<Object[]> hourly = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(eq(HOURLY_UPDATE), hourly.capture());
+        assertArrayEquals(new Object[] { 1L, 0L, 100L, 20L, 50L, 150L, new BigDecimal("0.00008200"),
+                Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS)), 1L, 10L },
+                hourly.getValue());
+        ArgumentCaptor<Object[]> daily = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(eq(DAILY_UPDATE), daily.capture());
+        assertEquals(Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.DAYS)), daily.getValue()[7]);
+        verify(jdbcTemplate, never()).update(eq(HOURLY_INSERT), any(Object[].class));
+        assertTrue(adapter.pending(UsagePeriod.HOUR).isEmpty());
+        assertEquals(1, meterRegistry.get("aibroker.usage.flush").timer().count());
+
+        adapter.flush();
+        verify(jdbcTemplate, times(1)).update(eq(HOURLY_UPDATE), any(Object[].class));
+    }
+
+    @Test
+    void flush_shouldCreateTheRow_onTheFirstFlushOfItsHour() {
+        adapter.record(request(1L, 10L), metric(100, 50, "0.00008200", false));
+
+        adapter.flush();
+
+        verify(jdbcTemplate).update(eq(HOURLY_INSERT), any(Object[].class));
+        verify(jdbcTemplate).update(eq(DAILY_INSERT), any(Object[].class));
+    }
+
+    @Test
+    void flush_shouldUpdateTheRow_whenAnotherInstanceCreatedItFirst() {
+        when(jdbcTemplate.update(eq(HOURLY_UPDATE), any(Object[].class))).thenReturn(0, 1);
+        when(jdbcTemplate.update(eq(HOURLY_INSERT), any(Object[].class)))
+                .thenThrow(new DuplicateKeyException("usage_hourly_hour_user_model_index"));
+        adapter.record(request(1L, 10L), metric(100, 50, "0.00008200", false));
+
+        adapter.flush();
+
+        verify(jdbcTemplate, times(2)).update(eq(HOURLY_UPDATE), any(Object[].class));
+        assertTrue(adapter.pending(UsagePeriod.HOUR).isEmpty());
+    }
+
+    @Test
+    void flush_shouldKeepTheUsage_whenTheWriteFails() {
+        when(jdbcTemplate.update(eq(HOURLY_UPDATE), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(1);
+        when(jdbcTemplate.update(eq(DAILY_UPDATE), any(Object[].class))).thenReturn(1);
+        adapter.record(request(1L, 10L), metric(100, 50, "0.00008200", false));
+
+        adapter.flush();
+
+        List<UsageRollup> pending = adapter.pending(UsagePeriod.HOUR);
+        assertEquals(1, pending.size());
+        assertEquals(150, pending.get(0).totalTokens());
+        assertEquals(20, pending.get(0).cacheHitTokens());
+        assertEquals(new BigDecimal("0.00008200"), pending.get(0).cost());
+        assertTrue(adapter.pending(UsagePeriod.DAY).isEmpty());
+        assertEquals(1.0, meterRegistry.get("aibroker.usage.failed").counter().count());
+
+        adapter.close();
+
+        assertTrue(adapter.pending(UsagePeriod.HOUR).isEmpty());
+        verify(jdbcTemplate, times(1)).update(eq(DAILY_UPDATE), any(Object[].class));
+    }
+
+    private static UserRequest request(Long userId, Long modelId) {
+        return UserRequest.builder()
+                .user(User.builder().id(userId).build())
+                .model(Model.builder().id(modelId).build())
+                .build();
+    }
+
+    private static RequestMetric metric(int prompt, int completion, String cost, boolean responseCacheHit) {
+        return RequestMetric.builder()
+                .promptTokens(prompt)
+                .completionTokens(completion)
+                .totalTokens(prompt + completion)
+                .promptCacheHitTokens(prompt / 5)
+                .cost(cost != null ? new BigDecimal(cost) : null)
+                .responseCacheHit(responseCacheHit)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.entities.User;
+import com.delimce.aibroker.domain.enums.UserStatus;
+import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
+import io.jsonwebtoken.Claims;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Cost of checking a bearer token in {@link JwtTokenAdapter}.
+ * {@code verifyParsed} parses the token and checks its signature, as for the
+ * first request with it; {@code verifyCached} serves its claims from the
+ * verified-claims cache, as for every later one; {@code validateClaims}
+ * checks the claims against the user.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=JwtTokenAdapterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenAdapterBenchmark {
+
+    private static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtTokenAdapter cachingAdapter;
+    private JwtTokenAdapter parsingAdapter;
+    private User user;
+    private String token;
+    private Claims claims;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JwtTokenException {
+        user = User.builder()
+                .id(1L)
+                .email("bench@example.com")
+                .status(UserStatus.ACTIVE)
+                .tokenTs(new Date().getTime() / 1000)
+                .build();
+        cachingAdapter = adapter(Duration.ofMinutes(5));
+        // a verified token expires from the cache at once, so every call parses it
+        parsingAdapter = adapter(Duration.ZERO);
+        token = cachingAdapter.generateToken(user);
+        claims = cachingAdapter.verifyToken(token);
+    }
+
+    @Benchmark
+    public Claims verifyParsed() throws JwtTokenException {
+        return parsingAdapter.verifyToken(token);
+    }
+
+    @Benchmark
+    public Claims verifyCached() throws JwtTokenException {
+        return cachingAdapter.verifyToken(token);
+    }
+
+    @Benchmark
+    public boolean validateClaims() {
+        return cachingAdapter.areClaimsValid(claims, user);
+    }
+
+    private static JwtTokenAdapter adapter(Duration verifiedCacheTtl) {
+        JwtTokenAdapter adapter = new JwtTokenAdapter();
+        ReflectionTestUtils.setField(adapter, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(adapter, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(adapter, "verifiedCacheTtl", verifiedCacheTtl);
+        return adapter;
+    }
+}
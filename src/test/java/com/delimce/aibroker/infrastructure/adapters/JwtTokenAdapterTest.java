@@ -7,6 +7,10 @@ import com.delimce.aibroker.domain.entities.User;
 import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -489,4 +493,88 @@ class JwtTokenAdapterTest {
         // when & then
         assertFalse(jwtTokenAdapter.isTokenValid(userToken.token(), differentUser));
     }
+
+    // --- Verified claims cache Tests ---
+
+    @Test
+    void verifyToken_ShouldServeRepeatedTokenFromCache() throws JwtTokenException {
+        // given
+        String token = jwtTokenAdapter.generateToken(testUser);
+
+        // when
+        Claims first = jwtTokenAdapter.verifyToken(token);
+        Claims second = jwtTokenAdapter.verifyToken(token);
+
+        // then
+        assertSame(first, second);
+        assertEquals(testUser.getEmail(), first.getSubject());
+    }
+
+    @Test
+    void verifyToken_ShouldNotCacheRejectedTokens() throws JwtTokenException {
+        // given
+        String validToken = jwtTokenAdapter.generateToken(testUser);
+        String tamperedToken = validToken.substring(0, validToken.length() - 5) + "XXXXX";
+
+        // when & then
+        assertThrows(JwtTokenException.class, () -> jwtTokenAdapter.verifyToken(tamperedToken));
+        assertThrows(JwtTokenException.class, () -> jwtTokenAdapter.verifyToken(tamperedToken));
+        assertNotNull(jwtTokenAdapter.verifyToken(validToken));
+    }
+
+    @Test
+    void verifyToken_ShouldStopServingCachedClaims_onceTokenExpires() throws Throwable {
+        // given
+        ReflectionTestUtils.setField(jwtTokenAdapter, "jwtExpiration", 1500L);
+        String token = jwtTokenAdapter.generateToken(testUser);
+        assertNotNull(jwtTokenAdapter.verifyToken(token));
+
+        // when
+        Thread.sleep(1600);
+
+        // then
+        assertThrows(JwtTokenException.class, () -> jwtTokenAdapter.verifyToken(token));
+    }
+
+    @Test
+    void verifyToken_ShouldCacheTokensWithoutExpiration() throws JwtTokenException {
+        // given
+        String token = Jwts.builder()
+                .setSubject(testUser.getEmail())
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)), SignatureAlgorithm.HS256)
+                .compact();
+
+        // when & then
+        assertSame(jwtTokenAdapter.verifyToken(token), jwtTokenAdapter.verifyToken(token));
+    }
+
+    @Test
+    void areClaimsValid_ShouldRejectExpiredClaims() {
+        // given
+        Claims claims = Jwts.claims()
+                .setSubject(testUser.getEmail())
+                .setIssuedAt(new Date(testUser.getTokenTs() * 1000))
+                .setExpiration(new Date(System.currentTimeMillis() - 1000));
+
+        // when & then
+        assertFalse(jwtTokenAdapter.areClaimsValid(claims, testUser));
+    }
+
+    @Test
+    void areClaimsValid_ShouldRejectIncompleteClaims() {
+        // given
+        Claims withoutSubject = Jwts.claims()
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000));
+        Claims withoutExpiration = Jwts.claims()
+                .setSubject(testUser.getEmail())
+                .setIssuedAt(new Date(testUser.getTokenTs() * 1000));
+        Claims withoutIssuedAt = Jwts.claims()
+                .setSubject(testUser.getEmail())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000));
+
+        // when & then
+        assertFalse(jwtTokenAdapter.areClaimsValid(withoutSubject, testUser));
+        assertFalse(jwtTokenAdapter.areClaimsValid(withoutExpiration, testUser));
+        assertFalse(jwtTokenAdapter.areClaimsValid(withoutIssuedAt, testUser));
+    }
 }
@@ -0,0 +1,192 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.delimce.aibroker.domain.dto.responses.llm.Choice;
+import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.dto.values.VectorMatch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LshVectorIndexAdapterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void search_shouldFindTheClosestEntry_aboveTheThreshold() {
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), "");
+        index.registerMetrics();
+        ModelChatResponse weather = response("sunny");
+        ModelChatResponse recipe = response("pancakes");
+        index.add("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, weather);
+        index.add("scope", new float[] { 0, 0, 0, 0, 0, 0, 0, 1 }, recipe);
+
+        VectorMatch match = index.search("scope", new float[] { 2, 0.01f, 0, 0, 0, 0, 0, 0 }, 0.95);
+
+        assertNotNull(match);
+        assertSame(weather, match.response());
+        assertTrue(match.similarity() > 0.99);
+        assertNull(index.search("scope", new float[] { 1, 1, 1, 1, 0, 0, 0, 0 }, 0.95));
+        assertEquals(2.0, meterRegistry.get("aibroker.semantic.cache.size").gauge().value());
+    }
+
+    @Test
+    void search_shouldOnlyMatchEntriesOfTheSameScope() {
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), "");
+        index.add("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, response("sunny"));
+
+        assertNull(index.search("other-scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, 0.5));
+    }
+
+    @Test
+    void search_shouldIgnoreExpiredEntries() throws InterruptedException {
+        LshVectorIndexAdapter index = index(100, Duration.ofMillis(1), "");
+        index.add("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, response("sunny"));
+        Thread.sleep(10);
+
+        assertNull(index.search("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, 0.5));
+    }
+
+    @Test
+    void add_shouldOverwriteTheOldestEntry_whenFull() {
+        LshVectorIndexAdapter index = index(2, Duration.ofHours(1), "");
+        index.add("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, response("first"));
+        index.add("scope", new float[] { 0, 1, 0, 0, 0, 0, 0, 0 }, response("second"));
+        index.add("scope", new float[] { 0, 0, 1, 0, 0, 0, 0, 0 }, response("third"));
+
+        assertEquals(2, index.size());
+        assertNull(index.search("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, 0.95));
+        assertNotNull(index.search("scope", new float[] { 0, 0, 1, 0, 0, 0, 0, 0 }, 0.95));
+    }
+
+    @Test
+    void add_shouldKeepOtherEntriesOfABucket_whenOverwritingOne() {
+        LshVectorIndexAdapter index = index(6, Duration.ofHours(1), "");
+        for (int i = 0; i < 7; i++) {
+            index.add("scope", new float[] { 1, 0.001f * i, 0, 0, 0, 0, 0, 0 }, response("answer-" + i));
+        }
+
+        assertEquals(6, index.size());
+        VectorMatch match = index.search("scope", new float[] { 1, 0.006f, 0, 0, 0, 0, 0, 0 }, 0.99);
+        assertNotNull(match);
+        assertEquals("answer-6", match.response().getChoices()[0].getFinish_reason());
+    }
+
+    @Test
+    void add_shouldClearTheIndex_whenTheDimensionsChange() {
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), "");
+        index.add("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, response("sunny"));
+        index.add("scope", new float[] { 1, 0, 0, 0 }, response("short"));
+
+        assertEquals(1, index.size());
+        assertNull(index.search("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, 0.5));
+        assertNotNull(index.search("scope", new float[] { 1, 0, 0, 0 }, 0.95));
+        assertNull(index.search("scope", new float[] { 1, 0, 0, 0, 0, 0 }, 0.5));
+    }
+
+    @Test
+    void add_shouldIgnoreZeroVectors() {
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), "");
+        index.add("scope", new float[] { 0, 0, 0, 0 }, response("nothing"));
+        index.add("scope", new float[0], response("nothing"));
+
+        assertEquals(0, index.size());
+        assertNull(index.search("scope", new float[] { 0, 0, 0, 0 }, 0.5));
+    }
+
+    @Test
+    void snapshot_shouldRestoreEntries_inANewIndex() {
+        String path = tempDir.resolve("cache/semantic.bin").toString();
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), path);
+        index.add("scope", new float[] { 1, 0, 0, 0, 0, 0, 0, 0 }, response("sunny"));
+        index.add("scope", new float[] { 0, 1, 0, 0, 0, 0, 0, 0 }, response("rainy"));
+        index.close();
+
+        LshVectorIndexAdapter restored = index(100, Duration.ofHours(1), path);
+        restored.restore();
+
+        assertEquals(2, restored.size());
+        VectorMatch match = restored.search("scope", new float[] { 0, 1, 0, 0, 0, 0, 0, 0 }, 0.95);
+        assertNotNull(match);
+        assertEquals("rainy", match.response().getChoices()[0].getFinish_reason());
+    }
+
+    @Test
+    void snapshot_shouldOnlyWrite_whenTheIndexChanged() throws IOException {
+        Path path = tempDir.resolve("semantic.bin");
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), path.toString());
+        index.snapshot();
+        assertFalse(Files.exists(path));
+
+        index.add("scope", new float[] { 1, 0, 0, 0 }, response("sunny"));
+        index.snapshot();
+        Files.delete(path);
+        index.snapshot();
+
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void snapshotAndRestore_shouldDoNothing_withoutASnapshotFile() {
+        LshVectorIndexAdapter inMemory = new LshVectorIndexAdapter(objectMapper, meterRegistry, 10, 8, 4,
+                Duration.ofHours(1), null);
+        inMemory.add("scope", new float[] { 1, 0, 0, 0 }, response("sunny"));
+        inMemory.close();
+        inMemory.restore();
+
+        LshVectorIndexAdapter missing = index(10, Duration.ofHours(1), tempDir.resolve("none.bin").toString());
+        missing.restore();
+
+        assertEquals(1, inMemory.size());
+        assertEquals(0, missing.size());
+    }
+
+    @Test
+    void restore_shouldStartEmpty_whenTheSnapshotIsUnreadable() throws IOException {
+        Path path = tempDir.resolve("semantic.bin");
+        Files.write(path, new byte[] { 1, 2, 3 });
+        LshVectorIndexAdapter index = index(100, Duration.ofHours(1), path.toString());
+        index.restore();
+
+        // right magic number, unknown version
+        Files.write(path, new byte[] { 0x41, 0x42, 0x56, 0x49, 0, 0, 0, 9 });
+        LshVectorIndexAdapter newer = index(100, Duration.ofHours(1), path.toString());
+        newer.restore();
+
+        assertEquals(0, index.size());
+        assertEquals(0, newer.size());
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new LshVectorIndexAdapter(objectMapper,
+                meterRegistry, 0, 8, 4, Duration.ofHours(1), ""));
+        assertThrows(IllegalArgumentException.class, () -> new LshVectorIndexAdapter(objectMapper,
+                meterRegistry, 10, 0, 4, Duration.ofHours(1), ""));
+        assertThrows(IllegalArgumentException.class, () -> new LshVectorIndexAdapter(objectMapper,
+                meterRegistry, 10, 8, 0, Duration.ofHours(1), ""));
+        assertThrows(IllegalArgumentException.class, () -> new LshVectorIndexAdapter(objectMapper,
+                meterRegistry, 10, LshVectorIndexAdapter.MAX_TABLES + 1, 4, Duration.ofHours(1), ""));
+        assertThrows(IllegalArgumentException.class, () -> new LshVectorIndexAdapter(objectMapper,
+                meterRegistry, 10, 8, LshVectorIndexAdapter.MAX_BITS + 1, Duration.ofHours(1), ""));
+    }
+
+    private LshVectorIndexAdapter index(int capacity, Duration ttl, String snapshotPath) {
+        return new LshVectorIndexAdapter(objectMapper, meterRegistry, capacity, 8, 4, ttl, snapshotPath);
+    }
+
+    private static ModelChatResponse response(String finishReason) {
+        Choice choice = new Choice(0, null, null, finishReason);
+        return ModelChatResponse.builder().choices(new Choice[] { choice }).build();
+    }
+}
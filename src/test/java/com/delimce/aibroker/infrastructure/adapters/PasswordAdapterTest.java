@@ -1,21 +1,41 @@
 package com.delimce.aibroker.infrastructure.adapters;
 
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 class PasswordAdapterTest {
 
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private PasswordAdapter passwordAdapter;
 
     @BeforeEach
     void setUp() {
-        passwordAdapter = new PasswordAdapter();
+        passwordAdapter = new PasswordAdapter(new BCryptPasswordEncoder(4), meterRegistry, 2, 16, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordAdapter.close();
     }
 
     @Test
-    void encode_ShouldReturnEncodedPassword() {
+    void encode_ShouldReturnEncodedPassword() throws TooManyRequestsException {
         // given
         String rawPassword = "password123";
 
@@ -25,10 +45,11 @@ class PasswordAdapterTest {
         // then
         assertNotNull(encodedPassword);
         assertNotEquals(rawPassword, encodedPassword);
+        assertEquals(1, meterRegistry.get("aibroker.password.hash").tag("operation", "encode").timer().count());
     }
 
     @Test
-    void matches_WithCorrectPassword_ShouldReturnTrue() {
+    void matches_WithCorrectPassword_ShouldReturnTrue() throws TooManyRequestsException {
         // given
         String rawPassword = "securePassword";
         String encodedPassword = passwordAdapter.encode(rawPassword);
@@ -38,10 +59,11 @@ class PasswordAdapterTest {
 
         // then
         assertTrue(result);
+        assertEquals(1, meterRegistry.get("aibroker.password.hash").tag("operation", "matches").timer().count());
     }
 
     @Test
-    void matches_WithIncorrectPassword_ShouldReturnFalse() {
+    void matches_WithIncorrectPassword_ShouldReturnFalse() throws TooManyRequestsException {
         // given
         String rawPassword = "securePassword";
         String wrongPassword = "wrongPassword";
@@ -53,4 +75,102 @@ class PasswordAdapterTest {
         // then
         assertFalse(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void encode_ShouldReject_WhenPoolAndQueueAreFull() throws Exception {
+        // given
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        replaceAdapter(blockingEncoder(hashing, release), 1, 1, Duration.ofSeconds(5));
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encodeQuietly("first"));
+        assertTrue(hashing.await(2, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encodeQuietly("second"));
+        waitForQueueDepth(1);
+
+        // when
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> passwordAdapter.encode("third"));
+
+        // then
+        assertEquals(Duration.ofSeconds(5), e.getRetryAfter());
+        assertEquals(1.0, meterRegistry.get("aibroker.password.rejected").counter().count());
+        release.countDown();
+        assertEquals("hashed", running.get(2, TimeUnit.SECONDS));
+        assertEquals("hashed", queued.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void matches_ShouldReject_WhenQueuedLongerThanMaxQueueTime() throws Exception {
+        // given
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        replaceAdapter(blockingEncoder(hashing, release), 1, 4, Duration.ofMillis(50));
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encodeQuietly("first"));
+        assertTrue(hashing.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> late = CompletableFuture.supplyAsync(() -> {
+            try {
+                return passwordAdapter.matches("raw", "encoded");
+            } catch (TooManyRequestsException e) {
+                return null;
+            }
+        });
+        waitForQueueDepth(1);
+        Thread.sleep(100);
+
+        // when
+        release.countDown();
+
+        // then
+        assertEquals("hashed", running.get(2, TimeUnit.SECONDS));
+        assertNull(late.get(2, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("aibroker.password.rejected").counter().count());
+        assertEquals(0, meterRegistry.get("aibroker.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encode_ShouldRethrowEncoderFailures() {
+        // given
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenThrow(new IllegalArgumentException("bad input"));
+        replaceAdapter(encoder, 1, 1, Duration.ofSeconds(5));
+
+        // when / then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> passwordAdapter.encode("raw"));
+        assertEquals("bad input", e.getMessage());
+    }
+
+    private void replaceAdapter(PasswordEncoder encoder, int poolSize, int queueCapacity, Duration maxQueueTime) {
+        passwordAdapter.close();
+        meterRegistry = new SimpleMeterRegistry();
+        passwordAdapter = new PasswordAdapter(encoder, meterRegistry, poolSize, queueCapacity, maxQueueTime);
+    }
+
+    private String encodeQuietly(String rawPassword) {
+        try {
+            return passwordAdapter.encode(rawPassword);
+        } catch (TooManyRequestsException e) {
+            return null;
+        }
+    }
+
+    private void waitForQueueDepth(double depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (meterRegistry.get("aibroker.password.queue.depth").gauge().value() < depth) {
+            assertTrue(System.nanoTime() < deadline, "task was never queued");
+            Thread.sleep(5);
+        }
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch hashing, CountDownLatch release) {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hashed";
+        });
+        return encoder;
+    }
+}
@@ -1,24 +1,41 @@
 package com.delimce.aibroker.infrastructure.adapters;
 
+import com.delimce.aibroker.application.llm.ProviderGuard;
+import com.delimce.aibroker.application.llm.ProviderGuard.ProviderHealth;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
 import com.delimce.aibroker.domain.entities.Model;
 import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -285,4 +302,253 @@ class WebClientAdapterTest {
                 // Assert
                 assertNull(actualResponse);
         }
+
+        // --- requestToModelAsync Tests ---
+
+        @SuppressWarnings("null")
+        @Test
+        void requestToModelAsync_ShouldNotCallUpstream_UntilSubscribed() throws JsonProcessingException {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(false)
+                                .build();
+                String expectedJsonResponse = objectMapper.writeValueAsString(new ModelChatResponse());
+
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToMono(String.class)).thenReturn(Mono.just(expectedJsonResponse));
+
+                // Act
+                Mono<ModelChatResponse> pending = webClientAdapter.requestToModelAsync(model, request);
+
+                // Assert
+                verify(webClientMock, never()).post();
+                assertNotNull(pending.block());
+                verify(webClientMock).post();
+        }
+
+        @Test
+        void requestToModelAsync_ShouldFailWithProviderFailure_WhenApiReturnsServerError() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(false)
+                                .build();
+
+                WebClientResponseException webClientException = new WebClientResponseException(
+                                HttpStatus.SERVICE_UNAVAILABLE.value(), "Unavailable", null, null, null);
+
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToMono(String.class)).thenReturn(Mono.error(webClientException));
+
+                // Act & Assert
+                ProviderFailureException failure = assertThrows(ProviderFailureException.class,
+                                () -> webClientAdapter.requestToModelAsync(model, request).block());
+                assertEquals(503, failure.getStatus());
+        }
+
+        @Test
+        void requestToModelAsync_ShouldFailWithProviderFailure_WhenProviderCannotBeReached() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(false)
+                                .build();
+
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToMono(String.class)).thenReturn(Mono.error(new WebClientRequestException(
+                                new ConnectException("Connection refused"), HttpMethod.POST,
+                                URI.create("http://test-llm.com/api"), new HttpHeaders())));
+
+                // Act & Assert
+                ProviderFailureException failure = assertThrows(ProviderFailureException.class,
+                                () -> webClientAdapter.requestToModelAsync(model, request).block());
+                assertNull(failure.getStatus());
+        }
+
+        @Test
+        void requestToModelAsync_ShouldNotOpenTheCircuit_WhenApiRefusesTheRequests() {
+                // Arrange
+                Provider provider = Provider.builder().name("openai").baseUrl("http://test-llm.com/api")
+                                .apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "x".repeat(100)) })
+                                .stream(false)
+                                .build();
+                ProviderGuard guard = new ProviderGuard(new SimpleMeterRegistry(), true, 0.5, 4, 2,
+                                Duration.ofMinutes(1), true, 4, 1, 4, 0.5, 100);
+
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToMono(String.class)).thenReturn(Mono.error(new WebClientResponseException(
+                                HttpStatus.BAD_REQUEST.value(), "Bad Request", null,
+                                "{\"error\":\"context length exceeded\"}".getBytes(), null)));
+
+                // Act
+                for (int i = 0; i < 10; i++) {
+                        assertNull(guard.guard(model, webClientAdapter.requestToModelAsync(model, request)).block());
+                }
+
+                // Assert
+                ProviderHealth health = guard.health().get("openai");
+                assertEquals("CLOSED", health.state());
+                assertEquals(0.0, health.failureRate());
+                assertEquals(4, health.limit());
+        }
+
+        @Test
+        void requestToModelAsync_ShouldCompleteEmpty_WhenModelIsNull() {
+                // Arrange
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(false)
+                                .build();
+
+                // Act & Assert
+                assertFalse(webClientAdapter.requestToModelAsync(null, request).hasElement().block());
+                verifyNoInteractions(webClientMock);
+        }
+
+        // --- streamToModel Tests ---
+
+        @Test
+        void streamToModel_ShouldEmitParsedChunks_UntilDoneMarker() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(true)
+                                .build();
+
+                String firstChunk = "{\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"Hi\"}}]}";
+                String lastChunk = "{\"object\":\"chat.completion.chunk\",\"choices\":[],\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":1,\"total_tokens\":4}}";
+
+                when(requestBodySpecMock.accept(MediaType.TEXT_EVENT_STREAM)).thenReturn(requestBodySpecMock);
+                when(requestBodySpecMock.bodyValue(any())).thenReturn(postRequestHeadersSpecMock);
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToFlux(any(ParameterizedTypeReference.class))).thenReturn(Flux.just(
+                                ServerSentEvent.builder(firstChunk).build(),
+                                ServerSentEvent.builder().comment("keep-alive").build(),
+                                ServerSentEvent.builder(lastChunk).build(),
+                                ServerSentEvent.builder("[DONE]").build(),
+                                ServerSentEvent.builder(firstChunk).build()));
+
+                // Act
+                List<ModelChatResponse> chunks = webClientAdapter.streamToModel(model, request).collectList().block();
+
+                // Assert
+                assertEquals(2, chunks.size());
+                assertEquals("Hi", chunks.get(0).getChoices()[0].getMessage().getContent());
+                assertNull(chunks.get(0).getUsage());
+                assertEquals(3, chunks.get(1).getUsage().getPrompt_tokens());
+                assertEquals(1, chunks.get(1).getUsage().getCompletion_tokens());
+                assertEquals(4, chunks.get(1).getUsage().getTotal_tokens());
+                ArgumentCaptor<Object> body = ArgumentCaptor.forClass(Object.class);
+                verify(requestBodySpecMock).bodyValue(body.capture());
+                JsonNode sent = objectMapper.valueToTree(body.getValue());
+                assertEquals("test-model", sent.get("model").asText());
+                assertTrue(sent.get("stream").asBoolean());
+                assertTrue(sent.get("stream_options").get("include_usage").asBoolean());
+                assertEquals("Say hi", sent.get("messages").get(0).get("content").asText());
+        }
+
+        @Test
+        void streamToModel_ShouldCompleteEmpty_WhenStreamFails() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(true)
+                                .build();
+
+                when(requestBodySpecMock.accept(MediaType.TEXT_EVENT_STREAM)).thenReturn(requestBodySpecMock);
+                when(requestBodySpecMock.bodyValue(any())).thenReturn(postRequestHeadersSpecMock);
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToFlux(any(ParameterizedTypeReference.class)))
+                                .thenReturn(Flux.error(new RuntimeException("Unexpected")));
+
+                // Act & Assert
+                assertFalse(webClientAdapter.streamToModel(model, request).hasElements().block());
+        }
+
+        @Test
+        void streamToModel_ShouldFailWithProviderFailure_WhenApiReturnsServerError() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(true)
+                                .build();
+
+                when(requestBodySpecMock.accept(MediaType.TEXT_EVENT_STREAM)).thenReturn(requestBodySpecMock);
+                when(requestBodySpecMock.bodyValue(any())).thenReturn(postRequestHeadersSpecMock);
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToFlux(any(ParameterizedTypeReference.class))).thenReturn(Flux.error(
+                                new WebClientResponseException(HttpStatus.BAD_GATEWAY.value(), "Bad Gateway", null,
+                                                null, null)));
+
+                // Act & Assert
+                ProviderFailureException failure = assertThrows(ProviderFailureException.class,
+                                () -> webClientAdapter.streamToModel(model, request).blockLast());
+                assertEquals(502, failure.getStatus());
+        }
+
+        @Test
+        void streamToModel_ShouldFailWithProviderFailure_WhenTheConnectionDrops() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").apiKey("test-key").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(true)
+                                .build();
+
+                when(requestBodySpecMock.accept(MediaType.TEXT_EVENT_STREAM)).thenReturn(requestBodySpecMock);
+                when(requestBodySpecMock.bodyValue(any())).thenReturn(postRequestHeadersSpecMock);
+                when(postRequestHeadersSpecMock.retrieve()).thenReturn(responseSpecMock);
+                when(responseSpecMock.bodyToFlux(any(ParameterizedTypeReference.class)))
+                                .thenReturn(Flux.error(new IOException("Connection reset")));
+
+                // Act & Assert
+                assertThrows(ProviderFailureException.class,
+                                () -> webClientAdapter.streamToModel(model, request).blockLast());
+        }
+
+        @Test
+        void streamToModel_ShouldCompleteEmpty_WhenProviderApiKeyIsMissing() {
+                // Arrange
+                Provider provider = Provider.builder().baseUrl("http://test-llm.com/api").build();
+                Model model = Model.builder().provider(provider).name("test-model").build();
+                ModelRequest request = ModelRequest.builder()
+                                .model("test-model")
+                                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Say hi") })
+                                .stream(true)
+                                .build();
+
+                // Act & Assert
+                assertFalse(webClientAdapter.streamToModel(model, request).hasElements().block());
+                verifyNoInteractions(webClientMock);
+        }
 }
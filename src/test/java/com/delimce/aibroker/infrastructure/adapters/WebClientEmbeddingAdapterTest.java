@@ -0,0 +1,83 @@
+package com.delimce.aibroker.infrastructure.adapters;
+
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebClientEmbeddingAdapterTest {
+
+    private final AtomicReference<ClientRequest> sent = new AtomicReference<>();
+
+    @Test
+    void embed_shouldPostToProviderAndReturnTheFirstEmbedding() {
+        WebClientEmbeddingAdapter adapter = adapter(HttpStatus.OK,
+                "{\"data\":[{\"index\":0,\"embedding\":[0.25,-0.5,1.0]}]}");
+
+        float[] vector = adapter.embed(model("https://api.example.com/v1/embeddings", "key"), "hello").block();
+
+        assertArrayEquals(new float[] { 0.25f, -0.5f, 1.0f }, vector);
+        assertEquals("https://api.example.com/v1/embeddings", sent.get().url().toString());
+        assertEquals("Bearer key", sent.get().headers().getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Test
+    void embed_shouldBeEmpty_whenTheResponseHasNoEmbedding() {
+        assertNull(adapter(HttpStatus.OK, "{\"data\":[]}")
+                .embed(model("https://api.example.com", "key"), "hello").block());
+        assertNull(adapter(HttpStatus.OK, "{\"data\":[{\"embedding\":\"none\"}]}")
+                .embed(model("https://api.example.com", "key"), "hello").block());
+        assertNull(adapter(HttpStatus.OK, "not json")
+                .embed(model("https://api.example.com", "key"), "hello").block());
+    }
+
+    @Test
+    void embed_shouldBeEmpty_whenProviderIsNotConfigured() {
+        WebClientEmbeddingAdapter adapter = adapter(HttpStatus.OK, "{}");
+
+        assertNull(adapter.embed(model("", "key"), "hello").block());
+        assertNull(adapter.embed(model(null, "key"), "hello").block());
+        assertNull(adapter.embed(model("https://api.example.com", null), "hello").block());
+        assertNull(adapter.embed(model("https://api.example.com", " "), "hello").block());
+        assertNull(adapter.embed(Model.builder().name("orphan").build(), "hello").block());
+        assertNull(sent.get());
+    }
+
+    @Test
+    void embed_shouldSignalUpstreamErrors() {
+        WebClientEmbeddingAdapter adapter = adapter(HttpStatus.SERVICE_UNAVAILABLE, "{}");
+
+        assertThrows(WebClientResponseException.class,
+                () -> adapter.embed(model("https://api.example.com", "key"), "hello").block());
+    }
+
+    private WebClientEmbeddingAdapter adapter(HttpStatus status, String body) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            sent.set(request);
+            return Mono.just(ClientResponse.create(status)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build());
+        });
+        return new WebClientEmbeddingAdapter(builder, new ObjectMapper());
+    }
+
+    private static Model model(String baseUrl, String apiKey) {
+        Provider provider = new Provider();
+        provider.setBaseUrl(baseUrl);
+        provider.setApiKey(apiKey);
+        return Model.builder().name("text-embedding").provider(provider).build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.delimce.aibroker.infrastructure.adapters.springai;
+
+import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.Message;
+
+/**
+ * Cost of {@link DeepSeekAdapter#mergeMessages}, turning the messages of a
+ * chat request into Spring AI prompt messages, for conversations of a few
+ * turns up to a long one.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=DeepSeekAdapterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeepSeekAdapterBenchmark {
+
+    @Param({ "2", "16", "64" })
+    private int messages;
+
+    private DeepSeekAdapter adapter;
+    private ModelMessageRequest[] conversation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // mergeMessages uses neither the mapper nor the client registry
+        adapter = new DeepSeekAdapter(null, null);
+        conversation = new ModelMessageRequest[messages];
+        for (int i = 0; i < messages; i++) {
+            String role = i == 0 ? "system" : i % 2 == 1 ? "user" : "assistant";
+            conversation[i] = new ModelMessageRequest(role, "x".repeat(2000));
+        }
+    }
+
+    @Benchmark
+    public List<Message> mergeMessages() {
+        return adapter.mergeMessages(conversation);
+    }
+}
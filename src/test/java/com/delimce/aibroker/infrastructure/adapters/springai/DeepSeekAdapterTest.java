@@ -1,10 +1,18 @@
 package com.delimce.aibroker.infrastructure.adapters.springai;
 
 import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
+import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.jfr.UpstreamCallEvent;
 import com.delimce.aibroker.domain.mappers.llm.ChatResponseMapper;
+import com.delimce.aibroker.utils.FlightRecordings;
+import jdk.jfr.consumer.RecordedEvent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.messages.AssistantMessage;
@@ -12,12 +20,27 @@ import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.deepseek.DeepSeekChatModel;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,9 +49,175 @@ class DeepSeekAdapterTest {
     @Mock
     private ChatResponseMapper chatResponseMapper;
 
+    @Mock
+    private DeepSeekClientRegistry clientRegistry;
+
+    @Test
+    void requestToModel_shouldCallRegistryClient_withRequestTemperature() {
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
+        Provider provider = Provider.builder().id(1L).apiKey("key").build();
+        Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+        ModelRequest request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .temperature(0.3)
+                .maxTokens(128)
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+                .build();
+        DeepSeekChatModel chatModel = mock(DeepSeekChatModel.class);
+        ChatResponse response = mock(ChatResponse.class);
+        ModelChatResponse expected = new ModelChatResponse();
+
+        when(clientRegistry.clientFor(provider)).thenReturn(chatModel);
+        when(chatModel.call(any(Prompt.class))).thenReturn(response);
+        when(chatResponseMapper.toModelChatResponse(response)).thenReturn(expected);
+
+        ModelChatResponse actual = adapter.requestToModel(model, request);
+
+        assertSame(expected, actual);
+        ArgumentCaptor<Prompt> promptCaptor = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(promptCaptor.capture());
+        assertEquals(0.3, promptCaptor.getValue().getOptions().getTemperature());
+        assertEquals(128, promptCaptor.getValue().getOptions().getMaxTokens());
+        assertEquals(1, promptCaptor.getValue().getInstructions().size());
+    }
+
+    @Test
+    void requestToModel_shouldRecordTheCallAsAFlightRecorderEvent() throws Throwable {
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
+        Provider provider = Provider.builder().id(1L).name("DeepSeek").apiKey("key").build();
+        Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+        ModelRequest request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+                .build();
+        DeepSeekChatModel chatModel = mock(DeepSeekChatModel.class);
+        ChatResponse response = mock(ChatResponse.class);
+
+        when(clientRegistry.clientFor(provider)).thenReturn(chatModel);
+        when(chatModel.call(any(Prompt.class))).thenReturn(response).thenThrow(new IllegalStateException("down"));
+        when(chatResponseMapper.toModelChatResponse(response)).thenReturn(new ModelChatResponse());
+
+        List<RecordedEvent> events = FlightRecordings.record(UpstreamCallEvent.NAME, () -> {
+            adapter.requestToModel(model, request);
+            assertThrows(IllegalStateException.class, () -> adapter.requestToModel(model, request));
+        });
+
+        assertEquals(List.of(UpstreamCallEvent.SUCCESS, UpstreamCallEvent.ERROR), events.stream()
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .map(event -> event.getString("outcome")).toList());
+        assertEquals("DeepSeek", events.get(0).getString("provider"));
+    }
+
+    @Test
+    void requestToModelAsync_shouldRunBlockingCallOffTheCallerThread() {
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
+        Provider provider = Provider.builder().id(1L).apiKey("key").build();
+        Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+        ModelRequest request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+                .build();
+        DeepSeekChatModel chatModel = mock(DeepSeekChatModel.class);
+        ChatResponse response = mock(ChatResponse.class);
+        ModelChatResponse expected = new ModelChatResponse();
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> callingThread = new AtomicReference<>();
+
+        when(clientRegistry.clientFor(provider)).thenReturn(chatModel);
+        when(chatModel.call(any(Prompt.class))).thenAnswer(invocation -> {
+            callingThread.set(Thread.currentThread());
+            return response;
+        });
+        when(chatResponseMapper.toModelChatResponse(response)).thenReturn(expected);
+
+        ModelChatResponse actual = adapter.requestToModelAsync(model, request).block();
+
+        assertSame(expected, actual);
+        assertNotSame(caller, callingThread.get());
+    }
+
+    @Test
+    void streamToModel_shouldMapEachStreamedResponseToChunk() {
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
+        Provider provider = Provider.builder().id(1L).apiKey("key").build();
+        Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+        ModelRequest request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .stream(true)
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+                .build();
+        DeepSeekChatModel chatModel = mock(DeepSeekChatModel.class);
+        ChatResponse first = mock(ChatResponse.class);
+        ChatResponse last = mock(ChatResponse.class);
+        ModelChatResponse firstChunk = new ModelChatResponse();
+        ModelChatResponse lastChunk = new ModelChatResponse();
+
+        when(clientRegistry.clientFor(provider)).thenReturn(chatModel);
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(first, last));
+        when(chatResponseMapper.toModelChatChunk(first)).thenReturn(firstChunk);
+        when(chatResponseMapper.toModelChatChunk(last)).thenReturn(lastChunk);
+
+        List<ModelChatResponse> chunks = adapter.streamToModel(model, request).collectList().block();
+
+        assertEquals(List.of(firstChunk, lastChunk), chunks);
+        verify(chatModel, never()).call(any(Prompt.class));
+    }
+
+    @Test
+    void requestToModel_shouldRaiseAProviderFailure_whenTheProviderFails() {
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
+        Provider provider = Provider.builder().id(1L).apiKey("key").build();
+        Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+        ModelRequest request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+                .build();
+        DeepSeekChatModel chatModel = mock(DeepSeekChatModel.class);
+        when(clientRegistry.clientFor(provider)).thenReturn(chatModel);
+        when(chatModel.call(any(Prompt.class))).thenThrow(new TransientAiException("503 - overloaded"));
+
+        assertThrows(ProviderFailureException.class, () -> adapter.requestToModel(model, request));
+    }
+
+    @Test
+    void streamToModel_shouldRaiseAProviderFailure_whenTheProviderFails() {
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
+        Provider provider = Provider.builder().id(1L).apiKey("key").build();
+        Model model = Model.builder().name("deepseek-chat").provider(provider).build();
+        ModelRequest request = ModelRequest.builder()
+                .model("deepseek-chat")
+                .stream(true)
+                .messages(new ModelMessageRequest[] { new ModelMessageRequest("user", "Hi") })
+                .build();
+        DeepSeekChatModel chatModel = mock(DeepSeekChatModel.class);
+        when(clientRegistry.clientFor(provider)).thenReturn(chatModel);
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.error(
+                new WebClientResponseException(500, "Internal Server Error", null, null, null)));
+
+        ProviderFailureException failure = assertThrows(ProviderFailureException.class,
+                () -> adapter.streamToModel(model, request).blockLast());
+        assertEquals(500, failure.getStatus());
+    }
+
+    @Test
+    void translate_shouldLeaveTheErrorsOfTheRequestAsTheyAre() {
+        RuntimeException refused = new NonTransientAiException("400 - context length exceeded");
+        RuntimeException badRequest = new WebClientResponseException(400, "Bad Request", null, null, null);
+        RuntimeException unexpected = new IllegalStateException("unexpected");
+
+        assertSame(refused, DeepSeekAdapter.translate(refused));
+        assertSame(badRequest, DeepSeekAdapter.translate(badRequest));
+        assertSame(unexpected, DeepSeekAdapter.translate(unexpected));
+        assertInstanceOf(ProviderFailureException.class,
+                DeepSeekAdapter.translate(new ResourceAccessException("Read timed out")));
+        assertInstanceOf(ProviderFailureException.class, DeepSeekAdapter.translate(new WebClientRequestException(
+                new ConnectException("Connection refused"), HttpMethod.POST, URI.create("http://localhost"),
+                new HttpHeaders())));
+    }
+
     @Test
     void mergeMessages_shouldReturnEmptyList_whenNullOrEmptyInput() {
-        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper);
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
 
         List<Message> fromNull = adapter.mergeMessages(null);
         List<Message> fromEmpty = adapter.mergeMessages(new ModelMessageRequest[0]);
@@ -41,7 +230,7 @@ class DeepSeekAdapterTest {
 
     @Test
     void mergeMessages_shouldMapRolesToMessageTypes_andSkipNulls() {
-        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper);
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
 
         ModelMessageRequest system = new ModelMessageRequest("system", "system-content");
         ModelMessageRequest assistant = new ModelMessageRequest("assistant", "assistant-content");
@@ -70,7 +259,7 @@ class DeepSeekAdapterTest {
 
     @Test
     void mapToModelChatResponse_shouldDelegateToMapper() {
-        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper);
+        DeepSeekAdapter adapter = new DeepSeekAdapter(chatResponseMapper, clientRegistry);
         ChatResponse response = mock(ChatResponse.class);
         ModelChatResponse expected = new ModelChatResponse();
 
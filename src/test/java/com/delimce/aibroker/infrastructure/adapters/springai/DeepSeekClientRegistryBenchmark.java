@@ -0,0 +1,116 @@
+package com.delimce.aibroker.infrastructure.adapters.springai;
+
+import com.delimce.aibroker.domain.entities.Provider;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.deepseek.DeepSeekChatModel;
+import org.springframework.ai.deepseek.DeepSeekChatOptions;
+import org.springframework.ai.deepseek.api.DeepSeekApi;
+
+/**
+ * Compares building a DeepSeek client per call (previous adapter behaviour)
+ * against reusing the client kept by {@link DeepSeekClientRegistry}, both
+ * talking to a local stub of the chat completions endpoint. Sample-time mode
+ * reports p50/p99 per call.
+ *
+ * <pre>
+ * ./mvnw -Pbenchmark test -Dbenchmark=DeepSeekClientRegistryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class DeepSeekClientRegistryBenchmark {
+
+    private static final byte[] STUB_RESPONSE = """
+            {"id":"chat-1","object":"chat.completion","created":1700000000,"model":"deepseek-chat",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"pong"},"finish_reason":"stop"}],
+             "usage":{"prompt_tokens":5,"completion_tokens":1,"total_tokens":6}}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer stubUpstream;
+    private Provider provider;
+    private DeepSeekClientRegistry registry;
+    private Prompt prompt;
+
+    @Setup(Level.Trial)
+    public void startStubUpstream() throws IOException {
+        stubUpstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubUpstream.createContext("/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, STUB_RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(STUB_RESPONSE);
+            }
+        });
+        stubUpstream.setExecutor(Executors.newFixedThreadPool(8));
+        stubUpstream.start();
+
+        provider = Provider.builder()
+                .id(1L)
+                .name("stub")
+                .apiKey("bench-key")
+                .baseUrl("http://127.0.0.1:" + stubUpstream.getAddress().getPort())
+                .build();
+        registry = new DeepSeekClientRegistry(DeepSeekClientRegistryBenchmark::buildClient);
+        prompt = new Prompt(
+                List.of(new UserMessage("ping")),
+                DeepSeekChatOptions.builder().temperature(0.0).build());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopStubUpstream() {
+        stubUpstream.stop(0);
+    }
+
+    @Benchmark
+    public ChatResponse clientPerCall() {
+        return buildClient(provider).call(prompt);
+    }
+
+    @Benchmark
+    public ChatResponse registryClient() {
+        return registry.clientFor(provider).call(prompt);
+    }
+
+    private static DeepSeekChatModel buildClient(Provider provider) {
+        DeepSeekApi deepSeekApi = DeepSeekApi.builder()
+                .baseUrl(provider.getBaseUrl())
+                .apiKey(provider.getApiKey())
+                .build();
+        return DeepSeekChatModel.builder()
+                .deepSeekApi(deepSeekApi)
+                .defaultOptions(DeepSeekChatOptions.builder()
+                        .model(DeepSeekApi.ChatModel.DEEPSEEK_CHAT.getValue())
+                        .maxTokens(DeepSeekClientRegistry.DEFAULT_MAX_TOKENS)
+                        .build())
+                .build();
+    }
+}
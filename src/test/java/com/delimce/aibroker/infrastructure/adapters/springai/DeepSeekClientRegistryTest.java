@@ -0,0 +1,142 @@
+package com.delimce.aibroker.infrastructure.adapters.springai;
+
+import com.delimce.aibroker.domain.entities.Provider;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.deepseek.DeepSeekChatModel;
+import org.springframework.ai.deepseek.DeepSeekChatOptions;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DeepSeekClientRegistryTest {
+
+    private final AtomicInteger builds = new AtomicInteger();
+    private final Function<Provider, DeepSeekChatModel> countingFactory = provider -> {
+        builds.incrementAndGet();
+        return mock(DeepSeekChatModel.class);
+    };
+
+    @Test
+    void clientFor_shouldReuseClient_whenProviderIsUnchanged() {
+        DeepSeekClientRegistry registry = new DeepSeekClientRegistry(countingFactory);
+        Provider provider = provider(1L, "key-1", "https://api.deepseek.com");
+
+        DeepSeekChatModel first = registry.clientFor(provider);
+        DeepSeekChatModel second = registry.clientFor(provider);
+
+        assertSame(first, second);
+        assertEquals(1, builds.get());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void clientFor_shouldRebuildClient_whenApiKeyChanges() {
+        DeepSeekClientRegistry registry = new DeepSeekClientRegistry(countingFactory);
+        Provider provider = provider(1L, "key-1", "https://api.deepseek.com");
+
+        DeepSeekChatModel first = registry.clientFor(provider);
+        provider.setApiKey("key-2");
+        DeepSeekChatModel second = registry.clientFor(provider);
+
+        assertNotSame(first, second);
+        assertEquals(2, builds.get());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void clientFor_shouldRebuildClient_whenBaseUrlChanges() {
+        DeepSeekClientRegistry registry = new DeepSeekClientRegistry(countingFactory);
+        Provider provider = provider(1L, "key-1", "https://api.deepseek.com");
+
+        DeepSeekChatModel first = registry.clientFor(provider);
+        DeepSeekChatModel second = registry.clientFor(provider(1L, "key-1", "https://proxy.internal"));
+
+        assertNotSame(first, second);
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void clientFor_shouldKeepOneClientPerProvider() {
+        DeepSeekClientRegistry registry = new DeepSeekClientRegistry(countingFactory);
+
+        DeepSeekChatModel first = registry.clientFor(provider(1L, "key-1", "https://api.deepseek.com"));
+        DeepSeekChatModel second = registry.clientFor(provider(2L, "key-1", "https://api.deepseek.com"));
+
+        assertNotSame(first, second);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void clientFor_shouldKeyByName_whenProviderHasNoId() {
+        DeepSeekClientRegistry registry = new DeepSeekClientRegistry(countingFactory);
+        Provider provider = provider(null, "key-1", "https://api.deepseek.com");
+        provider.setName("deepseek");
+
+        assertSame(registry.clientFor(provider), registry.clientFor(provider));
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void defaultFactory_shouldBuildDeepSeekChatModelWithDefaults() {
+        DeepSeekClientRegistry registry = new DeepSeekClientRegistry();
+
+        DeepSeekChatModel chatModel = registry.clientFor(provider(1L, "key-1", null));
+
+        DeepSeekChatOptions options = (DeepSeekChatOptions) chatModel.getDefaultOptions();
+        assertEquals("deepseek-chat", options.getModel());
+        assertEquals(DeepSeekClientRegistry.DEFAULT_MAX_TOKENS, options.getMaxTokens());
+    }
+
+    @Test
+    void defaultFactory_shouldCallTheBaseUrlOfTheProvider() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        List<String> paths = new CopyOnWriteArrayList<>();
+        server.createContext("/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+            byte[] body = ("{\"id\":\"1\",\"object\":\"chat.completion\",\"created\":0,\"model\":\"deepseek-chat\","
+                    + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"hi\"},"
+                    + "\"finish_reason\":\"stop\"}]}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String baseUrl = "http://localhost:" + server.getAddress().getPort() + "/proxy";
+            DeepSeekChatModel chatModel = new DeepSeekClientRegistry()
+                    .clientFor(provider(1L, "key-1", baseUrl + "/chat/completions"));
+
+            assertEquals("hi", chatModel.call("hello"));
+            assertEquals(List.of("/proxy/chat/completions"), paths);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void apiBaseUrl_shouldDropTheCompletionsPath() {
+        assertEquals("https://api.deepseek.com", DeepSeekClientRegistry.apiBaseUrl("https://api.deepseek.com"));
+        assertEquals("https://api.deepseek.com", DeepSeekClientRegistry.apiBaseUrl("https://api.deepseek.com/"));
+        assertEquals("https://proxy.internal/v1",
+                DeepSeekClientRegistry.apiBaseUrl("https://proxy.internal/v1/chat/completions"));
+    }
+
+    private static Provider provider(Long id, String apiKey, String baseUrl) {
+        return Provider.builder()
+                .id(id)
+                .name("provider-" + id)
+                .apiKey(apiKey)
+                .baseUrl(baseUrl)
+                .build();
+    }
+}
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -18,24 +19,29 @@ import com.delimce.aibroker.domain.dto.responses.users.UserCreatedResponse;
 import com.delimce.aibroker.domain.dto.responses.users.UserLoggedResponse;
 import com.delimce.aibroker.domain.dto.responses.users.UserMinDetail;
 import com.delimce.aibroker.domain.exceptions.SecurityValidationException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.exceptions.account.UserAlreadyExistsException;
 import com.delimce.aibroker.domain.exceptions.account.UserIsNotActiveException;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
-import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.utils.MetricsTestConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.io.DecodingException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(AccountController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(MetricsTestConfig.class)
 class AccountControllerTest {
 
     private static final String EMAIL = "john.doe@example.com";
@@ -60,7 +66,7 @@ class AccountControllerTest {
     private JwtTokenInterface jwtTokenInterface;
 
     @MockitoBean
-    private UserRepository userRepository;
+    private PrincipalCacheInterface principalCache;
 
     @SuppressWarnings("null")
 @Test
@@ -297,6 +303,54 @@ class AccountControllerTest {
                 any(UserRegistrationRequest.class));
     }
 
+    @SuppressWarnings("null")
+    @Test
+    void login_whenPasswordHashingIsSaturated_returnsTooManyRequests() throws Throwable {
+        UserLoginRequest request = UserLoginRequest.builder()
+                .email(EMAIL)
+                .password("strongPass1")
+                .build();
+
+        when(
+                accountLoginService.execute(any(UserLoginRequest.class)))
+                .thenThrow(new TooManyRequestsException("Too many authentication requests", Duration.ofMillis(1500)));
+
+        mockMvc
+                .perform(
+                        post("/account/auth")
+                                .contentType(APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.message").value("Too many authentication requests"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void register_whenPasswordHashingIsSaturated_returnsTooManyRequests() throws Throwable {
+        UserRegistrationRequest request = UserRegistrationRequest.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .email(EMAIL)
+                .password("strongPass1")
+                .passwordConfirmation("strongPass1")
+                .build();
+
+        when(
+                accountRegisterService.execute(any(UserRegistrationRequest.class)))
+                .thenThrow(new TooManyRequestsException("Too many authentication requests", Duration.ZERO));
+
+        mockMvc
+                .perform(
+                        post("/account/register")
+                                .contentType(APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.status").value(429));
+    }
+
     @Test
     void verify_withValidToken_returnsOkResponse() throws Throwable {
         LocalDateTime createdAt = LocalDateTime.of(2023, 12, 31, 23, 59);
@@ -1,15 +1,23 @@
 package com.delimce.aibroker.infrastructure.controllers.llm;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.delimce.aibroker.application.ServerTimings;
 import com.delimce.aibroker.application.llm.LlmChatService;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelMessageRequest;
 import com.delimce.aibroker.domain.dto.requests.llm.ModelRequest;
@@ -17,9 +25,14 @@ import com.delimce.aibroker.domain.dto.responses.llm.Choice;
 import com.delimce.aibroker.domain.dto.responses.llm.Message;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelChatResponse;
 import com.delimce.aibroker.domain.dto.responses.llm.Usage;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+import com.delimce.aibroker.domain.exceptions.ProviderUnavailableException;
+import com.delimce.aibroker.domain.exceptions.TooManyRequestsException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
-import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.utils.MetricsTestConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
 import java.time.Instant;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -32,10 +45,13 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @WebMvcTest(ChatRequestController.class)
 @AutoConfigureMockMvc(addFilters = false)
-@Import(ChatRequestControllerTest.SecurityTestConfig.class)
+@Import({ ChatRequestControllerTest.SecurityTestConfig.class, MetricsTestConfig.class })
 class ChatRequestControllerTest {
 
     @Autowired
@@ -74,14 +90,11 @@ class ChatRequestControllerTest {
                 usage,
                 "sig-xyz");
 
-        when(llmChatService.execute(any(ModelRequest.class))).thenReturn(
-                response);
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.just(response));
 
         mockMvc
-                .perform(
-                        post("/llm/chat")
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .content(objectMapper.writeValueAsString(request)))
+                .perform(asyncDispatch(performChat(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(200))
                 .andExpect(jsonPath("$.message").value("OK"))
@@ -98,7 +111,7 @@ class ChatRequestControllerTest {
 
         ArgumentCaptor<ModelRequest> requestCaptor = ArgumentCaptor.forClass(
                 ModelRequest.class);
-        verify(llmChatService).execute(requestCaptor.capture());
+        verify(llmChatService).executeAsync(requestCaptor.capture());
         ModelRequest captured = requestCaptor.getValue();
         org.junit.jupiter.api.Assertions.assertEquals(
                 "gpt-4o-mini-2024",
@@ -115,11 +128,56 @@ class ChatRequestControllerTest {
                 captured.getMessages()[0].getContent());
     }
 
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenRequestIsTimed_sendsServerTimingHeader() throws Exception {
+        ServerTimings timings = ServerTimings.start(false);
+        timings.recordNanos(ServerTimings.Stage.AUTH, 300_000L);
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.just(chunk("Pong", null)));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest(), timings)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(ServerTimings.HEADER, startsWith("auth;dur=0.300;")))
+                .andExpect(header().string(ServerTimings.HEADER, containsString("ser;dur=")))
+                .andExpect(jsonPath("$.info.choices[0].message.content").value("Pong"))
+                .andExpect(jsonPath("$.timings").doesNotExist());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenTimingsGoInTheBody_addsThemToTheResponse() throws Exception {
+        ServerTimings timings = ServerTimings.start(true);
+        timings.recordNanos(ServerTimings.Stage.AUTH, 300_000L);
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.just(chunk("Pong", null)));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest(), timings)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timings.auth").value(0.3))
+                .andExpect(jsonPath("$.timings.total").exists());
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenResponseIsNotTimed_sendsNoServerTimingHeader() throws Exception {
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.just(chunk("Pong", null)));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest())))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ServerTimings.HEADER));
+    }
+
     @SuppressWarnings("null")
     @Test
     void chatRequest_whenServiceThrowsIllegalArgument_returnsBadRequest()
             throws Exception {
-        when(llmChatService.execute(any(ModelRequest.class))).thenThrow(
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenThrow(
                 new IllegalArgumentException("Model not found"));
 
         ModelRequest request = ModelRequest.builder()
@@ -131,23 +189,20 @@ class ChatRequestControllerTest {
                 .build();
 
         mockMvc
-                .perform(
-                        post("/llm/chat")
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .content(objectMapper.writeValueAsString(request)))
+                .perform(asyncDispatch(performChat(request)))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.status").value(400))
                 .andExpect(jsonPath("$.message").value("Model not found"))
                 .andExpect(jsonPath("$.info").value(nullValue()));
 
-        verify(llmChatService).execute(any(ModelRequest.class));
+        verify(llmChatService).executeAsync(any(ModelRequest.class));
     }
 
     @SuppressWarnings("null")
     @Test
     void chatRequest_whenServiceThrowsUnhandledException_returnsInternalServerError()
             throws Exception {
-        when(llmChatService.execute(any(ModelRequest.class))).thenThrow(
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenThrow(
                 new RuntimeException("boom"));
 
         ModelRequest request = ModelRequest.builder()
@@ -161,10 +216,7 @@ class ChatRequestControllerTest {
                 .build();
 
         mockMvc
-                .perform(
-                        post("/llm/chat")
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .content(objectMapper.writeValueAsString(request)))
+                .perform(asyncDispatch(performChat(request)))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.status").value(500))
                 .andExpect(
@@ -172,7 +224,7 @@ class ChatRequestControllerTest {
                                 "An error occurred during execution"))
                 .andExpect(jsonPath("$.info").value(nullValue()));
 
-        verify(llmChatService).execute(any(ModelRequest.class));
+        verify(llmChatService).executeAsync(any(ModelRequest.class));
     }
 
     @SuppressWarnings("null")
@@ -198,7 +250,255 @@ class ChatRequestControllerTest {
                 .andExpect(
                         jsonPath("$.messages").value("Messages array cannot be empty"));
 
-        verify(llmChatService, never()).execute(any(ModelRequest.class));
+        verify(llmChatService, never()).executeAsync(any(ModelRequest.class));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenUpstreamSignalsIllegalArgument_returnsBadRequest()
+            throws Exception {
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.error(new IllegalArgumentException("Chat response is null")));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message").value("Chat response is null"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenUpstreamSignalsUnexpectedError_returnsInternalServerError()
+            throws Exception {
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.error(new IllegalStateException("connection reset")));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest())))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.status").value(500))
+                .andExpect(
+                        jsonPath("$.message").value(
+                                "An error occurred during execution"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenProviderIsUnavailable_returnsServiceUnavailable()
+            throws Exception {
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.error(new ProviderUnavailableException("Provider deepseek is unavailable",
+                        Duration.ofMillis(2500))));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest())))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.status").value(503))
+                .andExpect(jsonPath("$.message").value("Provider deepseek is unavailable"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenProviderFails_returnsBadGateway()
+            throws Exception {
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.error(new ProviderFailureException("Provider responded with status 503", 503, null)));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest())))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.status").value(502))
+                .andExpect(jsonPath("$.message").value("Provider responded with status 503"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenUpstreamQuotaIsExhausted_returnsTooManyRequests()
+            throws Exception {
+        when(llmChatService.executeAsync(any(ModelRequest.class))).thenReturn(
+                Mono.error(new TooManyRequestsException(
+                        "Upstream quota of provider deepseek tokens per minute exhausted",
+                        Duration.ofSeconds(12))));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(pingRequest())))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.message").value(
+                        "Upstream quota of provider deepseek tokens per minute exhausted"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamRequested_relaysChunksAsServerSentEvents()
+            throws Exception {
+        ModelChatResponse first = chunk("Hel", null);
+        ModelChatResponse last = chunk("lo", new Usage(5, 2, 7, null, 0, 0));
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenReturn(
+                Flux.just(first, last));
+
+        MvcResult result = performChat(streamRequest());
+
+        mockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("\"content\":\"Hel\"")))
+                .andExpect(content().string(containsString("\"total_tokens\":7")))
+                .andExpect(content().string(endsWith("data:[DONE]\n\n")));
+
+        verify(llmChatService, never()).executeAsync(any(ModelRequest.class));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamIsTimed_sendsTheTimeToFirstTokenRecordedWithTheFirstChunk()
+            throws Exception {
+        ServerTimings timings = ServerTimings.start(false);
+        // as LlmChatService does once the provider sends its first chunk
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenReturn(
+                Flux.just(chunk("Hel", null)).doOnNext(
+                        chunk -> timings.recordNanos(ServerTimings.Stage.TTFT, 2_000_000L)));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(streamRequest(), timings)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTimings.HEADER, startsWith("ttft;dur=2.000;")))
+                .andExpect(content().string(endsWith("data:[DONE]\n\n")));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamIsTimed_sendsTheTimingsKnownBeforeTheFirstChunk()
+            throws Exception {
+        ServerTimings timings = ServerTimings.start(false);
+        timings.recordNanos(ServerTimings.Stage.AUDIT, 1_000_000L);
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenReturn(
+                Flux.just(chunk("Hel", null)));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(streamRequest(), timings)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTimings.HEADER, startsWith("audit;dur=1.000;")))
+                .andExpect(content().string(endsWith("data:[DONE]\n\n")));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamFailsAfterTheFirstChunk_sendsErrorEvent() throws Exception {
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenReturn(
+                Flux.concat(
+                        Flux.just(chunk("Hel", null)),
+                        Flux.error(new IllegalArgumentException("Chat response is null"))));
+
+        MvcResult result = performChat(streamRequest());
+
+        mockMvc
+                .perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:error")))
+                .andExpect(content().string(containsString("\"status\":400")))
+                .andExpect(content().string(containsString("Chat response is null")));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamIsOverTheUserQuota_returnsTooManyRequestsWithoutStreaming()
+            throws Exception {
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenReturn(
+                Flux.error(new TooManyRequestsException(
+                        "Request quota of 100 requests per day exceeded",
+                        Duration.ofSeconds(30))));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(streamRequest())))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.message").value(
+                        "Request quota of 100 requests per day exceeded"));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamProviderIsUnavailable_returnsServiceUnavailableWithoutStreaming()
+            throws Exception {
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenReturn(
+                Flux.error(new ProviderUnavailableException(
+                        "Provider deepseek is unavailable",
+                        Duration.ofSeconds(5))));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(streamRequest())))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"))
+                .andExpect(jsonPath("$.status").value(503));
+    }
+
+    @SuppressWarnings("null")
+    @Test
+    void chatRequest_whenStreamModelIsUnknown_returnsBadRequestWithoutStreaming()
+            throws Exception {
+        when(llmChatService.executeStream(any(ModelRequest.class))).thenThrow(
+                new IllegalArgumentException("Model not found"));
+
+        mockMvc
+                .perform(asyncDispatch(performChat(streamRequest())))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Model not found"));
+    }
+
+    private MvcResult performChat(ModelRequest request) throws Exception {
+        return performChat(request, ServerTimings.DISABLED);
+    }
+
+    @SuppressWarnings("null")
+    private MvcResult performChat(ModelRequest request, ServerTimings timings) throws Exception {
+        return mockMvc
+                .perform(
+                        post("/llm/chat")
+                                .requestAttr(ServerTimings.ATTRIBUTE, timings)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static ModelRequest pingRequest() {
+        return ModelRequest.builder()
+                .model("gpt-4o-mini-2024")
+                .messages(
+                        new ModelMessageRequest[] {
+                                ModelMessageRequest.builder().content("Ping").build(),
+                        })
+                .build();
+    }
+
+    private static ModelRequest streamRequest() {
+        return ModelRequest.builder()
+                .model("gpt-4o-mini-2024")
+                .stream(true)
+                .messages(
+                        new ModelMessageRequest[] {
+                                ModelMessageRequest.builder().content("Ping").build(),
+                        })
+                .build();
+    }
+
+    private static ModelChatResponse chunk(String content, Usage usage) {
+        Choice choice = new Choice(0, new Message("assistant", content), null, null);
+        return new ModelChatResponse(
+                "chat-123",
+                "chat.completion.chunk",
+                1700000000L,
+                "gpt-4o-mini-2024",
+                new Choice[] { choice },
+                usage,
+                null);
     }
 
     @TestConfiguration
@@ -210,8 +510,8 @@ class ChatRequestControllerTest {
         }
 
         @Bean
-        UserRepository userRepository() {
-            return mock(UserRepository.class);
+        PrincipalCacheInterface principalCache() {
+            return mock(PrincipalCacheInterface.class);
         }
     }
 }
@@ -12,7 +12,8 @@ import com.delimce.aibroker.application.llm.ModelListService;
 import com.delimce.aibroker.domain.dto.responses.llm.ModelDetailResponse;
 import com.delimce.aibroker.domain.enums.ModelType;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
-import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.utils.MetricsTestConfig;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import org.junit.jupiter.api.Test;
@@ -27,7 +28,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(ModelController.class)
 @AutoConfigureMockMvc(addFilters = false)
-@Import(ModelControllerTest.SecurityTestConfig.class)
+@Import({ ModelControllerTest.SecurityTestConfig.class, MetricsTestConfig.class })
 class ModelControllerTest {
 
     @Autowired
@@ -162,8 +163,8 @@ class ModelControllerTest {
         }
 
         @Bean
-        UserRepository userRepository() {
-            return mock(UserRepository.class);
+        PrincipalCacheInterface principalCache() {
+            return mock(PrincipalCacheInterface.class);
         }
     }
 }
@@ -0,0 +1,68 @@
+package com.delimce.aibroker.infrastructure.controllers.system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import com.delimce.aibroker.application.llm.ProviderGuard;
+import com.delimce.aibroker.application.llm.ProviderGuard.ProviderHealth;
+import com.delimce.aibroker.domain.entities.Model;
+import com.delimce.aibroker.domain.entities.Provider;
+import com.delimce.aibroker.domain.exceptions.ProviderFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class ProviderHealthIndicatorTest {
+
+    private final ProviderGuard guard = new ProviderGuard(new SimpleMeterRegistry(), true, 0.5, 4, 2,
+            Duration.ofMinutes(1), true, 10, 1, 20, 0.9, 2);
+    private final ProviderHealthIndicator indicator = new ProviderHealthIndicator(guard);
+    private final Model deepseek = model("deepseek");
+    private final Model openai = model("openai");
+
+    @Test
+    void health_shouldBeUp_beforeAnyProviderIsCalled() {
+        Health health = indicator.health();
+
+        assertEquals(Status.UP, health.getStatus());
+        assertTrue(health.getDetails().isEmpty());
+    }
+
+    @Test
+    void health_shouldReportEveryProvider_andStayUpWhileOneCircuitIsClosed() {
+        guard.guard(openai, Mono.just("ok")).block();
+        trip(deepseek);
+
+        Health health = indicator.health();
+
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals("OPEN", ((ProviderHealth) health.getDetails().get("deepseek")).state());
+        ProviderHealth openaiHealth = (ProviderHealth) health.getDetails().get("openai");
+        assertEquals("CLOSED", openaiHealth.state());
+        assertEquals(10, openaiHealth.limit());
+    }
+
+    @Test
+    void health_shouldBeOutOfService_whenEveryCircuitIsOpen() {
+        trip(deepseek);
+        trip(openai);
+
+        assertEquals(Status.OUT_OF_SERVICE, indicator.health().getStatus());
+    }
+
+    private void trip(Model model) {
+        guard.guard(model, Mono.error(new ProviderFailureException("down", 503, null))).onErrorComplete().block();
+        guard.guard(model, Mono.error(new ProviderFailureException("down", 503, null))).onErrorComplete().block();
+    }
+
+    private static Model model(String provider) {
+        return Model.builder().name(provider + "-chat").enabled(true)
+                .provider(Provider.builder().name(provider).build()).build();
+    }
+}
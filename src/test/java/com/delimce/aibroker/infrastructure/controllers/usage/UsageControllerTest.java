@@ -0,0 +1,195 @@
+package com.delimce.aibroker.infrastructure.controllers.usage;
+
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.delimce.aibroker.application.usage.UsageLatencyService;
+import com.delimce.aibroker.application.usage.UsageReportService;
+import com.delimce.aibroker.application.usage.UsageSpendService;
+import com.delimce.aibroker.domain.dto.responses.usage.LatencyResponse;
+import com.delimce.aibroker.domain.dto.responses.usage.SpendLine;
+import com.delimce.aibroker.domain.dto.responses.usage.SpendResponse;
+import com.delimce.aibroker.domain.dto.responses.usage.UsageLine;
+import com.delimce.aibroker.domain.dto.responses.usage.UsageReportResponse;
+import com.delimce.aibroker.domain.dto.values.ModelLatency;
+import com.delimce.aibroker.domain.enums.UsagePeriod;
+import com.delimce.aibroker.domain.ports.JwtTokenInterface;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.utils.MetricsTestConfig;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(UsageController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(MetricsTestConfig.class)
+class UsageControllerTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @MockitoBean
+        private UsageSpendService usageSpendService;
+
+        @MockitoBean
+        private UsageReportService usageReportService;
+
+        @MockitoBean
+        private UsageLatencyService usageLatencyService;
+
+        @MockitoBean
+        private JwtTokenInterface jwtTokenInterface;
+
+        @MockitoBean
+        private PrincipalCacheInterface principalCache;
+
+        @Test
+        void spend_returnsTheSpendOfTheRange() throws Exception {
+                LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+                LocalDateTime to = LocalDateTime.of(2026, 1, 2, 0, 0);
+                when(usageSpendService.execute(from, LocalDateTime.of(2026, 1, 1, 23, 30)))
+                                .thenReturn(new SpendResponse(from, to, 3, 150, new BigDecimal("0.00008200"),
+                                                List.of(new SpendLine(1L, "jane.doe@example.com", 10L,
+                                                                "deepseek-chat", 3, 1, 100, 40, 50, 150,
+                                                                new BigDecimal("0.00008200")))));
+
+                mockMvc.perform(get("/usage/spend")
+                                .param("from", "2026-01-01T00:00:00")
+                                .param("to", "2026-01-01T23:30:00"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.status").value(200))
+                                .andExpect(jsonPath("$.info.requests").value(3))
+                                .andExpect(jsonPath("$.info.cost").value(0.000082))
+                                .andExpect(jsonPath("$.info.lines[0].email").value("jane.doe@example.com"))
+                                .andExpect(jsonPath("$.info.lines[0].model").value("deepseek-chat"))
+                                .andExpect(jsonPath("$.info.lines[0].cachedRequests").value(1))
+                                .andExpect(jsonPath("$.info.lines[0].totalTokens").value(150));
+        }
+
+        @Test
+        void spend_withoutARange_leavesTheDefaultsToTheService() throws Exception {
+                when(usageSpendService.execute(null, null)).thenReturn(new SpendResponse(
+                                LocalDateTime.of(2026, 1, 1, 0, 0), LocalDateTime.of(2026, 1, 1, 5, 0), 0, 0,
+                                BigDecimal.ZERO, List.of()));
+
+                mockMvc.perform(get("/usage/spend"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.info.lines").isEmpty());
+
+                verify(usageSpendService).execute(isNull(), isNull());
+        }
+
+        @Test
+        void spend_withAnInvertedRange_returnsBadRequest() throws Exception {
+                when(usageSpendService.execute(LocalDateTime.of(2026, 1, 2, 0, 0), LocalDateTime.of(2026, 1, 1, 0, 0)))
+                                .thenThrow(new IllegalArgumentException("from must be before to"));
+
+                mockMvc.perform(get("/usage/spend")
+                                .param("from", "2026-01-02T00:00:00")
+                                .param("to", "2026-01-01T00:00:00"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.message").value("from must be before to"));
+        }
+
+        @Test
+        void spend_whenTheServiceFails_returnsInternalServerError() throws Exception {
+                when(usageSpendService.execute(null, null)).thenThrow(new RuntimeException("database down"));
+
+                mockMvc.perform(get("/usage/spend"))
+                                .andExpect(status().isInternalServerError());
+        }
+
+        @Test
+        void hourly_returnsTheUsageOfEachHourOfTheUser() throws Exception {
+                LocalDateTime hour = LocalDateTime.of(2026, 1, 1, 10, 0);
+                when(usageReportService.execute(UsagePeriod.HOUR, hour, null, 1L))
+                                .thenReturn(new UsageReportResponse(UsagePeriod.HOUR, hour, hour.plusHours(1),
+                                                List.of(new UsageLine(hour, 1L, "jane.doe@example.com", 10L,
+                                                                "deepseek-chat", 3, 1, 100, 40, 50, 150,
+                                                                new BigDecimal("0.00008200")))));
+
+                mockMvc.perform(get("/usage/hourly")
+                                .param("from", "2026-01-01T10:00:00")
+                                .param("userId", "1"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.info.period").value("HOUR"))
+                                .andExpect(jsonPath("$.info.lines[0].start").value("2026-01-01T10:00:00"))
+                                .andExpect(jsonPath("$.info.lines[0].cacheHitTokens").value(40));
+        }
+
+        @Test
+        void daily_returnsTheUsageOfEachDay() throws Exception {
+                LocalDateTime day = LocalDateTime.of(2026, 1, 1, 0, 0);
+                when(usageReportService.execute(UsagePeriod.DAY, null, null, null))
+                                .thenReturn(new UsageReportResponse(UsagePeriod.DAY, day, day.plusDays(30),
+                                                List.of()));
+
+                mockMvc.perform(get("/usage/daily"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.info.period").value("DAY"))
+                                .andExpect(jsonPath("$.info.lines").isEmpty());
+        }
+
+        @Test
+        void daily_withAnOverlongRange_returnsBadRequest() throws Exception {
+                when(usageReportService.execute(UsagePeriod.DAY, null, null, null))
+                                .thenThrow(new IllegalArgumentException("The range is longer than 366 days"));
+
+                mockMvc.perform(get("/usage/daily"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.message").value("The range is longer than 366 days"));
+        }
+
+        @Test
+        void hourly_whenTheServiceFails_returnsInternalServerError() throws Exception {
+                when(usageReportService.execute(UsagePeriod.HOUR, null, null, null))
+                                .thenThrow(new RuntimeException("database down"));
+
+                mockMvc.perform(get("/usage/hourly"))
+                                .andExpect(status().isInternalServerError());
+        }
+
+        @Test
+        void latency_returnsTheLatenciesOfEachModel() throws Exception {
+                LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+                when(usageLatencyService.execute(from, null))
+                                .thenReturn(new LatencyResponse(from, from.plusHours(5), List.of(new ModelLatency(
+                                                10L, "deepseek-chat", "DeepSeek", 42L, 850.0, 22.5, 38.0))));
+
+                mockMvc.perform(get("/usage/latency").param("from", "2026-01-01T00:00:00"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.info.models[0].provider").value("DeepSeek"))
+                                .andExpect(jsonPath("$.info.models[0].calls").value(42))
+                                .andExpect(jsonPath("$.info.models[0].timeToFirstTokenMs").value(850.0))
+                                .andExpect(jsonPath("$.info.models[0].outputTokensPerSecond").value(38.0));
+        }
+
+        @Test
+        void latency_withAnOverlongRange_returnsBadRequest() throws Exception {
+                when(usageLatencyService.execute(null, null))
+                                .thenThrow(new IllegalArgumentException("The range is longer than 744 hours"));
+
+                mockMvc.perform(get("/usage/latency"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.message").value("The range is longer than 744 hours"));
+        }
+
+        @Test
+        void latency_whenTheServiceFails_returnsInternalServerError() throws Exception {
+                when(usageLatencyService.execute(null, null)).thenThrow(new RuntimeException("database down"));
+
+                mockMvc.perform(get("/usage/latency"))
+                                .andExpect(status().isInternalServerError());
+        }
+}
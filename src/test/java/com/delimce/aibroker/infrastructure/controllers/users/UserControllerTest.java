@@ -8,23 +8,29 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.delimce.aibroker.application.users.UserListService;
+import com.delimce.aibroker.application.users.UserQuotaService;
 import com.delimce.aibroker.application.users.UserRefreshService;
 import com.delimce.aibroker.domain.dto.responses.users.UserListResponse;
 import com.delimce.aibroker.domain.dto.responses.users.UserLoggedResponse;
+import com.delimce.aibroker.domain.dto.responses.users.UserQuotaResponse;
 import com.delimce.aibroker.domain.enums.UserStatus;
 import com.delimce.aibroker.domain.exceptions.security.JwtTokenException;
 import com.delimce.aibroker.domain.ports.JwtTokenInterface;
-import com.delimce.aibroker.domain.repositories.UserRepository;
+import com.delimce.aibroker.domain.ports.PrincipalCacheInterface;
+import com.delimce.aibroker.utils.MetricsTestConfig;
+import java.time.LocalDateTime;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(UserController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(MetricsTestConfig.class)
 class UserControllerTest {
 
         @Autowired
@@ -36,11 +42,14 @@ class UserControllerTest {
         @MockitoBean
         private UserRefreshService userRefreshService;
 
+        @MockitoBean
+        private UserQuotaService userQuotaService;
+
         @MockitoBean
         private JwtTokenInterface jwtTokenInterface;
 
         @MockitoBean
-        private UserRepository userRepository;
+        private PrincipalCacheInterface principalCache;
 
         @Test
         void listUsers_withValidAuthorizationHeader_returnsOk() throws Exception {
@@ -67,6 +76,35 @@ class UserControllerTest {
                 verify(userListService).execute();
         }
 
+        @Test
+        void listQuotas_returnsTheLiveUsageOfEveryUser() throws Exception {
+                when(userQuotaService.usage()).thenReturn(List.of(
+                                new UserQuotaResponse(1L, "jane.doe@example.com", 12, 100, 3400, 0,
+                                                LocalDateTime.of(2026, 1, 2, 0, 0))));
+
+                mockMvc.perform(get("/users/quota").header("Authorization", "Bearer validToken"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.status").value(200))
+                                .andExpect(jsonPath("$.info.length()").value(1))
+                                .andExpect(jsonPath("$.info[0].userId").value(1))
+                                .andExpect(jsonPath("$.info[0].email").value("jane.doe@example.com"))
+                                .andExpect(jsonPath("$.info[0].requests").value(12))
+                                .andExpect(jsonPath("$.info[0].requestQuota").value(100))
+                                .andExpect(jsonPath("$.info[0].tokens").value(3400))
+                                .andExpect(jsonPath("$.info[0].tokenQuota").value(0));
+
+                verify(userQuotaService).usage();
+        }
+
+        @Test
+        void listQuotas_whenServiceFails_returnsInternalServerError() throws Exception {
+                when(userQuotaService.usage()).thenThrow(new IllegalStateException("boom"));
+
+                mockMvc.perform(get("/users/quota").header("Authorization", "Bearer validToken"))
+                                .andExpect(status().isInternalServerError())
+                                .andExpect(jsonPath("$.status").value(500));
+        }
+
         @Test
         void listUsers_withMultipleUsers_returnsAllUsers() throws Exception {
                 List<UserListResponse> userResponses = List.of(
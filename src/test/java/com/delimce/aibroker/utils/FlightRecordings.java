@@ -0,0 +1,40 @@
+package com.delimce.aibroker.utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records the flight recorder events of one kind while an action runs.
+ */
+public final class FlightRecordings {
+
+    private FlightRecordings() {
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Throwable;
+    }
+
+    public static List<RecordedEvent> record(String eventName, Action action) throws Throwable {
+        Path file = Files.createTempFile("test-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
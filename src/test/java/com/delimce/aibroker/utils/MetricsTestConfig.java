@@ -0,0 +1,19 @@
+package com.delimce.aibroker.utils;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Meter registry for the web slices, which leave out the metrics
+ * auto-configuration but still build the timed security filter.
+ */
+@TestConfiguration
+public class MetricsTestConfig {
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}